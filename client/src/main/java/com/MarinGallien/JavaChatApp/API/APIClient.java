@@ -12,28 +12,45 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.PropertyNamingStrategies;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.http.HttpHeaders;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @Component
 public class APIClient {
     private static final Logger logger = LoggerFactory.getLogger(APIClient.class);
 
+    private static final int MAX_DOWNLOAD_ATTEMPTS = 3;
+    private static final long DOWNLOAD_CHUNK_SIZE = 1024 * 1024;
+    private static final int UPLOAD_PARALLELISM = 4;
+    private static final int MAX_UPLOAD_ROUNDS = 3;
+
     private final HttpClient httpClient;
     private final ObjectMapper objectMapper;
     private final String baseUrl;
@@ -204,6 +221,15 @@ public class APIClient {
         }
     }
 
+    public GetMessagePageResponse getMessagePage(GetMessagePageRequest request) {
+        try {
+            return sendAuthenticatedRequest("/api/message/history", request, GetMessagePageResponse.class, "POST");
+        } catch (Exception e) {
+            logger.error("Failed to get message page: {}", e.getMessage());
+            return new GetMessagePageResponse(false, "Failed to get message page: " + e.getMessage(), null, null, null, false);
+        }
+    }
+
     // ========== USER METHODS ==========
 
     public GenericResponse updateUsername(UpdateUnameRequest request) {
@@ -235,82 +261,234 @@ public class APIClient {
 
     // ========== FILE METHODS ==========
 
+    // Uploads a file through the resumable chunked endpoints. Chunks are read from their offset in the file and sent
+    // UPLOAD_PARALLELISM at a time; whatever the server still reports missing is sent again, for up to
+    // MAX_UPLOAD_ROUNDS rounds, before the upload is completed.
     public GenericResponse uploadFile(String userId, String chatId, File file) {
-        try {
-            // Create RestTemplate
-            RestTemplate restTemplate = new RestTemplate();
-
-            // Create headers with JWT token
-            HttpHeaders headers = new HttpHeaders();
-            headers.setBearerAuth(jwtToken);
-            headers.setContentType(MediaType.MULTIPART_FORM_DATA);
-
-            // Create multipart form data
-            MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-            body.add("userId", userId);
-            body.add("chatId", chatId);
-            body.add("file", new FileSystemResource(file));
-
-            // Create HTTP entity
-            HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
-
-            // Send request
-            ResponseEntity<GenericResponse> response = restTemplate.postForEntity(
-                    baseUrl + "/api/file/upload",
-                    requestEntity,
-                    GenericResponse.class
-            );
-
-            return response.getBody();
+        Path path = file.toPath();
+        ExecutorService pool = Executors.newFixedThreadPool(UPLOAD_PARALLELISM);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            String checksum = HexFormat.of().formatHex(sha256(path));
+            InitUploadRequest initRequest = new InitUploadRequest(userId, chatId, file.getName(), channel.size(),
+                    Files.probeContentType(path), checksum);
+
+            UploadStatusResponse status = sendAuthenticatedRequest("/api/file/upload/init", initRequest,
+                    UploadStatusResponse.class, "POST");
+            if (!status.success()) return new GenericResponse(false, status.message());
+
+            String uploadId = status.uploadId();
+            long chunkSize = status.chunkSize();
+
+            for (int round = 1; round <= MAX_UPLOAD_ROUNDS && !status.missingChunks().isEmpty(); round++) {
+                List<Future<Boolean>> sends = new ArrayList<>();
+                for (int index : status.missingChunks()) {
+                    sends.add(pool.submit(() -> sendChunk(userId, uploadId, index, channel, chunkSize)));
+                }
+                for (Future<Boolean> send : sends) send.get();
+
+                // Ask the server rather than trusting our own results, a chunk may have been lost after it was sent
+                status = sendAuthenticatedRequest("/api/file/upload/status", new UploadSessionRequest(userId, uploadId),
+                        UploadStatusResponse.class, "POST");
+                if (!status.success()) return new GenericResponse(false, status.message());
+            }
+
+            if (!status.missingChunks().isEmpty()) {
+                logger.error("Failed to upload file: {} chunks could not be sent", status.missingChunks().size());
+                return new GenericResponse(false, "Failed to upload file: some chunks could not be sent");
+            }
+
+            return sendAuthenticatedRequest("/api/file/upload/complete", new UploadSessionRequest(userId, uploadId),
+                    GenericResponse.class, "POST");
+
         } catch (Exception e) {
             logger.error("Failed to upload file: {}", e.getMessage());
             return new GenericResponse(false, "Failed to upload file: " + e.getMessage());
+        } finally {
+            pool.shutdownNow();
         }
     }
 
-    public byte[] downloadFile(String userId, String chatId, String fileId) {
+    // Sends chunk index, read with a positional read so chunks can be read in parallel from the same channel.
+    // Returns true if the server accepted it.
+    private boolean sendChunk(String userId, String uploadId, int index, FileChannel channel, long chunkSize) {
         try {
-            // Create download request
-            DownloadFileRequest request = new DownloadFileRequest(userId, chatId, fileId);
+            long offset = index * chunkSize;
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(chunkSize, channel.size() - offset));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) == -1) break;
+            }
 
-            // Send authenticatedRequest
-            String jsonBody = objectMapper.writeValueAsString(request);
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(baseUrl + "/api/file/upload/" + uploadId + "/chunks/" + index
+                            + "?userId=" + URLEncoder.encode(userId, StandardCharsets.UTF_8)))
+                    .header("Content-Type", "application/octet-stream")
+                    .header("Authorization", "Bearer " + jwtToken)
+                    .PUT(HttpRequest.BodyPublishers.ofByteArray(buffer.array(), 0, buffer.position()))
+                    .build();
 
-            System.out.println("DEBUG: Sending download request: " + jsonBody);
+            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() == 200;
 
-            HttpRequest httpRequest = HttpRequest.newBuilder()
-                .uri(URI.create(baseUrl + "/api/file/download"))
-                .header("Content-Type", "application/json")
-                .header("Authorization", "Bearer " + jwtToken)
-                .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
-                .build();
+        } catch (Exception e) {
+            logger.warn("Failed to send chunk {} of upload {}: {}", index, uploadId, e.getMessage());
+            return false;
+        }
+    }
 
-            // Send request and get response as bytes
-            HttpResponse<byte[]> response = httpClient.send(httpRequest,
-                    HttpResponse.BodyHandlers.ofByteArray());
+    // Streams a file to target through a ".part" file next to it, so memory use does not depend on the file size.
+    // A transfer that breaks off is resumed from the bytes already on disk with a Range request, and the finished
+    // file is checked against the server's SHA-256 digest before it replaces target. Returns true on success.
+    public boolean downloadFile(String userId, String chatId, String fileId, Path target,
+                                DownloadProgressListener listener) {
+        Path part = target.resolveSibling(target.getFileName() + ".part");
+        String eTag = null;
+        String expectedDigest = null;
 
-            System.out.println("DEBUG: Response status: " + response.statusCode());
-            System.out.println("DEBUG: Response headers: " + response.headers().map());
-            System.out.println("DEBUG: Response body length: " + (response.body() != null ? response.body().length : 0));
+        try {
+            // Create download request
+            String jsonBody = objectMapper.writeValueAsString(new DownloadFileRequest(userId, chatId, fileId));
 
-            if (response.body() != null && response.body().length > 0) {
-                // Check if response looks like JSON (error response)
-                String responseStart = new String(response.body(), 0, Math.min(100, response.body().length));
-                System.out.println("DEBUG: Response start: " + responseStart);
+            // Create parent directories if they don't exist
+            if (target.getParent() != null) {
+                Files.createDirectories(target.getParent());
             }
 
-            // Check if response is successful (200 status code)
-            if (response.statusCode() == 200) {
-                return response.body();
-            } else {
-                logger.error("Failed to download file");
-                return null;
+            for (int attempt = 1; attempt <= MAX_DOWNLOAD_ATTEMPTS; attempt++) {
+                long offset = Files.exists(part) ? Files.size(part) : 0;
+
+                HttpRequest.Builder builder = HttpRequest.newBuilder()
+                        .uri(URI.create(baseUrl + "/api/file/download"))
+                        .header("Content-Type", "application/json")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .POST(HttpRequest.BodyPublishers.ofString(jsonBody));
+
+                // Ask only for the missing bytes. If-Range makes the server send the whole file instead if it
+                // changed since the part was written.
+                if (offset > 0) {
+                    builder.header("Range", "bytes=" + offset + "-");
+                    if (eTag != null) builder.header("If-Range", eTag);
+                }
+
+                HttpResponse<InputStream> response;
+                try {
+                    response = httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+                } catch (IOException e) {
+                    logger.warn("Download of file {} failed to connect on attempt {}: {}", fileId, attempt, e.getMessage());
+                    continue;
+                }
+                int status = response.statusCode();
+
+                // The part file is already as long as the file (or longer) - start again from scratch
+                if (status == 416) {
+                    response.body().close();
+                    Files.deleteIfExists(part);
+                    continue;
+                }
+
+                if (status != 200 && status != 206) {
+                    response.body().close();
+                    logger.error("Failed to download file: server returned status {}", status);
+                    return false;
+                }
+
+                eTag = response.headers().firstValue("ETag").orElse(eTag);
+                expectedDigest = response.headers().firstValue("Repr-Digest")
+                        .map(APIClient::parseSha256Digest).orElse(expectedDigest);
+
+                // A 200 is the whole file, even if a range was asked for
+                boolean resume = status == 206;
+                long total = resume ? parseContentRangeTotal(response.headers().firstValue("Content-Range").orElse(null))
+                        : response.headers().firstValueAsLong("Content-Length").orElse(-1);
+
+                long received;
+                try {
+                    received = receive(response.body(), part, resume, total, listener);
+                } catch (IOException e) {
+                    logger.warn("Download of file {} interrupted on attempt {}: {}", fileId, attempt, e.getMessage());
+                    continue;
+                }
+
+                if (total >= 0 && received < total) {
+                    logger.warn("Download of file {} ended early on attempt {}: {} of {} bytes", fileId, attempt,
+                            received, total);
+                    continue;
+                }
+
+                // Verify the content before exposing it under the target name
+                if (expectedDigest != null && !expectedDigest.equals(Base64.getEncoder().encodeToString(sha256(part)))) {
+                    logger.error("Failed to download file {}: checksum mismatch", fileId);
+                    Files.deleteIfExists(part);
+                    return false;
+                }
+
+                Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                return true;
             }
 
+            logger.error("Failed to download file {} after {} attempts", fileId, MAX_DOWNLOAD_ATTEMPTS);
+            return false;
+
         } catch (Exception e) {
             logger.error("Failed to download file {}", e.getMessage());
-            return null;
+            return false;
+        }
+    }
+
+    // Copies the response body into the part file with FileChannel.transferFrom, a chunk at a time. When resuming, the
+    // bytes are appended; otherwise the part file is overwritten. Returns the length of the part file afterwards.
+    private long receive(InputStream body, Path part, boolean resume, long total, DownloadProgressListener listener)
+            throws IOException {
+        try (InputStream in = body;
+             ReadableByteChannel source = Channels.newChannel(in);
+             FileChannel out = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+
+            if (!resume) out.truncate(0);
+            long position = out.size();
+
+            long transferred;
+            while ((transferred = out.transferFrom(source, position, DOWNLOAD_CHUNK_SIZE)) > 0) {
+                position += transferred;
+                if (listener != null) listener.onProgress(position, total);
+            }
+            return position;
+        }
+    }
+
+    // Returns the base64 SHA-256 from a Repr-Digest header such as "sha-256=:base64:", or null if there is none
+    static String parseSha256Digest(String header) {
+        for (String entry : header.split(",")) {
+            String trimmed = entry.trim();
+            if (trimmed.startsWith("sha-256=:") && trimmed.endsWith(":") && trimmed.length() > 10) {
+                return trimmed.substring("sha-256=:".length(), trimmed.length() - 1);
+            }
+        }
+        return null;
+    }
+
+    // Returns the complete length from a Content-Range header such as "bytes 100-199/200", or -1 if it is unknown
+    static long parseContentRangeTotal(String header) {
+        if (header == null) return -1;
+        int slash = header.lastIndexOf('/');
+        if (slash < 0 || header.endsWith("*")) return -1;
+        try {
+            return Long.parseLong(header.substring(slash + 1).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // SHA-256 of a file, read through a direct buffer
+    private static byte[] sha256(Path path) throws IOException, NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
         }
+        return digest.digest();
     }
 
     public GetChatFilesResponse getChatFiles(GetChatFilesRequest request) {
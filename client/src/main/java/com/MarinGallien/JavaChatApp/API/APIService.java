@@ -11,7 +11,7 @@ import com.MarinGallien.JavaChatApp.DTOs.HTTPMessages.HTTPResponses.*;
 import com.MarinGallien.JavaChatApp.UserSession;
 
 import java.io.File;
-import java.io.FileOutputStream;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Set;
 
@@ -128,6 +128,17 @@ public class APIService {
         return List.of(); // Return empty list on failure
     }
 
+    // Retrieves only the most recent page of a chat's history
+    public List<MessageDTO> getLatestChatMessages(String chatId) {
+        GetMessagePageRequest request = new GetMessagePageRequest(getLocalUserId(), chatId, null, null, null);
+        GetMessagePageResponse response = apiClient.getMessagePage(request);
+
+        if (response.success() && response.messages() != null) {
+            return response.messages();
+        }
+        return List.of(); // Return empty list on failure
+    }
+
 
     // ========== USER METHODS ==========
 
@@ -167,31 +178,9 @@ public class APIService {
         return response.success();
     }
 
-    public boolean downloadFile(String chatId, String fileId, String filepath) {
-        byte[] fileData = apiClient.downloadFile(getLocalUserId(), chatId, fileId);
-
-        if (fileData == null || fileData.length == 0) {
-            return false;
-        }
-
-        // Create target filepath
-        File targetFile = new File(filepath);
-
-        // Create parent directories if they don't exist
-        File parentDir = targetFile.getParentFile();
-        if (parentDir != null && !parentDir.exists()) {
-            parentDir.mkdirs();
-        }
-
-        // write byte array to file
-        try (FileOutputStream fos = new FileOutputStream(targetFile)) {
-            fos.write(fileData);
-            fos.flush();
-        } catch (Exception e) {
-            return false;
-        }
-
-        return true;
+    public boolean downloadFile(String chatId, String fileId, String filepath, DownloadProgressListener listener) {
+        // Streamed straight to disk by the API client
+        return apiClient.downloadFile(getLocalUserId(), chatId, fileId, Path.of(filepath), listener);
     }
 
     public List<FileDTO> getChatFiles(String chatId) {
@@ -0,0 +1,7 @@
+package com.MarinGallien.JavaChatApp.API;
+
+// Receives progress updates while a file is downloaded. totalBytes is -1 when the server did not send a length.
+@FunctionalInterface
+public interface DownloadProgressListener {
+    void onProgress(long bytesReceived, long totalBytes);
+}
@@ -1,6 +1,7 @@
 package com.MarinGallien.JavaChatApp;
 
 import com.MarinGallien.JavaChatApp.API.APIService;
+import com.MarinGallien.JavaChatApp.API.DownloadProgressListener;
 import com.MarinGallien.JavaChatApp.DTOs.DataEntities.ChatDTO;
 import com.MarinGallien.JavaChatApp.DTOs.DataEntities.ContactDTO;
 import com.MarinGallien.JavaChatApp.DTOs.DataEntities.FileDTO;
@@ -156,7 +157,7 @@ public class ClientManager {
                 return;
             }
 
-            List<MessageDTO> messages = apiService.getChatMessages(chatId);
+            List<MessageDTO> messages = apiService.getLatestChatMessages(chatId);
             if (!messages.isEmpty()) {
                 lanternaUI.showMessages(messages);
             }
@@ -193,7 +194,7 @@ public class ClientManager {
                 lanternaUI.showError("Failed to enter chat mode");
                 return;
             }
-            lanternaUI.showMessages(apiService.getChatMessages(chatId));
+            lanternaUI.showMessages(apiService.getLatestChatMessages(chatId));
 
         } catch (Exception e) {
             lanternaUI.showError("Failed to enter chat: " + e.getMessage());
@@ -517,7 +518,7 @@ public class ClientManager {
             }
 
             String completeFilePath = filePath + "/" + filename;
-            boolean success = apiService.downloadFile(chatId, fileId, completeFilePath);
+            boolean success = apiService.downloadFile(chatId, fileId, completeFilePath, downloadProgress(filename));
             if (success) {
                 lanternaUI.showSuccess("File downloaded successfully");
             } else {
@@ -529,6 +530,19 @@ public class ClientManager {
         }
     }
 
+    // Shows download progress in steps of 10%, so large files do not flood the UI
+    private DownloadProgressListener downloadProgress(String filename) {
+        int[] lastStep = {0};
+        return (received, total) -> {
+            if (total <= 0) return;
+            int step = (int) (received * 10 / total);
+            if (step > lastStep[0]) {
+                lastStep[0] = step;
+                lanternaUI.showInfo("Downloading " + filename + ": " + step * 10 + "%");
+            }
+        };
+    }
+
     public void getChatFiles(String chatName) {
         try {
             if (chatName == null || chatName.isEmpty()) {
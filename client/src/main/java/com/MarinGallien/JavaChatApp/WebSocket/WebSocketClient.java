@@ -1,6 +1,7 @@
 package com.MarinGallien.JavaChatApp.WebSocket;
 import ch.qos.logback.classic.Level;
 import com.MarinGallien.JavaChatApp.DTOs.WebsocketMessages.OnlineStatusMessage;
+import com.MarinGallien.JavaChatApp.DTOs.WebsocketMessages.PresenceBatchMessage;
 import com.MarinGallien.JavaChatApp.DTOs.WebsocketMessages.WebSocketMessage;
 import com.MarinGallien.JavaChatApp.UserSession;
 import org.slf4j.Logger;
@@ -89,9 +90,9 @@ public class WebSocketClient {
         WebSocketHttpHeaders webSocketHeaders = new WebSocketHttpHeaders();
         webSocketHeaders.add("Authorization", "Bearer " + jwtToken);
 
-        // Create STOMP headers with user identification and JWT authentication
+        // Create STOMP headers with JWT authentication, the server reads the user ID from the token
         StompHeaders stompHeaders = new StompHeaders();
-        stompHeaders.add("userId", userId);
+        stompHeaders.add("Authorization", "Bearer " + jwtToken);
 
         // Attempt async connection and set up subscriptions on success
         return stompClient.connectAsync (url, webSocketHeaders, stompHeaders, new SessionHandler())
@@ -222,13 +223,13 @@ public class WebSocketClient {
 
     // ========== INTERNAL STATUS FRAME HANDLER CLASS ==========
 
-    // Handles incoming OnlineStatusMessage objects
+    // Handles incoming PresenceBatchMessage objects - the server batches contacts' status changes into one frame
     private class PresenceFrameHandler implements StompFrameHandler {
 
         // Tell STOMP what type of object to deserialize incoming messages into
         @Override
         public Type getPayloadType(StompHeaders headers) {
-            return OnlineStatusMessage.class;
+            return PresenceBatchMessage.class;
         }
 
         // Handle incoming status update frames
@@ -237,10 +238,12 @@ public class WebSocketClient {
             logger.info("Received presence frame - Headers: {}", headers);
             logger.info("Payload type: {}, Content: {}", payload != null ? payload.getClass().getSimpleName() : "null", payload);
 
-            // Verify payload type and forward to message handler
-            if (payload instanceof OnlineStatusMessage status && messageHandler != null) {
-                logger.info("Forwarding status update to handler: from={}, status={}", status.getSenderID(), status.getStatus());
-                messageHandler.onStatusUpdate(status);
+            // Verify payload type and forward each update to message handler
+            if (payload instanceof PresenceBatchMessage batch && batch.getUpdates() != null && messageHandler != null) {
+                for (OnlineStatusMessage status : batch.getUpdates()) {
+                    logger.info("Forwarding status update to handler: from={}, status={}", status.getSenderID(), status.getStatus());
+                    messageHandler.onStatusUpdate(status);
+                }
             } else {
                 logger.warn("Could not process status update - payload type mismatch or null handler");
             }
@@ -0,0 +1,365 @@
+package com.MarinGallien.JavaChatApp.API;
+
+import com.MarinGallien.JavaChatApp.UserSession;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class APIClientTests {
+
+    private static final byte[] CONTENT = "0123456789abcdefghijklmnopqrstuvwxyz".getBytes(StandardCharsets.UTF_8);
+    private static final String ETAG = "\"file-1\"";
+
+    @TempDir
+    Path tempDir;
+
+    private ServerSocket serverSocket;
+    private Thread serverThread;
+    private APIClient apiClient;
+    private Path target;
+    private Path part;
+
+    // Replies for the next download requests, in order, and the headers each request arrived with (lower-case names)
+    private final ConcurrentLinkedQueue<Reply> replies = new ConcurrentLinkedQueue<>();
+    private final List<Map<String, String>> requests = new CopyOnWriteArrayList<>();
+
+    // A raw HTTP/1.1 reply. The connection is closed once body is written, so a body shorter than contentLength
+    // reaches the client as a transfer that broke off.
+    private record Reply(int status, List<String> headers, byte[] body, long contentLength) {
+        Reply(int status, List<String> headers, byte[] body) {
+            this(status, headers, body, body.length);
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // A plain socket server rather than an HTTP server, so a response can be cut off mid-body
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        serverThread = new Thread(this::serve, "TestFileServer");
+        serverThread.setDaemon(true);
+        serverThread.start();
+
+        UserSession.getInstance().setServerEndpoint("localhost:" + serverSocket.getLocalPort());
+        apiClient = new APIClient();
+        target = tempDir.resolve("file.txt");
+        part = tempDir.resolve("file.txt.part");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        serverSocket.close();
+    }
+
+    // One request per connection: reads the request head and body, writes the next reply and closes
+    private void serve() {
+        while (!serverSocket.isClosed()) {
+            try (Socket socket = serverSocket.accept()) {
+                BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+                Map<String, String> headers = new HashMap<>();
+                reader.readLine();
+                String line;
+                while ((line = reader.readLine()) != null && !line.isEmpty()) {
+                    int colon = line.indexOf(':');
+                    headers.put(line.substring(0, colon).trim().toLowerCase(), line.substring(colon + 1).trim());
+                }
+                int bodyLength = Integer.parseInt(headers.getOrDefault("content-length", "0"));
+                for (int i = 0; i < bodyLength; i++) reader.read();
+                requests.add(headers);
+
+                Reply reply = replies.poll();
+                if (reply == null) reply = new Reply(500, List.of(), new byte[0]);
+
+                StringBuilder head = new StringBuilder("HTTP/1.1 " + reply.status() + " Reply\r\n");
+                for (String header : reply.headers()) head.append(header).append("\r\n");
+                head.append("Content-Length: ").append(reply.contentLength()).append("\r\n");
+                head.append("Connection: close\r\n\r\n");
+
+                OutputStream out = socket.getOutputStream();
+                out.write(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+                out.write(reply.body());
+                out.flush();
+            } catch (IOException e) {
+                // Server closed, or the client went away
+            }
+        }
+    }
+
+    private boolean download() {
+        return apiClient.downloadFile("user1", "chat1", "file1", target, null);
+    }
+
+    private String header(int request, String name) {
+        return requests.get(request).get(name.toLowerCase());
+    }
+
+    private static String digestOf(byte[] content) {
+        try {
+            return Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Reply full(String digest) {
+        return new Reply(200, List.of("ETag: " + ETAG, "Repr-Digest: sha-256=:" + digest + ":"), CONTENT);
+    }
+
+    // Announces the whole file but breaks off after the first length bytes
+    private static Reply cutShort(String digest, int length) {
+        return new Reply(200, List.of("ETag: " + ETAG, "Repr-Digest: sha-256=:" + digest + ":"),
+                Arrays.copyOf(CONTENT, length), CONTENT.length);
+    }
+
+    private static Reply rest(int from, String contentRangeTotal) {
+        String contentRange = "Content-Range: bytes " + from + "-" + (CONTENT.length - 1) + "/" + contentRangeTotal;
+        byte[] body = Arrays.copyOfRange(CONTENT, from, CONTENT.length);
+        return new Reply(206, List.of("ETag: " + ETAG, contentRange), body);
+    }
+
+    // ==========================================================================
+    // PARSE SHA-256 DIGEST TESTS
+    // ==========================================================================
+
+    @Test
+    void parseSha256Digest_SingleValue_ReturnsDigest() {
+        // When
+        String digest = APIClient.parseSha256Digest("sha-256=:abc=:");
+
+        // Then
+        assertEquals("abc=", digest);
+    }
+
+    @Test
+    void parseSha256Digest_MultipleAlgorithms_ReturnsSha256() {
+        // When
+        String digest = APIClient.parseSha256Digest("sha-512=:xyz=:, sha-256=:abc=:");
+
+        // Then
+        assertEquals("abc=", digest);
+    }
+
+    @Test
+    void parseSha256Digest_NoSha256_ReturnsNull() {
+        // When
+        String digest = APIClient.parseSha256Digest("sha-512=:xyz=:");
+
+        // Then
+        assertNull(digest);
+    }
+
+    @Test
+    void parseSha256Digest_MissingColons_ReturnsNull() {
+        // When
+        String digest = APIClient.parseSha256Digest("sha-256=abc=");
+
+        // Then
+        assertNull(digest);
+    }
+
+    @Test
+    void parseSha256Digest_EmptyValue_ReturnsNull() {
+        // When
+        String digest = APIClient.parseSha256Digest("sha-256=::");
+
+        // Then
+        assertNull(digest);
+    }
+
+    // ==========================================================================
+    // PARSE CONTENT-RANGE TOTAL TESTS
+    // ==========================================================================
+
+    @Test
+    void parseContentRangeTotal_KnownLength_ReturnsLength() {
+        // When
+        long total = APIClient.parseContentRangeTotal("bytes 100-199/200");
+
+        // Then
+        assertEquals(200, total);
+    }
+
+    @Test
+    void parseContentRangeTotal_UnknownLength_ReturnsMinusOne() {
+        // When
+        long total = APIClient.parseContentRangeTotal("bytes 100-199/*");
+
+        // Then
+        assertEquals(-1, total);
+    }
+
+    @Test
+    void parseContentRangeTotal_UnsatisfiedRange_ReturnsLength() {
+        // When
+        long total = APIClient.parseContentRangeTotal("bytes */200");
+
+        // Then
+        assertEquals(200, total);
+    }
+
+    @Test
+    void parseContentRangeTotal_Malformed_ReturnsMinusOne() {
+        // When / Then
+        assertEquals(-1, APIClient.parseContentRangeTotal(null));
+        assertEquals(-1, APIClient.parseContentRangeTotal("bytes 100-199"));
+        assertEquals(-1, APIClient.parseContentRangeTotal("bytes 100-199/abc"));
+    }
+
+    // ==========================================================================
+    // DOWNLOAD TESTS
+    // ==========================================================================
+
+    @Test
+    void downloadFile_WholeFile_WritesTargetAndRemovesPart() throws IOException {
+        // Given
+        replies.add(full(digestOf(CONTENT)));
+
+        // When
+        boolean downloaded = download();
+
+        // Then
+        assertTrue(downloaded);
+        assertArrayEquals(CONTENT, Files.readAllBytes(target));
+        assertFalse(Files.exists(part));
+        assertNull(header(0, "Range"));
+    }
+
+    @Test
+    void downloadFile_InterruptedTransfer_ResumesWithRangeAndIfRange() throws IOException {
+        // Given
+        replies.add(cutShort(digestOf(CONTENT), 10));
+        replies.add(rest(10, String.valueOf(CONTENT.length)));
+
+        // When
+        boolean downloaded = download();
+
+        // Then
+        assertTrue(downloaded);
+        assertArrayEquals(CONTENT, Files.readAllBytes(target));
+        assertEquals(2, requests.size());
+        assertEquals("bytes=10-", header(1, "Range"));
+        assertEquals(ETAG, header(1, "If-Range"));
+    }
+
+    @Test
+    void downloadFile_ResumeWithUnknownTotal_CompletesAndVerifies() throws IOException {
+        // Given
+        replies.add(cutShort(digestOf(CONTENT), 10));
+        replies.add(rest(10, "*"));
+
+        // When
+        boolean downloaded = download();
+
+        // Then
+        assertTrue(downloaded);
+        assertArrayEquals(CONTENT, Files.readAllBytes(target));
+    }
+
+    @Test
+    void downloadFile_WholeFileSentForRange_ReplacesPart() throws IOException {
+        // Given - stale bytes from an earlier attempt, which the server ignores the range for
+        Files.write(part, "stale-bytes".getBytes(StandardCharsets.UTF_8));
+        replies.add(full(digestOf(CONTENT)));
+
+        // When
+        boolean downloaded = download();
+
+        // Then
+        assertTrue(downloaded);
+        assertEquals("bytes=11-", header(0, "Range"));
+        assertArrayEquals(CONTENT, Files.readAllBytes(target));
+    }
+
+    @Test
+    void downloadFile_RangeNotSatisfiable_StartsAgainFromScratch() throws IOException {
+        // Given - a part file longer than the file
+        Files.write(part, new byte[CONTENT.length + 5]);
+        replies.add(new Reply(416, List.of("Content-Range: bytes */" + CONTENT.length), new byte[0]));
+        replies.add(full(digestOf(CONTENT)));
+
+        // When
+        boolean downloaded = download();
+
+        // Then
+        assertTrue(downloaded);
+        assertArrayEquals(CONTENT, Files.readAllBytes(target));
+        assertNull(header(1, "Range"));
+    }
+
+    @Test
+    void downloadFile_DigestMismatch_ReturnsFalseAndDeletesPart() throws IOException {
+        // Given
+        replies.add(full(digestOf("something else".getBytes(StandardCharsets.UTF_8))));
+
+        // When
+        boolean downloaded = download();
+
+        // Then
+        assertFalse(downloaded);
+        assertFalse(Files.exists(target));
+        assertFalse(Files.exists(part));
+    }
+
+    @Test
+    void downloadFile_MalformedDigest_SkipsVerification() throws IOException {
+        // Given
+        replies.add(new Reply(200, List.of("Repr-Digest: sha-256=not-a-digest"), CONTENT));
+
+        // When
+        boolean downloaded = download();
+
+        // Then
+        assertTrue(downloaded);
+        assertArrayEquals(CONTENT, Files.readAllBytes(target));
+    }
+
+    @Test
+    void downloadFile_ServerError_ReturnsFalse() {
+        // Given - no reply queued, the server answers 500
+
+        // When
+        boolean downloaded = download();
+
+        // Then
+        assertFalse(downloaded);
+        assertFalse(Files.exists(target));
+    }
+
+    @Test
+    void downloadFile_EveryAttemptCutShort_GivesUpAndKeepsPart() throws IOException {
+        // Given
+        String digest = digestOf(CONTENT);
+        for (int i = 0; i < 3; i++) replies.add(cutShort(digest, 10));
+
+        // When
+        boolean downloaded = download();
+
+        // Then
+        assertFalse(downloaded);
+        assertFalse(Files.exists(target));
+        assertEquals(10, Files.size(part));
+    }
+}
@@ -0,0 +1,70 @@
+package com.MarinGallien.JavaChatApp.Cluster;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Broadcasts sent from one node to another where every recipient gets a payload of their own, e.g. the presence
+// updates of one dispatch: a single frame per node carries all of them instead of one ClusterFrame per recipient.
+// Payloads are already serialized and delivered as they are.
+//
+// Wire format, big-endian: version (byte), type (byte), origin node ID, user destination, entry count (int), then per
+// entry the recipient ID, payload length (int) and payload. Strings are written with DataOutputStream.writeUTF.
+public record ClusterBatchFrame(String originNodeId, String destination, Map<String, byte[]> payloads) {
+
+    public byte[] encode() {
+        int size = 64;
+        for (byte[] payload : payloads.values()) size += 44 + payload.length;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(size);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(ClusterFrame.VERSION);
+            out.writeByte(ClusterFrame.TYPE_DELIVER_BATCH);
+            out.writeUTF(originNodeId);
+            out.writeUTF(destination);
+            out.writeInt(payloads.size());
+            for (Map.Entry<String, byte[]> entry : payloads.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().length);
+                out.write(entry.getValue());
+            }
+        } catch (IOException e) {
+            // Not thrown by in-memory streams
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    // Returns null if the frame is truncated, or not a batch frame
+    public static ClusterBatchFrame decode(byte[] frame) {
+        if (ClusterFrame.typeOf(frame) != ClusterFrame.TYPE_DELIVER_BATCH) return null;
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(frame))) {
+            in.skipBytes(2);
+            String originNodeId = in.readUTF();
+            String destination = in.readUTF();
+
+            // Every entry takes at least the 2 bytes of its recipient's length and the 4 of its payload's
+            int count = in.readInt();
+            if (count < 0 || count > in.available() / 6) return null;
+
+            Map<String, byte[]> payloads = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                String recipient = in.readUTF();
+                int length = in.readInt();
+                if (length < 0 || length > in.available()) return null;
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                payloads.put(recipient, payload);
+            }
+            return new ClusterBatchFrame(originNodeId, destination, payloads);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.MarinGallien.JavaChatApp.Cluster;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// A broadcast sent from one node to another: an already serialized payload and every user it is for. The receiving
+// node delivers the payload bytes as they are, so a message is serialized once in the whole cluster.
+//
+// Wire format, big-endian: version (byte), type (byte), origin node ID, user destination, recipient count (int),
+// recipient IDs, payload length (int), payload. Strings are written with DataOutputStream.writeUTF.
+// Every frame sent between nodes starts with the same version and type bytes, the type codes of the other frames are
+// kept here as well.
+public record ClusterFrame(String originNodeId, String destination, List<String> recipients, byte[] payload) {
+
+    static final byte VERSION = 1;
+    static final byte TYPE_DELIVER = 1;
+    static final byte TYPE_PRESENCE_DELTA = 2;
+    static final byte TYPE_PRESENCE_DIGEST = 3;
+    static final byte TYPE_PRESENCE_SNAPSHOT_REQUEST = 4;
+    static final byte TYPE_PRESENCE_SNAPSHOT = 5;
+    static final byte TYPE_DELIVER_BATCH = 6;
+
+    // Type of any frame, or -1 if it is empty or of a version this node does not know
+    static int typeOf(byte[] frame) {
+        if (frame.length < 2 || frame[0] != VERSION) return -1;
+        return frame[1];
+    }
+
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + recipients.size() * 40 + payload.length);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeByte(TYPE_DELIVER);
+            out.writeUTF(originNodeId);
+            out.writeUTF(destination);
+            out.writeInt(recipients.size());
+            for (String recipient : recipients) out.writeUTF(recipient);
+            out.writeInt(payload.length);
+            out.write(payload);
+        } catch (IOException e) {
+            // Not thrown by in-memory streams
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    // Returns null if the frame is truncated, or of a version or type this node does not know
+    public static ClusterFrame decode(byte[] frame) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(frame))) {
+            if (in.readByte() != VERSION || in.readByte() != TYPE_DELIVER) return null;
+
+            String originNodeId = in.readUTF();
+            String destination = in.readUTF();
+
+            // Every recipient takes at least the 2 bytes of its length
+            int count = in.readInt();
+            if (count < 0 || count > in.available() / 2) return null;
+            List<String> recipients = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) recipients.add(in.readUTF());
+
+            int length = in.readInt();
+            if (length < 0 || length > in.available()) return null;
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+
+            return new ClusterFrame(originNodeId, destination, recipients, payload);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
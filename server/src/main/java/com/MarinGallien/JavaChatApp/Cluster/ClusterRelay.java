@@ -0,0 +1,250 @@
+package com.MarinGallien.JavaChatApp.Cluster;
+
+import com.MarinGallien.JavaChatApp.WebSocketServer.MessageBroadcaster;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Extends MessageBroadcaster across the nodes of a cluster. Each node only knows the sessions connected to it, so a
+// broadcast is delivered locally by the node it starts on and sent, once, to every other node: one frame per node
+// carries the serialized payload and the whole recipient list, and each node delivers it to whichever recipients are
+// connected there. A chat spanning N nodes costs N - 1 frames per message however many members it has, and a user
+// with sessions on several nodes gets the message on all of them.
+//
+// Broadcasts that give every recipient a payload of their own, like presence updates, are forwarded the same way with
+// forwardEach: one ClusterBatchFrame per node holds the payloads of every recipient routed there.
+//
+// Received frames are delivered locally and never forwarded again, so every frame makes exactly one hop.
+//
+// With a PresenceDirectory, a node only gets the recipients the directory lists on it. Recipients the directory does
+// not place anywhere go to every node, since they may have connected somewhere in the last gossip interval; a node
+// only gets no frame at all when every recipient is known to be elsewhere. Nodes the directory has not synced with
+// yet still get the whole list. The relay also owns the transport's receiver and hands presence frames on to the
+// directory.
+public class ClusterRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterRelay.class);
+
+    // Payload bytes a batch frame is split at, well below what the transport accepts
+    private static final int MAX_BATCH_FRAME_BYTES = 1024 * 1024;
+
+    private final ClusterTransport transport;
+    private final MessageBroadcaster messageBroadcaster;
+    private final PresenceDirectory presenceDirectory;
+
+    // Counters
+    private final AtomicLong framesSent = new AtomicLong();
+    private final AtomicLong framesDropped = new AtomicLong();
+    private final AtomicLong framesReceived = new AtomicLong();
+    private final AtomicLong framesRejected = new AtomicLong();
+    private final AtomicLong remoteUsersReached = new AtomicLong();
+
+    public ClusterRelay(ClusterTransport transport, MessageBroadcaster messageBroadcaster) {
+        this(transport, messageBroadcaster, null);
+    }
+
+    public ClusterRelay(ClusterTransport transport, MessageBroadcaster messageBroadcaster,
+                        PresenceDirectory presenceDirectory) {
+        this.transport = transport;
+        this.messageBroadcaster = messageBroadcaster;
+        this.presenceDirectory = presenceDirectory;
+    }
+
+    // ========== LIFECYCLE ==========
+
+    @PostConstruct
+    public void start() {
+        transport.start(this::receive);
+        messageBroadcaster.setClusterRelay(this);
+        logger.info("Cluster relay started on node {} ({} peers)", transport.getLocalNodeId(),
+                transport.getPeerIds().size());
+    }
+
+    @PreDestroy
+    public void stop() {
+        messageBroadcaster.setClusterRelay(null);
+    }
+
+    // ========== RELAY ==========
+
+    // Sends a broadcast this node already delivered locally to the other nodes. Returns the number of nodes it was
+    // queued for.
+    public int forward(List<String> recipients, String userDestination, byte[] body) {
+        if (recipients.isEmpty()) return 0;
+
+        Set<String> peers = transport.getPeerIds();
+        if (peers.isEmpty()) return 0;
+
+        String localNodeId = transport.getLocalNodeId();
+        int queued = 0;
+        // Nodes getting the whole list share one encoded frame
+        byte[] wholeListFrame = null;
+        for (Map.Entry<String, List<String>> entry : routeByNode(recipients, peers).entrySet()) {
+            byte[] frame;
+            if (entry.getValue() == recipients) {
+                if (wholeListFrame == null) {
+                    wholeListFrame = new ClusterFrame(localNodeId, userDestination, recipients, body).encode();
+                }
+                frame = wholeListFrame;
+            } else {
+                frame = new ClusterFrame(localNodeId, userDestination, entry.getValue(), body).encode();
+            }
+            queued += sendToNodes(List.of(entry.getKey()), frame);
+        }
+        return queued;
+    }
+
+    // Sends broadcasts where every recipient has a payload of their own, already delivered locally, to the other
+    // nodes. Each node gets one frame with the payloads of the recipients routed to it, split only if it would grow
+    // past MAX_BATCH_FRAME_BYTES. Returns the number of frames queued.
+    public int forwardEach(Map<String, byte[]> payloads, String userDestination) {
+        if (payloads.isEmpty()) return 0;
+
+        Set<String> peers = transport.getPeerIds();
+        if (peers.isEmpty()) return 0;
+
+        String localNodeId = transport.getLocalNodeId();
+        Map<String, List<String>> recipientsByNode = routeByNode(new ArrayList<>(payloads.keySet()), peers);
+        int queued = 0;
+        for (Map.Entry<String, List<String>> entry : recipientsByNode.entrySet()) {
+            Map<String, byte[]> batch = new LinkedHashMap<>();
+            int batchBytes = 0;
+            for (String recipient : entry.getValue()) {
+                byte[] payload = payloads.get(recipient);
+                if (!batch.isEmpty() && batchBytes + payload.length > MAX_BATCH_FRAME_BYTES) {
+                    queued += sendToNodes(List.of(entry.getKey()),
+                            new ClusterBatchFrame(localNodeId, userDestination, batch).encode());
+                    batch = new LinkedHashMap<>();
+                    batchBytes = 0;
+                }
+                batch.put(recipient, payload);
+                batchBytes += payload.length;
+            }
+            queued += sendToNodes(List.of(entry.getKey()),
+                    new ClusterBatchFrame(localNodeId, userDestination, batch).encode());
+        }
+        return queued;
+    }
+
+    // nodeID:recipients to send it. Without a PresenceDirectory, and for nodes it has not synced with yet, that is the
+    // recipients list itself.
+    private Map<String, List<String>> routeByNode(List<String> recipients, Set<String> peers) {
+        Map<String, List<String>> recipientsByNode = new HashMap<>();
+        if (presenceDirectory == null) {
+            for (String nodeId : peers) recipientsByNode.put(nodeId, recipients);
+            return recipientsByNode;
+        }
+
+        List<String> unsyncedPeers = new ArrayList<>();
+        for (String nodeId : peers) {
+            if (!presenceDirectory.isSynced(nodeId)) unsyncedPeers.add(nodeId);
+        }
+        // Recipients not placed anywhere, sent to every synced node
+        List<String> unlocated = new ArrayList<>();
+        for (String userId : recipients) {
+            Set<String> nodeIds = presenceDirectory.getNodesOf(userId);
+            if (nodeIds.isEmpty() && !presenceDirectory.isLocated(userId)) {
+                unlocated.add(userId);
+                continue;
+            }
+            for (String nodeId : nodeIds) {
+                if (!peers.contains(nodeId) || unsyncedPeers.contains(nodeId)) continue;
+                recipientsByNode.computeIfAbsent(nodeId, id -> new ArrayList<>()).add(userId);
+            }
+        }
+        if (!unlocated.isEmpty()) {
+            for (String nodeId : peers) {
+                if (unsyncedPeers.contains(nodeId)) continue;
+                recipientsByNode.computeIfAbsent(nodeId, id -> new ArrayList<>()).addAll(unlocated);
+            }
+        }
+        for (String nodeId : unsyncedPeers) recipientsByNode.put(nodeId, recipients);
+        return recipientsByNode;
+    }
+
+    private int sendToNodes(Iterable<String> nodeIds, byte[] frame) {
+        int queued = 0;
+        for (String nodeId : nodeIds) {
+            if (transport.send(nodeId, frame)) {
+                queued++;
+            } else {
+                framesDropped.incrementAndGet();
+            }
+        }
+        framesSent.addAndGet(queued);
+        return queued;
+    }
+
+    // Delivers a frame from another node to the recipients connected here. fromNodeId is the sender as authenticated
+    // by the transport, a frame claiming to come from any other node is dropped.
+    void receive(String fromNodeId, byte[] bytes) {
+        int type = ClusterFrame.typeOf(bytes);
+        if (type == ClusterFrame.TYPE_DELIVER_BATCH) {
+            receiveBatch(fromNodeId, bytes);
+            return;
+        }
+        if (type != ClusterFrame.TYPE_DELIVER && type != -1 && presenceDirectory != null) {
+            presenceDirectory.receive(fromNodeId, bytes);
+            return;
+        }
+
+        ClusterFrame frame = ClusterFrame.decode(bytes);
+        if (frame == null) {
+            framesRejected.incrementAndGet();
+            logger.warn("Dropped malformed cluster frame of {} bytes from node {}", bytes.length, fromNodeId);
+            return;
+        }
+        if (!frame.originNodeId().equals(fromNodeId)) {
+            framesRejected.incrementAndGet();
+            logger.warn("Dropped cluster frame from node {} claiming to come from node {}", fromNodeId,
+                    frame.originNodeId());
+            return;
+        }
+        if (frame.originNodeId().equals(transport.getLocalNodeId())) return;
+
+        framesReceived.incrementAndGet();
+        int reached = messageBroadcaster.deliverLocally(frame.recipients(), frame.destination(), frame.payload());
+        remoteUsersReached.addAndGet(reached);
+    }
+
+    private void receiveBatch(String fromNodeId, byte[] bytes) {
+        ClusterBatchFrame frame = ClusterBatchFrame.decode(bytes);
+        if (frame == null) {
+            framesRejected.incrementAndGet();
+            logger.warn("Dropped malformed cluster batch frame of {} bytes from node {}", bytes.length, fromNodeId);
+            return;
+        }
+        if (!frame.originNodeId().equals(fromNodeId)) {
+            framesRejected.incrementAndGet();
+            logger.warn("Dropped cluster batch frame from node {} claiming to come from node {}", fromNodeId,
+                    frame.originNodeId());
+            return;
+        }
+        if (frame.originNodeId().equals(transport.getLocalNodeId())) return;
+
+        framesReceived.incrementAndGet();
+        int reached = 0;
+        for (Map.Entry<String, byte[]> entry : frame.payloads().entrySet()) {
+            reached += messageBroadcaster.deliverLocally(List.of(entry.getKey()), frame.destination(),
+                    entry.getValue());
+        }
+        remoteUsersReached.addAndGet(reached);
+    }
+
+    // ========== METRICS ==========
+
+    public long getFramesSent() {return framesSent.get();}
+    public long getFramesDropped() {return framesDropped.get();}
+    public long getFramesReceived() {return framesReceived.get();}
+    public long getFramesRejected() {return framesRejected.get();}
+    public long getRemoteUsersReached() {return remoteUsersReached.get();}
+}
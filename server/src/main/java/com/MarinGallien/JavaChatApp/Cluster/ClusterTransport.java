@@ -0,0 +1,31 @@
+package com.MarinGallien.JavaChatApp.Cluster;
+
+import java.util.Set;
+
+// Carries opaque frames between the nodes of a cluster. Frames sent to one node arrive in the order they were sent,
+// at most once. Sending never waits for a slow or unreachable node: a frame that cannot be queued is dropped, since
+// messages are persisted and a client that missed one gets it from the chat history.
+public interface ClusterTransport extends AutoCloseable {
+
+    String getLocalNodeId();
+
+    // Nodes frames can be sent to, not including this one
+    Set<String> getPeerIds();
+
+    // Starts receiving. Frames sent by other nodes are passed to receiver, one at a time per sending node, with the
+    // ID of the node that sent them - as established by the transport, not as claimed inside the frame.
+    void start(Receiver receiver);
+
+    // Queues frame for nodeId. Returns false if the node is unknown or the frame was dropped. frame must not be
+    // modified afterwards, the same array may be queued for several nodes.
+    boolean send(String nodeId, byte[] frame);
+
+    // Stops receiving and drops whatever is still queued
+    @Override
+    void close();
+
+    @FunctionalInterface
+    interface Receiver {
+        void receive(String fromNodeId, byte[] frame);
+    }
+}
@@ -0,0 +1,77 @@
+package com.MarinGallien.JavaChatApp.Cluster;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+// Transport between nodes running in the same JVM, for tests and local experiments. Nodes created on the same Network
+// are each other's peers, and a frame is handed to the receiving node on the sending thread.
+public class LoopbackTransport implements ClusterTransport {
+
+    // Nodes that can reach each other
+    public static final class Network {
+        // Used by nodes configured with chat.cluster.transport=loopback
+        public static final Network SHARED = new Network();
+
+        private final Map<String, LoopbackTransport> nodes = new ConcurrentHashMap<>();
+    }
+
+    private final Network network;
+    private final String localNodeId;
+    private volatile Receiver receiver;
+
+    // Counters
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    public LoopbackTransport(Network network, String localNodeId) {
+        this.network = network;
+        this.localNodeId = localNodeId;
+        if (network.nodes.putIfAbsent(localNodeId, this) != null) {
+            throw new IllegalStateException("A node with ID " + localNodeId + " is already on this network");
+        }
+    }
+
+    @Override
+    public String getLocalNodeId() {return localNodeId;}
+
+    @Override
+    public Set<String> getPeerIds() {
+        return network.nodes.keySet().stream()
+                .filter(nodeId -> !nodeId.equals(localNodeId))
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    @Override
+    public void start(Receiver receiver) {
+        this.receiver = receiver;
+    }
+
+    // Runs the peer's receiver on this thread - nodes that have not started yet drop the frame
+    @Override
+    public boolean send(String nodeId, byte[] frame) {
+        LoopbackTransport peer = network.nodes.get(nodeId);
+        Receiver peerReceiver = peer != null && peer != this ? peer.receiver : null;
+        if (peerReceiver == null) {
+            droppedCount.incrementAndGet();
+            return false;
+        }
+
+        peerReceiver.receive(localNodeId, frame);
+        sentCount.incrementAndGet();
+        return true;
+    }
+
+    @Override
+    public void close() {
+        receiver = null;
+        network.nodes.remove(localNodeId, this);
+    }
+
+    // ========== METRICS ==========
+
+    public long getSentCount() {return sentCount.get();}
+    public long getDroppedCount() {return droppedCount.get();}
+}
@@ -0,0 +1,437 @@
+package com.MarinGallien.JavaChatApp.Cluster;
+
+import com.MarinGallien.JavaChatApp.WebSocketServer.StatusManager;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Replicated view of which users are connected to which node, so StatusManager.isOnline and the ClusterRelay account
+// for users on other nodes. Every node owns the entry listing its own users and is the only one writing it:
+// - changes to it are batched and pushed to every peer once per gossip interval, as a delta tagged with the version
+//   range it covers
+// - once per heartbeat interval each node sends a digest of its entry's version, so a peer that missed a delta, or has
+//   never heard of the node, sees it is behind and asks for a snapshot of the whole entry (anti-entropy)
+// - any frame from a node renews its lease, and a node that stays silent for a whole lease is dropped with its users
+// A node that restarts comes back with a higher incarnation, which replaces everything known of its previous run.
+//
+// A user showing up on their first other node, or leaving their last one - by a delta, a snapshot, a restart or an
+// expired lease - is reported to the StatusManager, which publishes it if the user has no session here either. Of
+// all the nodes seeing such a change, only the one with the lowest ID among those alive stores and announces it.
+//
+// Lookups read a single map of userID:nodes the user is connected to, so isOnline stays an O(1) local lookup.
+public class PresenceDirectory {
+
+    private static final Logger logger = LoggerFactory.getLogger(PresenceDirectory.class);
+
+    // Incarnations handed out in this JVM - start time in ms, bumped so nodes restarted in the same ms still differ
+    private static final AtomicLong LAST_INCARNATION = new AtomicLong();
+
+    private final ClusterTransport transport;
+    private final StatusManager statusManager;
+    private final long gossipIntervalMs;
+    private final long heartbeatNanos;
+    private final long leaseNanos;
+    private final LongSupplier nanoClock;
+    private final String localNodeId;
+    private final long incarnation;
+
+    private ScheduledExecutorService scheduler;
+
+    // Only used on the gossip thread
+    private long lastHeartbeatNanos;
+    private boolean heartbeatSent;
+
+    // This node's entry, guarded by this: users with a session here, the version of the entry, the version covered
+    // by the deltas sent so far and the changes made since - userID:online
+    private final Set<String> localUsers = new HashSet<>();
+    private long localVersion;
+    private long flushedVersion;
+    private final Map<String, Boolean> unflushed = new HashMap<>();
+
+    // Entries of the other nodes - nodeID:entry. Read freely, modified under remoteLock.
+    private final Map<String, RemoteNode> nodes = new ConcurrentHashMap<>();
+    private final Object remoteLock = new Object();
+
+    // userID:other nodes the user is connected to. The sets are immutable, replaced on every change.
+    private final Map<String, Set<String>> nodesByUser = new ConcurrentHashMap<>();
+
+    // What is known of another node's entry
+    private static final class RemoteNode {
+        final String nodeId;
+        final long incarnation;
+        final Set<String> users = new HashSet<>();
+
+        // -1 until a snapshot was applied
+        volatile long version = -1;
+        long heardAtNanos;
+        long snapshotRequestedAtNanos;
+        boolean snapshotRequested;
+
+        RemoteNode(String nodeId, long incarnation) {
+            this.nodeId = nodeId;
+            this.incarnation = incarnation;
+        }
+    }
+
+    // Counters
+    private final AtomicLong deltasSent = new AtomicLong();
+    private final AtomicLong deltasApplied = new AtomicLong();
+    private final AtomicLong snapshotsRequested = new AtomicLong();
+    private final AtomicLong snapshotsApplied = new AtomicLong();
+    private final AtomicLong nodesExpired = new AtomicLong();
+    private final AtomicLong framesRejected = new AtomicLong();
+
+    public PresenceDirectory(ClusterTransport transport, StatusManager statusManager, long gossipIntervalMs,
+                             long heartbeatIntervalMs, long leaseMs) {
+        this(transport, statusManager, gossipIntervalMs, heartbeatIntervalMs, leaseMs, System::nanoTime);
+    }
+
+    // Tests drive time through nanoClock
+    PresenceDirectory(ClusterTransport transport, StatusManager statusManager, long gossipIntervalMs,
+                      long heartbeatIntervalMs, long leaseMs, LongSupplier nanoClock) {
+        this.transport = transport;
+        this.statusManager = statusManager;
+        this.gossipIntervalMs = Math.max(10, gossipIntervalMs);
+        this.heartbeatNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, heartbeatIntervalMs));
+        this.leaseNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, leaseMs));
+        this.nanoClock = nanoClock;
+        this.localNodeId = transport.getLocalNodeId();
+        this.incarnation = LAST_INCARNATION.updateAndGet(last -> Math.max(last + 1, System.currentTimeMillis()));
+    }
+
+    // ========== LIFECYCLE ==========
+
+    // Attached before the server accepts connections, so every local session is reported
+    @PostConstruct
+    public void start() {
+        statusManager.setPresenceDirectory(this);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "PresenceDirectory");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::tickSafely, gossipIntervalMs, gossipIntervalMs, TimeUnit.MILLISECONDS);
+        logger.info("Presence directory started on node {} (incarnation {})", localNodeId, incarnation);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        statusManager.setPresenceDirectory(null);
+        if (scheduler == null) return;
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ========== LOOKUPS ==========
+
+    // True if the user has a session on another node
+    public boolean isOnlineElsewhere(String userId) {
+        return nodesByUser.containsKey(userId);
+    }
+
+    // Other nodes the user has a session on
+    public Set<String> getNodesOf(String userId) {
+        return nodesByUser.getOrDefault(userId, Set.of());
+    }
+
+    // False if the user has no session here and no other node lists them: offline, or just connected to a node whose
+    // delta has not arrived yet
+    public boolean isLocated(String userId) {
+        return statusManager.isOnline(userId);
+    }
+
+    // True if no other live node has a lower ID. Until the first frames arrive every node believes it is, so presence
+    // changes right after a node starts may be announced twice.
+    public boolean isPresencePublisher() {
+        for (String nodeId : nodes.keySet()) {
+            if (nodeId.compareTo(localNodeId) < 0) return false;
+        }
+        return true;
+    }
+
+    // True once a full entry of nodeId was received, i.e. getNodesOf can be trusted for that node
+    public boolean isSynced(String nodeId) {
+        RemoteNode node = nodes.get(nodeId);
+        return node != null && node.version >= 0;
+    }
+
+    // ========== LOCAL USERS ==========
+
+    // Called by StatusManager when a user's first session on this node connects
+    public synchronized void userOnline(String userId) {
+        if (localUsers.add(userId)) recordLocalChange(userId, true);
+    }
+
+    // Called by StatusManager when a user's last session on this node closes
+    public synchronized void userOffline(String userId) {
+        if (localUsers.remove(userId)) recordLocalChange(userId, false);
+    }
+
+    private void recordLocalChange(String userId, boolean online) {
+        localVersion++;
+        unflushed.put(userId, online);
+    }
+
+    // Changes since the last delta, or null if there were none
+    private synchronized PresenceFrame takeDelta() {
+        if (unflushed.isEmpty()) return null;
+
+        List<String> online = new ArrayList<>();
+        List<String> offline = new ArrayList<>();
+        unflushed.forEach((userId, isOnline) -> (isOnline ? online : offline).add(userId));
+
+        PresenceFrame delta = PresenceFrame.delta(localNodeId, incarnation, flushedVersion, localVersion,
+                online, offline);
+        unflushed.clear();
+        flushedVersion = localVersion;
+        return delta;
+    }
+
+    // Only covers deltas already sent, so a peer is never told to ask for a snapshot of changes still on their way
+    private synchronized PresenceFrame digest() {
+        return PresenceFrame.digest(localNodeId, incarnation, flushedVersion);
+    }
+
+    // May include changes not sent as a delta yet - the next delta then partly overlaps it, which is harmless as it
+    // states where each user is rather than what changed
+    private synchronized PresenceFrame snapshot() {
+        return PresenceFrame.snapshot(localNodeId, incarnation, localVersion, List.copyOf(localUsers));
+    }
+
+    // ========== GOSSIP ==========
+
+    private void tickSafely() {
+        try {
+            tick();
+        } catch (Exception e) {
+            logger.error("Unexpected error in presence directory: {}", e.getMessage());
+        }
+    }
+
+    // Sends pending changes, a digest when one is due, and drops nodes whose lease ran out
+    void tick() {
+        long now = nanoClock.getAsLong();
+
+        PresenceFrame delta = takeDelta();
+        if (delta != null) {
+            sendToPeers(delta.encode());
+            deltasSent.incrementAndGet();
+        }
+
+        if (!heartbeatSent || now - lastHeartbeatNanos >= heartbeatNanos) {
+            sendToPeers(digest().encode());
+            lastHeartbeatNanos = now;
+            heartbeatSent = true;
+        }
+
+        expireSilentNodes(now);
+    }
+
+    private void sendToPeers(byte[] frame) {
+        for (String nodeId : transport.getPeerIds()) {
+            transport.send(nodeId, frame);
+        }
+    }
+
+    // Handles a presence frame from another node. Replies are sent after the directory's locks are released, since
+    // an in-JVM transport delivers them on this thread. A node may only speak for itself: frames whose node ID is not
+    // the sender the transport authenticated are dropped.
+    public void receive(String fromNodeId, byte[] bytes) {
+        PresenceFrame frame = PresenceFrame.decode(bytes);
+        if (frame == null) {
+            framesRejected.incrementAndGet();
+            logger.warn("Dropped malformed presence frame of {} bytes from node {}", bytes.length, fromNodeId);
+            return;
+        }
+        if (!frame.nodeId().equals(fromNodeId)) {
+            framesRejected.incrementAndGet();
+            logger.warn("Dropped presence frame from node {} claiming to come from node {}", fromNodeId,
+                    frame.nodeId());
+            return;
+        }
+        if (frame.nodeId().equals(localNodeId)) return;
+
+        long now = nanoClock.getAsLong();
+        boolean needSnapshot = switch (frame.type()) {
+            case ClusterFrame.TYPE_PRESENCE_DELTA -> !applyDelta(frame, now);
+            case ClusterFrame.TYPE_PRESENCE_DIGEST -> isBehind(frame, now);
+            case ClusterFrame.TYPE_PRESENCE_SNAPSHOT -> {
+                applySnapshot(frame, now);
+                yield false;
+            }
+            case ClusterFrame.TYPE_PRESENCE_SNAPSHOT_REQUEST -> {
+                transport.send(frame.nodeId(), snapshot().encode());
+                yield false;
+            }
+            default -> false;
+        };
+
+        if (needSnapshot && shouldRequestSnapshot(frame.nodeId(), now)) {
+            snapshotsRequested.incrementAndGet();
+            transport.send(frame.nodeId(), PresenceFrame.snapshotRequest(localNodeId).encode());
+        }
+    }
+
+    // Returns false if the delta cannot be applied because earlier changes are missing
+    private boolean applyDelta(PresenceFrame frame, long now) {
+        synchronized (remoteLock) {
+            RemoteNode node = heardFrom(frame, now);
+            if (node == null) return true;
+            if (node.version < 0 || node.version < frame.baseVersion()) return false;
+            if (frame.version() <= node.version) return true;
+
+            for (String userId : frame.online()) {
+                if (node.users.add(userId)) addToIndex(userId, node.nodeId);
+            }
+            for (String userId : frame.offline()) {
+                if (node.users.remove(userId)) removeFromIndex(userId, node.nodeId);
+            }
+            node.version = frame.version();
+            deltasApplied.incrementAndGet();
+            return true;
+        }
+    }
+
+    private boolean isBehind(PresenceFrame frame, long now) {
+        synchronized (remoteLock) {
+            RemoteNode node = heardFrom(frame, now);
+            return node != null && node.version < frame.version();
+        }
+    }
+
+    private void applySnapshot(PresenceFrame frame, long now) {
+        synchronized (remoteLock) {
+            RemoteNode node = heardFrom(frame, now);
+            if (node == null || frame.version() < node.version) return;
+
+            Set<String> users = new HashSet<>(frame.online());
+            for (Iterator<String> it = node.users.iterator(); it.hasNext(); ) {
+                String userId = it.next();
+                if (users.contains(userId)) continue;
+                it.remove();
+                removeFromIndex(userId, node.nodeId);
+            }
+            for (String userId : users) {
+                if (node.users.add(userId)) addToIndex(userId, node.nodeId);
+            }
+            node.version = frame.version();
+            node.snapshotRequested = false;
+            snapshotsApplied.incrementAndGet();
+        }
+    }
+
+    // At most one snapshot request per node per heartbeat interval, however many frames show it is behind
+    private boolean shouldRequestSnapshot(String nodeId, long now) {
+        synchronized (remoteLock) {
+            RemoteNode node = nodes.get(nodeId);
+            if (node == null) return false;
+            if (node.snapshotRequested && now - node.snapshotRequestedAtNanos < heartbeatNanos) return false;
+
+            node.snapshotRequested = true;
+            node.snapshotRequestedAtNanos = now;
+            return true;
+        }
+    }
+
+    // Returns the entry of the frame's node with its lease renewed, starting a new one if the node restarted. Returns
+    // null for a frame from a previous run of the node. Called under remoteLock.
+    private RemoteNode heardFrom(PresenceFrame frame, long now) {
+        RemoteNode node = nodes.get(frame.nodeId());
+        if (node != null && frame.incarnation() < node.incarnation) return null;
+
+        if (node == null || frame.incarnation() > node.incarnation) {
+            if (node != null) {
+                logger.info("Cluster node {} restarted, dropping its {} users", node.nodeId, node.users.size());
+                dropNode(node);
+            }
+            node = new RemoteNode(frame.nodeId(), frame.incarnation());
+            nodes.put(node.nodeId, node);
+        }
+        node.heardAtNanos = now;
+        return node;
+    }
+
+    private void expireSilentNodes(long now) {
+        synchronized (remoteLock) {
+            for (RemoteNode node : List.copyOf(nodes.values())) {
+                if (now - node.heardAtNanos <= leaseNanos) continue;
+
+                logger.warn("Cluster node {} silent for more than its lease, dropping its {} users", node.nodeId,
+                        node.users.size());
+                dropNode(node);
+                nodesExpired.incrementAndGet();
+            }
+        }
+    }
+
+    // Called under remoteLock
+    private void dropNode(RemoteNode node) {
+        nodes.remove(node.nodeId, node);
+        for (String userId : node.users) removeFromIndex(userId, node.nodeId);
+        node.users.clear();
+    }
+
+    // Index updates are called under remoteLock, so the StatusManager hears of each user's remote changes in order
+
+    private void addToIndex(String userId, String nodeId) {
+        boolean[] first = new boolean[1];
+        nodesByUser.compute(userId, (id, current) -> {
+            if (current == null) {
+                first[0] = true;
+                return Set.of(nodeId);
+            }
+            Set<String> updated = new HashSet<>(current);
+            updated.add(nodeId);
+            return Set.copyOf(updated);
+        });
+        if (first[0]) statusManager.remotePresenceChanged(userId, true);
+    }
+
+    private void removeFromIndex(String userId, String nodeId) {
+        boolean[] last = new boolean[1];
+        nodesByUser.computeIfPresent(userId, (id, current) -> {
+            if (!current.contains(nodeId)) return current;
+            if (current.size() == 1) {
+                last[0] = true;
+                return null;
+            }
+            Set<String> updated = new HashSet<>(current);
+            updated.remove(nodeId);
+            return Set.copyOf(updated);
+        });
+        if (last[0]) statusManager.remotePresenceChanged(userId, false);
+    }
+
+    // ========== METRICS ==========
+
+    public String getLocalNodeId() {return localNodeId;}
+    public long getIncarnation() {return incarnation;}
+    public int getKnownNodeCount() {return nodes.size();}
+    public int getRemoteUserCount() {return nodesByUser.size();}
+    public long getDeltasSent() {return deltasSent.get();}
+    public long getDeltasApplied() {return deltasApplied.get();}
+    public long getSnapshotsRequested() {return snapshotsRequested.get();}
+    public long getSnapshotsApplied() {return snapshotsApplied.get();}
+    public long getNodesExpired() {return nodesExpired.get();}
+    public long getFramesRejected() {return framesRejected.get();}
+}
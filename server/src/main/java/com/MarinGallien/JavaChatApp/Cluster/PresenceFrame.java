@@ -0,0 +1,97 @@
+package com.MarinGallien.JavaChatApp.Cluster;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Presence directory gossip about one node's entry. nodeId is the node the entry belongs to - or, for a snapshot
+// request, the node asking. Which fields are used depends on the type:
+// - DELTA: users that came online or went offline between baseVersion and version
+// - DIGEST: the version of the last delta sent, so peers can tell they missed one
+// - SNAPSHOT: every user online at version, in online
+// - SNAPSHOT_REQUEST: none
+//
+// Wire format, big-endian: version (byte), type (byte), node ID, incarnation (long), base version (long), version
+// (long), online count (int), online user IDs, offline count (int), offline user IDs.
+public record PresenceFrame(byte type, String nodeId, long incarnation, long baseVersion, long version,
+                            List<String> online, List<String> offline) {
+
+    static PresenceFrame delta(String nodeId, long incarnation, long baseVersion, long version,
+                               List<String> online, List<String> offline) {
+        return new PresenceFrame(ClusterFrame.TYPE_PRESENCE_DELTA, nodeId, incarnation, baseVersion, version,
+                online, offline);
+    }
+
+    static PresenceFrame digest(String nodeId, long incarnation, long version) {
+        return new PresenceFrame(ClusterFrame.TYPE_PRESENCE_DIGEST, nodeId, incarnation, 0, version,
+                List.of(), List.of());
+    }
+
+    static PresenceFrame snapshotRequest(String nodeId) {
+        return new PresenceFrame(ClusterFrame.TYPE_PRESENCE_SNAPSHOT_REQUEST, nodeId, 0, 0, 0, List.of(), List.of());
+    }
+
+    static PresenceFrame snapshot(String nodeId, long incarnation, long version, List<String> online) {
+        return new PresenceFrame(ClusterFrame.TYPE_PRESENCE_SNAPSHOT, nodeId, incarnation, 0, version,
+                online, List.of());
+    }
+
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(48 + (online.size() + offline.size()) * 40);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(ClusterFrame.VERSION);
+            out.writeByte(type);
+            out.writeUTF(nodeId);
+            out.writeLong(incarnation);
+            out.writeLong(baseVersion);
+            out.writeLong(version);
+            writeUserIds(out, online);
+            writeUserIds(out, offline);
+        } catch (IOException e) {
+            // Not thrown by in-memory streams
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    // Returns null if the frame is truncated or not a presence frame
+    public static PresenceFrame decode(byte[] frame) {
+        int type = ClusterFrame.typeOf(frame);
+        if (type < ClusterFrame.TYPE_PRESENCE_DELTA || type > ClusterFrame.TYPE_PRESENCE_SNAPSHOT) return null;
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(frame))) {
+            in.skipBytes(2);
+            String nodeId = in.readUTF();
+            long incarnation = in.readLong();
+            long baseVersion = in.readLong();
+            long version = in.readLong();
+            List<String> online = readUserIds(in);
+            List<String> offline = readUserIds(in);
+            if (online == null || offline == null) return null;
+
+            return new PresenceFrame((byte) type, nodeId, incarnation, baseVersion, version, online, offline);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void writeUserIds(DataOutputStream out, List<String> userIds) throws IOException {
+        out.writeInt(userIds.size());
+        for (String userId : userIds) out.writeUTF(userId);
+    }
+
+    private static List<String> readUserIds(DataInputStream in) throws IOException {
+        // Every user ID takes at least the 2 bytes of its length
+        int count = in.readInt();
+        if (count < 0 || count > in.available() / 2) return null;
+
+        List<String> userIds = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) userIds.add(in.readUTF());
+        return userIds;
+    }
+}
@@ -0,0 +1,395 @@
+package com.MarinGallien.JavaChatApp.Cluster;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Transport between nodes over plain TCP. Each peer gets one outgoing connection, fed by its own bounded queue and
+// writer thread, so a slow or unreachable node only fills its own queue: send() never blocks, and drops the frame
+// when the queue is full. Frames are written length-prefixed, and flushed when the queue runs empty so a burst goes
+// out in few packets.
+//
+// A peer that cannot be reached is retried at most once per reconnect delay, and frames queued for it in between are
+// dropped rather than held, since they would be stale by the time it comes back.
+//
+// Every node shares a cluster secret. A connection opens with a hello naming the sending node, the node it is meant
+// for, a random connection ID and the time, signed with HMAC-SHA256 under the secret. The listener only accepts it
+// from a node in its peer list, addressed to itself, recent, and with a connection ID it has not seen. Each frame
+// after that carries an HMAC over the connection ID, its sequence number on the connection and its bytes, so frames
+// cannot be forged, altered, replayed or reordered. Anything that fails a check closes the connection. Frames are not
+// encrypted - keep the port on a private network, which is why the listener binds to a single address.
+public class TcpTransport implements ClusterTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(TcpTransport.class);
+
+    private static final int MAX_FRAME_BYTES = 16 * 1024 * 1024;
+    private static final int CONNECT_TIMEOUT_MS = 2000;
+    private static final long RECONNECT_DELAY_MS = 1000;
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final int MAC_BYTES = 32;
+    private static final int MIN_SECRET_BYTES = 16;
+    private static final int CONNECTION_ID_BYTES = 16;
+    // How far a hello's clock may be from ours, and how long its connection ID is remembered
+    private static final long HELLO_WINDOW_MS = 30_000;
+    private static final int HELLO_TIMEOUT_MS = 5000;
+
+    private final String localNodeId;
+    private final int queueCapacity;
+    private final byte[] secret;
+    private final ServerSocket serverSocket;
+    private final Map<String, Peer> peers = new ConcurrentHashMap<>();
+    private final Set<Socket> inbound = ConcurrentHashMap.newKeySet();
+    private final SecureRandom random = new SecureRandom();
+
+    // Connection IDs of accepted hellos:when they leave the window
+    private final Map<String, Long> seenConnections = new ConcurrentHashMap<>();
+
+    private volatile Receiver receiver;
+    private volatile boolean running = true;
+
+    // Counters
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong receivedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    // Binds bindAddress:port right away, port 0 picks a free one
+    public TcpTransport(String localNodeId, String bindAddress, int port, int queueCapacity, byte[] secret)
+            throws IOException {
+        if (secret == null || secret.length < MIN_SECRET_BYTES) {
+            throw new IllegalArgumentException("Cluster secret must be at least " + MIN_SECRET_BYTES + " bytes");
+        }
+
+        this.localNodeId = localNodeId;
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.secret = secret.clone();
+
+        // Lets a restarted node bind its port again while connections of its previous run linger in TIME_WAIT
+        this.serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(InetAddress.getByName(bindAddress), port));
+    }
+
+    public int getLocalPort() {return serverSocket.getLocalPort();}
+
+    // Adds a node frames can be sent to, and accepted from, replacing any previous address for it
+    public void addPeer(String nodeId, String host, int port) {
+        if (nodeId.equals(localNodeId)) return;
+
+        Peer peer = new Peer(nodeId, new InetSocketAddress(host, port));
+        Peer previous = peers.put(nodeId, peer);
+        if (previous != null) previous.stop();
+        peer.start();
+    }
+
+    @Override
+    public String getLocalNodeId() {return localNodeId;}
+
+    @Override
+    public Set<String> getPeerIds() {return peers.keySet();}
+
+    @Override
+    public void start(Receiver receiver) {
+        this.receiver = receiver;
+        Thread acceptor = new Thread(this::acceptLoop, "ClusterTcp-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        logger.info("Cluster node {} listening on {}", localNodeId, serverSocket.getLocalSocketAddress());
+    }
+
+    @Override
+    public boolean send(String nodeId, byte[] frame) {
+        Peer peer = peers.get(nodeId);
+        if (peer == null || !peer.queue.offer(frame)) {
+            droppedCount.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        closeQuietly(serverSocket);
+        peers.values().forEach(Peer::stop);
+        peers.clear();
+        inbound.forEach(TcpTransport::closeQuietly);
+    }
+
+    // ========== RECEIVING ==========
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                inbound.add(socket);
+
+                Thread reader = new Thread(() -> readLoop(socket), "ClusterTcp-reader");
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                if (running) logger.warn("Failed to accept cluster connection: {}", e.getMessage());
+            }
+        }
+    }
+
+    // Frames from one connection are handed to the receiver one at a time, in order
+    private void readLoop(Socket socket) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_BYTES))) {
+            // A connection that does not introduce itself in time is dropped
+            socket.setSoTimeout(HELLO_TIMEOUT_MS);
+            Mac mac = newMac();
+            byte[] connectionId = new byte[CONNECTION_ID_BYTES];
+            String fromNodeId = readHello(in, mac, connectionId);
+            if (fromNodeId == null) {
+                rejectedCount.incrementAndGet();
+                logger.warn("Rejected cluster connection from {}: hello failed authentication",
+                        socket.getRemoteSocketAddress());
+                return;
+            }
+            socket.setSoTimeout(0);
+
+            byte[] tag = new byte[MAC_BYTES];
+            for (long sequence = 0; running; sequence++) {
+                int length = in.readInt();
+                if (length < 0 || length > MAX_FRAME_BYTES) {
+                    logger.warn("Closing cluster connection from node {}: invalid frame length {}", fromNodeId, length);
+                    return;
+                }
+
+                byte[] frame = new byte[length];
+                in.readFully(frame);
+                in.readFully(tag);
+                if (!MessageDigest.isEqual(tag, frameMac(mac, connectionId, sequence, frame))) {
+                    rejectedCount.incrementAndGet();
+                    logger.warn("Closing cluster connection from node {}: frame failed authentication", fromNodeId);
+                    return;
+                }
+                receivedCount.incrementAndGet();
+
+                try {
+                    Receiver current = receiver;
+                    if (current != null) current.receive(fromNodeId, frame);
+                } catch (Exception e) {
+                    logger.error("Failed to handle cluster frame: {}", e.getMessage());
+                }
+            }
+        } catch (EOFException e) {
+            // Peer closed the connection
+        } catch (IOException e) {
+            if (running) logger.debug("Cluster connection from {} lost: {}", socket.getRemoteSocketAddress(),
+                    e.getMessage());
+        } finally {
+            inbound.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    // Returns the ID of the node that opened the connection, or null if the hello is not acceptable. Fills
+    // connectionId.
+    private String readHello(DataInputStream in, Mac mac, byte[] connectionId) throws IOException {
+        String fromNodeId = in.readUTF();
+        String toNodeId = in.readUTF();
+        in.readFully(connectionId);
+        long sentAt = in.readLong();
+        byte[] tag = new byte[MAC_BYTES];
+        in.readFully(tag);
+
+        if (!MessageDigest.isEqual(tag, helloMac(mac, fromNodeId, toNodeId, connectionId, sentAt))) return null;
+        if (!peers.containsKey(fromNodeId) || !toNodeId.equals(localNodeId)) return null;
+
+        long now = System.currentTimeMillis();
+        if (Math.abs(now - sentAt) > HELLO_WINDOW_MS) return null;
+
+        // A recorded hello cannot be played again while it is recent enough to pass the check above
+        seenConnections.values().removeIf(expiresAt -> expiresAt < now);
+        String key = Base64.getEncoder().encodeToString(connectionId);
+        if (seenConnections.putIfAbsent(key, now + 2 * HELLO_WINDOW_MS) != null) return null;
+
+        return fromNodeId;
+    }
+
+    // ========== AUTHENTICATION ==========
+
+    private Mac newMac() throws IOException {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(new SecretKeySpec(secret, MAC_ALGORITHM));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Cannot set up " + MAC_ALGORITHM, e);
+        }
+    }
+
+    private static byte[] helloMac(Mac mac, String fromNodeId, String toNodeId, byte[] connectionId, long sentAt) {
+        mac.update(lengthPrefixed(fromNodeId));
+        mac.update(lengthPrefixed(toNodeId));
+        mac.update(connectionId);
+        mac.update(ByteBuffer.allocate(Long.BYTES).putLong(sentAt).array());
+        return mac.doFinal();
+    }
+
+    private static byte[] frameMac(Mac mac, byte[] connectionId, long sequence, byte[] frame) {
+        mac.update(connectionId);
+        mac.update(ByteBuffer.allocate(Long.BYTES).putLong(sequence).array());
+        mac.update(frame);
+        return mac.doFinal();
+    }
+
+    // Keeps "ab" + "c" and "a" + "bc" from signing the same bytes
+    private static byte[] lengthPrefixed(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(Integer.BYTES + bytes.length).putInt(bytes.length).put(bytes).array();
+    }
+
+    // ========== SENDING ==========
+
+    private final class Peer implements Runnable {
+        private final String nodeId;
+        private final InetSocketAddress address;
+        private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private final Thread writer;
+        private volatile boolean active = true;
+
+        // Only written on the writer thread
+        private volatile Socket socket;
+        private DataOutputStream out;
+        private Mac mac;
+        private final byte[] connectionId = new byte[CONNECTION_ID_BYTES];
+        private long sequence;
+        private long nextConnectAttempt;
+
+        Peer(String nodeId, InetSocketAddress address) {
+            this.nodeId = nodeId;
+            this.address = address;
+            this.writer = new Thread(this, "ClusterTcp-" + nodeId);
+            this.writer.setDaemon(true);
+        }
+
+        void start() {writer.start();}
+
+        // Also closes the connection, in case the writer is blocked on a peer that stopped reading
+        void stop() {
+            active = false;
+            writer.interrupt();
+            Socket current = socket;
+            if (current != null) closeQuietly(current);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running && active) {
+                    byte[] frame = queue.take();
+
+                    DataOutputStream connection = connection();
+                    if (connection == null) {
+                        droppedCount.incrementAndGet();
+                        continue;
+                    }
+
+                    try {
+                        connection.writeInt(frame.length);
+                        connection.write(frame);
+                        connection.write(frameMac(mac, connectionId, sequence++, frame));
+                        if (queue.isEmpty()) connection.flush();
+                        sentCount.incrementAndGet();
+                    } catch (IOException e) {
+                        logger.warn("Lost cluster connection to node {}: {}", nodeId, e.getMessage());
+                        droppedCount.incrementAndGet();
+                        disconnect();
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Stopped
+            } finally {
+                queue.clear();
+                disconnect();
+            }
+        }
+
+        // Returns the open connection, or null while the node cannot be reached
+        private DataOutputStream connection() {
+            if (out != null) return out;
+
+            long now = System.currentTimeMillis();
+            if (now < nextConnectAttempt) return null;
+
+            Socket candidate = new Socket();
+            try {
+                candidate.connect(address, CONNECT_TIMEOUT_MS);
+                candidate.setTcpNoDelay(true);
+                socket = candidate;
+                if (mac == null) mac = newMac();
+                out = new DataOutputStream(new BufferedOutputStream(candidate.getOutputStream(), BUFFER_BYTES));
+
+                // Every connection gets a fresh ID, and its frames are numbered from 0
+                random.nextBytes(connectionId);
+                sequence = 0;
+                out.writeUTF(localNodeId);
+                out.writeUTF(nodeId);
+                out.write(connectionId);
+                out.writeLong(now);
+                out.write(helloMac(mac, localNodeId, nodeId, connectionId, now));
+
+                logger.info("Connected to cluster node {} at {}", nodeId, address);
+                return out;
+            } catch (IOException e) {
+                closeQuietly(candidate);
+                socket = null;
+                out = null;
+                nextConnectAttempt = now + RECONNECT_DELAY_MS;
+                logger.warn("Cannot reach cluster node {} at {}: {}", nodeId, address, e.getMessage());
+                return null;
+            }
+        }
+
+        private void disconnect() {
+            if (socket != null) closeQuietly(socket);
+            socket = null;
+            out = null;
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception ignored) {
+            // Nothing left to do
+        }
+    }
+
+    // ========== METRICS ==========
+
+    public long getSentCount() {return sentCount.get();}
+    public long getDroppedCount() {return droppedCount.get();}
+    public long getReceivedCount() {return receivedCount.get();}
+    public long getRejectedCount() {return rejectedCount.get();}
+}
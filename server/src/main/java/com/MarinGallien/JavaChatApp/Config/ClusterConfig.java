@@ -0,0 +1,76 @@
+package com.MarinGallien.JavaChatApp.Config;
+
+import com.MarinGallien.JavaChatApp.Cluster.ClusterRelay;
+import com.MarinGallien.JavaChatApp.Cluster.ClusterTransport;
+import com.MarinGallien.JavaChatApp.Cluster.LoopbackTransport;
+import com.MarinGallien.JavaChatApp.Cluster.PresenceDirectory;
+import com.MarinGallien.JavaChatApp.Cluster.TcpTransport;
+import com.MarinGallien.JavaChatApp.WebSocketServer.MessageBroadcaster;
+import com.MarinGallien.JavaChatApp.WebSocketServer.StatusManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+// Runs this server as one node of a cluster when chat.cluster.enabled=true, so broadcasts also reach users connected
+// to the other nodes. chat.cluster.transport chooses how nodes talk: "tcp" (default) connects to the nodes listed in
+// chat.cluster.tcp.peers, "loopback" links nodes running in the same JVM. TCP nodes only accept connections from the
+// nodes in that list, authenticated with chat.cluster.secret.
+@Configuration
+@ConditionalOnProperty(name = "chat.cluster.enabled", havingValue = "true")
+public class ClusterConfig {
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "chat.cluster.transport", havingValue = "tcp", matchIfMissing = true)
+    public ClusterTransport tcpClusterTransport(@Value("${chat.cluster.node-id}") String nodeId,
+                                                @Value("${chat.cluster.tcp.bind-address:127.0.0.1}") String bindAddress,
+                                                @Value("${chat.cluster.tcp.port:7400}") int port,
+                                                @Value("${chat.cluster.tcp.peers:}") String peers,
+                                                @Value("${chat.cluster.tcp.queue-capacity:10000}") int queueCapacity,
+                                                @Value("${chat.cluster.secret}") String secret)
+            throws IOException {
+        TcpTransport transport = new TcpTransport(nodeId, bindAddress, port, queueCapacity,
+                secret.getBytes(StandardCharsets.UTF_8));
+
+        // nodeId=host:port entries - this node's own entry is skipped, so every node can share the same list
+        for (String entry : peers.split(",")) {
+            entry = entry.trim();
+            if (entry.isEmpty()) continue;
+
+            int equals = entry.indexOf('=');
+            int colon = entry.lastIndexOf(':');
+            if (equals <= 0 || colon <= equals + 1 || colon == entry.length() - 1) {
+                transport.close();
+                throw new IllegalArgumentException("Invalid chat.cluster.tcp.peers entry: " + entry);
+            }
+            transport.addPeer(entry.substring(0, equals), entry.substring(equals + 1, colon),
+                    Integer.parseInt(entry.substring(colon + 1)));
+        }
+        return transport;
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "chat.cluster.transport", havingValue = "loopback")
+    public ClusterTransport loopbackClusterTransport(@Value("${chat.cluster.node-id}") String nodeId) {
+        return new LoopbackTransport(LoopbackTransport.Network.SHARED, nodeId);
+    }
+
+    @Bean
+    public PresenceDirectory presenceDirectory(
+            ClusterTransport clusterTransport,
+            StatusManager statusManager,
+            @Value("${chat.cluster.presence.gossip-interval-ms:100}") long gossipIntervalMs,
+            @Value("${chat.cluster.presence.heartbeat-interval-ms:1000}") long heartbeatIntervalMs,
+            @Value("${chat.cluster.presence.lease-ms:5000}") long leaseMs) {
+        return new PresenceDirectory(clusterTransport, statusManager, gossipIntervalMs, heartbeatIntervalMs, leaseMs);
+    }
+
+    @Bean
+    public ClusterRelay clusterRelay(ClusterTransport clusterTransport, MessageBroadcaster messageBroadcaster,
+                                     PresenceDirectory presenceDirectory) {
+        return new ClusterRelay(clusterTransport, messageBroadcaster, presenceDirectory);
+    }
+}
@@ -1,24 +1,30 @@
 package com.MarinGallien.JavaChatApp.Config;
 
+import com.MarinGallien.JavaChatApp.EventSystem.EventLane;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.scheduling.annotation.EnableAsync;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
-
-import java.util.concurrent.Executor;
 
+// One EventLane per event family, so a burst in one family cannot delay or reject the others. Events with the same
+// key (chat ID, contact pair) run in publication order within their lane.
 @Configuration
-@EnableAsync
 public class EventBusConfig {
 
-    @Bean(name = "eventTaskExecutor")
-    public Executor eventTaskExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(2);
-        executor.setMaxPoolSize(5);
-        executor.setQueueCapacity(100);
-        executor.setThreadNamePrefix("EventBus-");
-        executor.initialize();
-        return executor;
+    // 0 stripes means one per available core
+    @Bean(name = "chatEventLane", destroyMethod = "shutdown")
+    public EventLane chatEventLane(@Value("${chat.events.chat.stripes:0}") int stripes,
+                                   @Value("${chat.events.chat.capacity:1000}") int capacity,
+                                   @Value("${chat.events.chat.policy:caller-runs}") String policy,
+                                   @Value("${chat.events.chat.block-timeout-ms:5000}") long blockTimeoutMs) {
+        if (stripes <= 0) stripes = Runtime.getRuntime().availableProcessors();
+        return new EventLane("chat", stripes, capacity, EventLane.Policy.parse(policy), blockTimeoutMs);
+    }
+
+    @Bean(name = "contactEventLane", destroyMethod = "shutdown")
+    public EventLane contactEventLane(@Value("${chat.events.contact.stripes:2}") int stripes,
+                                      @Value("${chat.events.contact.capacity:1000}") int capacity,
+                                      @Value("${chat.events.contact.policy:caller-runs}") String policy,
+                                      @Value("${chat.events.contact.block-timeout-ms:5000}") long blockTimeoutMs) {
+        return new EventLane("contact", stripes, capacity, EventLane.Policy.parse(policy), blockTimeoutMs);
     }
 }
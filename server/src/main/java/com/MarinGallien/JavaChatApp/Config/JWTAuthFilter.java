@@ -1,14 +1,15 @@
 package com.MarinGallien.JavaChatApp.Config;
 
-import com.MarinGallien.JavaChatApp.Database.JPAEntities.User;
 import com.MarinGallien.JavaChatApp.Database.JPARepositories.UserRepo;
 import com.MarinGallien.JavaChatApp.Services.AuthService.JWTService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
@@ -26,9 +27,19 @@ public class JWTAuthFilter extends OncePerRequestFilter {
     private JWTService jwtService;
     private UserRepo userRepo;
 
-    public JWTAuthFilter(JWTService jwtService, UserRepo userRepo) {
+    // jwt.auth-mode=stateless (default) builds the principal from the verified claims alone. Deleted users and
+    // changed passwords are handled by the TokenRevocationList checked in JWTService.verifyToken.
+    // jwt.auth-mode=lookup also loads the user from the database on every request.
+    //
+    // A request with an invalid, expired or revoked token is answered 401 here. One without a token goes on
+    // unauthenticated, and SecurityConfig turns it away from every endpoint that is not public.
+    private final boolean lookupUser;
+
+    public JWTAuthFilter(JWTService jwtService, UserRepo userRepo,
+                         @Value("${jwt.auth-mode:stateless}") String authMode) {
         this.jwtService = jwtService;
         this.userRepo = userRepo;
+        this.lookupUser = "lookup".equalsIgnoreCase(authMode);
     }
 
     @Override
@@ -48,25 +59,24 @@ public class JWTAuthFilter extends OncePerRequestFilter {
         }
 
         try {
-            // Validate token
-            if (!jwtService.validateToken(jwt)) {
-                logger.warn("Invalid JWT token in request");
-                filterChain.doFilter(request, response);
+            // Verify token once and read the user from its claims
+            Claims claims = jwtService.verifyToken(jwt);
+            if (claims == null) {
+                logger.warn("Rejecting request to {}: invalid or revoked JWT token", request.getRequestURI());
+                response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Invalid or revoked token");
                 return;
             }
 
-            // Extract user information from token
-            String userId = jwtService.extractUserId(jwt);
+            String userId = claims.getSubject();
 
             // Check if user is already authenticated in this request
             if (userId != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                // Load user from database
-                User user = userRepo.findUserById(userId);
-
-                if (user != null) {
+                if (lookupUser && userRepo.findUserById(userId) == null) {
+                    logger.warn("User not found in database for userId: {}", userId);
+                } else {
                     // Create authentication token
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            user.getUserId(),
+                            userId,
                             null,
                             new ArrayList<>()
                     );
@@ -78,8 +88,6 @@ public class JWTAuthFilter extends OncePerRequestFilter {
                     SecurityContextHolder.getContext().setAuthentication(authToken);
 
                     logger.debug("Successfully authenticated user: {}", userId);
-                } else {
-                    logger.warn("User not found in database for userId: {}", userId);
                 }
             }
 
@@ -87,6 +95,8 @@ public class JWTAuthFilter extends OncePerRequestFilter {
             logger.error("Error processing JWT token: {}", e.getMessage());
             // Continue without authentication
         }
+
+        filterChain.doFilter(request, response);
     }
 
     @Override
@@ -98,8 +108,7 @@ public class JWTAuthFilter extends OncePerRequestFilter {
                 path.equals("/auth/register") ||
                 path.equals("/h2-console") ||
                 path.equals("/public") ||
-                path.startsWith("/ws") ||
-                path.startsWith("/api");
+                path.startsWith("/ws");
     }
 
 }
@@ -0,0 +1,63 @@
+package com.MarinGallien.JavaChatApp.Config;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+import java.lang.reflect.RecordComponent;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Rejects /api requests whose body names someone other than the authenticated user as the one acting. The request
+// records name that user userId, creatorId or userId1 (the requester of a private chat); a body with none of them,
+// such as a lookup by name, only needs the token SecurityConfig already requires.
+@ControllerAdvice
+public class RequestUserAdvice extends RequestBodyAdviceAdapter {
+
+    // Record components naming the acting user, in order of precedence
+    private static final List<String> ACTING_USER_COMPONENTS = List.of("userId", "creatorId", "userId1");
+
+    // Request record class:its acting-user component, if it has one
+    private final Map<Class<?>, Optional<RecordComponent>> actingUserComponents = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean supports(MethodParameter methodParameter, Type targetType,
+                            Class<? extends HttpMessageConverter<?>> converterType) {
+        return targetType instanceof Class<?> type && actingUserComponent(type).isPresent();
+    }
+
+    @Override
+    public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter,
+                                Type targetType, Class<? extends HttpMessageConverter<?>> converterType) {
+        RecordComponent component = actingUserComponent(body.getClass()).orElse(null);
+        if (component == null) return body;
+
+        Object actingUserId;
+        try {
+            actingUserId = component.getAccessor().invoke(body);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot read " + component.getName() + " of " + body.getClass(), e);
+        }
+
+        // A missing ID is left to the @NotBlank validation of the record
+        if (actingUserId != null) RequestUserInterceptor.requireAuthenticatedUser(actingUserId.toString());
+        return body;
+    }
+
+    private Optional<RecordComponent> actingUserComponent(Class<?> type) {
+        return actingUserComponents.computeIfAbsent(type, clazz -> {
+            if (!clazz.isRecord()) return Optional.empty();
+            for (String name : ACTING_USER_COMPONENTS) {
+                for (RecordComponent component : clazz.getRecordComponents()) {
+                    if (component.getName().equals(name)) return Optional.of(component);
+                }
+            }
+            return Optional.empty();
+        });
+    }
+}
@@ -0,0 +1,41 @@
+package com.MarinGallien.JavaChatApp.Config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+// Rejects /api requests whose userId parameter names someone other than the authenticated user - the upload
+// endpoints take the acting user as a parameter. Request bodies are checked by RequestUserAdvice.
+@Component
+public class RequestUserInterceptor implements HandlerInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestUserInterceptor.class);
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String userId = request.getParameter("userId");
+        if (userId != null) requireAuthenticatedUser(userId);
+        return true;
+    }
+
+    // Throws unless actingUserId is the user the request's token was issued to. The 403 is sent before the
+    // controller runs.
+    static void requireAuthenticatedUser(String actingUserId) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof String principal)) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Authentication required");
+        }
+
+        if (!principal.equals(actingUserId)) {
+            logger.warn("Rejecting request from user {} acting as user {}", principal, actingUserId);
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Request is for another user");
+        }
+    }
+}
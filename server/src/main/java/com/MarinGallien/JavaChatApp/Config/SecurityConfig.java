@@ -2,12 +2,14 @@ package com.MarinGallien.JavaChatApp.Config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 @Configuration
@@ -46,12 +48,19 @@ public class SecurityConfig {
                 // Websocket endpoint (will be handled by websocket security)
                 .requestMatchers("/ws/**").permitAll()
 
-                .requestMatchers("/api/**").permitAll()
+                // REST API: a valid, unrevoked token is required, and RequestUserAdvice/RequestUserInterceptor
+                // check that the request acts for the user it was issued to
+                .requestMatchers("/api/**").authenticated()
 
                     // All other endpoints require authentication
                 .anyRequest().authenticated()
             )
 
+            // Answer unauthenticated requests with 401 rather than the default 403
+            .exceptionHandling(exceptions -> exceptions
+                .authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED))
+            )
+
             // Add JWT filter before username/password authentication
             .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
 
@@ -0,0 +1,36 @@
+package com.MarinGallien.JavaChatApp.Config;
+
+import com.MarinGallien.JavaChatApp.Storage.BlobStore;
+import com.MarinGallien.JavaChatApp.Storage.LocalBlobStore;
+import com.MarinGallien.JavaChatApp.Storage.S3BlobStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.URI;
+import java.nio.file.Paths;
+
+// Chooses where stored file bytes live with chat.files.store: "local" (default) keeps them under the storage
+// directory, "s3" puts them in a bucket shared by every server instance.
+@Configuration
+public class StorageConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "chat.files.store", havingValue = "local", matchIfMissing = true)
+    public BlobStore localBlobStore(
+            @Value("${chat.files.storage-dir:${java.io.tmpdir}/chat-app-uploads}") String storageDir) {
+        return new LocalBlobStore(Paths.get(storageDir));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "chat.files.store", havingValue = "s3")
+    public BlobStore s3BlobStore(@Value("${chat.files.s3.endpoint}") String endpoint,
+                                 @Value("${chat.files.s3.bucket}") String bucket,
+                                 @Value("${chat.files.s3.region:us-east-1}") String region,
+                                 @Value("${chat.files.s3.access-key}") String accessKey,
+                                 @Value("${chat.files.s3.secret-key}") String secretKey,
+                                 @Value("${chat.files.s3.part-size:8388608}") long partSize) {
+        return new S3BlobStore(URI.create(endpoint), bucket, region, accessKey, secretKey, partSize);
+    }
+}
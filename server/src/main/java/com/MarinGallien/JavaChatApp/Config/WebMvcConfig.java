@@ -0,0 +1,21 @@
+package com.MarinGallien.JavaChatApp.Config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+// Checks the acting user of /api requests passed as a parameter against the authenticated user
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    private final RequestUserInterceptor requestUserInterceptor;
+
+    public WebMvcConfig(RequestUserInterceptor requestUserInterceptor) {
+        this.requestUserInterceptor = requestUserInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(requestUserInterceptor).addPathPatterns("/api/**");
+    }
+}
@@ -11,6 +11,12 @@ import org.springframework.web.socket.config.annotation.*;
 @EnableWebSocketMessageBroker
 public class WebsocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final UserSessionInterceptor userSessionInterceptor;
+
+    public WebsocketConfig(UserSessionInterceptor userSessionInterceptor) {
+        this.userSessionInterceptor = userSessionInterceptor;
+    }
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         // Enable simple broker for sending messages to subscribed clients
@@ -31,5 +37,6 @@ public class WebsocketConfig implements WebSocketMessageBrokerConfigurer {
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
         // Register out interceptor to extract userId from connection headers
-        registration.interceptors(new UserSessionInterceptor());    }
+        registration.interceptors(userSessionInterceptor);
+    }
 }
@@ -5,8 +5,13 @@ import com.MarinGallien.JavaChatApp.DTOs.GetterMessages.GetterResponses.*;
 import com.MarinGallien.JavaChatApp.DTOs.DataEntities.FileDTO;
 import com.MarinGallien.JavaChatApp.DTOs.HTTPMessages.HTTPRequests.*;
 import com.MarinGallien.JavaChatApp.DTOs.HTTPMessages.HTTPResponses.*;
+import com.MarinGallien.JavaChatApp.Database.DatabaseServices.StoredFileResource;
 import com.MarinGallien.JavaChatApp.Database.JPAEntities.File;
+import com.MarinGallien.JavaChatApp.Services.ChunkedUploadService;
+import com.MarinGallien.JavaChatApp.Services.ChunkedUploadService.UploadSession;
 import com.MarinGallien.JavaChatApp.Services.FileService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,16 +23,24 @@ import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.Base64;
+import java.util.HexFormat;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/file")
 public class FileController {
     private static final Logger logger = LoggerFactory.getLogger(FileController.class);
+    private static final String REPR_DIGEST = "Repr-Digest";
     private final FileService fileService;
+    private final FileRangeWriter fileRangeWriter;
+    private final ChunkedUploadService chunkedUploadService;
 
-    public FileController(FileService fileService) {
+    public FileController(FileService fileService, FileRangeWriter fileRangeWriter,
+                          ChunkedUploadService chunkedUploadService) {
         this.fileService = fileService;
+        this.fileRangeWriter = fileRangeWriter;
+        this.chunkedUploadService = chunkedUploadService;
     }
 
     @PostMapping("/upload")
@@ -70,10 +83,169 @@ public class FileController {
         }
     }
 
+    // ========== CHUNKED UPLOAD ==========
+
+    @PostMapping("/upload/init")
+    public ResponseEntity<UploadStatusResponse> initUpload(
+            @Valid @RequestBody InitUploadRequest request,
+            BindingResult bindingResult) {
+
+        try {
+            // Return if input has errors
+            if (bindingResult.hasErrors()) {
+                logger.warn("Failed to start upload: input has error(s)");
+                return ResponseEntity.badRequest()
+                        .body(new UploadStatusResponse(false, "Failed to start upload: Input has errors", null, 0, 0, List.of()));
+            }
+
+            UploadSession session = chunkedUploadService.initUpload(request.userId(), request.chatId(),
+                    request.filename(), request.fileSize(), request.fileType(), request.sha256());
+
+            if (session == null) {
+                logger.warn("Failed to start upload");
+                return ResponseEntity.badRequest()
+                        .body(new UploadStatusResponse(false, "Failed to start upload", null, 0, 0, List.of()));
+            }
+
+            logger.info("Started chunked upload");
+            return ResponseEntity.ok().body(toStatusResponse(session, "Upload started"));
+
+        } catch (Exception e) {
+            logger.error("Failed to start upload");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new UploadStatusResponse(false, "Failed to start upload", null, 0, 0, List.of()));
+        }
+    }
+
+    // Chunk bytes are the raw request body, written to the staging file without multipart parsing
+    @PutMapping(value = "/upload/{uploadId}/chunks/{index}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<GenericResponse> uploadChunk(
+            @PathVariable("uploadId") String uploadId,
+            @PathVariable("index") int index,
+            @RequestParam("userId") String userId,
+            HttpServletRequest httpRequest) {
+
+        try {
+            boolean written = chunkedUploadService.writeChunk(userId, uploadId, index, httpRequest.getInputStream(),
+                    httpRequest.getContentLengthLong());
+
+            if (!written) {
+                logger.warn("Failed to write chunk {} of upload {}", index, uploadId);
+                return ResponseEntity.badRequest()
+                        .body(new GenericResponse(false, "Failed to write chunk"));
+            }
+
+            return ResponseEntity.ok().body(new GenericResponse(true, "Chunk received"));
+
+        } catch (Exception e) {
+            logger.error("Failed to write chunk");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new GenericResponse(false, "Failed to write chunk"));
+        }
+    }
+
+    // Lists the chunks still missing, so a client can resume after a dropped connection
+    @PostMapping("/upload/status")
+    public ResponseEntity<UploadStatusResponse> getUploadStatus(
+            @Valid @RequestBody UploadSessionRequest request,
+            BindingResult bindingResult) {
+
+        try {
+            // Return if input has errors
+            if (bindingResult.hasErrors()) {
+                logger.warn("Failed to retrieve upload status: input has error(s)");
+                return ResponseEntity.badRequest()
+                        .body(new UploadStatusResponse(false, "Failed to retrieve upload status: Input has errors", null, 0, 0, List.of()));
+            }
+
+            UploadSession session = chunkedUploadService.getSession(request.userId(), request.uploadId());
+
+            if (session == null) {
+                return ResponseEntity.badRequest()
+                        .body(new UploadStatusResponse(false, "Upload not found", request.uploadId(), 0, 0, List.of()));
+            }
+
+            return ResponseEntity.ok().body(toStatusResponse(session, "Upload in progress"));
+
+        } catch (Exception e) {
+            logger.error("Failed to retrieve upload status");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new UploadStatusResponse(false, "Failed to retrieve upload status", null, 0, 0, List.of()));
+        }
+    }
+
+    @PostMapping("/upload/complete")
+    public ResponseEntity<GenericResponse> completeUpload(
+            @Valid @RequestBody UploadSessionRequest request,
+            BindingResult bindingResult) {
+
+        try {
+            // Return if input has errors
+            if (bindingResult.hasErrors()) {
+                logger.warn("Failed to complete upload: input has error(s)");
+                return ResponseEntity.badRequest()
+                        .body(new GenericResponse(false, "Failed to complete upload: Input has errors"));
+            }
+
+            File uploadedFile = chunkedUploadService.completeUpload(request.userId(), request.uploadId());
+
+            if (uploadedFile == null) {
+                logger.warn("Failed to complete upload");
+                return ResponseEntity.badRequest()
+                        .body(new GenericResponse(false, "Failed to complete upload"));
+            }
+
+            logger.info("Successfully uploaded file");
+            return ResponseEntity.ok().body(new GenericResponse(true, "File uploaded successfully"));
+
+        } catch (Exception e) {
+            logger.error("Failed to complete upload");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new GenericResponse(false, "Failed to complete upload"));
+        }
+    }
+
+    // Drops an upload and its staging file, e.g. when the user gives up on it
+    @PostMapping("/upload/cancel")
+    public ResponseEntity<GenericResponse> cancelUpload(
+            @Valid @RequestBody UploadSessionRequest request,
+            BindingResult bindingResult) {
+
+        try {
+            // Return if input has errors
+            if (bindingResult.hasErrors()) {
+                logger.warn("Failed to cancel upload: input has error(s)");
+                return ResponseEntity.badRequest()
+                        .body(new GenericResponse(false, "Failed to cancel upload: Input has errors"));
+            }
+
+            if (!chunkedUploadService.cancelUpload(request.userId(), request.uploadId())) {
+                logger.warn("Failed to cancel upload");
+                return ResponseEntity.badRequest()
+                        .body(new GenericResponse(false, "Upload not found"));
+            }
+
+            logger.info("Cancelled upload");
+            return ResponseEntity.ok().body(new GenericResponse(true, "Upload cancelled"));
+
+        } catch (Exception e) {
+            logger.error("Failed to cancel upload");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new GenericResponse(false, "Failed to cancel upload"));
+        }
+    }
+
+    private UploadStatusResponse toStatusResponse(UploadSession session, String message) {
+        return new UploadStatusResponse(true, message, session.getUploadId(), chunkedUploadService.getChunkSize(),
+                session.getChunkCount(), session.getMissingChunks());
+    }
+
     @PostMapping("/download")
     public ResponseEntity<?> downloadFile (
             @Valid @RequestBody DownloadFileRequest request,
-            BindingResult bindingResult) {
+            BindingResult bindingResult,
+            HttpServletRequest httpRequest,
+            HttpServletResponse httpResponse) {
 
         try {
             // Return if input has errors
@@ -87,19 +259,33 @@ public class FileController {
             Resource resource = fileService.downloadFile(request.userId(), request.chatId(), request.fileId());
 
             // If resource is null, send error message
-            if (resource == null) {
+            if (!(resource instanceof StoredFileResource stored)) {
                 logger.warn("Failed to download file");
                 return ResponseEntity.badRequest()
                         .body(new GenericResponse(false, "Failed to download file"));
             }
 
+            // Stored files are never modified, only deleted, so the file ID is a strong validator
+            String eTag = "\"" + request.fileId() + "\"";
+
+            // Digest of the whole file (RFC 9530), sent with partial responses too so resumed downloads can be checked
+            if (stored.getChecksum() != null) {
+                byte[] sha256 = HexFormat.of().parseHex(stored.getChecksum());
+                httpResponse.setHeader(REPR_DIGEST, "sha-256=:" + Base64.getEncoder().encodeToString(sha256) + ":");
+            }
+
             logger.info("Sending file to client");
-            return ResponseEntity.ok()
-                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .body(resource);
+            fileRangeWriter.write(httpRequest, httpResponse, stored, eTag,
+                    MediaType.APPLICATION_OCTET_STREAM_VALUE);
+
+            // Response already written
+            return null;
 
         } catch (Exception e) {
             logger.error("Failed to download file");
+
+            // Too late to send an error body once file bytes have gone out
+            if (httpResponse.isCommitted()) return null;
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new GenericResponse(false, "Failed to download file"));
         }
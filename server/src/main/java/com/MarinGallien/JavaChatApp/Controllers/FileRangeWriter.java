@@ -0,0 +1,177 @@
+package com.MarinGallien.JavaChatApp.Controllers;
+
+import com.MarinGallien.JavaChatApp.Database.DatabaseServices.StoredFileResource;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+// Writes a stored file to an HTTP response without reading it into the heap. Honours single Range requests and
+// If-Range, and always sends Content-Length, ETag and Last-Modified so clients can resume interrupted downloads.
+// On Tomcat the byte copy is handed to the connector's sendfile support once the handler returns; other containers
+// get a FileChannel.transferTo into the response stream. Files in a remote blob store are streamed range by range.
+@Component
+public class FileRangeWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileRangeWriter.class);
+
+    // Request attributes understood by Tomcat's NIO connector (the same ones its DefaultServlet uses)
+    static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // Writes the whole file, or the requested range of it, with a 200, 206 or 416 status
+    public void write(HttpServletRequest request, HttpServletResponse response, Path path,
+                      String eTag, String contentType) throws IOException {
+        write(request, response, path.toFile().length(), path.toFile().lastModified(), eTag, contentType,
+                (start, count) -> sendFile(request, response, path, start, count));
+    }
+
+    // Same for a file in the blob store. Files the store keeps on this machine take the zero-copy path above, others
+    // are streamed from the store, which is asked for the requested range only.
+    public void write(HttpServletRequest request, HttpServletResponse response, StoredFileResource resource,
+                      String eTag, String contentType) throws IOException {
+        Path localPath = resource.getLocalPath();
+        if (localPath != null) {
+            write(request, response, localPath, eTag, contentType);
+            return;
+        }
+
+        write(request, response, resource.contentLength(), resource.lastModified(), eTag, contentType,
+                (start, count) -> {
+                    try (InputStream in = resource.getInputStream(start, count)) {
+                        OutputStream out = response.getOutputStream();
+                        in.transferTo(out);
+                        out.flush();
+                    }
+                });
+    }
+
+    // Sends count bytes starting at start as the response body
+    @FunctionalInterface
+    private interface BodyWriter {
+        void write(long start, long count) throws IOException;
+    }
+
+    private void write(HttpServletRequest request, HttpServletResponse response, long length, long lastModified,
+                       String eTag, String contentType, BodyWriter body) throws IOException {
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.ETAG, eTag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setContentType(contentType != null ? contentType : MediaType.APPLICATION_OCTET_STREAM_VALUE);
+
+        long start = 0;
+        long end = length - 1;
+
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && ifRangeMatches(request.getHeader(HttpHeaders.IF_RANGE), eTag, lastModified)) {
+            HttpRange range = parseSingleRange(rangeHeader);
+
+            if (range != null) {
+                // A range that starts at or past the end of the file cannot be served. HttpRange does not reject it
+                // itself: it clamps the end to the file but leaves such a start as it is.
+                try {
+                    start = range.getRangeStart(length);
+                    end = range.getRangeEnd(length);
+                } catch (IllegalArgumentException e) {
+                    start = length;
+                }
+                if (start >= length) {
+                    logger.warn("Unsatisfiable range {} for file of {} bytes", rangeHeader, length);
+                    response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    response.setContentLengthLong(0);
+                    return;
+                }
+
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if (count <= 0) return;
+
+        body.write(start, count);
+    }
+
+    private void sendFile(HttpServletRequest request, HttpServletResponse response, Path path, long start, long count)
+            throws IOException {
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            // The connector writes the bytes itself, straight from the page cache to the socket
+            request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+
+        transfer(path, start, count, response.getOutputStream());
+    }
+
+    // Copies count bytes from position start of the file to out
+    private void transfer(Path path, long start, long count, OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = start;
+            long remaining = count;
+
+            // transferTo may move fewer bytes than asked for, so loop until the range is written
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, target);
+                if (sent <= 0) break;
+                position += sent;
+                remaining -= sent;
+            }
+        }
+        out.flush();
+    }
+
+    // Returns the requested range, or null if the whole file should be sent. Only single ranges are served - a client
+    // asking for several gets the full file, which RFC 9110 allows.
+    private HttpRange parseSingleRange(String rangeHeader) {
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            logger.warn("Ignoring malformed range header {}", rangeHeader);
+            return null;
+        }
+    }
+
+    // If-Range holds either an entity tag or a date. The range only applies if the file is unchanged since then;
+    // otherwise the client's partial copy is stale and it must get the whole file.
+    private boolean ifRangeMatches(String ifRange, String eTag, long lastModified) {
+        if (ifRange == null) return true;
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // Weak tags never match for ranges
+            return ifRange.equals(eTag);
+        }
+
+        try {
+            ZonedDateTime since = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME);
+            // HTTP dates have one-second resolution
+            return since.toEpochSecond() == lastModified / 1000;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.MarinGallien.JavaChatApp.DTOs.DataEntities.MessageDTO;
 import com.MarinGallien.JavaChatApp.DTOs.HTTPMessages.HTTPRequests.*;
 import com.MarinGallien.JavaChatApp.DTOs.HTTPMessages.HTTPResponses.*;
 import com.MarinGallien.JavaChatApp.Services.MessageService;
+import com.MarinGallien.JavaChatApp.Services.MessageService.MessagePage;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -55,4 +56,42 @@ public class MessageController {
 
         }
     }
+
+    // Pages through a chat's history with opaque cursors. Messages are stored a moment after they are broadcast, so
+    // paging forward with after only returns messages old enough to be stored and may repeat the newest messages of
+    // the previous page; clients should skip message IDs they already have.
+    @PostMapping("/history")
+    public ResponseEntity<GetMessagePageResponse> getMessagePage(
+            @Valid @RequestBody GetMessagePageRequest request,
+            BindingResult bindingResult) {
+
+        try {
+            // Return if input has errors
+            if (bindingResult.hasErrors()) {
+                logger.warn("Failed to retrieve message page: input has errors");
+                return ResponseEntity.badRequest()
+                        .body(new GetMessagePageResponse(false, "Failed to retrieve message page: Input has errors", List.of(), null, null, false));
+            }
+
+            // Delegate to MessageService
+            MessagePage page = messageService.getMessagePage(
+                    request.userId(), request.chatId(), request.before(), request.after(), request.limit());
+
+            if (page == null) {
+                logger.warn("Failed to retrieve message page: invalid cursor");
+                return ResponseEntity.badRequest()
+                        .body(new GetMessagePageResponse(false, "Failed to retrieve message page: Invalid cursor", List.of(), null, null, false));
+            }
+
+            // Send response back
+            return ResponseEntity.ok()
+                    .body(new GetMessagePageResponse(true, "Successfully retrieved message page", page.messages(),
+                            page.olderCursor(), page.newerCursor(), page.hasMore()));
+
+        } catch (Exception e) {
+            logger.error("Failed to retrieve message page");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new GetMessagePageResponse(false, "Failed to retrieve message page", List.of(), null, null, false));
+        }
+    }
 }
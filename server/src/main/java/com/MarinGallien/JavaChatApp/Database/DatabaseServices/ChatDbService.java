@@ -10,11 +10,16 @@ import com.MarinGallien.JavaChatApp.Enums.ChatType;
 import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
@@ -33,8 +38,10 @@ public class ChatDbService {
     }
 
     public Chat createPrivateChat(String userId1, String userId2) {
-        // Check if IDs exist
-        if (!userRepo.existsById(userId1) || !userRepo.existsById(userId2)) {
+        // Load both users once - they are needed for the chat name and as participants
+        User user1 = userRepo.findUserById(userId1);
+        User user2 = userRepo.findUserById(userId2);
+        if (user1 == null || user2 == null) {
             logger.warn("Cannot create private chat: One or both user IDs do not exist");
             return null;
         }
@@ -43,14 +50,13 @@ public class ChatDbService {
         String privateChatId = generateChatId(userId1, userId2);
 
         // Check if private chat already exists
-        if (chatRepo.existsById(privateChatId)) {
+        Chat existing = chatRepo.findChatById(privateChatId);
+        if (existing != null) {
             logger.warn("Private chat already exists between user {} and {}: chat ID {}", userId1, userId2, privateChatId);
-            return chatRepo.findChatById(privateChatId);
+            return existing;
         }
 
-        String username1 = userRepo.findUserById(userId1).getUsername();
-        String username2 = userRepo.findUserById(userId2).getUsername();
-        String chatName = generateChatName(username1, username2);
+        String chatName = generateChatName(user1.getUsername(), user2.getUsername());
 
         // Create and save private chat
         Chat chat = new Chat(privateChatId, ChatType.SINGLE);
@@ -60,9 +66,6 @@ public class ChatDbService {
 
 
         // Add both users as participants
-        User user1 = userRepo.findUserById(userId1);
-        User user2 = userRepo.findUserById(userId2);
-
         ChatParticipant participant1 = new ChatParticipant(managedChat, user1);
         ChatParticipant participant2 = new ChatParticipant(managedChat, user2);
 
@@ -75,8 +78,17 @@ public class ChatDbService {
     }
 
     public Chat createGroupChat(String creatorId, Set<String> participants, String groupName) {
-        if (!userRepo.existsById(creatorId)) {
-            logger.warn("Cannot create chat: user {} does not exist", creatorId);
+        if (creatorId == null || participants == null) {
+            logger.warn("Cannot create chat: creator ID or participants are null");
+            return null;
+        }
+
+        // Check every user in a single query before anything is saved
+        Set<String> userIds = new HashSet<>(participants);
+        userIds.add(creatorId);
+        long found = userRepo.countByUserIdIn(userIds);
+        if (found != userIds.size()) {
+            logger.warn("Cannot create group chat: {} of {} users do not exist", userIds.size() - found, userIds.size());
             return null;
         }
 
@@ -84,22 +96,14 @@ public class ChatDbService {
         Chat gc = new Chat(ChatType.GROUP, groupName, creatorId);
         Chat managedChat = chatRepo.save(gc);
 
-        // Create and save as chat participant
-        User creator = userRepo.findUserById(creatorId);
-        ChatParticipant creatorParticipant = new ChatParticipant(managedChat, creator);
+        // Create and save as chat participant. Users were validated above and are only needed as foreign keys.
+        ChatParticipant creatorParticipant = new ChatParticipant(managedChat, userRepo.getReferenceById(creatorId));
         chatParticipantRepo.save(creatorParticipant);
 
-        // Validate each member, create participant and add to gc
         for (String id : participants) {
+            if (id.equals(creatorId)) continue;
 
-            if (!userRepo.existsById(id)) {
-                logger.warn("Cannot create group chat: user {} does not exist", id);
-                return null;
-            }
-
-            // Create and save as chat participant
-            User user = userRepo.findUserById(id);
-            ChatParticipant participant = new ChatParticipant(managedChat, user);
+            ChatParticipant participant = new ChatParticipant(managedChat, userRepo.getReferenceById(id));
             chatParticipantRepo.save(participant);
         }
 
@@ -108,13 +112,12 @@ public class ChatDbService {
 
     public boolean deleteChat(String userId, String chatId) {
         // make sure chat exists
-        if (!chatRepo.existsById(chatId)) {
+        Chat chat = chatRepo.findChatById(chatId);
+        if (chat == null) {
             logger.warn("No chat to delete: chat {} does not exist", chatId);
             return false;
         }
 
-        Chat chat = chatRepo.findChatById(chatId);
-
         // Make sure creatorId is same as chat's creator ID
         if (chat.getChatType() == ChatType.GROUP && !chat.getCreatorId().equals(userId)) {
             logger.warn("Cannot delete chat: user {} was not chat creator", userId);
@@ -129,27 +132,33 @@ public class ChatDbService {
     }
 
     public boolean addMemberToGroupChat(String chatId, String userId) {
-        // Make sure both chat and user exist
-        if (!userRepo.existsById(userId) || !chatRepo.existsById(chatId)) {
+        // Load the chat once - its type is needed below
+        Chat chat = chatId != null ? chatRepo.findChatById(chatId) : null;
+        if (chat == null || userId == null) {
             logger.warn("Cannot add member to group chat: user ID or chat ID does not exist");
             return false;
         }
 
         // Check that chat is a group chat
-        Chat chat = chatRepo.findChatById(chatId);
         if (chat.getChatType() != ChatType.GROUP) {
             logger.warn("Cannot add member because this chat is not a group chat");
             return false;
         }
 
-        // Check that user is not already a chat member
+        // Check that user is not already a chat member - members are known to exist
         if (chatParticipantRepo.existsByChatChatIdAndUserUserId(chatId.trim(), userId.trim())) {
             logger.info("User {} is already a member of chat {}", userId, chatId);
             return true;
         }
 
+        // Only new members need a separate existence check
+        if (!userRepo.existsById(userId)) {
+            logger.warn("Cannot add member to group chat: user ID or chat ID does not exist");
+            return false;
+        }
+
         // Add user as participant
-        User user = userRepo.findUserById(userId);
+        User user = userRepo.getReferenceById(userId);
         ChatParticipant participant = new ChatParticipant(chat, user);
         chatParticipantRepo.save(participant);
 
@@ -159,38 +168,36 @@ public class ChatDbService {
 
     public boolean removeMemberFromGroupChat(String chatId, String userId) {
 
-        // Make sure both chat and user exist
-        if (!userRepo.existsById(userId) || !chatRepo.existsById(chatId)) {
+        // Load the chat once - its type and creator are needed below
+        Chat chat = chatId != null ? chatRepo.findChatById(chatId) : null;
+        if (chat == null || userId == null) {
             logger.warn("Cannot remove member to group chat: user ID or chat ID does not exist");
             return false;
         }
 
         // Check that chat is a group chat
-        Chat chat = chatRepo.findChatById(chatId);
         if (chat.getChatType() != ChatType.GROUP) {
             logger.warn("Cannot remove member because this chat is not a group chat");
             return false;
         }
 
-        // Check that user is a chat member
-        if (!chatParticipantRepo.existsByChatChatIdAndUserUserId(chatId.trim(), userId.trim())) {
-            logger.info("Cannot remove member: user {} is not a member of chat {}", userId, chatId);
-            return true;
-        }
-
         // Check that user is not creator
-        if (userId.equals(chatRepo.findChatById(chatId).getCreatorId())) {
+        if (userId.equals(chat.getCreatorId())) {
             logger.warn("Cannot remove member: user {} is chat creator", userId);
             return false;
         }
 
-        // Remove user from chat
+        // Remove user from chat. The delete doubles as the membership check.
         int deletedCount = chatParticipantRepo.removeByChatChatIdAndUserUserId(chatId, userId);
 
-        // Check that something was deleted
+        // Nothing deleted: either the user does not exist or is not a member. Only this path pays for the lookup.
         if (deletedCount <= 0) {
-            logger.warn("Failed to remove user {} from chat {}: no rows affected", userId, chatId);
-            return false;
+            if (!userRepo.existsById(userId)) {
+                logger.warn("Cannot remove member to group chat: user ID or chat ID does not exist");
+                return false;
+            }
+            logger.info("Cannot remove member: user {} is not a member of chat {}", userId, chatId);
+            return true;
         }
 
         logger.info("Successfully removed user {} from chat {}", userId, chatId);
@@ -198,12 +205,12 @@ public class ChatDbService {
     }
 
     public List<Chat> getUserChats(String userId) {
-        if (!userRepo.existsById(userId)) {
-            logger.warn("Cannot retrieve list of user's chats: user does not exist");
+        if (userId == null) {
+            logger.warn("Cannot retrieve list of user's chats: user ID is null");
             return List.of();
         }
 
-        // Retrieve chats from database
+        // Retrieve chats from database - a user that does not exist simply has none
         return chatParticipantRepo.findChatsByUserUserId(userId);
     }
 
@@ -215,6 +222,46 @@ public class ChatDbService {
         return mappings;
     }
 
+    // Streams every chat-user mapping, grouped by chat ID, to consumer as (chatId, userId). Returns the number of rows.
+    // Rows are read in fetch-size chunks, so memory use does not grow with the size of the table.
+    // The stream keeps a transaction open for the whole table scan, so it is declared read-only (Spring's annotation,
+    // jakarta's has no such flag, as for getAllChatParticipantMappings): the connection is marked read-only and
+    // Hibernate skips flushing the session for it.
+    @org.springframework.transaction.annotation.Transactional(readOnly = true)
+    public long forEachChatParticipantMapping(BiConsumer<String, String> consumer) {
+        long[] count = new long[1];
+        try (Stream<Object[]> rows = chatParticipantRepo.streamAllChatUserMappings()) {
+            rows.forEach(row -> {
+                consumer.accept((String) row[0], (String) row[1]);
+                count[0]++;
+            });
+        }
+        logger.info("Streamed {} chat-participant mappings from database", count[0]);
+        return count[0];
+    }
+
+    // Membership digest of a chat as stored in chat_participants - see ChatParticipant.memberHash
+    public record MembershipDigest(String chatId, long memberCount, long hashSum) {}
+
+    // Digests of up to limit chats with participants whose ID sorts after afterChatId, in chat ID order
+    public List<MembershipDigest> getMembershipDigestsAfter(String afterChatId, int limit) {
+        List<Object[]> rows = chatParticipantRepo.findMembershipDigestsAfter(afterChatId != null ? afterChatId : "",
+                PageRequest.of(0, Math.max(1, limit)));
+
+        List<MembershipDigest> digests = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            digests.add(new MembershipDigest((String) row[0], ((Number) row[1]).longValue(),
+                    ((Number) row[2]).longValue()));
+        }
+        return digests;
+    }
+
+    // Retrieve the user IDs of a chat's participants
+    public List<String> getChatParticipantIds(String chatId) {
+        if (chatId == null) return List.of();
+        return chatParticipantRepo.findUserIdsByChatId(chatId);
+    }
+
     // ========== NETWORK GETTER METHOD SUPPORT ==========
 
     public String getChatIdByChatName(String chatName) {
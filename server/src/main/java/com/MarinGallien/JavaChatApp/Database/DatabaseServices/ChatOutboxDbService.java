@@ -0,0 +1,63 @@
+package com.MarinGallien.JavaChatApp.Database.DatabaseServices;
+
+import com.MarinGallien.JavaChatApp.Database.JPAEntities.ChatOutboxEvent;
+import com.MarinGallien.JavaChatApp.Database.JPARepositories.ChatOutboxEventRepo;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Service
+@Transactional
+public class ChatOutboxDbService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatOutboxDbService.class);
+
+    private final ChatOutboxEventRepo outboxRepo;
+
+    public ChatOutboxDbService(ChatOutboxEventRepo outboxRepo) {
+        this.outboxRepo = outboxRepo;
+    }
+
+    // Stores the event in the caller's transaction and returns its sequence, or null if it is incomplete
+    public Long append(ChatOutboxEvent event) {
+        if (event == null || event.getEventType() == null || event.getChatId() == null) {
+            logger.warn("Failed to record chat event: event, type or chat ID is null");
+            return null;
+        }
+        return outboxRepo.save(event).getSequence();
+    }
+
+    // Up to limit committed events after the given sequence, oldest first
+    public List<ChatOutboxEvent> getEventsAfter(long sequence, int limit) {
+        return outboxRepo.findBySequenceGreaterThanOrderBySequenceAsc(sequence, PageRequest.of(0, Math.max(1, limit)));
+    }
+
+    // Committed events among the given sequences, oldest first. Sequences that are not committed yet are left out.
+    public List<ChatOutboxEvent> getEvents(Collection<Long> sequences) {
+        if (sequences.isEmpty()) return List.of();
+        return outboxRepo.findBySequenceInOrderBySequenceAsc(sequences);
+    }
+
+    public long getLatestSequence() {
+        return outboxRepo.findLatestSequence();
+    }
+
+    // Sequence to replay events after so that none recorded since the given time is missed: the last one recorded
+    // before it, or the one before the oldest stored event if older events were pruned
+    public long getReplayStartSequence(LocalDateTime since) {
+        long before = outboxRepo.findLatestSequenceBefore(since);
+        return before > 0 ? before : outboxRepo.findEarliestSequence() - 1;
+    }
+
+    // Deletes events below the given sequence that were recorded before the cutoff, returns how many were deleted.
+    // The event at the sequence itself is kept so the latest sequence survives pruning.
+    public int deleteAppliedEvents(long sequence, LocalDateTime before) {
+        return outboxRepo.deleteAppliedBefore(sequence, before);
+    }
+}
@@ -2,6 +2,8 @@ package com.MarinGallien.JavaChatApp.Database.DatabaseServices;
 
 import com.MarinGallien.JavaChatApp.Database.JPAEntities.User;
 import com.MarinGallien.JavaChatApp.Database.JPAEntities.Contact;
+import com.MarinGallien.JavaChatApp.Database.JPAEntities.ContactChange;
+import com.MarinGallien.JavaChatApp.Database.JPARepositories.ContactChangeRepo;
 import com.MarinGallien.JavaChatApp.Database.JPARepositories.ContactRepo;
 import com.MarinGallien.JavaChatApp.Database.JPARepositories.UserRepo;
 import jakarta.transaction.Transactional;
@@ -19,10 +21,12 @@ public class ContactDbService {
 
     private final UserRepo userRepo;
     private final ContactRepo contactRepo;
+    private final ContactChangeRepo contactChangeRepo;
 
-    public ContactDbService(UserRepo userRepo, ContactRepo contactRepo) {
+    public ContactDbService(UserRepo userRepo, ContactRepo contactRepo, ContactChangeRepo contactChangeRepo) {
         this.userRepo = userRepo;
         this.contactRepo = contactRepo;
+        this.contactChangeRepo = contactChangeRepo;
     }
 
     public Contact createContact(String userId, String contactUserId) {
@@ -49,6 +53,9 @@ public class ContactDbService {
         Contact savedContact1 = contactRepo.save(contact1);
         Contact savedContact2 = contactRepo.save(contact2);
 
+        // Recorded for the other nodes of the cluster
+        contactChangeRepo.save(new ContactChange(userId, contactUserId, System.currentTimeMillis()));
+
         // Return savedContact1 because operation was requested by userId, not contactUserId
         logger.info("Successfully created new contact between user {} and {}", userId, contactUserId);
         return savedContact1;
@@ -80,6 +87,9 @@ public class ContactDbService {
         contactRepo.delete(contact1);
         contactRepo.delete(contact2);
 
+        // Recorded for the other nodes of the cluster
+        contactChangeRepo.save(new ContactChange(userId, contactUserId, System.currentTimeMillis()));
+
         logger.info("Successfully remove contact between used {} and {}", userId, contactUserId);
         return true;
     }
@@ -100,4 +110,24 @@ public class ContactDbService {
 
         return contacts;
     }
+
+    public List<Object[]> getAllContactMappings() {
+        List<Object[]> mappings = contactRepo.findAllContactUserIdMappings();
+        logger.info("Retrieved {} contact mappings from database", mappings.size());
+        return mappings;
+    }
+
+    public boolean areContacts(String userId, String contactUserId) {
+        return contactRepo.areUsersContacts(userId, contactUserId);
+    }
+
+    // Contact changes recorded at or after the given time, in the order they were recorded
+    public List<ContactChange> getContactChangesSince(long sinceMillis) {
+        return contactChangeRepo.findByChangedAtMillisGreaterThanEqualOrderByChangeIdAsc(sinceMillis);
+    }
+
+    // Deletes contact changes recorded before the given time, returns how many were deleted
+    public int deleteContactChangesBefore(long beforeMillis) {
+        return contactChangeRepo.deleteChangedBefore(beforeMillis);
+    }
 }
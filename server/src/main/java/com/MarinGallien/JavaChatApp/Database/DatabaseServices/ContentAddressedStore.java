@@ -0,0 +1,240 @@
+package com.MarinGallien.JavaChatApp.Database.DatabaseServices;
+
+import com.MarinGallien.JavaChatApp.Database.JPAEntities.ReleasedBlob;
+import com.MarinGallien.JavaChatApp.Database.JPARepositories.FileRepo;
+import com.MarinGallien.JavaChatApp.Database.JPARepositories.ReleasedBlobRepo;
+import com.MarinGallien.JavaChatApp.Storage.BlobStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Stores file contents once per distinct SHA-256, under the key blobs/<2 hex>/<2 hex>/<hash> of the BlobStore. Any
+// number of File rows may point at the same blob: the rows themselves are the reference count.
+//
+// The blob store may be shared by several servers, so nothing here relies on state in this JVM. Deleting the last row
+// of a blob records it in released_blobs, and a periodic sweep deletes the blobs that have been released for longer
+// than the grace period and are still not referenced. An upload that reuses a blob removes its released_blobs row
+// first. Both lock the row before removing it, so one of them waits for the other; if the sweep went first, the
+// upload then finds the blob gone and stores its copy again. A blob written by an upload that
+// rolls back has no row and is never swept - rolled-back uploads are rare enough to accept that.
+@Component
+public class ContentAddressedStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContentAddressedStore.class);
+    private static final int SWEEP_BATCH_SIZE = 100;
+
+    private final BlobStore blobStore;
+    private final Path tempDir;
+    private final ReleasedBlobRepo releasedBlobRepo;
+    private final FileRepo fileRepo;
+    private final TransactionTemplate transactionTemplate;
+    private final long graceMinutes;
+    private final long sweepIntervalMs;
+
+    private ScheduledExecutorService scheduler;
+
+    // Counters
+    private final AtomicLong sweptCount = new AtomicLong();
+
+    public ContentAddressedStore(BlobStore blobStore,
+                                 @Value("${chat.files.storage-dir:${java.io.tmpdir}/chat-app-uploads}") String storageDir,
+                                 ReleasedBlobRepo releasedBlobRepo,
+                                 FileRepo fileRepo,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${chat.files.sweep.grace-minutes:60}") long graceMinutes,
+                                 @Value("${chat.files.sweep.interval-ms:60000}") long sweepIntervalMs) {
+        this.blobStore = blobStore;
+        // Uploads are hashed into a local file first, whatever the blob store, since the key is the hash
+        this.tempDir = Paths.get(storageDir).resolve("tmp");
+        this.releasedBlobRepo = releasedBlobRepo;
+        this.fileRepo = fileRepo;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.graceMinutes = Math.max(0, graceMinutes);
+        this.sweepIntervalMs = Math.max(1000, sweepIntervalMs);
+    }
+
+    // A blob in the store: its hex SHA-256, size in bytes and BlobStore key
+    public record StoredContent(String sha256, long size, String key) {}
+
+    // ========== LIFECYCLE ==========
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "BlobSweeper");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::sweepSafely, sweepIntervalMs, sweepIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler == null) return;
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ========== STORING ==========
+
+    // Streams in to a local file, hashing it on the way so deduplication needs no second read, and returns the blob
+    // holding those bytes. If the store already has them, the copy just written is dropped.
+    public StoredContent store(InputStream in) throws IOException {
+        Files.createDirectories(tempDir);
+        Path temp = tempDir.resolve(UUID.randomUUID() + ".tmp");
+
+        MessageDigest digest = newSha256();
+        try (InputStream hashed = new DigestInputStream(in, digest)) {
+            Files.copy(hashed, temp);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        return add(temp, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    // Adds a file whose SHA-256 is already known, such as an assembled chunked upload. The file is consumed.
+    public StoredContent store(Path file, String sha256) throws IOException {
+        return add(file, sha256.toLowerCase());
+    }
+
+    private StoredContent add(Path source, String sha256) throws IOException {
+        String key = keyFor(sha256);
+        long size = Files.size(source);
+
+        // Waits for a sweep deleting this blob right now, and stops later sweeps from deleting it. Once the File row
+        // commits, the blob is referenced again.
+        transactionTemplate.executeWithoutResult(status -> releasedBlobRepo.findForUpdate(key).ifPresent(row -> {
+            releasedBlobRepo.delete(row);
+            releasedBlobRepo.flush();
+        }));
+
+        if (blobStore.stat(key) != null) {
+            // Same content already stored, keep the existing blob
+            Files.delete(source);
+            logger.info("Reusing stored blob {}", sha256);
+        } else {
+            blobStore.put(key, source);
+        }
+
+        return new StoredContent(sha256, size, key);
+    }
+
+    // ========== RELEASING ==========
+
+    // Called in the transaction that deletes a File row pointing at key. The blob is deleted by a later sweep if no
+    // row references it by then.
+    public void release(String key) {
+        LocalDateTime now = LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(status -> releasedBlobRepo.findForUpdate(key).ifPresentOrElse(
+                row -> row.setReleasedAt(now),
+                () -> releasedBlobRepo.save(new ReleasedBlob(key, now))));
+    }
+
+    private void sweepSafely() {
+        try {
+            sweep();
+        } catch (Exception e) {
+            logger.error("Unexpected error while sweeping released blobs: {}", e.getMessage());
+        }
+    }
+
+    // Deletes blobs released longer than the grace period ago that no File row references, and returns how many
+    public int sweep() {
+        LocalDateTime releasedBefore = LocalDateTime.now().minusMinutes(graceMinutes);
+
+        int deleted = 0;
+        List<String> keys;
+        do {
+            keys = releasedBlobRepo.findKeysReleasedBefore(releasedBefore, PageRequest.of(0, SWEEP_BATCH_SIZE));
+            for (String key : keys) {
+                if (Boolean.TRUE.equals(transactionTemplate.execute(status ->
+                        deleteIfUnreferenced(key, releasedBefore, status)))) {
+                    deleted++;
+                }
+            }
+        } while (keys.size() == SWEEP_BATCH_SIZE);
+
+        sweptCount.addAndGet(deleted);
+        return deleted;
+    }
+
+    // Locks the released row, then deletes the blob before the transaction removing the row commits. An upload
+    // reusing the blob meanwhile waits on the row, and stores the content again once it sees the blob is gone.
+    private boolean deleteIfUnreferenced(String key, LocalDateTime releasedBefore, TransactionStatus status) {
+        // Gone or released again since it was listed
+        ReleasedBlob row = releasedBlobRepo.findForUpdate(key).orElse(null);
+        if (row == null || !row.getReleasedAt().isBefore(releasedBefore)) return false;
+
+        releasedBlobRepo.delete(row);
+        releasedBlobRepo.flush();
+        if (fileRepo.countByFilePath(key) > 0) {
+            logger.info("Keeping {}: still referenced", key);
+            return false;
+        }
+
+        try {
+            if (blobStore.delete(key)) {
+                logger.info("Deleted stored file {}", key);
+                return true;
+            }
+            logger.warn("Failed to delete stored file, it does not exist: {}", key);
+        } catch (IOException e) {
+            // Keep the row so the next sweep tries again
+            logger.warn("Failed to delete stored file {}: {}", key, e.getMessage());
+            status.setRollbackOnly();
+        }
+        return false;
+    }
+
+    // ========== HELPERS ==========
+
+    // blobs/ab/cd/abcd... keeps directories small however many files are stored
+    public static String keyFor(String sha256) {
+        String hash = sha256.toLowerCase();
+        return "blobs/" + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash;
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // ========== METRICS ==========
+
+    public long getSweptCount() {return sweptCount.get();}
+}
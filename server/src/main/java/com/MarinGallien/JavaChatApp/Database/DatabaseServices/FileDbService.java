@@ -4,24 +4,23 @@ import com.MarinGallien.JavaChatApp.Database.JPAEntities.Chat;
 import com.MarinGallien.JavaChatApp.Database.JPAEntities.File;
 import com.MarinGallien.JavaChatApp.Database.JPAEntities.Message;
 import com.MarinGallien.JavaChatApp.Database.JPAEntities.User;
+import com.MarinGallien.JavaChatApp.Database.DatabaseServices.ContentAddressedStore.StoredContent;
 import com.MarinGallien.JavaChatApp.Database.JPARepositories.*;
 import com.MarinGallien.JavaChatApp.Enums.MessageType;
+import com.MarinGallien.JavaChatApp.Storage.BlobInfo;
+import com.MarinGallien.JavaChatApp.Storage.BlobStore;
 import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.List;
-import java.util.UUID;
 
 @Service
 @Transactional
@@ -34,24 +33,24 @@ public class FileDbService {
     private final ChatRepo chatRepo;
     private final ChatParticipantRepo chatParticipantRepo;
     private final MessageRepo messageRepo;
+    private final ContentAddressedStore contentStore;
+    private final BlobStore blobStore;
 
     public FileDbService(FileRepo fileRepo, UserRepo userRepo, ChatRepo chatRepo,
-                         ChatParticipantRepo chatParticipantRepo, MessageRepo messageRepo) {
+                         ChatParticipantRepo chatParticipantRepo, MessageRepo messageRepo,
+                         ContentAddressedStore contentStore, BlobStore blobStore) {
         this.fileRepo = fileRepo;
         this.userRepo = userRepo;
         this.chatRepo = chatRepo;
         this.chatParticipantRepo = chatParticipantRepo;
         this.messageRepo = messageRepo;
+        this.contentStore = contentStore;
+        this.blobStore = blobStore;
     }
 
     public File uploadFile(String userId, String chatId, MultipartFile file) throws IOException{
-        // Input validation
-        if (!userRepo.existsById(userId) || !chatRepo.existsById(chatId)) {
-            logger.warn("Failed to upload file: user {} or chat {} does not exist", userId, chatId);
-            return null;
-        }
-
-        if (!chatParticipantRepo.existsByChatChatIdAndUserUserId(chatId, userId)) {
+        // Input validation - membership implies that both the user and the chat exist
+        if (!isParticipant(userId, chatId)) {
             logger.warn("Failed to upload file: user {} is not a member of chat {}", userId, chatId);
             return null;
         }
@@ -61,37 +60,66 @@ public class FileDbService {
             return null;
         }
 
-        // Save file to disk first
-        String filePath = saveFileToDisk(file);
-        if (filePath == null) {
-            logger.warn("Failed to save file to disk");
+        // Save content to disk first, hashed on the way - identical content is stored only once
+        StoredContent content;
+        try (InputStream in = file.getInputStream()) {
+            content = contentStore.store(in);
+        }
+
+        File savedFile = saveFileRecord(userId, chatId, file.getOriginalFilename(), content.size(),
+                file.getContentType(), content.key(), content.sha256());
+
+        logger.info("Successfully saved file {} to chat {}", file.getOriginalFilename(), chatId);
+        return savedFile;
+    }
+
+    // Stores a file assembled by a chunked upload. The staged file is moved into the content store, so its bytes are
+    // not copied again, and the file's message and record are created as for a single-request upload.
+    public File storeUploadedFile(String userId, String chatId, String filename, long fileSize, String fileType,
+                                  Path stagedFile, String checksum) throws IOException {
+        // Membership may have changed while the chunks were being sent
+        if (!isParticipant(userId, chatId)) {
+            logger.warn("Failed to store uploaded file: user {} is not a member of chat {}", userId, chatId);
             return null;
         }
 
-        // Get entities from database
-        User uploader = userRepo.findUserById(userId);
-        Chat chat = chatRepo.findChatById(chatId);
+        // A rename when staging is on the same file system as the store, which is the default
+        StoredContent content = contentStore.store(stagedFile, checksum);
+
+        File savedFile = saveFileRecord(userId, chatId, filename, fileSize, fileType, content.key(), content.sha256());
+
+        logger.info("Successfully stored uploaded file {} in chat {}", filename, chatId);
+        return savedFile;
+    }
+
+    // Creates the file's message and the file record pointing at filePath, the content's BlobStore key
+    private File saveFileRecord(String userId, String chatId, String filename, long fileSize, String fileType,
+                                String filePath, String checksum) {
+        // Uploader and chat are only needed as foreign keys
+        User uploader = userRepo.getReferenceById(userId);
+        Chat chat = chatRepo.getReferenceById(chatId);
 
         // Create and save MESSAGE first (required for file foreign key)
         Message fileMessage = new Message(
                 uploader,
                 chat,
-                "File: " + file.getOriginalFilename(),
+                "File: " + filename,
                 MessageType.TEXT_MESSAGE
         );
         Message savedMessage = messageRepo.save(fileMessage);
 
         // Create file entity WITH message reference
         File newFile = new File(
-                file.getOriginalFilename(),
-                file.getSize(),
-                file.getContentType(),
+                filename,
+                fileSize,
+                fileType,
                 filePath,
                 uploader
         );
 
-        // Set the message before saving
+        // Set the message and checksum before saving
         newFile.setMessage(savedMessage);
+        newFile.setChecksum(checksum);
 
         // Save file to database
         File savedFile = fileRepo.save(newFile);
@@ -100,74 +128,26 @@ public class FileDbService {
         savedMessage.addFile(savedFile);
         messageRepo.save(savedMessage);
 
-        logger.info("Successfully saved file {} to chat {}", file.getOriginalFilename(), chatId);
         return savedFile;
     }
 
-    private String saveFileToDisk(MultipartFile file) throws IOException {
-        // Generate unique fileName
-        String originalFileName = file.getOriginalFilename();
-        String extension = getFileExtension(originalFileName);
-        String uniqueFileName = System.currentTimeMillis() + "_" + UUID.randomUUID().toString().substring(0, 8) + extension;
-
-        // Create upload directory if it doesn't already exist
-        // Use absolute path for upload directory
-        String uploadDir = System.getProperty("java.io.tmpdir") + "/chat-app-uploads/";
-        Path uploadPath = Paths.get(uploadDir);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
-        }
-
-        // Save file
-        Path filePath = uploadPath.resolve(uniqueFileName);
-        file.transferTo(filePath.toFile());
-
-        return filePath.toString();
-    }
-
-    private String getFileExtension(String filename) {
-        if (filename != null && filename.contains(".")) {
-            return filename.substring(filename.lastIndexOf("."));
-        }
-        return "";
-    }
-
     public Resource downloadFile(String userId, String chatId, String fileId) throws IOException{
-        // Input validation
-        if (!userRepo.existsById(userId) || !chatRepo.existsById(chatId) || !fileRepo.existsById(fileId)) {
-            logger.warn("Failed to download file: user {} or file {} does not exist", userId, fileId);
-            return null;
-        }
-
-        if (!chatParticipantRepo.existsByChatChatIdAndUserUserId(chatId, userId)) {
-            logger.warn("Failed to download file: user {} is not a member of chat {}", userId, chatId);
-            return null;
-        }
-
-        // Retrieve file metadata from database
-        File file = fileRepo.findById(fileId).orElse(null);
+        // Retrieve file metadata, checking in the same query that it belongs to the chat and the user is a member
+        File file = findAccessibleFile(userId, chatId, fileId);
         if (file == null) {
-            logger.warn("File {} not found in database", fileId);
-            return null;
-        }
-
-        // Check that the file belongs to the chat
-        String fileChatId = file.getMessage().getChat().getChatId();
-        if (!fileChatId.equals(chatId)){
-            logger.warn("Failed to download file: file {} does not belong to chat {}", fileId, chatId);
+            logger.warn("Failed to download file: file {} not found in chat {} for user {}", fileId, chatId, userId);
             return null;
         }
 
-        // Check that file exists on disk
-        Path filepath = Paths.get(file.getFilePath());
-        if (!Files.exists(filepath)) {
-            logger.warn("Failed to download file: file {} not found on disk", fileId);
+        // Check that the content is still in the store
+        BlobInfo info = blobStore.stat(file.getFilePath());
+        if (info == null) {
+            logger.warn("Failed to download file: file {} not found in storage", fileId);
             return null;
         }
 
-        // Create a streaming resource
-        InputStream inputStream = Files.newInputStream(filepath);
-        Resource resource = new InputStreamResource(inputStream);
+        // Store-backed resource: it knows its length and can be served by range without opening a stream here
+        Resource resource = new StoredFileResource(blobStore, info, file.getFileId(), file.getChecksum());
 
         logger.info("Successfully prepared file {} for download by user {}", fileId, userId);
 
@@ -175,30 +155,10 @@ public class FileDbService {
     }
 
     public Boolean deleteFile(String userId, String chatId, String fileId) throws IOException {
-        // Input validation
-        if (!userRepo.existsById(userId) || !chatRepo.existsById(chatId) || !fileRepo.existsById(fileId)) {
-            logger.warn("Failed to delete file: user {}, chat {}, or file {} does not exist", userId, chatId, fileId);
-            return false;
-        }
-
-        if (!chatParticipantRepo.existsByChatChatIdAndUserUserId(chatId, userId)) {
-            logger.warn("Failed to delete file: user {} is not a member of chat {}", userId, chatId);
-            return false;
-        }
-
-        // Retrieve file metadata
-        File file = fileRepo.findById(fileId).orElse(null);
-
-        // Verify it is not null
+        // Retrieve file metadata, checking in the same query that it belongs to the chat and the user is a member
+        File file = findAccessibleFile(userId, chatId, fileId);
         if (file == null) {
-            logger.warn("Failed to delete file: file {} does not exist", fileId);
-            return false;
-        }
-
-        // Make sure the file belongs to the chat
-        String fileChatId = file.getMessage().getChat().getChatId();
-        if (!fileChatId.equals(chatId)) {
-            logger.warn("Failed to delete file: file {} does not belong to chat {}", fileId, chatId);
+            logger.warn("Failed to delete file: file {} not found in chat {} for user {}", fileId, chatId, userId);
             return false;
         }
 
@@ -220,25 +180,14 @@ public class FileDbService {
             return false;
         }
 
-        // Delete file from file system - don't return false if that fails because file was still deleted from db
-        Path filepath = Paths.get(file.getFilePath());
-        if (!Files.exists(filepath)) {
-           logger.warn("Failed to delete file from filesystem: {}", filepath);
-        }
-
-        Files.delete(filepath);
-        logger.info("Deleted file from filesystem: {}", filepath);
+        // The content is deleted later if no other file uses it by then
+        contentStore.release(file.getFilePath());
         return true;
     }
 
     public List<File> getChatFiles(String userId, String chatId) {
         // Input validation
-        if (!userRepo.existsById(userId) || !chatRepo.existsById(chatId)) {
-            logger.warn("Failed to retrieve files list: user {} or file {} does not exist", userId, chatId);
-            return List.of();
-        }
-
-        if (!chatParticipantRepo.existsByChatChatIdAndUserUserId(chatId, userId)) {
+        if (!isParticipant(userId, chatId)) {
             logger.warn("Failed to retrieve files list: user {} is not a member of chat {}", userId, chatId);
             return List.of();
         }
@@ -255,6 +204,17 @@ public class FileDbService {
         return chatFiles;
     }
 
+    // A participant row references both the user and the chat, so this one indexed lookup also covers their existence
+    public boolean isParticipant(String userId, String chatId) {
+        if (userId == null || chatId == null) return false;
+        return chatParticipantRepo.existsByChatChatIdAndUserUserId(chatId, userId);
+    }
+
+    private File findAccessibleFile(String userId, String chatId, String fileId) {
+        if (userId == null || chatId == null || fileId == null) return null;
+        return fileRepo.findAccessibleFile(fileId, chatId, userId);
+    }
+
     public String getFileIdByFilename(String filename, String chatId) {
         File file = fileRepo.findFileByFilename(filename, chatId);
         return file.getFileId();
@@ -0,0 +1,279 @@
+package com.MarinGallien.JavaChatApp.Database.DatabaseServices;
+
+import com.MarinGallien.JavaChatApp.Enums.MessageType;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Write-behind pipeline for chat messages. Accepted messages are placed in a bounded queue and a dedicated writer
+// thread drains them into JDBC batch inserts, so the websocket broadcast never waits on the database.
+//
+// A message therefore reaches the database some time after its sentAt, and not necessarily after messages sent later.
+// getSettledBefore tells readers up to when history is complete.
+@Service
+public class MessageBatchWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageBatchWriter.class);
+
+    private static final long DEFAULT_SETTLE_MS = 1000;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO messages (message_id, sender_id, chat_id, content, sent_at, message_type) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int maxBatchSize;
+    private final long maxLatencyMs;
+    private final long offerTimeoutMs;
+    private final long settleMs;
+    private final BlockingQueue<PendingMessage> queue;
+
+    // Messages accepted and not yet written or dropped, oldest first: the queue, plus the batch being written
+    private final NavigableSet<PendingMessage> unwritten = new ConcurrentSkipListSet<>(
+            Comparator.comparing(PendingMessage::sentAt).thenComparing(PendingMessage::messageId));
+
+    private Thread writerThread;
+    private volatile boolean accepting = true;
+
+    // Producers hold the read lock from the accepting check to the end of their offer, shutdown takes the write lock
+    // to stop accepting: once it has, no message can still be on its way into the queue, so the final flush sees
+    // every message enqueue acknowledged
+    private final ReadWriteLock acceptingLock = new ReentrantReadWriteLock();
+
+    // Counters
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    // Message waiting to be written to the database
+    public record PendingMessage(String messageId, String senderId, String chatId, String content,
+                                 LocalDateTime sentAt) {}
+
+    public MessageBatchWriter(JdbcTemplate jdbcTemplate, int maxBatchSize, long maxLatencyMs, int queueCapacity,
+                              long offerTimeoutMs) {
+        this(jdbcTemplate, maxBatchSize, maxLatencyMs, queueCapacity, offerTimeoutMs, DEFAULT_SETTLE_MS);
+    }
+
+    @Autowired
+    public MessageBatchWriter(JdbcTemplate jdbcTemplate,
+                              @Value("${chat.messages.batch.max-size:500}") int maxBatchSize,
+                              @Value("${chat.messages.batch.max-latency-ms:50}") long maxLatencyMs,
+                              @Value("${chat.messages.batch.queue-capacity:10000}") int queueCapacity,
+                              @Value("${chat.messages.batch.offer-timeout-ms:1000}") long offerTimeoutMs,
+                              @Value("${chat.messages.history.settle-ms:1000}") long settleMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxLatencyMs = Math.max(1, maxLatencyMs);
+        this.offerTimeoutMs = Math.max(0, offerTimeoutMs);
+        this.settleMs = Math.max(this.maxLatencyMs, settleMs);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+    }
+
+    // ========== LIFECYCLE ==========
+
+    @PostConstruct
+    public void start() {
+        writerThread = new Thread(this::runWriter, "MessageBatchWriter");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        logger.info("Message batch writer started (max batch size {}, max latency {} ms)", maxBatchSize, maxLatencyMs);
+    }
+
+    // Stop accepting messages and let the writer drain whatever is still queued
+    @PreDestroy
+    public void shutdown() {
+        acceptingLock.writeLock().lock();
+        try {
+            accepting = false;
+        } finally {
+            acceptingLock.writeLock().unlock();
+        }
+
+        if (writerThread != null) {
+            try {
+                writerThread.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // Writer did not finish (or was never started): write the rest on the calling thread
+        flush();
+        logger.info("Message batch writer stopped: {} messages written, {} dropped, {} rejected",
+                writtenCount.get(), droppedCount.get(), rejectedCount.get());
+    }
+
+    // ========== PRODUCER SIDE ==========
+
+    // Queues a message for persistence. Blocks for up to the offer timeout when the queue is full, and returns null
+    // if the message could not be queued so the caller can refuse it.
+    public PendingMessage enqueue(String senderId, String chatId, String content) {
+        acceptingLock.readLock().lock();
+        try {
+            if (!accepting) {
+                logger.warn("Failed to queue message: writer is shutting down");
+                rejectedCount.incrementAndGet();
+                return null;
+            }
+
+            PendingMessage message = new PendingMessage(UUID.randomUUID().toString(), senderId, chatId, content,
+                    LocalDateTime.now());
+
+            // Tracked before it can be written, so it is never missing from both
+            unwritten.add(message);
+            if (queue.offer(message, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return message;
+            }
+            unwritten.remove(message);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            acceptingLock.readLock().unlock();
+        }
+
+        logger.warn("Failed to queue message from {} to chat {}: write queue is full", senderId, chatId);
+        rejectedCount.incrementAndGet();
+        return null;
+    }
+
+    // ========== WRITER SIDE ==========
+
+    private void runWriter() {
+        List<PendingMessage> batch = new ArrayList<>(maxBatchSize);
+
+        while (accepting || !queue.isEmpty()) {
+            try {
+                // Wait for the first message of a batch
+                PendingMessage first = queue.poll(maxLatencyMs, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+
+                // Fill the batch until it is full or the oldest message has waited long enough
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxLatencyMs);
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0) break;
+
+                    PendingMessage next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+
+                writeBatch(batch);
+                batch.clear();
+
+            } catch (InterruptedException e) {
+                // Keep what was already taken from the queue
+                writeBatch(batch);
+                batch.clear();
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // Keep what was already taken from the queue, each row on its own
+                logger.error("Unexpected error in message batch writer: {}", e.getMessage());
+                batch.forEach(this::writeSingle);
+                batch.clear();
+            }
+        }
+    }
+
+    // Drains and writes everything currently queued on the calling thread
+    public void flush() {
+        List<PendingMessage> batch = new ArrayList<>(maxBatchSize);
+        while (queue.drainTo(batch, maxBatchSize) > 0) {
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void writeBatch(List<PendingMessage> batch) {
+        if (batch.isEmpty()) return;
+
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, message) -> {
+                ps.setString(1, message.messageId());
+                ps.setString(2, message.senderId());
+                ps.setString(3, message.chatId());
+                ps.setString(4, message.content());
+                ps.setTimestamp(5, Timestamp.valueOf(message.sentAt()));
+                ps.setString(6, MessageType.TEXT_MESSAGE.name());
+            });
+            writtenCount.addAndGet(batch.size());
+            batch.forEach(unwritten::remove);
+            logger.debug("Wrote batch of {} messages", batch.size());
+
+        } catch (RuntimeException e) {
+            // One bad row fails the whole batch - retry row by row so only the bad rows are lost. Not only
+            // DataAccessException: whatever the batch failed with, the rows that can be written still are.
+            logger.warn("Batch insert of {} messages failed, retrying individually: {}", batch.size(), e.getMessage());
+            for (PendingMessage message : batch) {
+                writeSingle(message);
+            }
+        }
+    }
+
+    private void writeSingle(PendingMessage message) {
+        try {
+            jdbcTemplate.update(INSERT_SQL,
+                    message.messageId(),
+                    message.senderId(),
+                    message.chatId(),
+                    message.content(),
+                    Timestamp.valueOf(message.sentAt()),
+                    MessageType.TEXT_MESSAGE.name());
+            writtenCount.incrementAndGet();
+        } catch (RuntimeException e) {
+            logger.error("Dropped message {} from {} to chat {}: {}",
+                    message.messageId(), message.senderId(), message.chatId(), e.getMessage());
+            droppedCount.incrementAndGet();
+        } finally {
+            unwritten.remove(message);
+        }
+    }
+
+    // ========== HISTORY ==========
+
+    // Every message sent before this time is in the database, or never will be. Messages this node accepted are
+    // tracked until written, however long the queue takes. The writers of other nodes cannot be seen from here, so
+    // their messages are only assumed written once older than the settle window.
+    public LocalDateTime getSettledBefore() {
+        LocalDateTime settled = LocalDateTime.now().minus(settleMs, ChronoUnit.MILLIS);
+
+        // The set's iterator does not throw when the set empties concurrently
+        Iterator<PendingMessage> oldest = unwritten.iterator();
+        if (!oldest.hasNext()) return settled;
+        LocalDateTime oldestUnwritten = oldest.next().sentAt();
+        return oldestUnwritten.isBefore(settled) ? oldestUnwritten : settled;
+    }
+
+    // ========== METRICS ==========
+
+    public int getQueueDepth() {return queue.size();}
+    public int getUnwrittenCount() {return unwritten.size();}
+    public long getWrittenCount() {return writtenCount.get();}
+    public long getDroppedCount() {return droppedCount.get();}
+    public long getRejectedCount() {return rejectedCount.get();}
+}
@@ -1,5 +1,6 @@
 package com.MarinGallien.JavaChatApp.Database.DatabaseServices;
 
+import com.MarinGallien.JavaChatApp.DTOs.DataEntities.MessageDTO;
 import com.MarinGallien.JavaChatApp.Database.JPAEntities.Chat;
 import com.MarinGallien.JavaChatApp.Database.JPAEntities.Message;
 import com.MarinGallien.JavaChatApp.Database.JPAEntities.User;
@@ -11,8 +12,10 @@ import com.MarinGallien.JavaChatApp.Enums.MessageType;
 import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Service
@@ -36,23 +39,14 @@ public class MessageDbService {
 
     public Message saveMessage (String senderId, String chatId, String content) {
         // Perform validation
-        if (!userRepo.existsById(senderId)) {
-            logger.warn("Failed to save message: user {} does not exist", senderId);
-            return null;
-        }
-
-        if (!chatRepo.existsById(chatId)) {
-            logger.warn("Failed to save message: chat {} does not exist", chatId);
-            return null;
-        }
-
-        if (!chatParticipantRepo.existsByChatChatIdAndUserUserId(chatId, senderId)){
+        if (!isParticipant(senderId, chatId)) {
             logger.warn("Failed to save message: user {} is not a participant of chat {}", senderId, chatId);
             return null;
         }
-        // Extract sender and chat
-        User sender = userRepo.findUserById(senderId);
-        Chat chat = chatRepo.findChatById(chatId);
+
+        // Membership implies both rows exist, so sender and chat are only needed as foreign keys
+        User sender = userRepo.getReferenceById(senderId);
+        Chat chat = chatRepo.getReferenceById(chatId);
 
         // Save message
         Message message = new Message(sender, chat, content, MessageType.TEXT_MESSAGE);
@@ -62,23 +56,54 @@ public class MessageDbService {
 
     public List<Message> getChatMessages(String senderId, String chatId) {
         // Validate input
-        if (!userRepo.existsById(senderId)) {
-            logger.warn("Failed to retrieve messages: sender {} does not exist", senderId);
-            return List.of();
-        }
-
-        if (!chatRepo.existsById(chatId)) {
-            logger.warn("Failed to retrieve messages: chat {} does not exist", chatId);
-            return List.of();
-        }
-
-        if (!chatParticipantRepo.existsByChatChatIdAndUserUserId(chatId, senderId)){
-            logger.warn("Failed to retrieve messages: user {} is not a participant of chat {}", senderId, chatId);
-            return List.of();
-        }
+        if (!canReadChat(senderId, chatId)) return List.of();
 
         List<Message> messages = messageRepo.findByChatChatIdOrderBySentAtAsc(chatId);
 
         return messages!= null ? messages : List.of();
     }
+
+    // Same as getChatMessages but projected straight into DTOs, without loading entities
+    public List<MessageDTO> getChatMessageDTOs(String userId, String chatId) {
+        if (!canReadChat(userId, chatId)) return List.of();
+
+        List<MessageDTO> messages = messageRepo.findMessageDTOsByChatId(chatId);
+        return messages != null ? messages : List.of();
+    }
+
+    // ========== KEYSET PAGINATION ==========
+
+    // Returns up to limit of the most recent messages, newest first
+    public List<MessageDTO> getLatestMessages(String userId, String chatId, int limit) {
+        if (!canReadChat(userId, chatId)) return List.of();
+        return messageRepo.findLatestByChatId(chatId, PageRequest.of(0, limit));
+    }
+
+    // Returns up to limit messages older than the cursor, newest first
+    public List<MessageDTO> getMessagesBefore(String userId, String chatId, LocalDateTime sentAt, String messageId, int limit) {
+        if (!canReadChat(userId, chatId)) return List.of();
+        return messageRepo.findByChatIdBefore(chatId, sentAt, messageId, PageRequest.of(0, limit));
+    }
+
+    // Returns up to limit messages newer than the cursor and sent before settledBefore, oldest first
+    public List<MessageDTO> getMessagesAfter(String userId, String chatId, LocalDateTime sentAt, String messageId,
+                                             LocalDateTime settledBefore, int limit) {
+        if (!canReadChat(userId, chatId)) return List.of();
+        return messageRepo.findByChatIdAfter(chatId, sentAt, messageId, settledBefore, PageRequest.of(0, limit));
+    }
+
+    private boolean canReadChat(String userId, String chatId) {
+        if (!isParticipant(userId, chatId)) {
+            logger.warn("Failed to retrieve messages: user {} is not a participant of chat {}", userId, chatId);
+            return false;
+        }
+        return true;
+    }
+
+    // A participant row references both the user and the chat, so one lookup on the (chat_id, user_id) index answers
+    // existence and membership together. Unknown users and chats are simply not participants.
+    private boolean isParticipant(String userId, String chatId) {
+        if (userId == null || chatId == null) return false;
+        return chatParticipantRepo.existsByChatChatIdAndUserUserId(chatId, userId);
+    }
 }
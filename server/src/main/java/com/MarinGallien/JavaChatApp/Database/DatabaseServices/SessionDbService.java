@@ -8,6 +8,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
 @Transactional
 @Service
 public class SessionDbService {
@@ -34,4 +39,17 @@ public class SessionDbService {
         // Return updated status
         return user.getStatus();
     }
+
+    // Stores the statuses of a batch of users - one update per status rather than per user. Returns the number of
+    // users updated, unknown user IDs are skipped.
+    public int updateStatuses(Map<String, OnlineStatus> statuses) {
+        Map<OnlineStatus, List<String>> usersByStatus = new EnumMap<>(OnlineStatus.class);
+        statuses.forEach((userId, status) -> usersByStatus.computeIfAbsent(status, s -> new ArrayList<>()).add(userId));
+
+        int updated = 0;
+        for (Map.Entry<OnlineStatus, List<String>> entry : usersByStatus.entrySet()) {
+            updated += userRepo.updateStatusByUserIdIn(entry.getValue(), entry.getKey());
+        }
+        return updated;
+    }
 }
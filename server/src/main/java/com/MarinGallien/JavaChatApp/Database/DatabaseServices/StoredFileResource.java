@@ -0,0 +1,55 @@
+package com.MarinGallien.JavaChatApp.Database.DatabaseServices;
+
+import com.MarinGallien.JavaChatApp.Storage.BlobInfo;
+import com.MarinGallien.JavaChatApp.Storage.BlobStore;
+import org.springframework.core.io.AbstractResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+// A stored attachment in the BlobStore, together with the metadata needed to serve it: the file ID, used as its entity
+// tag, and the SHA-256 of its content (null for files stored before checksums were recorded). Reads are streamed from
+// the store, whole or by range.
+public class StoredFileResource extends AbstractResource {
+
+    private final BlobStore blobStore;
+    private final BlobInfo info;
+    private final String fileId;
+    private final String checksum;
+
+    public StoredFileResource(BlobStore blobStore, BlobInfo info, String fileId, String checksum) {
+        this.blobStore = blobStore;
+        this.info = info;
+        this.fileId = fileId;
+        this.checksum = checksum;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return blobStore.get(info.key());
+    }
+
+    // Streams count bytes starting at start
+    public InputStream getInputStream(long start, long count) throws IOException {
+        return blobStore.getRange(info.key(), start, count);
+    }
+
+    @Override
+    public boolean exists() {return true;}
+
+    @Override
+    public long contentLength() {return info.size();}
+
+    @Override
+    public long lastModified() {return info.lastModified();}
+
+    @Override
+    public String getDescription() {return "Stored file " + fileId;}
+
+    // The file on this machine when the store keeps one, for zero-copy serving, otherwise null
+    public Path getLocalPath() {return blobStore.localPath(info.key());}
+
+    public String getFileId() {return fileId;}
+    public String getChecksum() {return checksum;}
+}
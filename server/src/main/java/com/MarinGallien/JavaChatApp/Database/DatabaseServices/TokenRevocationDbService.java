@@ -0,0 +1,48 @@
+package com.MarinGallien.JavaChatApp.Database.DatabaseServices;
+
+import com.MarinGallien.JavaChatApp.Database.JPAEntities.TokenRevocation;
+import com.MarinGallien.JavaChatApp.Database.JPARepositories.TokenRevocationRepo;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Service
+@Transactional
+public class TokenRevocationDbService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationDbService.class);
+
+    private final TokenRevocationRepo revocationRepo;
+
+    public TokenRevocationDbService(TokenRevocationRepo revocationRepo) {
+        this.revocationRepo = revocationRepo;
+    }
+
+    // Records that userId's tokens issued before revokedAtMillis are revoked. A later revocation already stored wins.
+    public void saveRevocation(String userId, long revokedAtMillis) {
+        if (userId == null) {
+            logger.warn("Failed to store token revocation: user ID is null");
+            return;
+        }
+
+        TokenRevocation revocation = revocationRepo.findById(userId).orElse(null);
+        if (revocation == null) {
+            revocationRepo.save(new TokenRevocation(userId, revokedAtMillis));
+        } else if (revocation.getRevokedAtMillis() < revokedAtMillis) {
+            revocation.setRevokedAtMillis(revokedAtMillis);
+        }
+    }
+
+    // Revocations made at or after the given time
+    public List<TokenRevocation> getRevocationsSince(long sinceMillis) {
+        return revocationRepo.findByRevokedAtMillisGreaterThanEqual(sinceMillis);
+    }
+
+    // Deletes revocations made before the given time, returns how many were deleted
+    public int deleteRevocationsBefore(long beforeMillis) {
+        return revocationRepo.deleteRevokedBefore(beforeMillis);
+    }
+}
@@ -0,0 +1,63 @@
+package com.MarinGallien.JavaChatApp.Database.JPAEntities;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+// A chat event recorded in the same transaction as the change it describes. Rows are relayed to the event bus in
+// sequence order once committed, so an event exists if and only if its change does.
+@Entity
+@Table(name = "chat_event_outbox")
+public class ChatOutboxEvent {
+
+    public enum Type {CHAT_CREATED, CHAT_DELETED, MEMBER_ADDED, MEMBER_REMOVED}
+
+    // Columns
+
+    // Assigned by the database in insertion order
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "sequence_number")
+    private Long sequence;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false)
+    private Type eventType;
+
+    @Column(name = "chat_id", nullable = false)
+    private String chatId;
+
+    // Member added or removed, null for chat events
+    @Column(name = "user_id")
+    private String userId;
+
+    // Comma-separated members of a created chat, null otherwise
+    @Column(name = "member_ids", columnDefinition = "TEXT")
+    private String memberIds;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+
+    // Constructors
+
+    public ChatOutboxEvent() {}
+
+    public ChatOutboxEvent(Type eventType, String chatId, String userId, String memberIds) {
+        this.eventType = eventType;
+        this.chatId = chatId;
+        this.userId = userId;
+        this.memberIds = memberIds;
+    }
+
+
+    // Getters
+    public Long getSequence() {return sequence;}
+    public Type getEventType() {return eventType;}
+    public String getChatId() {return chatId;}
+    public String getUserId() {return userId;}
+    public String getMemberIds() {return memberIds;}
+    public LocalDateTime getCreatedAt() {return createdAt;}
+}
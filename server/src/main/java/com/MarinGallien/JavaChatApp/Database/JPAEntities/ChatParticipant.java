@@ -6,7 +6,9 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "chat_participants")
+@Table(name = "chat_participants", indexes = {
+        @Index(name = "idx_chat_participants_chat_user", columnList = "chat_id, user_id")
+})
 public class ChatParticipant {
     // Columns
 
@@ -27,6 +29,10 @@ public class ChatParticipant {
     @Column(name = "joined_at", nullable = false, updatable = false)
     private LocalDateTime joinedAt;
 
+    // memberHash of the user ID, summed per chat in SQL to compare memberships with ChatManager
+    @Column(name = "member_hash", nullable = false, updatable = false)
+    private int memberHash;
+
 
     // Constructors
 
@@ -43,6 +49,7 @@ public class ChatParticipant {
     public Chat getChat() {return chat;}
     public User getUser() {return user;}
     public LocalDateTime getJoinedAt() {return joinedAt;}
+    public int getMemberHash() {return memberHash;}
 
 
     // Setters
@@ -54,6 +61,18 @@ public class ChatParticipant {
 
     // Helper methods
 
+    @PrePersist
+    private void computeMemberHash() {
+        memberHash = memberHash(user.getUserId());
+    }
+
+    // A chat's membership digest is its member count and the sum of this hash over its members. The sum does not
+    // depend on member order, so the database and ChatManager get the same digest without sorting anything.
+    public static int memberHash(String userId) {
+        int h = userId.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
@@ -0,0 +1,48 @@
+package com.MarinGallien.JavaChatApp.Database.JPAEntities;
+
+import jakarta.persistence.*;
+
+// A contact created or removed, recorded in the same transaction as the change so it exists if and only if the change
+// does. Nodes poll these to keep their in-memory contact graph current with changes made on other nodes. The row only
+// names the pair: the contact's current state is read from the contacts table when the row is applied.
+@Entity
+@Table(name = "contact_changes", indexes = {
+        @Index(name = "idx_contact_changes_changed_at", columnList = "changed_at_ms")
+})
+public class ContactChange {
+
+    // Columns
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "change_id")
+    private Long changeId;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Column(name = "contact_user_id", nullable = false)
+    private String contactUserId;
+
+    // Epoch milliseconds on the clock of the node that made the change
+    @Column(name = "changed_at_ms", nullable = false)
+    private long changedAtMillis;
+
+
+    // Constructors
+
+    public ContactChange() {}
+
+    public ContactChange(String userId, String contactUserId, long changedAtMillis) {
+        this.userId = userId;
+        this.contactUserId = contactUserId;
+        this.changedAtMillis = changedAtMillis;
+    }
+
+
+    // Getters
+    public Long getChangeId() {return changeId;}
+    public String getUserId() {return userId;}
+    public String getContactUserId() {return contactUserId;}
+    public long getChangedAtMillis() {return changedAtMillis;}
+}
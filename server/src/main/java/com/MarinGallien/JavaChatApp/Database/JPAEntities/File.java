@@ -6,7 +6,10 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "files")
+@Table(name = "files", indexes = {
+        // Files with identical content share one stored copy; this backs its reference count
+        @Index(name = "idx_files_file_path", columnList = "file_path")
+})
 public class File {
     // Columns
     @Id
@@ -27,9 +30,15 @@ public class File {
     @Column(name = "sent_at", nullable = false, updatable = false)
     private LocalDateTime sentAt;
 
+    // BlobStore key of the content; an absolute path for files stored before the blob store existed
     @Column(name = "file_path", nullable = false)
     private String filePath;
 
+    // Hex SHA-256 of the stored bytes, which also locates them in the content store. Sent with downloads so clients
+    // can verify them. Null for older files.
+    @Column(name = "checksum", length = 64)
+    private String checksum;
+
     // Create many-to-one relationship between file and uploader, and create foreign key column
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "uploader_id", nullable = false)
@@ -60,6 +69,7 @@ public class File {
     public String getFileType() {return fileType;}
     public LocalDateTime getSentAt() {return sentAt;}
     public String getFilePath() {return filePath;}
+    public String getChecksum() {return checksum;}
     public User getUploader() {return uploader;}
     public Message getMessage() {return message;}
 
@@ -71,6 +81,7 @@ public class File {
     public void setFileType(String fileType) {this.fileType = fileType;}
     public void setSentAt(LocalDateTime sentAt) {this.sentAt = sentAt;}
     public void setFilePath(String filePath) {this.filePath = filePath;}
+    public void setChecksum(String checksum) {this.checksum = checksum;}
     public void setUploader(User uploader) {this.uploader = uploader;}
     public void setMessage(Message message) {this.message = message;}
 
@@ -12,7 +12,10 @@ import java.util.Set;
 
 
 @Entity
-@Table(name = "messages")
+@Table(name = "messages", indexes = {
+        // Backs keyset pagination of chat history on (sent_at, message_id)
+        @Index(name = "idx_messages_chat_sent_at_id", columnList = "chat_id, sent_at, message_id")
+})
 public class Message {
 
     // Columns
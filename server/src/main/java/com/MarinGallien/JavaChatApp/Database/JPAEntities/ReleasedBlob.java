@@ -0,0 +1,43 @@
+package com.MarinGallien.JavaChatApp.Database.JPAEntities;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// A stored blob whose last File row may have been deleted. The content store deletes it once it has stayed
+// unreferenced for a grace period, unless an upload reuses it first and removes this row.
+@Entity
+@Table(name = "released_blobs", indexes = {
+        @Index(name = "idx_released_blobs_released_at", columnList = "released_at")
+})
+public class ReleasedBlob {
+
+    // Columns
+
+    // BlobStore key of the content
+    @Id
+    @Column(name = "blob_key")
+    private String blobKey;
+
+    @Column(name = "released_at", nullable = false)
+    private LocalDateTime releasedAt;
+
+
+    // Constructors
+
+    public ReleasedBlob() {}
+
+    public ReleasedBlob(String blobKey, LocalDateTime releasedAt) {
+        this.blobKey = blobKey;
+        this.releasedAt = releasedAt;
+    }
+
+
+    // Getters
+    public String getBlobKey() {return blobKey;}
+    public LocalDateTime getReleasedAt() {return releasedAt;}
+
+
+    // Setters
+    public void setReleasedAt(LocalDateTime releasedAt) {this.releasedAt = releasedAt;}
+}
@@ -0,0 +1,41 @@
+package com.MarinGallien.JavaChatApp.Database.JPAEntities;
+
+import jakarta.persistence.*;
+
+// Time before which a user's tokens are no longer accepted (password changed, account deleted). Kept apart from the
+// users table so it outlives a deleted account, until every token it rejects has expired.
+@Entity
+@Table(name = "token_revocations", indexes = {
+        @Index(name = "idx_token_revocations_revoked_at", columnList = "revoked_at_ms")
+})
+public class TokenRevocation {
+
+    // Columns
+
+    @Id
+    @Column(name = "user_id")
+    private String userId;
+
+    // Epoch milliseconds, compared with the iat_ms claim of the user's tokens
+    @Column(name = "revoked_at_ms", nullable = false)
+    private long revokedAtMillis;
+
+
+    // Constructors
+
+    public TokenRevocation() {}
+
+    public TokenRevocation(String userId, long revokedAtMillis) {
+        this.userId = userId;
+        this.revokedAtMillis = revokedAtMillis;
+    }
+
+
+    // Getters
+    public String getUserId() {return userId;}
+    public long getRevokedAtMillis() {return revokedAtMillis;}
+
+
+    // Setters
+    public void setRevokedAtMillis(long revokedAtMillis) {this.revokedAtMillis = revokedAtMillis;}
+}
@@ -0,0 +1,40 @@
+package com.MarinGallien.JavaChatApp.Database.JPARepositories;
+
+import com.MarinGallien.JavaChatApp.Database.JPAEntities.ChatOutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ChatOutboxEventRepo extends JpaRepository<ChatOutboxEvent, Long> {
+
+    // Committed events after the given sequence, oldest first - a primary key range scan
+    List<ChatOutboxEvent> findBySequenceGreaterThanOrderBySequenceAsc(Long sequence, Pageable pageable);
+
+    // Committed events among the given sequences, oldest first
+    List<ChatOutboxEvent> findBySequenceInOrderBySequenceAsc(Collection<Long> sequences);
+
+    // Highest sequence recorded so far, 0 when the outbox is empty
+    @Query("SELECT COALESCE(MAX(e.sequence), 0) FROM ChatOutboxEvent e")
+    long findLatestSequence();
+
+    // Highest sequence recorded before the given time, 0 if there is none
+    @Query("SELECT COALESCE(MAX(e.sequence), 0) FROM ChatOutboxEvent e WHERE e.createdAt < :before")
+    long findLatestSequenceBefore(@Param("before") LocalDateTime before);
+
+    // Lowest sequence still stored, 1 when the outbox is empty
+    @Query("SELECT COALESCE(MIN(e.sequence), 1) FROM ChatOutboxEvent e")
+    long findEarliestSequence();
+
+    // Remove events below the given sequence that are older than the retention period
+    @Modifying
+    @Query("DELETE FROM ChatOutboxEvent e WHERE e.sequence < :sequence AND e.createdAt < :before")
+    int deleteAppliedBefore(@Param("sequence") Long sequence, @Param("before") LocalDateTime before);
+}
@@ -2,13 +2,18 @@ package com.MarinGallien.JavaChatApp.Database.JPARepositories;
 
 import com.MarinGallien.JavaChatApp.Database.JPAEntities.Chat;
 import com.MarinGallien.JavaChatApp.Database.JPAEntities.ChatParticipant;
+import jakarta.persistence.QueryHint;
 import jakarta.transaction.Transactional;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface ChatParticipantRepo extends JpaRepository<ChatParticipant, String> {
@@ -16,6 +21,25 @@ public interface ChatParticipantRepo extends JpaRepository<ChatParticipant, Stri
     @Query("SELECT cp.chat.chatId, cp.user.userId FROM ChatParticipant cp")
     List<Object[]> findAllChatUserMappings();
 
+    // Same mappings as a cursor-backed stream grouped by chat. Rows are fetched from the driver in chunks instead of
+    // being materialized at once - the stream must be consumed inside a transaction and closed afterwards.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT cp.chat.chatId, cp.user.userId FROM ChatParticipant cp ORDER BY cp.chat.chatId")
+    Stream<Object[]> streamAllChatUserMappings();
+
+    // Membership digest of each chat after the given chat ID, in chat ID order: [0] = chatId, [1] = member count,
+    // [2] = sum of member hashes. Chats without participants have no row.
+    @Query("SELECT cp.chat.chatId, COUNT(cp), SUM(cp.memberHash) FROM ChatParticipant cp " +
+            "WHERE cp.chat.chatId > :afterChatId GROUP BY cp.chat.chatId ORDER BY cp.chat.chatId")
+    List<Object[]> findMembershipDigestsAfter(@Param("afterChatId") String afterChatId, Pageable pageable);
+
+    // Retrieve the user IDs of a chat's participants
+    @Query("SELECT cp.user.userId FROM ChatParticipant cp WHERE cp.chat.chatId = :chatId")
+    List<String> findUserIdsByChatId(@Param("chatId") String chatId);
+
     // Remove a participant from a chat
     @Transactional
     int removeByChatChatIdAndUserUserId(@Param("chatId") String chatId, @Param("userId") String userId);
@@ -0,0 +1,20 @@
+package com.MarinGallien.JavaChatApp.Database.JPARepositories;
+
+import com.MarinGallien.JavaChatApp.Database.JPAEntities.ContactChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ContactChangeRepo extends JpaRepository<ContactChange, Long> {
+
+    List<ContactChange> findByChangedAtMillisGreaterThanEqualOrderByChangeIdAsc(long since);
+
+    @Modifying
+    @Query("DELETE FROM ContactChange c WHERE c.changedAtMillis < :before")
+    int deleteChangedBefore(@Param("before") long before);
+}
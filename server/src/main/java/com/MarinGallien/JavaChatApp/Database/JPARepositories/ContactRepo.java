@@ -15,6 +15,10 @@ public interface ContactRepo extends JpaRepository<Contact, String> {
     @Query("SELECT c.contactUser FROM Contact c WHERE c.user.userId = :userId")
     List<User> findContactUserIdsByUserId(@Param("userId") String userId);
 
+    // Retrieve all contact pairs in a single query in a List of objects array where [0] = userId and [1] = contactUserId
+    @Query("SELECT c.user.userId, c.contactUser.userId FROM Contact c")
+    List<Object[]> findAllContactUserIdMappings();
+
     @Query("SELECT COUNT(c) > 0 FROM Contact c WHERE " +
             "(c.user.userId = :userId1 AND c.contactUser.userId = :userId2) OR " +
             "(c.user.userId = :userId2 AND c.contactUser.userId = :userId1)")
@@ -14,6 +14,17 @@ public interface FileRepo extends JpaRepository<File, String> {
     // Retrieves a list of files belonging to a chat
     List<File> findByMessageChatChatId(@Param("chatId") String chatId);
 
+    // Retrieves a file of a chat, with its message, only if the user is a participant of that chat. Returns null if the
+    // file does not exist, belongs to another chat or the user is not a member.
+    @Query("SELECT f FROM File f JOIN FETCH f.message m " +
+            "WHERE f.fileId = :fileId AND m.chat.chatId = :chatId " +
+            "AND EXISTS (SELECT cp FROM ChatParticipant cp WHERE cp.chat.chatId = :chatId AND cp.user.userId = :userId)")
+    File findAccessibleFile(@Param("fileId") String fileId, @Param("chatId") String chatId,
+                            @Param("userId") String userId);
+
+    // Number of files stored at filePath. Identical uploads share one stored copy, so this is its reference count.
+    long countByFilePath(String filePath);
+
     @Query("SELECT f FROM File f WHERE f.filename = :filename AND f.message.chat.chatId = :chatId")
     File findFileByFilename(@Param("filename") String filename, @Param("chatId") String chatId);
 }
@@ -1,11 +1,14 @@
 package com.MarinGallien.JavaChatApp.Database.JPARepositories;
 
+import com.MarinGallien.JavaChatApp.DTOs.DataEntities.MessageDTO;
 import com.MarinGallien.JavaChatApp.Database.JPAEntities.Message;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -14,4 +17,38 @@ public interface MessageRepo extends JpaRepository<Message, String> {
     // Add this method to find messages by chat ID, ordered chronologically
     @Query("SELECT m FROM Message m WHERE m.chat.chatId = :chatId ORDER BY m.sentAt ASC")
     List<Message> findByChatChatIdOrderBySentAtAsc(@Param("chatId") String chatId);
+
+    // ========== DTO PROJECTIONS ==========
+    // Build MessageDTO rows straight from one messages-users join: no managed entities and no lazy sender loads
+
+    String MESSAGE_DTO_SELECT = "SELECT new com.MarinGallien.JavaChatApp.DTOs.DataEntities.MessageDTO(" +
+            "m.messageId, s.userId, s.username, m.chat.chatId, m.content, m.sentAt) " +
+            "FROM Message m JOIN m.sender s ";
+
+    // Full chat history, oldest first
+    @Query(MESSAGE_DTO_SELECT + "WHERE m.chat.chatId = :chatId ORDER BY m.sentAt ASC, m.messageId ASC")
+    List<MessageDTO> findMessageDTOsByChatId(@Param("chatId") String chatId);
+
+    // ========== KEYSET PAGINATION ==========
+    // Pages on (sentAt, messageId) so each page is an index range scan on (chat_id, sent_at, message_id)
+
+    // Most recent messages of a chat, newest first
+    @Query(MESSAGE_DTO_SELECT + "WHERE m.chat.chatId = :chatId ORDER BY m.sentAt DESC, m.messageId DESC")
+    List<MessageDTO> findLatestByChatId(@Param("chatId") String chatId, Pageable pageable);
+
+    // Messages strictly older than the cursor, newest first
+    @Query(MESSAGE_DTO_SELECT + "WHERE m.chat.chatId = :chatId AND " +
+            "(m.sentAt < :sentAt OR (m.sentAt = :sentAt AND m.messageId < :messageId)) " +
+            "ORDER BY m.sentAt DESC, m.messageId DESC")
+    List<MessageDTO> findByChatIdBefore(@Param("chatId") String chatId, @Param("sentAt") LocalDateTime sentAt,
+                                        @Param("messageId") String messageId, Pageable pageable);
+
+    // Messages strictly newer than the cursor and sent before settledBefore, oldest first
+    @Query(MESSAGE_DTO_SELECT + "WHERE m.chat.chatId = :chatId AND " +
+            "(m.sentAt > :sentAt OR (m.sentAt = :sentAt AND m.messageId > :messageId)) " +
+            "AND m.sentAt < :settledBefore " +
+            "ORDER BY m.sentAt ASC, m.messageId ASC")
+    List<MessageDTO> findByChatIdAfter(@Param("chatId") String chatId, @Param("sentAt") LocalDateTime sentAt,
+                                       @Param("messageId") String messageId,
+                                       @Param("settledBefore") LocalDateTime settledBefore, Pageable pageable);
 }
@@ -0,0 +1,27 @@
+package com.MarinGallien.JavaChatApp.Database.JPARepositories;
+
+import com.MarinGallien.JavaChatApp.Database.JPAEntities.ReleasedBlob;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ReleasedBlobRepo extends JpaRepository<ReleasedBlob, String> {
+
+    // Keys released before the given time, oldest first
+    @Query("SELECT r.blobKey FROM ReleasedBlob r WHERE r.releasedAt < :before ORDER BY r.releasedAt")
+    List<String> findKeysReleasedBefore(@Param("before") LocalDateTime before, Pageable pageable);
+
+    // The row locked until the transaction ends - waits while another transaction holds it
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM ReleasedBlob r WHERE r.blobKey = :key")
+    Optional<ReleasedBlob> findForUpdate(@Param("key") String key);
+}
@@ -0,0 +1,20 @@
+package com.MarinGallien.JavaChatApp.Database.JPARepositories;
+
+import com.MarinGallien.JavaChatApp.Database.JPAEntities.TokenRevocation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface TokenRevocationRepo extends JpaRepository<TokenRevocation, String> {
+
+    List<TokenRevocation> findByRevokedAtMillisGreaterThanEqual(long since);
+
+    @Modifying
+    @Query("DELETE FROM TokenRevocation r WHERE r.revokedAtMillis < :before")
+    int deleteRevokedBefore(@Param("before") long before);
+}
@@ -1,16 +1,29 @@
 package com.MarinGallien.JavaChatApp.Database.JPARepositories;
 
 import com.MarinGallien.JavaChatApp.Database.JPAEntities.User;
+import com.MarinGallien.JavaChatApp.Enums.OnlineStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+
 @Repository
 public interface UserRepo extends JpaRepository<User, String> {
     @Query("SELECT u FROM User u WHERE u.userId = :userId")
     public User findUserById(@Param("userId") String userId);
 
+    // Counts how many of the given IDs belong to existing users, to validate a batch of users in one query
+    @Query("SELECT COUNT(u) FROM User u WHERE u.userId IN :userIds")
+    long countByUserIdIn(@Param("userIds") Collection<String> userIds);
+
+    // Sets the status of a batch of users in one statement. Returns the number of users updated.
+    @Modifying
+    @Query("UPDATE User u SET u.status = :status WHERE u.userId IN :userIds")
+    int updateStatusByUserIdIn(@Param("userIds") Collection<String> userIds, @Param("status") OnlineStatus status);
+
     @Query("SELECT COUNT(u) > 0 FROM User u WHERE u.email = :email")
     boolean existsByEmail(@Param("email") String email);
 
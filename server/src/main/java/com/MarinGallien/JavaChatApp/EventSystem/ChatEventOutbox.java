@@ -0,0 +1,358 @@
+package com.MarinGallien.JavaChatApp.EventSystem;
+
+import com.MarinGallien.JavaChatApp.Database.DatabaseServices.ChatOutboxDbService;
+import com.MarinGallien.JavaChatApp.Database.JPAEntities.ChatOutboxEvent;
+import com.MarinGallien.JavaChatApp.Database.JPAEntities.ChatOutboxEvent.Type;
+import com.MarinGallien.JavaChatApp.EventSystem.Events.ChatEvents.ChatCreated;
+import com.MarinGallien.JavaChatApp.EventSystem.Events.ChatEvents.ChatDeleted;
+import com.MarinGallien.JavaChatApp.EventSystem.Events.ChatEvents.ChatEvents;
+import com.MarinGallien.JavaChatApp.EventSystem.Events.ChatEvents.MemberAddedToChat;
+import com.MarinGallien.JavaChatApp.EventSystem.Events.ChatEvents.MemberRemovedFromChat;
+import com.MarinGallien.JavaChatApp.EventSystem.Events.ChatEvents.SequencedChatEvent;
+import com.MarinGallien.JavaChatApp.WebSocketServer.ChatManager;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+// Transactional outbox for chat events. ChatService records each event in the transaction that changes the chat, so
+// an event exists if and only if its change was committed. A relay thread publishes committed events to the event bus
+// in sequence order, woken right after each commit and by a periodic poll that picks up anything a wake missed.
+//
+// ChatManager reports which sequences it has applied. When the chat lane rejects an event the relay rewinds to the
+// last applied sequence and publishes everything after it again: the events of a chat are replayed in their original
+// order, so replaying ones that had already been applied leaves the chat in the same final state.
+//
+// A sequence still missing after the gap timeout is skipped so later events are not held up, but it is not given up
+// on: a transaction can commit long after it recorded its event. Skipped sequences are looked up again once per poll
+// and published when they appear, until the late commit window has passed.
+@Component
+public class ChatEventOutbox {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatEventOutbox.class);
+
+    private static final long NO_GAP = -1;
+    private static final long PRUNE_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    // Skipped sequences looked up again at most - a wider gap is almost certainly rolled back or reserved sequences
+    private static final int MAX_SKIPPED = 10_000;
+
+    private final ChatOutboxDbService outboxDbService;
+    private final EventBusService eventBus;
+    private final ChatManager chatManager;
+    private final long pollMs;
+    private final int batchSize;
+    private final long gapTimeoutNanos;
+    private final long lateCommitWindowNanos;
+    private final long retentionMinutes;
+
+    private ScheduledExecutorService scheduler;
+    private final AtomicBoolean wakePending = new AtomicBoolean();
+
+    // Relay state, only used on the relay thread. The cursor is the last published sequence, -1 until the relay has
+    // started from ChatManager's last applied sequence.
+    private volatile long cursor = -1;
+    private long gapSinceNanos = NO_GAP;
+    private long lastPruneNanos = System.nanoTime();
+    private long lastSkippedLookupNanos = System.nanoTime();
+
+    // Sequences the cursor moved past while they were missing:when they were skipped
+    private final NavigableMap<Long, Long> skipped = new TreeMap<>();
+
+    // Counters
+    private final AtomicLong recordedCount = new AtomicLong();
+    private final AtomicLong relayedCount = new AtomicLong();
+    private final AtomicLong rewindCount = new AtomicLong();
+    private final AtomicLong skippedCount = new AtomicLong();
+    private final AtomicLong lateRelayedCount = new AtomicLong();
+    private final AtomicLong abandonedCount = new AtomicLong();
+    private final AtomicLong prunedCount = new AtomicLong();
+
+    public ChatEventOutbox(ChatOutboxDbService outboxDbService,
+                           EventBusService eventBus,
+                           ChatManager chatManager,
+                           @Value("${chat.events.outbox.poll-ms:1000}") long pollMs,
+                           @Value("${chat.events.outbox.batch-size:500}") int batchSize,
+                           @Value("${chat.events.outbox.gap-timeout-ms:5000}") long gapTimeoutMs,
+                           @Value("${chat.events.outbox.late-commit-window-ms:600000}") long lateCommitWindowMs,
+                           @Value("${chat.events.outbox.retention-minutes:60}") long retentionMinutes) {
+        this.outboxDbService = outboxDbService;
+        this.eventBus = eventBus;
+        this.chatManager = chatManager;
+        this.pollMs = Math.max(10, pollMs);
+        this.batchSize = Math.max(1, batchSize);
+        this.gapTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, gapTimeoutMs));
+        this.lateCommitWindowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, lateCommitWindowMs));
+        this.retentionMinutes = Math.max(0, retentionMinutes);
+    }
+
+    // ========== LIFECYCLE ==========
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ChatEventOutbox");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::relaySafely, pollMs, pollMs, TimeUnit.MILLISECONDS);
+        logger.info("Chat event outbox relay started (poll every {} ms, batches of {})", pollMs, batchSize);
+    }
+
+    // Unpublished events stay in the outbox and are relayed after the next start
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler == null) return;
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ========== PRODUCER SIDE ==========
+
+    // Records the event in the caller's transaction. It is published once that transaction commits, and never if it
+    // rolls back. Returns false if the event could not be recorded.
+    public boolean record(ChatEvents event) {
+        ChatOutboxEvent row = toRow(event);
+        if (row == null) {
+            logger.warn("Failed to record chat event: unsupported or incomplete event {}", event);
+            return false;
+        }
+
+        if (outboxDbService.append(row) == null) return false;
+        recordedCount.incrementAndGet();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wake();
+                }
+            });
+        } else {
+            wake();
+        }
+        return true;
+    }
+
+    // Runs a relay pass as soon as possible. Wakes arriving while one is already queued are merged into it.
+    private void wake() {
+        if (scheduler == null || !wakePending.compareAndSet(false, true)) return;
+        try {
+            scheduler.execute(() -> {
+                wakePending.set(false);
+                relaySafely();
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down, the event is relayed after the next start
+            wakePending.set(false);
+        }
+    }
+
+    // ========== RELAY ==========
+
+    private void relaySafely() {
+        try {
+            relay();
+        } catch (Exception e) {
+            logger.error("Unexpected error in chat event outbox relay: {}", e.getMessage());
+        }
+    }
+
+    // Publishes committed events after the cursor, in sequence order, and returns how many were published. Nothing is
+    // published before ChatManager has loaded, since events older than its snapshot are already part of it.
+    int relay() {
+        if (!chatManager.isReady()) return 0;
+
+        SequenceWatermark applied = chatManager.getAppliedSequences();
+        if (cursor < 0) {
+            cursor = applied.get();
+            logger.info("Chat event outbox relay resuming after sequence {}", cursor);
+        }
+
+        int published = relaySkippedIfDue();
+        List<ChatOutboxEvent> batch;
+        do {
+            batch = outboxDbService.getEventsAfter(cursor, batchSize);
+            for (ChatOutboxEvent row : batch) {
+                long sequence = row.getSequence();
+
+                // A missing sequence usually belongs to a transaction that has not committed yet: wait for it, but
+                // not forever, since rolled back transactions leave gaps that are never filled
+                if (sequence > cursor + 1) {
+                    if (!gapTimedOut()) return published;
+                    logger.warn("Chat event outbox skipping sequences {} to {}: not committed after {} ms",
+                            cursor + 1, sequence - 1, TimeUnit.NANOSECONDS.toMillis(gapTimeoutNanos));
+                    skippedCount.addAndGet(sequence - cursor - 1);
+                    rememberSkipped(cursor + 1, sequence - 1);
+                }
+                gapSinceNanos = NO_GAP;
+
+                applied.dispatched(sequence);
+                if (!eventBus.publishEvent(new SequencedChatEvent(sequence, toEvent(row)))) {
+                    rewind(applied);
+                    return published;
+                }
+                cursor = sequence;
+                if (!skipped.isEmpty()) skipped.remove(sequence);
+                published++;
+                relayedCount.incrementAndGet();
+            }
+        } while (batch.size() == batchSize);
+
+        pruneIfDue(applied);
+        return published;
+    }
+
+    private boolean gapTimedOut() {
+        long now = System.nanoTime();
+        if (gapSinceNanos == NO_GAP) {
+            gapSinceNanos = now;
+        }
+        return now - gapSinceNanos >= gapTimeoutNanos;
+    }
+
+    // Keeps skipped sequences to look up again, up to MAX_SKIPPED of them
+    private void rememberSkipped(long from, long to) {
+        long now = System.nanoTime();
+        for (long sequence = from; sequence <= to; sequence++) {
+            if (skipped.size() >= MAX_SKIPPED) {
+                logger.warn("Chat event outbox not waiting for sequences {} to {}: too many skipped sequences",
+                        sequence, to);
+                abandonedCount.addAndGet(to - sequence + 1);
+                return;
+            }
+            skipped.put(sequence, now);
+        }
+    }
+
+    // Publishes skipped events whose transactions have committed since, about once per poll, and gives up on the ones
+    // still missing after the late commit window. They are published out of sequence order, after events of the same
+    // chat that committed before them, which is also the order their changes reached the database in. The watermark
+    // already moved past them, so a rewind does not replay them; one the lane rejects is looked up again later.
+    private int relaySkippedIfDue() {
+        if (skipped.isEmpty()) return 0;
+
+        long now = System.nanoTime();
+        if (now - lastSkippedLookupNanos < TimeUnit.MILLISECONDS.toNanos(pollMs)) return 0;
+        lastSkippedLookupNanos = now;
+
+        int published = 0;
+        List<Long> sequences = new ArrayList<>(skipped.keySet());
+        for (int from = 0; from < sequences.size(); from += batchSize) {
+            List<Long> chunk = sequences.subList(from, Math.min(from + batchSize, sequences.size()));
+            for (ChatOutboxEvent row : outboxDbService.getEvents(chunk)) {
+                if (!eventBus.publishEvent(new SequencedChatEvent(row.getSequence(), toEvent(row)))) continue;
+                skipped.remove(row.getSequence());
+                logger.info("Chat event outbox relayed sequence {} after it committed late", row.getSequence());
+                published++;
+                relayedCount.incrementAndGet();
+                lateRelayedCount.incrementAndGet();
+            }
+        }
+
+        Iterator<Map.Entry<Long, Long>> entries = skipped.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Long, Long> entry = entries.next();
+            if (now - entry.getValue() < lateCommitWindowNanos) continue;
+            logger.warn("Chat event outbox giving up on sequence {}: not committed after {} ms", entry.getKey(),
+                    TimeUnit.NANOSECONDS.toMillis(lateCommitWindowNanos));
+            entries.remove();
+            abandonedCount.incrementAndGet();
+        }
+        return published;
+    }
+
+    // Restarts from the last sequence ChatManager applied, so the next pass replays the rejected event and everything
+    // published after it
+    private void rewind(SequenceWatermark applied) {
+        long from = applied.get();
+        applied.reset(from);
+        logger.warn("Chat event lane rejected an event, replaying chat events after sequence {}", from);
+        cursor = from;
+        rewindCount.incrementAndGet();
+    }
+
+    // Deletes applied events older than the retention period, about once a minute
+    private void pruneIfDue(SequenceWatermark applied) {
+        long now = System.nanoTime();
+        if (now - lastPruneNanos < PRUNE_INTERVAL_NANOS) return;
+        lastPruneNanos = now;
+
+        int deleted = outboxDbService.deleteAppliedEvents(applied.get(),
+                LocalDateTime.now().minusMinutes(retentionMinutes));
+        prunedCount.addAndGet(deleted);
+    }
+
+    // ========== MAPPING ==========
+
+    private static ChatOutboxEvent toRow(ChatEvents event) {
+        if (event == null || event.chatId() == null) return null;
+
+        if (event instanceof ChatCreated created && created.memberIds() != null) {
+            return new ChatOutboxEvent(Type.CHAT_CREATED, created.chatId(), null, String.join(",", created.memberIds()));
+        } else if (event instanceof ChatDeleted deleted) {
+            return new ChatOutboxEvent(Type.CHAT_DELETED, deleted.chatId(), null, null);
+        } else if (event instanceof MemberAddedToChat added && added.userId() != null) {
+            return new ChatOutboxEvent(Type.MEMBER_ADDED, added.chatId(), added.userId(), null);
+        } else if (event instanceof MemberRemovedFromChat removed && removed.userId() != null) {
+            return new ChatOutboxEvent(Type.MEMBER_REMOVED, removed.chatId(), removed.userId(), null);
+        }
+        return null;
+    }
+
+    // Rebuilds the event a row was recorded from
+    static ChatEvents toEvent(ChatOutboxEvent row) {
+        return switch (row.getEventType()) {
+            case CHAT_CREATED -> new ChatCreated(row.getChatId(), splitMemberIds(row.getMemberIds()));
+            case CHAT_DELETED -> new ChatDeleted(row.getChatId());
+            case MEMBER_ADDED -> new MemberAddedToChat(row.getUserId(), row.getChatId());
+            case MEMBER_REMOVED -> new MemberRemovedFromChat(row.getUserId(), row.getChatId());
+        };
+    }
+
+    private static Set<String> splitMemberIds(String memberIds) {
+        if (memberIds == null || memberIds.isEmpty()) return Set.of();
+        return Arrays.stream(memberIds.split(",")).collect(Collectors.toSet());
+    }
+
+    // ========== METRICS ==========
+
+    public long getRecordedCount() {return recordedCount.get();}
+    public long getRelayedCount() {return relayedCount.get();}
+    public long getRewindCount() {return rewindCount.get();}
+    public long getSkippedCount() {return skippedCount.get();}
+    public long getLateRelayedCount() {return lateRelayedCount.get();}
+    public long getAbandonedCount() {return abandonedCount.get();}
+    public long getPrunedCount() {return prunedCount.get();}
+
+    // Last sequence handed to the event bus, -1 before the relay has started
+    public long getCursor() {return cursor;}
+
+    // Skipped sequences still being looked for. Only accurate on the relay thread.
+    public int getSkippedPendingCount() {return skipped.size();}
+}
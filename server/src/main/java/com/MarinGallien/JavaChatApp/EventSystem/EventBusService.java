@@ -1,29 +1,71 @@
 package com.MarinGallien.JavaChatApp.EventSystem;
 
+import com.MarinGallien.JavaChatApp.EventSystem.Events.ChatEvents.ChatEvents;
+import com.MarinGallien.JavaChatApp.EventSystem.Events.ContactEvents.ContactEvents;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
+// Publishes application events. Chat and contact events are handed to their EventLane and delivered to listeners on
+// the lane's threads, keyed so events of one chat or one contact pair arrive in publication order. Any other event
+// is delivered on the caller's thread.
 @Service
 public class EventBusService {
     private static final Logger logger = LoggerFactory.getLogger(EventBusService.class);
     private final ApplicationEventPublisher eventPublisher;
+    private final EventLane chatLane;
+    private final EventLane contactLane;
 
     public EventBusService(ApplicationEventPublisher eventPublisher) {
+        this(eventPublisher, null, null);
+    }
+
+    @Autowired
+    public EventBusService(ApplicationEventPublisher eventPublisher,
+                           @Qualifier("chatEventLane") EventLane chatLane,
+                           @Qualifier("contactEventLane") EventLane contactLane) {
         this.eventPublisher = eventPublisher;
+        this.chatLane = chatLane;
+        this.contactLane = contactLane;
     }
 
-    public void publishEvent(Object event) {
+    // Returns false if the event was dropped: it is null or its lane rejected it
+    public boolean publishEvent(Object event) {
         try {
             if (event == null) {
                 logger.warn("Failed to publish event: event is null");
-                return;
+                return false;
+            }
+
+            if (event instanceof ChatEvents chatEvent && chatLane != null) {
+                return submit(chatLane, chatEvent.chatId(), event);
+            } else if (event instanceof ContactEvents contactEvent && contactLane != null) {
+                return submit(contactLane, pairKey(contactEvent.userId(), contactEvent.contactUserId()), event);
+            } else {
+                eventPublisher.publishEvent(event);
+                return true;
             }
-            eventPublisher.publishEvent(event);
         } catch (Exception e) {
             logger.error("Failed to publish even");
             throw new RuntimeException("Failed to publish event", e);
         }
     }
+
+    private boolean submit(EventLane lane, String key, Object event) {
+        if (!lane.submit(key, () -> eventPublisher.publishEvent(event))) {
+            logger.error("Failed to publish {}: event lane {} rejected it", event.getClass().getSimpleName(),
+                    lane.getName());
+            return false;
+        }
+        return true;
+    }
+
+    // Same key whichever user of the pair the event names first
+    private static String pairKey(String userId, String contactUserId) {
+        if (userId == null || contactUserId == null) return userId != null ? userId : contactUserId;
+        return userId.compareTo(contactUserId) <= 0 ? userId + ":" + contactUserId : contactUserId + ":" + userId;
+    }
 }
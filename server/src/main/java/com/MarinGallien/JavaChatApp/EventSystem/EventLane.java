@@ -0,0 +1,212 @@
+package com.MarinGallien.JavaChatApp.EventSystem;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Bounded executor for one family of events. Work is spread over a fixed number of stripes, each with its own queue
+// and worker thread, and every task with the same key goes to the same stripe: tasks for one key run one at a time in
+// submission order, tasks for different keys run in parallel.
+//
+// When a stripe's queue is full the lane applies its backpressure policy:
+// - CALLER_RUNS: the submitting thread runs the oldest queued tasks of that stripe itself until its own task fits.
+//   Running the oldest ones first, under the same lock the worker runs tasks with, keeps the per-key order.
+// - BLOCK: the submitting thread waits up to the block timeout for space, after which the task is rejected.
+public class EventLane {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventLane.class);
+
+    private static final long IDLE_POLL_MS = 100;
+
+    public enum Policy {
+        CALLER_RUNS, BLOCK;
+
+        // Accepts "caller-runs", "CALLER_RUNS", "block"...
+        public static Policy parse(String value) {
+            return valueOf(value.trim().toUpperCase().replace('-', '_'));
+        }
+    }
+
+    private final String name;
+    private final Stripe[] stripes;
+    private final Policy policy;
+    private final long blockTimeoutNanos;
+    private final AtomicInteger nextUnkeyed = new AtomicInteger();
+
+    private volatile boolean running = true;
+
+    // Counters
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong completedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong callerRunsCount = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    // A submitted task and when it was submitted, for latency
+    private record Task(Runnable action, long submittedAtNanos) {}
+
+    public EventLane(String name, int stripeCount, int capacityPerStripe, Policy policy, long blockTimeoutMs) {
+        this.name = name;
+        this.policy = policy;
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, blockTimeoutMs));
+        this.stripes = new Stripe[Math.max(1, stripeCount)];
+
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe(Math.max(1, capacityPerStripe));
+            Thread worker = new Thread(stripes[i], "EventLane-" + name + "-" + i);
+            worker.setDaemon(true);
+            stripes[i].worker = worker;
+            worker.start();
+        }
+        logger.info("Event lane {} started ({} stripes of {} tasks, {} when full)",
+                name, stripes.length, capacityPerStripe, policy);
+    }
+
+    // ========== SUBMITTING ==========
+
+    // Queues action behind every earlier task with the same key. A null key picks stripes in turn and so gives no
+    // ordering. Returns false if the task was rejected.
+    public boolean submit(Object key, Runnable action) {
+        if (!running) {
+            logger.warn("Event lane {} rejected a task: lane is shut down", name);
+            rejectedCount.incrementAndGet();
+            return false;
+        }
+
+        int index = key != null
+                ? Math.floorMod(key.hashCode(), stripes.length)
+                : Math.floorMod(nextUnkeyed.getAndIncrement(), stripes.length);
+        Stripe stripe = stripes[index];
+        Task task = new Task(action, System.nanoTime());
+        submittedCount.incrementAndGet();
+
+        if (stripe.queue.offer(task)) return true;
+
+        return policy == Policy.CALLER_RUNS ? runOldestUntilQueued(stripe, task) : waitForSpace(stripe, task);
+    }
+
+    private boolean runOldestUntilQueued(Stripe stripe, Task task) {
+        stripe.runLock.lock();
+        try {
+            while (!stripe.queue.offer(task)) {
+                Task oldest = stripe.queue.poll();
+                if (oldest == null) continue;
+                callerRunsCount.incrementAndGet();
+                execute(oldest);
+            }
+            return true;
+        } finally {
+            stripe.runLock.unlock();
+        }
+    }
+
+    private boolean waitForSpace(Stripe stripe, Task task) {
+        try {
+            if (stripe.queue.offer(task, blockTimeoutNanos, TimeUnit.NANOSECONDS)) return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        logger.warn("Event lane {} rejected a task: queue stayed full for {} ms", name,
+                TimeUnit.NANOSECONDS.toMillis(blockTimeoutNanos));
+        rejectedCount.incrementAndGet();
+        return false;
+    }
+
+    // ========== RUNNING ==========
+
+    private final class Stripe implements Runnable {
+        private final BlockingQueue<Task> queue;
+
+        // Held while a task of this stripe runs, by the worker or by a caller running tasks itself. Fair, so a waiting
+        // caller gets it before the worker takes the next task.
+        private final ReentrantLock runLock = new ReentrantLock(true);
+        private Thread worker;
+
+        Stripe(int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        @Override
+        public void run() {
+            while (running || !queue.isEmpty()) {
+                // Taking the task under the lock keeps a caller from running a later task of the stripe first.
+                // The lock is held while waiting only when the queue is empty, when no caller needs it.
+                runLock.lock();
+                try {
+                    Task task = queue.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+                    if (task != null) execute(task);
+                } catch (InterruptedException e) {
+                    // Only shutdown() ends the worker, and not before the queue is drained
+                } finally {
+                    runLock.unlock();
+                }
+            }
+        }
+    }
+
+    private void execute(Task task) {
+        try {
+            task.action().run();
+        } catch (Throwable t) {
+            logger.error("Event lane {} task failed: {}", name, t.getMessage());
+            failedCount.incrementAndGet();
+        } finally {
+            long latency = System.nanoTime() - task.submittedAtNanos();
+            totalLatencyNanos.addAndGet(latency);
+            maxLatencyNanos.accumulateAndGet(latency, Math::max);
+            completedCount.incrementAndGet();
+        }
+    }
+
+    // ========== LIFECYCLE ==========
+
+    // Stops accepting tasks and lets every stripe drain its queue
+    public void shutdown() {
+        running = false;
+
+        for (Stripe stripe : stripes) {
+            try {
+                stripe.worker.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        logger.info("Event lane {} stopped: {} tasks completed, {} failed, {} rejected, {} run by callers",
+                name, completedCount.get(), failedCount.get(), rejectedCount.get(), callerRunsCount.get());
+    }
+
+    // ========== METRICS ==========
+
+    public String getName() {return name;}
+    public int getStripeCount() {return stripes.length;}
+    public long getSubmittedCount() {return submittedCount.get();}
+    public long getCompletedCount() {return completedCount.get();}
+    public long getFailedCount() {return failedCount.get();}
+    public long getRejectedCount() {return rejectedCount.get();}
+    public long getCallerRunsCount() {return callerRunsCount.get();}
+
+    // Tasks waiting in all stripes
+    public int getQueueDepth() {
+        int depth = 0;
+        for (Stripe stripe : stripes) depth += stripe.queue.size();
+        return depth;
+    }
+
+    // Time from submission to the end of the task, averaged over completed tasks
+    public long getAverageLatencyMicros() {
+        long completed = completedCount.get();
+        return completed == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalLatencyNanos.get() / completed);
+    }
+
+    public long getMaxLatencyMicros() {return TimeUnit.NANOSECONDS.toMicros(maxLatencyNanos.get());}
+}
@@ -3,6 +3,9 @@ package com.MarinGallien.JavaChatApp.EventSystem.Events.ChatEvents;
 // Sealed interface for all chat events
 public interface ChatEvents{
 
+    // Chat the event applies to - events of one chat are delivered in publication order
+    String chatId();
+
     // Every chat event should have a unique identifier
     default String eventId() {
         return java.util.UUID.randomUUID().toString();
@@ -0,0 +1,11 @@
+package com.MarinGallien.JavaChatApp.EventSystem.Events.ChatEvents;
+
+// Chat Event Outbox -> Chat Manager: a committed chat event and its position in the outbox
+public record SequencedChatEvent (long sequence, ChatEvents event) implements ChatEvents {
+
+    // Routed on the chat lane like the event it carries
+    @Override
+    public String chatId() {
+        return event.chatId();
+    }
+}
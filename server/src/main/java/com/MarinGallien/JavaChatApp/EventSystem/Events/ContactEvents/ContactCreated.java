@@ -0,0 +1,4 @@
+package com.MarinGallien.JavaChatApp.EventSystem.Events.ContactEvents;
+
+// Contact Service -> Contact Manager (Notification Events)
+public record ContactCreated (String userId, String contactUserId) implements ContactEvents {}
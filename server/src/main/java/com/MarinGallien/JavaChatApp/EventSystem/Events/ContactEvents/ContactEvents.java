@@ -0,0 +1,19 @@
+package com.MarinGallien.JavaChatApp.EventSystem.Events.ContactEvents;
+
+// Interface for all contact events
+public interface ContactEvents {
+
+    // The two users of the contact - events of one pair are delivered in publication order
+    String userId();
+    String contactUserId();
+
+    // Every contact event should have a unique identifier
+    default String eventId() {
+        return java.util.UUID.randomUUID().toString();
+    }
+
+    // TimeStamp when the event was created
+    default long timestamp() {
+        return java.time.Instant.now().toEpochMilli();
+    }
+}
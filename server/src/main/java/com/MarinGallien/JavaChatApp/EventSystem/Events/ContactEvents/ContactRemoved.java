@@ -0,0 +1,3 @@
+package com.MarinGallien.JavaChatApp.EventSystem.Events.ContactEvents;
+
+public record ContactRemoved (String userId, String contactUserId) implements ContactEvents {}
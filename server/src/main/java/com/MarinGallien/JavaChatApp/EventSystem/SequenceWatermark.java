@@ -0,0 +1,47 @@
+package com.MarinGallien.JavaChatApp.EventSystem;
+
+import java.util.TreeSet;
+
+// Tracks how far a stream of sequenced events has been applied when events of different keys complete out of order.
+// Sequences are dispatched in increasing order and applied in any order; the watermark is the highest sequence such
+// that it and every dispatched sequence before it have been applied. Sequences never dispatched (skipped gaps) do not
+// hold it back.
+public class SequenceWatermark {
+
+    // Dispatched but not applied yet
+    private final TreeSet<Long> pending = new TreeSet<>();
+    private long highestDispatched;
+
+    public SequenceWatermark() {
+        this(0);
+    }
+
+    public SequenceWatermark(long start) {
+        this.highestDispatched = start;
+    }
+
+    // Forgets every pending sequence and restarts from the given one, already counted as applied
+    public synchronized void reset(long sequence) {
+        pending.clear();
+        highestDispatched = sequence;
+    }
+
+    public synchronized void dispatched(long sequence) {
+        if (sequence <= highestDispatched) return;
+        pending.add(sequence);
+        highestDispatched = sequence;
+    }
+
+    // Sequences that were not dispatched since the last reset are ignored
+    public synchronized void applied(long sequence) {
+        pending.remove(sequence);
+    }
+
+    public synchronized long get() {
+        return pending.isEmpty() ? highestDispatched : pending.first() - 1;
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+}
@@ -8,22 +8,56 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
 
 @Service
 public class JWTService {
 
     private static final Logger logger = LoggerFactory.getLogger(JWTService.class);
 
-    // Inject secret key from application.properties
-    @Value("${jwt.secret}")
-    private String secretKey;
-
     // Read token expiry time from application.properties
-    @Value("${jwt.expiration-hours:24}")
-    private long tokenExpirationHours;
+    private final long tokenExpirationHours;
+
+    // Signing key and parser are immutable and thread-safe, so they are built once instead of on every call
+    private final SecretKey key;
+    private final JwtParser parser;
+
+    // Claims of recently verified tokens, keyed by the SHA-256 of the token so raw tokens are not kept in memory.
+    // A client sends the same token with every request, and a hit skips the HMAC check and JSON parsing. Entries are
+    // evicted least recently used first, and an entry whose token has expired is dropped when it is next looked up.
+    private final int verifiedCacheSize;
+    private final Map<ByteBuffer, Claims> verifiedTokens;
+
+    // Checked on every verification, cached or not, so a revocation applies to the very next request
+    private final TokenRevocationList revocationList;
+
+    public JWTService(@Value("${jwt.secret}") String secretKey,
+                      @Value("${jwt.expiration-hours:24}") long tokenExpirationHours,
+                      @Value("${jwt.verified-cache-size:1024}") int verifiedCacheSize,
+                      TokenRevocationList revocationList) {
+        this.tokenExpirationHours = tokenExpirationHours;
+        this.revocationList = revocationList;
+        this.key = Keys.hmacShaKeyFor(secretKey.getBytes());
+        this.parser = Jwts.parser()
+                .verifyWith(key)
+                .build();
+        this.verifiedCacheSize = verifiedCacheSize;
+        this.verifiedTokens = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Claims> eldest) {
+                return size() > JWTService.this.verifiedCacheSize;
+            }
+        };
+    }
 
     // Generate JWT token for authenticated user
     public String generateToken(String userId, String username) {
@@ -38,13 +72,13 @@ public class JWTService {
             Instant now = Instant.now();
             Instant expiration = now.plus(tokenExpirationHours, ChronoUnit.HOURS);
 
-            // Convert secret key to cryptographic key
-            SecretKey key = Keys.hmacShaKeyFor(secretKey.getBytes());
-
-            // Create and return JWT
+            // Create and return JWT. The token ID lets a single token be revoked, the millisecond issue time places
+            // the token before or after a revocation of its user.
             return Jwts.builder()
+                    .id(UUID.randomUUID().toString())
                     .subject(userId)
                     .claim("username", username)
+                    .claim(TokenRevocationList.ISSUED_AT_MILLIS_CLAIM, now.toEpochMilli())
                     .issuedAt(Date.from(now))
                     .expiration(Date.from(expiration))
                     .signWith(key, Jwts.SIG.HS256)
@@ -56,82 +90,85 @@ public class JWTService {
         }
     }
 
-    // Extract used ID from JWT token
-    public String extractUserId(String token) {
-        try {
-            Claims claims = extractClaims(token);
-            return claims.getSubject();
-
-        } catch (Exception e) {
-            logger.error("Failed to extract user ID from token: {}", e.getMessage());
+    // Verifies the token's signature, expiry and revocation and returns its claims, or null if the token is not valid.
+    // This is the one parse a request needs: callers read the user ID, username and expiry from the returned claims.
+    public Claims verifyToken(String token) {
+        if (token == null || token.isEmpty()) {
+            logger.warn("JWT token is invalid: token is null or empty");
             return null;
         }
-    }
 
-    // Extract username from JWT token
-    public String extractUsername(String token) {
-        try {
-            Claims claims = extractClaims(token);
-            return claims.get("username", String.class);
-        } catch (Exception e) {
-            logger.error("Failed to extract username from token: {}", e.getMessage());
-            return null;
+        ByteBuffer digest = digest(token);
+        Claims cached = getVerified(digest);
+        if (cached != null) {
+            if (isExpired(cached)) {
+                removeVerified(digest);
+                logger.warn("JWT token has expired");
+                return null;
+            }
+            if (revocationList.isRevoked(cached)) {
+                removeVerified(digest);
+                logger.warn("JWT token has been revoked for user {}", cached.getSubject());
+                return null;
+            }
+            return cached;
         }
-    }
 
-    // Validate JWT token
-    public boolean validateToken(String token) {
         try {
-            extractClaims(token);
-            return true;
+            Claims claims = parser.parseSignedClaims(token).getPayload();
+            if (revocationList.isRevoked(claims)) {
+                logger.warn("JWT token has been revoked for user {}", claims.getSubject());
+                return null;
+            }
+
+            putVerified(digest, claims);
+            return claims;
+
         } catch (ExpiredJwtException e) {
             logger.warn("JWT token has expired: {}", e.getMessage());
-            return false;
+            return null;
         } catch (UnsupportedJwtException e) {
             logger.warn("JWT token is unsupported: {}", e.getMessage());
-            return false;
+            return null;
         } catch (MalformedJwtException e) {
             logger.warn("JWT token is malformed: {}", e.getMessage());
-            return false;
+            return null;
         } catch (IllegalArgumentException e) {
             logger.warn("JWT token is invalid: {}", e.getMessage());
-            return false;
+            return null;
         } catch (Exception e) {
             logger.error("Unexpected error validating JWT token: {}", e.getMessage());
-            return false;
+            return null;
         }
     }
 
-    // Check if token is expired
+    // Extract used ID from JWT token
+    public String extractUserId(String token) {
+        Claims claims = verifyToken(token);
+        return claims != null ? claims.getSubject() : null;
+    }
+
+    // Extract username from JWT token
+    public String extractUsername(String token) {
+        Claims claims = verifyToken(token);
+        return claims != null ? claims.get("username", String.class) : null;
+    }
+
+    // Validate JWT token
+    public boolean validateToken(String token) {
+        return verifyToken(token) != null;
+    }
+
+    // Check if token is expired. A token that cannot be verified is considered expired.
     public boolean isTokenExpired(String token) {
-        try {
-            Claims claims = extractClaims(token);
-            return claims.getExpiration().before(new Date());
-        } catch (Exception e) {
-            // If token cannot be parsed, consider it expired
-            return true;
-        }
+        Claims claims = verifyToken(token);
+        return claims == null || isExpired(claims);
     }
 
     // Retrieves token's expiration date
     public Date getExpirationDate(String token) {
-        try {
-            Claims claims = extractClaims(token);
-            return claims.getExpiration();
-        } catch (Exception e) {
-            logger.error("Error extracting expiration date from JWT token: {}", e.getMessage());
-            return null;
-        }
-    }
-
-    // Extracts all claims from JWT token
-    private Claims extractClaims(String token) {
-        SecretKey key = Keys.hmacShaKeyFor(secretKey.getBytes());
-        return Jwts.parser()
-                .verifyWith(key)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        Claims claims = verifyToken(token);
+        return claims != null ? claims.getExpiration() : null;
     }
 
     // Extracts token from authorization header
@@ -141,4 +178,46 @@ public class JWTService {
         }
         return null;
     }
+
+    // ========== VERIFIED TOKEN CACHE ==========
+
+    private static boolean isExpired(Claims claims) {
+        Date expiration = claims.getExpiration();
+        return expiration != null && expiration.before(new Date());
+    }
+
+    // The lock only covers a map lookup or insert, never the parse itself
+    private Claims getVerified(ByteBuffer digest) {
+        synchronized (verifiedTokens) {
+            return verifiedTokens.get(digest);
+        }
+    }
+
+    private void putVerified(ByteBuffer digest, Claims claims) {
+        synchronized (verifiedTokens) {
+            verifiedTokens.put(digest, claims);
+        }
+    }
+
+    private void removeVerified(ByteBuffer digest) {
+        synchronized (verifiedTokens) {
+            verifiedTokens.remove(digest);
+        }
+    }
+
+    int getVerifiedCacheCount() {
+        synchronized (verifiedTokens) {
+            return verifiedTokens.size();
+        }
+    }
+
+    private static ByteBuffer digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return ByteBuffer.wrap(hash);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
 }
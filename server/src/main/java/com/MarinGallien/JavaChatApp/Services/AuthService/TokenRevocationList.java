@@ -0,0 +1,205 @@
+package com.MarinGallien.JavaChatApp.Services.AuthService;
+
+import com.MarinGallien.JavaChatApp.Database.DatabaseServices.TokenRevocationDbService;
+import com.MarinGallien.JavaChatApp.Database.JPAEntities.TokenRevocation;
+import io.jsonwebtoken.Claims;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Deny-list for tokens that are still correctly signed and unexpired but must no longer be accepted. Two kinds of
+// entries are kept:
+// - user ID:watermark, rejecting every token of that user issued before the watermark (account deleted, password
+//   changed)
+// - token ID:expiry, rejecting one token until it would have expired anyway
+//
+// No entry needs to outlive the longest token lifetime, so both maps are pruned as revocations are added and stay as
+// small as the number of revocations in the last tokenExpirationHours.
+//
+// User watermarks are also stored in token_revocations, so they survive a restart and reach every node of a cluster:
+// the table is loaded at startup and polled for revocations made on other nodes, a revocation made here applies here
+// at once. Checking a token never touches the database. Single-token revocations stay on this node.
+@Component
+public class TokenRevocationList {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationList.class);
+
+    // Private claim with the issue time in epoch milliseconds. The standard iat claim only keeps whole seconds, which
+    // cannot tell a token issued just before a revocation from one issued just after it in the same second.
+    public static final String ISSUED_AT_MILLIS_CLAIM = "iat_ms";
+
+    // Revocations are read again for this long before the previous poll, so one stored by a node whose clock runs
+    // behind, or committed after the poll read past it, is not missed
+    private static final long POLL_OVERLAP_MILLIS = 60_000;
+
+    private final long tokenLifetimeMillis;
+    private final Clock clock;
+    private final TokenRevocationDbService revocationDbService;
+    private final long pollIntervalMillis;
+
+    private ScheduledExecutorService scheduler;
+    private volatile long lastPollMillis;
+
+    // User ID:epoch millisecond before which that user's tokens are revoked
+    private final Map<String, Long> userWatermarks = new ConcurrentHashMap<>();
+
+    // Token ID:epoch millisecond at which the token expires
+    private final Map<String, Long> revokedTokenIds = new ConcurrentHashMap<>();
+
+    // Keeps revocations in memory only
+    public TokenRevocationList(long tokenExpirationHours) {
+        this(tokenExpirationHours, null, 0, Clock.systemUTC());
+    }
+
+    @Autowired
+    public TokenRevocationList(@Value("${jwt.expiration-hours:24}") long tokenExpirationHours,
+                               TokenRevocationDbService revocationDbService,
+                               @Value("${jwt.revocation-poll-ms:5000}") long pollIntervalMillis) {
+        this(tokenExpirationHours, revocationDbService, pollIntervalMillis, Clock.systemUTC());
+    }
+
+    TokenRevocationList(long tokenExpirationHours, Clock clock) {
+        this(tokenExpirationHours, null, 0, clock);
+    }
+
+    TokenRevocationList(long tokenExpirationHours, TokenRevocationDbService revocationDbService,
+                        long pollIntervalMillis, Clock clock) {
+        this.tokenLifetimeMillis = tokenExpirationHours * 3_600_000L;
+        this.revocationDbService = revocationDbService;
+        this.pollIntervalMillis = Math.max(100, pollIntervalMillis);
+        this.clock = clock;
+    }
+
+    // ========== LIFECYCLE ==========
+
+    // Loads the revocations of the last token lifetime, then polls for new ones
+    @PostConstruct
+    public void start() {
+        if (revocationDbService == null) return;
+
+        long now = clock.millis();
+        lastPollMillis = now - tokenLifetimeMillis;
+        pollRevocations();
+        logger.info("Loaded {} stored token revocations", userWatermarks.size());
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "TokenRevocationPoller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::pollRevocationsSafely, pollIntervalMillis, pollIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler == null) return;
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ========== REVOKING ==========
+
+    // Rejects every token issued to userId before now. Tokens issued from now on - typically the login that follows a
+    // password change - are accepted, even within the same second.
+    public void revokeUser(String userId) {
+        if (userId == null) return;
+
+        long now = clock.millis();
+        userWatermarks.merge(userId, now, Math::max);
+        prune(now);
+
+        // Stored for the other nodes and the next start - this node applies it already
+        if (revocationDbService != null) {
+            try {
+                revocationDbService.saveRevocation(userId, now);
+            } catch (Exception e) {
+                logger.error("Failed to store token revocation of user {}: {}", userId, e.getMessage());
+            }
+        }
+        logger.info("Revoked tokens issued to user {} up to {}", userId, now);
+    }
+
+    // Rejects a single token until its expiry
+    public void revokeToken(String tokenId, Date expiration) {
+        if (tokenId == null || expiration == null) return;
+
+        long now = clock.millis();
+        long expiresAt = expiration.getTime();
+        if (expiresAt <= now) return;
+
+        revokedTokenIds.put(tokenId, expiresAt);
+        prune(now);
+        logger.info("Revoked token {}", tokenId);
+    }
+
+    // ========== CHECKING ==========
+
+    // Two map lookups, no I/O: cheap enough to run on every request
+    public boolean isRevoked(Claims claims) {
+        if (claims.getId() != null && revokedTokenIds.containsKey(claims.getId())) return true;
+
+        Long watermark = userWatermarks.get(claims.getSubject());
+        if (watermark == null) return false;
+
+        Object issuedAtMillis = claims.get(ISSUED_AT_MILLIS_CLAIM);
+        if (issuedAtMillis instanceof Number number) return number.longValue() < watermark;
+
+        // Without the millisecond claim the issue time is only known to the second, so a token from the watermark's
+        // own second may predate it and is rejected. One without any issued-at time cannot be placed after it.
+        Date issuedAt = claims.getIssuedAt();
+        return issuedAt == null || issuedAt.getTime() / 1000 <= watermark / 1000;
+    }
+
+    public int size() {
+        return userWatermarks.size() + revokedTokenIds.size();
+    }
+
+    // ========== POLLING ==========
+
+    // Merges the revocations stored since the previous poll, and deletes the ones no unexpired token predates
+    void pollRevocations() {
+        long now = clock.millis();
+        long since = lastPollMillis - POLL_OVERLAP_MILLIS;
+        for (TokenRevocation revocation : revocationDbService.getRevocationsSince(since)) {
+            userWatermarks.merge(revocation.getUserId(), revocation.getRevokedAtMillis(), Math::max);
+        }
+        lastPollMillis = now;
+
+        prune(now);
+        revocationDbService.deleteRevocationsBefore(now - tokenLifetimeMillis);
+    }
+
+    private void pollRevocationsSafely() {
+        try {
+            pollRevocations();
+        } catch (Exception e) {
+            logger.error("Failed to poll token revocations: {}", e.getMessage());
+        }
+    }
+
+    // ========== HELPERS ==========
+
+    // Every token issued before now - lifetime has expired, so watermarks older than that reject nothing
+    private void prune(long now) {
+        long oldestLiveIssue = now - tokenLifetimeMillis;
+        userWatermarks.values().removeIf(watermark -> watermark < oldestLiveIssue);
+        revokedTokenIds.values().removeIf(expiresAt -> expiresAt <= now);
+    }
+}
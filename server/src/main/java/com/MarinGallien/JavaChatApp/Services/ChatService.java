@@ -3,12 +3,13 @@ package com.MarinGallien.JavaChatApp.Services;
 import com.MarinGallien.JavaChatApp.DTOs.DataEntities.ChatDTO;
 import com.MarinGallien.JavaChatApp.Database.DatabaseServices.ChatDbService;
 import com.MarinGallien.JavaChatApp.Database.JPAEntities.Chat;
-import com.MarinGallien.JavaChatApp.EventSystem.EventBusService;
+import com.MarinGallien.JavaChatApp.EventSystem.ChatEventOutbox;
 import com.MarinGallien.JavaChatApp.EventSystem.Events.ChatEvents.ChatCreated;
 import com.MarinGallien.JavaChatApp.EventSystem.Events.ChatEvents.ChatDeleted;
 import com.MarinGallien.JavaChatApp.EventSystem.Events.ChatEvents.MemberAddedToChat;
 import com.MarinGallien.JavaChatApp.EventSystem.Events.ChatEvents.MemberRemovedFromChat;
 import com.MarinGallien.JavaChatApp.Database.Mappers.ChatMapper;
+import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -23,15 +24,19 @@ public class ChatService {
     private static final Logger logger = LoggerFactory.getLogger(ChatService.class);
 
     private final ChatDbService chatDbService;
-    private final EventBusService eventBus;
+    private final ChatEventOutbox chatEventOutbox;
     private final ChatMapper chatMapper;
 
-    public ChatService(ChatDbService chatDbService, EventBusService eventBus, ChatMapper chatMapper) {
+    public ChatService(ChatDbService chatDbService, ChatEventOutbox chatEventOutbox, ChatMapper chatMapper) {
         this.chatDbService = chatDbService;
-        this.eventBus = eventBus;
+        this.chatEventOutbox = chatEventOutbox;
         this.chatMapper = chatMapper;
     }
 
+    // Methods that change chats record their ChatManager event in the same transaction as the change, through the
+    // outbox: the event is delivered once the change commits and is dropped with it if it rolls back.
+
+    @Transactional
     public Chat createPrivateChat(String userId1, String userId2) {
         // Validate input parameters
         if (!validateId(userId1) || !validateId(userId2)) {
@@ -56,11 +61,12 @@ public class ChatService {
         // Notify chatManager
         Set<String> participants = Set.of(userId1, userId2);
         ChatCreated createdEvent = new ChatCreated(chat.getChatId(), participants);
-        eventBus.publishEvent(createdEvent);
+        chatEventOutbox.record(createdEvent);
 
         return chat;
     }
 
+    @Transactional
     public Chat createGroupChat(String creatorId, Set<String> memberIds, String chatName) {
         // Validate creator ID
         if (!validateId(creatorId)) {
@@ -102,11 +108,12 @@ public class ChatService {
 
         // Notify chatManager of new chat created
         ChatCreated createdEvent = new ChatCreated(chat.getChatId(), allMembersIds);
-        eventBus.publishEvent(createdEvent);
+        chatEventOutbox.record(createdEvent);
 
         return chat;
     }
 
+    @Transactional
     public boolean deleteChat(String userId, String chatId) {
         // Validate input parameters
         if (!validateId(userId) || !validateId(chatId)) {
@@ -125,11 +132,12 @@ public class ChatService {
 
         // Notify chatManager
         ChatDeleted deletedEvent = new ChatDeleted(chatId);
-        eventBus.publishEvent(deletedEvent);
+        chatEventOutbox.record(deletedEvent);
 
         return deleted;
     }
 
+    @Transactional
     public boolean addMember(String creatorId, String userId, String chatId) {
         // Validate input parameters
         if (!validateId(creatorId) || !validateId(userId) || !validateId(chatId)) {
@@ -148,11 +156,12 @@ public class ChatService {
 
         // Notify chatManager
         MemberAddedToChat addedEvent = new MemberAddedToChat(userId, chatId);
-        eventBus.publishEvent(addedEvent);
+        chatEventOutbox.record(addedEvent);
 
         return added;
     }
 
+    @Transactional
     public boolean removeMember(String creatorId, String userId, String chatId) {
         // Validate input parameters
         if (!validateId(creatorId) || !validateId(userId) || !validateId(chatId)) {
@@ -171,7 +180,7 @@ public class ChatService {
 
         // Notify chatManager
         MemberRemovedFromChat removedEvent = new MemberRemovedFromChat(userId, chatId);
-        eventBus.publishEvent(removedEvent);
+        chatEventOutbox.record(removedEvent);
 
         return removed;
     }
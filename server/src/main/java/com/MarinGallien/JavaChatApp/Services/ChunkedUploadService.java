@@ -0,0 +1,370 @@
+package com.MarinGallien.JavaChatApp.Services;
+
+import com.MarinGallien.JavaChatApp.Database.DatabaseServices.FileDbService;
+import com.MarinGallien.JavaChatApp.Database.JPAEntities.File;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Resumable uploads sent as fixed-size chunks. Each upload gets a staging file of the final size; chunks are written
+// straight into it at their offset with positional FileChannel writes, so they can arrive in any order, in parallel,
+// and be re-sent after a dropped connection. The File record is only created once every chunk has arrived.
+// Upload state is kept in memory - an upload interrupted by a server restart has to start again. Uploads that stop
+// receiving chunks are dropped by a background sweep once their TTL runs out.
+@Service
+public class ChunkedUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedUploadService.class);
+
+    private final FileDbService fileDbService;
+    private final long chunkSize;
+    private final long maxFileSize;
+    private final long sessionTtlMillis;
+    private final long expiryIntervalMillis;
+    private final Path stagingDir;
+
+    private ScheduledExecutorService scheduler;
+
+    // uploadId:session
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    public ChunkedUploadService(FileDbService fileDbService,
+                                @Value("${chat.files.upload.chunk-size:4194304}") long chunkSize,
+                                @Value("${chat.files.upload.max-size:1073741824}") long maxFileSize,
+                                @Value("${chat.files.upload.session-ttl-minutes:60}") long sessionTtlMinutes,
+                                @Value("${chat.files.upload.staging-dir:${chat.files.storage-dir:${java.io.tmpdir}/chat-app-uploads}/staging}") String stagingDir) {
+        this.fileDbService = fileDbService;
+        this.chunkSize = chunkSize;
+        this.maxFileSize = maxFileSize;
+        this.sessionTtlMillis = sessionTtlMinutes * 60_000;
+        // Check a few times per TTL so an idle upload outlives it by a quarter at most, but no more than once a second
+        this.expiryIntervalMillis = Math.max(1_000, Math.min(60_000, sessionTtlMillis / 4));
+        this.stagingDir = Paths.get(stagingDir);
+    }
+
+    // State of one upload. The channel stays open for the whole upload and is shared by concurrent chunk writes, which
+    // is safe because every write names its own position.
+    public static final class UploadSession {
+        private final String uploadId;
+        private final String userId;
+        private final String chatId;
+        private final String filename;
+        private final String fileType;
+        private final long fileSize;
+        private final String expectedSha256;
+        private final int chunkCount;
+        private final Path stagingFile;
+        private final FileChannel channel;
+
+        // Guarded by this
+        private final BitSet received;
+        private volatile long lastActivity;
+
+        UploadSession(String uploadId, String userId, String chatId, String filename, String fileType, long fileSize,
+                      String expectedSha256, int chunkCount, Path stagingFile, FileChannel channel) {
+            this.uploadId = uploadId;
+            this.userId = userId;
+            this.chatId = chatId;
+            this.filename = filename;
+            this.fileType = fileType;
+            this.fileSize = fileSize;
+            this.expectedSha256 = expectedSha256;
+            this.chunkCount = chunkCount;
+            this.stagingFile = stagingFile;
+            this.channel = channel;
+            this.received = new BitSet(chunkCount);
+            this.lastActivity = System.currentTimeMillis();
+        }
+
+        public String getUploadId() {return uploadId;}
+        public int getChunkCount() {return chunkCount;}
+
+        synchronized void markReceived(int index) {received.set(index);}
+        synchronized boolean isComplete() {return received.cardinality() == chunkCount;}
+
+        // Indexes of the chunks not received yet, in ascending order
+        public synchronized List<Integer> getMissingChunks() {
+            List<Integer> missing = new ArrayList<>(chunkCount - received.cardinality());
+            for (int i = received.nextClearBit(0); i < chunkCount; i = received.nextClearBit(i + 1)) {
+                missing.add(i);
+            }
+            return missing;
+        }
+
+        void touch() {lastActivity = System.currentTimeMillis();}
+    }
+
+    // ========== UPLOAD LIFECYCLE ==========
+
+    // Starts an upload and returns its session, or null if the user may not upload to the chat or the file is too big
+    public UploadSession initUpload(String userId, String chatId, String filename, long fileSize, String fileType,
+                                    String sha256) {
+        if (!validateId(userId) || !validateId(chatId) || filename == null || filename.isBlank()) {
+            logger.warn("Failed to start upload: user ID, chat ID or file name is null or empty");
+            return null;
+        }
+
+        if (fileSize <= 0 || fileSize > maxFileSize) {
+            logger.warn("Failed to start upload: file size {} is outside 1-{} bytes", fileSize, maxFileSize);
+            return null;
+        }
+
+        if (!fileDbService.isParticipant(userId, chatId)) {
+            logger.warn("Failed to start upload: user {} is not a member of chat {}", userId, chatId);
+            return null;
+        }
+
+        String uploadId = UUID.randomUUID().toString();
+        int chunkCount = (int) ((fileSize + chunkSize - 1) / chunkSize);
+
+        try {
+            Files.createDirectories(stagingDir);
+            Path stagingFile = stagingDir.resolve(uploadId + ".part");
+            FileChannel channel = FileChannel.open(stagingFile,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+            // Extend the file to its final size up front: transferFrom writes nothing at positions past the end, and
+            // chunks may arrive in any order. On most file systems the unwritten range stays sparse.
+            channel.write(ByteBuffer.wrap(new byte[1]), fileSize - 1);
+
+            UploadSession session = new UploadSession(uploadId, userId, chatId, filename,
+                    fileType != null && !fileType.isBlank() ? fileType : "application/octet-stream",
+                    fileSize, sha256, chunkCount, stagingFile, channel);
+            sessions.put(uploadId, session);
+
+            logger.info("Started upload {} of {} ({} bytes, {} chunks) to chat {}", uploadId, filename, fileSize,
+                    chunkCount, chatId);
+            return session;
+
+        } catch (IOException e) {
+            logger.error("Failed to create staging file for upload: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    // Writes chunk index from body into the staging file. contentLength is the request's declared length, or -1.
+    // Returns true once the whole chunk is on disk; a chunk that was already received is simply written again.
+    public boolean writeChunk(String userId, String uploadId, int index, InputStream body, long contentLength) {
+        UploadSession session = getSession(userId, uploadId);
+        if (session == null) return false;
+
+        if (index < 0 || index >= session.chunkCount) {
+            logger.warn("Failed to write chunk: index {} is outside 0-{} for upload {}", index, session.chunkCount - 1, uploadId);
+            return false;
+        }
+
+        long offset = index * chunkSize;
+        long expected = Math.min(chunkSize, session.fileSize - offset);
+        if (contentLength >= 0 && contentLength != expected) {
+            logger.warn("Failed to write chunk {} of upload {}: got {} bytes, expected {}", index, uploadId,
+                    contentLength, expected);
+            return false;
+        }
+
+        // Counts as activity from the start, so a slow chunk cannot be expired while it is still arriving
+        session.touch();
+
+        try {
+            // Positional transfer: the channel's own position is untouched, so parallel chunks do not interfere
+            ReadableByteChannel source = Channels.newChannel(body);
+            long written = 0;
+            while (written < expected) {
+                long transferred = session.channel.transferFrom(source, offset + written, expected - written);
+                if (transferred <= 0) break;
+                written += transferred;
+            }
+
+            if (written != expected) {
+                logger.warn("Chunk {} of upload {} ended early: {} of {} bytes", index, uploadId, written, expected);
+                return false;
+            }
+
+        } catch (IOException e) {
+            logger.warn("Failed to write chunk {} of upload {}: {}", index, uploadId, e.getMessage());
+            return false;
+        }
+
+        session.markReceived(index);
+        return true;
+    }
+
+    // Turns a fully received upload into a stored file. Returns the new File, or null if chunks are missing, the
+    // checksum does not match or the file could not be stored.
+    public File completeUpload(String userId, String uploadId) {
+        UploadSession session = getSession(userId, uploadId);
+        if (session == null) return null;
+
+        if (!session.isComplete()) {
+            logger.warn("Failed to complete upload {}: {} chunks missing", uploadId, session.getMissingChunks().size());
+            return null;
+        }
+
+        // Claim the session so a repeated complete cannot store the file twice
+        if (!sessions.remove(uploadId, session)) {
+            logger.warn("Failed to complete upload {}: already completed", uploadId);
+            return null;
+        }
+
+        try {
+            String checksum = sha256(session.channel);
+            session.channel.close();
+
+            if (session.expectedSha256 != null && !session.expectedSha256.equalsIgnoreCase(checksum)) {
+                logger.warn("Failed to complete upload {}: checksum mismatch", uploadId);
+                Files.deleteIfExists(session.stagingFile);
+                return null;
+            }
+
+            File file = fileDbService.storeUploadedFile(session.userId, session.chatId, session.filename,
+                    session.fileSize, session.fileType, session.stagingFile, checksum);
+            if (file == null) {
+                Files.deleteIfExists(session.stagingFile);
+                return null;
+            }
+
+            logger.info("Completed upload {} as file {}", uploadId, file.getFileId());
+            return file;
+
+        } catch (IOException e) {
+            logger.error("Failed to complete upload {}: {}", uploadId, e.getMessage());
+            discard(session);
+            return null;
+        }
+    }
+
+    // Drops an upload and its staging file
+    public boolean cancelUpload(String userId, String uploadId) {
+        UploadSession session = getSession(userId, uploadId);
+        if (session == null || !sessions.remove(uploadId, session)) return false;
+
+        discard(session);
+        logger.info("Cancelled upload {}", uploadId);
+        return true;
+    }
+
+    // Returns the session if it exists and belongs to userId, or null
+    public UploadSession getSession(String userId, String uploadId) {
+        if (!validateId(userId) || !validateId(uploadId)) return null;
+
+        UploadSession session = sessions.get(uploadId);
+        if (session == null) {
+            logger.warn("Upload {} does not exist or has expired", uploadId);
+            return null;
+        }
+
+        if (!session.userId.equals(userId)) {
+            logger.warn("User {} does not own upload {}", userId, uploadId);
+            return null;
+        }
+        return session;
+    }
+
+    public long getChunkSize() {return chunkSize;}
+    public int getActiveUploadCount() {return sessions.size();}
+
+    // ========== CLEANUP ==========
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "UploadExpiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::expireIdleUploadsSafely, expiryIntervalMillis, expiryIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    private void expireIdleUploadsSafely() {
+        try {
+            expireIdleUploads();
+        } catch (Exception e) {
+            logger.error("Unexpected error while expiring uploads: {}", e.getMessage());
+        }
+    }
+
+    // Removes uploads that have not received a chunk within the session TTL
+    void expireIdleUploads() {
+        long cutoff = System.currentTimeMillis() - sessionTtlMillis;
+        sessions.values().removeIf(session -> {
+            if (session.lastActivity >= cutoff) return false;
+            logger.info("Expiring idle upload {}", session.uploadId);
+            discard(session);
+            return true;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        sessions.values().forEach(this::discard);
+        sessions.clear();
+    }
+
+    private void discard(UploadSession session) {
+        try {
+            session.channel.close();
+            Files.deleteIfExists(session.stagingFile);
+        } catch (IOException e) {
+            logger.warn("Failed to delete staging file of upload {}: {}", session.uploadId, e.getMessage());
+        }
+    }
+
+    // Hex SHA-256 of the staging file, read sequentially once every chunk is in
+    private String sha256(FileChannel channel) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+        long position = 0;
+        int read;
+        while ((read = channel.read(buffer, position)) != -1) {
+            position += read;
+            buffer.flip();
+            digest.update(buffer);
+            buffer.clear();
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private boolean validateId(String Id) {
+        return Id != null && !Id.trim().isEmpty();
+    }
+}
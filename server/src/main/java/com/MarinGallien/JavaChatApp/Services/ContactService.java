@@ -5,10 +5,16 @@ import com.MarinGallien.JavaChatApp.Database.DatabaseServices.ContactDbService;
 import com.MarinGallien.JavaChatApp.Database.JPAEntities.User;
 import com.MarinGallien.JavaChatApp.Database.JPAEntities.Contact;
 import com.MarinGallien.JavaChatApp.Database.Mappers.UserMapper;
+import com.MarinGallien.JavaChatApp.EventSystem.EventBusService;
+import com.MarinGallien.JavaChatApp.EventSystem.Events.ContactEvents.ContactCreated;
+import com.MarinGallien.JavaChatApp.EventSystem.Events.ContactEvents.ContactEvents;
+import com.MarinGallien.JavaChatApp.EventSystem.Events.ContactEvents.ContactRemoved;
 import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
 
@@ -20,10 +26,12 @@ public class ContactService{
 
     private final ContactDbService contactDbService;
     private final UserMapper userMapper;
+    private final EventBusService eventBus;
 
-    public ContactService(ContactDbService contactDbService, UserMapper userMapper) {
+    public ContactService(ContactDbService contactDbService, UserMapper userMapper, EventBusService eventBus) {
         this.contactDbService = contactDbService;
         this.userMapper = userMapper;
+        this.eventBus = eventBus;
     }
 
     public Contact createContact(String userId, String contactUserId) {
@@ -46,6 +54,9 @@ public class ContactService{
             return null;
         }
 
+        // Notify contactManager
+        publishAfterCommit(new ContactCreated(userId, contactUserId));
+
         logger.info("Successfully created contact between user {} and {}", userId, contactUserId);
         return createdContact;
     }
@@ -70,6 +81,9 @@ public class ContactService{
             return false;
         }
 
+        // Notify contactManager
+        publishAfterCommit(new ContactRemoved(userId, contactUserId));
+
         logger.info("Successfully removed contact between user {} and {}", userId, contactUserId);
         return true;
     }
@@ -90,6 +104,21 @@ public class ContactService{
         return users;
     }
 
+    // Publishes once the caller's transaction commits, so ContactManager never sees a contact that was rolled back.
+    // Without a transaction the change is already stored and the event is published at once.
+    private void publishAfterCommit(ContactEvents event) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eventBus.publishEvent(event);
+                }
+            });
+        } else {
+            eventBus.publishEvent(event);
+        }
+    }
+
     private boolean validateId(String id) {
         return id != null && !id.trim().isEmpty();
     }
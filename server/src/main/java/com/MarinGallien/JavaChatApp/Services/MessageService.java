@@ -1,25 +1,34 @@
 package com.MarinGallien.JavaChatApp.Services;
 
 import com.MarinGallien.JavaChatApp.DTOs.DataEntities.MessageDTO;
+import com.MarinGallien.JavaChatApp.Database.DatabaseServices.MessageBatchWriter;
 import com.MarinGallien.JavaChatApp.Database.DatabaseServices.MessageDbService;
 import com.MarinGallien.JavaChatApp.Database.JPAEntities.Message;
-import com.MarinGallien.JavaChatApp.Database.Mappers.MessageMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 @Service
 public class MessageService {
     private static Logger logger = LoggerFactory.getLogger(MessageDbService.class);
 
+    // History page size limits
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final String CURSOR_SEPARATOR = "|";
+
     private final MessageDbService messageDbService;
-    private final MessageMapper messageMapper;
+    private final MessageBatchWriter messageBatchWriter;
 
-    public MessageService(MessageDbService messageDbService, MessageMapper messageMapper) {
+    public MessageService(MessageDbService messageDbService, MessageBatchWriter messageBatchWriter) {
         this.messageDbService = messageDbService;
-        this.messageMapper = messageMapper;
+        this.messageBatchWriter = messageBatchWriter;
     }
 
     public Message saveMessage(String userId, String chatId, String content) {
@@ -40,24 +49,136 @@ public class MessageService {
         return message;
     }
 
+    // Queues a message for write-behind persistence. Caller is responsible for checking chat membership first,
+    // since the batch writer does not re-validate sender and chat.
+    public boolean queueMessage(String userId, String chatId, String content) {
+        if (!validateId(userId) || !validateId(chatId) || content == null || content.trim().isEmpty()) {
+            logger.warn("Failed to queue message: missing required fields");
+            return false;
+        }
+
+        MessageBatchWriter.PendingMessage queued = messageBatchWriter.enqueue(userId, chatId, content);
+
+        if (queued == null) {
+            logger.warn("Failed to queue message from {} to chat {}", userId, chatId);
+            return false;
+        }
+
+        logger.debug("Queued message {} for persistence", queued.messageId());
+        return true;
+    }
+
     public List<MessageDTO> getChatMessages(String userId, String chatId) {
         if (!validateId(userId) || !validateId(chatId)) {
             logger.warn("Failed to save message: sender or chat ID is null or empty");
             return List.of();
         }
 
-        // Retrieve messages from database
-        List<Message> messages = messageDbService.getChatMessages(userId, chatId);
+        // Retrieve messages from database, already projected into DTOs
+        List<MessageDTO> messages = messageDbService.getChatMessageDTOs(userId, chatId);
 
         // Make sure something was retrieved
+        if (messages == null) {
+            logger.warn("Failed to retrieve chat messages from the database");
+            return List.of();
+        }
+
         if (!messages.isEmpty()) {
             logger.info("Successfully retrieved chat messages from the database");
         } else {
             logger.info("No messages were found in this chat");
         }
 
-        // Convert to DTO and return
-        return messageMapper.toDTOList(messages);
+        return messages;
+    }
+
+    // Page of chat history in chronological order, with cursors to page further in either direction
+    public record MessagePage(List<MessageDTO> messages, String olderCursor, String newerCursor, boolean hasMore) {}
+
+    // Retrieves one page of history. With no cursor returns the latest page, with before returns the page just older
+    // than that cursor, with after the page just newer. Returns null if the request is invalid.
+    //
+    // Messages are written behind their broadcast, so one can reach the database after a message sent later than it.
+    // Paging forward past it would skip it for good, so after pages stop at MessageBatchWriter.getSettledBefore and
+    // newerCursor never points past it: an after page can repeat the newest messages of the page before it, and
+    // newerCursor is null when none of the page has settled yet. hasMore only counts settled messages, newer ones are
+    // returned by a later request.
+    public MessagePage getMessagePage(String userId, String chatId, String before, String after, Integer limit) {
+        if (!validateId(userId) || !validateId(chatId)) {
+            logger.warn("Failed to retrieve message page: user or chat ID is null or empty");
+            return null;
+        }
+
+        if (before != null && after != null) {
+            logger.warn("Failed to retrieve message page: both before and after cursors were given");
+            return null;
+        }
+
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        // Fetch one extra row to know whether more messages exist past this page
+        List<MessageDTO> rows;
+        if (before != null) {
+            Cursor cursor = decodeCursor(before);
+            if (cursor == null) return null;
+            rows = messageDbService.getMessagesBefore(userId, chatId, cursor.sentAt(), cursor.messageId(), pageSize + 1);
+        } else if (after != null) {
+            Cursor cursor = decodeCursor(after);
+            if (cursor == null) return null;
+            rows = messageDbService.getMessagesAfter(userId, chatId, cursor.sentAt(), cursor.messageId(),
+                    messageBatchWriter.getSettledBefore(), pageSize + 1);
+        } else {
+            rows = messageDbService.getLatestMessages(userId, chatId, pageSize + 1);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<MessageDTO> page = new ArrayList<>(hasMore ? rows.subList(0, pageSize) : rows);
+
+        // Latest and before queries come back newest first
+        if (after == null) {
+            Collections.reverse(page);
+        }
+
+        if (page.isEmpty()) {
+            return new MessagePage(List.of(), before, after, false);
+        }
+
+        String olderCursor = encodeCursor(page.get(0));
+        String newerCursor = after != null
+                ? encodeCursor(page.get(page.size() - 1))
+                : settledCursor(page, messageBatchWriter.getSettledBefore());
+
+        return new MessagePage(page, olderCursor, newerCursor, hasMore);
+    }
+
+    private record Cursor(LocalDateTime sentAt, String messageId) {}
+
+    private String encodeCursor(MessageDTO message) {
+        return message.getSentAt() + CURSOR_SEPARATOR + message.getMessageId();
+    }
+
+    // Cursor of the newest message of page sent before settledBefore, or null if there is none
+    private String settledCursor(List<MessageDTO> page, LocalDateTime settledBefore) {
+        for (int i = page.size() - 1; i >= 0; i--) {
+            if (page.get(i).getSentAt().isBefore(settledBefore)) return encodeCursor(page.get(i));
+        }
+        return null;
+    }
+
+    private Cursor decodeCursor(String cursor) {
+        int separator = cursor.indexOf(CURSOR_SEPARATOR);
+        if (separator <= 0 || separator == cursor.length() - 1) {
+            logger.warn("Invalid message cursor: {}", cursor);
+            return null;
+        }
+
+        try {
+            LocalDateTime sentAt = LocalDateTime.parse(cursor.substring(0, separator));
+            return new Cursor(sentAt, cursor.substring(separator + 1));
+        } catch (DateTimeParseException e) {
+            logger.warn("Invalid message cursor timestamp: {}", cursor);
+            return null;
+        }
     }
 
     private boolean validateId(String Id) {
@@ -6,6 +6,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.util.Map;
+
 @Service
 public class SessionService {
 
@@ -42,6 +44,24 @@ public class SessionService {
         return newStatus;
     }
 
+    // Stores the statuses of a batch of users. Returns the number of users updated.
+    public int updateUserStatuses(Map<String, OnlineStatus> statuses) {
+        if (statuses == null || statuses.isEmpty()) return 0;
+
+        for (Map.Entry<String, OnlineStatus> entry : statuses.entrySet()) {
+            if (!validateId(entry.getKey()) || entry.getValue() == null) {
+                logger.warn("Failed to update user statuses: a user ID or status is null or empty");
+                return 0;
+            }
+        }
+
+        int updated = sessionDbService.updateStatuses(statuses);
+        if (updated != statuses.size()) {
+            logger.warn("Updated the status of {} of {} users", updated, statuses.size());
+        }
+        return updated;
+    }
+
     private boolean validateId(String Id) {
         return Id != null && !Id.trim().isEmpty();
     }
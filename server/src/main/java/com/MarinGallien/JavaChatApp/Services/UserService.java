@@ -3,6 +3,7 @@ package com.MarinGallien.JavaChatApp.Services;
 import com.MarinGallien.JavaChatApp.Database.DatabaseServices.UserDbService;
 import com.MarinGallien.JavaChatApp.Database.JPAEntities.User;
 import com.MarinGallien.JavaChatApp.Services.AuthService.JWTService;
+import com.MarinGallien.JavaChatApp.Services.AuthService.TokenRevocationList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -13,10 +14,12 @@ public class UserService {
 
     private final UserDbService userDbService;
     private final JWTService jwtService;
+    private final TokenRevocationList revocationList;
 
-    public UserService(UserDbService userDbService, JWTService jwtService) {
+    public UserService(UserDbService userDbService, JWTService jwtService, TokenRevocationList revocationList) {
         this.userDbService = userDbService;
         this.jwtService = jwtService;
+        this.revocationList = revocationList;
     }
 
     public User createUser(String username, String email, String password) {
@@ -95,6 +98,9 @@ public class UserService {
             return false;
         }
 
+        // Tokens are trusted without a user lookup, so the deleted user's tokens must be rejected explicitly
+        revocationList.revokeUser(userId);
+
         logger.info("Successfully deleted user {}", userId);
         return true;
     }
@@ -162,6 +168,9 @@ public class UserService {
             return false;
         }
 
+        // Sign out every session opened with the old password
+        revocationList.revokeUser(userId);
+
         logger.info("Successfully updated password for user {}", userId);
         return true;
     }
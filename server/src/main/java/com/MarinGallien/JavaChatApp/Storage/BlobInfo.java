@@ -0,0 +1,4 @@
+package com.MarinGallien.JavaChatApp.Storage;
+
+// Metadata of a stored object: its size in bytes and last modification time in epoch milliseconds
+public record BlobInfo(String key, long size, long lastModified) {}
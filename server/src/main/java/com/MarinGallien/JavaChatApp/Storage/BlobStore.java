@@ -0,0 +1,33 @@
+package com.MarinGallien.JavaChatApp.Storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+// Where stored file bytes live. Keys are relative, slash-separated names such as "blobs/ab/cd/abcd...". Objects are
+// written once from a local file and then only read or deleted, and every read is a stream, so no implementation
+// holds a whole object in memory.
+public interface BlobStore {
+
+    // Stores the file at source under key, replacing any object already there. source is consumed: it is moved into
+    // the store or deleted once its bytes have been sent.
+    void put(String key, Path source) throws IOException;
+
+    // Streams the whole object. Throws NoSuchFileException if there is no object under key.
+    InputStream get(String key) throws IOException;
+
+    // Streams length bytes of the object starting at start. Throws NoSuchFileException if there is no object under key.
+    InputStream getRange(String key, long start, long length) throws IOException;
+
+    // Size and modification time of the object, or null if there is no object under key
+    BlobInfo stat(String key) throws IOException;
+
+    // Removes the object. Returns false if there was nothing to remove, as far as the store can tell.
+    boolean delete(String key) throws IOException;
+
+    // The object as a file on this machine, if the store keeps it as one, so it can be served with zero-copy
+    // transfers. Null for remote stores.
+    default Path localPath(String key) {
+        return null;
+    }
+}
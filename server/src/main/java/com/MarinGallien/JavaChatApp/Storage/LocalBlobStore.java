@@ -0,0 +1,76 @@
+package com.MarinGallien.JavaChatApp.Storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+// Keeps objects as files under a root directory, the key being the relative path. Only usable by a single server, or
+// by several sharing a network file system.
+public class LocalBlobStore implements BlobStore {
+
+    private final Path root;
+
+    public LocalBlobStore(Path root) {
+        this.root = root.toAbsolutePath().normalize();
+    }
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+
+        // A rename when source is on the same file system as the store
+        Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        return Files.newInputStream(resolve(key));
+    }
+
+    @Override
+    public InputStream getRange(String key, long start, long length) throws IOException {
+        FileChannel channel = FileChannel.open(resolve(key), StandardOpenOption.READ);
+        channel.position(start);
+        return new LimitedInputStream(Channels.newInputStream(channel), length);
+    }
+
+    @Override
+    public BlobInfo stat(String key) throws IOException {
+        Path path = resolve(key);
+        if (!Files.exists(path)) return null;
+
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        return new BlobInfo(key, attributes.size(), attributes.lastModifiedTime().toMillis());
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        return Files.deleteIfExists(resolve(key));
+    }
+
+    @Override
+    public Path localPath(String key) {
+        return resolve(key);
+    }
+
+    // Rows written before the blob store existed hold absolute paths rather than keys, those are used as they are.
+    // Relative keys may not climb out of the root.
+    private Path resolve(String key) {
+        Path path = Paths.get(key);
+        if (path.isAbsolute()) return path;
+
+        Path resolved = root.resolve(path).normalize();
+        if (!resolved.startsWith(root)) {
+            throw new IllegalArgumentException("Key outside the store: " + key);
+        }
+        return resolved;
+    }
+}
@@ -0,0 +1,350 @@
+package com.MarinGallien.JavaChatApp.Storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+// Keeps objects in a bucket of any S3-compatible service (AWS S3, MinIO, Ceph RGW...), using path-style URLs and
+// Signature Version 4. Requests go through java.net.http so no SDK is needed. Bodies are never buffered: uploads are
+// streamed from the source file, split into a multipart upload above partSize, and downloads are handed back as the
+// response stream.
+public class S3BlobStore implements BlobStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(S3BlobStore.class);
+
+    // Payloads are not hashed, which would mean reading every part twice; the connection should use TLS instead
+    private static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+    private static final DateTimeFormatter AMZ_DATE =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+    private static final Pattern UPLOAD_ID = Pattern.compile("<UploadId>([^<]+)</UploadId>");
+
+    private final HttpClient httpClient;
+    private final String endpoint;
+    private final String bucket;
+    private final String region;
+    private final String accessKey;
+    private final String secretKey;
+    private final long partSize;
+    private final Clock clock;
+
+    public S3BlobStore(URI endpoint, String bucket, String region, String accessKey, String secretKey, long partSize) {
+        this(endpoint, bucket, region, accessKey, secretKey, partSize, Clock.systemUTC());
+    }
+
+    S3BlobStore(URI endpoint, String bucket, String region, String accessKey, String secretKey, long partSize,
+                Clock clock) {
+        String base = endpoint.toString();
+        this.endpoint = base.endsWith("/") ? base.substring(0, base.length() - 1) : base;
+        this.bucket = bucket;
+        this.region = region;
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.partSize = partSize;
+        this.clock = clock;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    // ========== BLOB STORE ==========
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        try {
+            long size = Files.size(source);
+            if (size <= partSize) {
+                HttpResponse<String> response = send(request("PUT", key, Map.of(), Map.of(),
+                        BodyPublishers.ofFile(source)), HttpResponse.BodyHandlers.ofString());
+                expectSuccess(response, "PUT", key);
+            } else {
+                putMultipart(key, source, size);
+            }
+        } finally {
+            Files.deleteIfExists(source);
+        }
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        HttpResponse<InputStream> response = send(request("GET", key, Map.of(), Map.of(), BodyPublishers.noBody()),
+                HttpResponse.BodyHandlers.ofInputStream());
+        return bodyOrThrow(response, key);
+    }
+
+    @Override
+    public InputStream getRange(String key, long start, long length) throws IOException {
+        Map<String, String> headers = Map.of("range", "bytes=" + start + "-" + (start + length - 1));
+        HttpResponse<InputStream> response = send(request("GET", key, Map.of(), headers, BodyPublishers.noBody()),
+                HttpResponse.BodyHandlers.ofInputStream());
+        InputStream body = bodyOrThrow(response, key);
+
+        // A service that ignores Range sends the whole object
+        if (response.statusCode() == 200) {
+            body.skipNBytes(start);
+            return new LimitedInputStream(body, length);
+        }
+        return body;
+    }
+
+    @Override
+    public BlobInfo stat(String key) throws IOException {
+        HttpResponse<Void> response = send(request("HEAD", key, Map.of(), Map.of(), BodyPublishers.noBody()),
+                HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 404) return null;
+        expectSuccess(response, "HEAD", key);
+
+        long size = response.headers().firstValueAsLong("Content-Length").orElse(0);
+        long lastModified = response.headers().firstValue("Last-Modified")
+                .map(value -> ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli())
+                .orElse(0L);
+        return new BlobInfo(key, size, lastModified);
+    }
+
+    // S3 answers 204 whether or not the object existed, so this only reports false on errors
+    @Override
+    public boolean delete(String key) throws IOException {
+        HttpResponse<String> response = send(request("DELETE", key, Map.of(), Map.of(), BodyPublishers.noBody()),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() == 404) return false;
+        expectSuccess(response, "DELETE", key);
+        return true;
+    }
+
+    // ========== MULTIPART UPLOAD ==========
+
+    // Sends the file as consecutive parts of partSize bytes, each streamed from its own slice of the file. An upload
+    // that fails part-way is aborted so the service does not keep the parts.
+    private void putMultipart(String key, Path source, long size) throws IOException {
+        HttpResponse<String> initiated = send(request("POST", key, Map.of("uploads", ""), Map.of(),
+                BodyPublishers.noBody()), HttpResponse.BodyHandlers.ofString());
+        expectSuccess(initiated, "initiate multipart upload of", key);
+
+        Matcher matcher = UPLOAD_ID.matcher(initiated.body());
+        if (!matcher.find()) throw new IOException("No upload ID in multipart upload response for " + key);
+        String uploadId = matcher.group(1);
+
+        try {
+            List<String> eTags = new ArrayList<>();
+            int partNumber = 1;
+            for (long offset = 0; offset < size; offset += partSize, partNumber++) {
+                long length = Math.min(partSize, size - offset);
+                long partOffset = offset;
+
+                BodyPublisher body = BodyPublishers.fromPublisher(
+                        BodyPublishers.ofInputStream(() -> openSlice(source, partOffset, length)), length);
+                HttpResponse<String> response = send(request("PUT", key,
+                        Map.of("partNumber", String.valueOf(partNumber), "uploadId", uploadId), Map.of(), body),
+                        HttpResponse.BodyHandlers.ofString());
+                expectSuccess(response, "upload part " + partNumber + " of", key);
+
+                eTags.add(response.headers().firstValue("ETag")
+                        .orElseThrow(() -> new IOException("No ETag for uploaded part of " + key)));
+            }
+
+            HttpResponse<String> completed = send(request("POST", key, Map.of("uploadId", uploadId), Map.of(),
+                    BodyPublishers.ofString(completeMultipartBody(eTags))), HttpResponse.BodyHandlers.ofString());
+            expectSuccess(completed, "complete multipart upload of", key);
+
+            // S3 can report a failed completion with a 200 status, the error is then in the body
+            if (completed.body().contains("<Error>")) {
+                throw new IOException("Failed to complete multipart upload of " + key + ": " + completed.body());
+            }
+
+            logger.info("Uploaded {} in {} parts", key, eTags.size());
+
+        } catch (IOException | RuntimeException e) {
+            abortMultipart(key, uploadId);
+            throw e;
+        }
+    }
+
+    private void abortMultipart(String key, String uploadId) {
+        try {
+            send(request("DELETE", key, Map.of("uploadId", uploadId), Map.of(), BodyPublishers.noBody()),
+                    HttpResponse.BodyHandlers.discarding());
+        } catch (IOException e) {
+            logger.warn("Failed to abort multipart upload {} of {}: {}", uploadId, key, e.getMessage());
+        }
+    }
+
+    private static InputStream openSlice(Path source, long offset, long length) {
+        try {
+            FileChannel channel = FileChannel.open(source, StandardOpenOption.READ);
+            channel.position(offset);
+            return new LimitedInputStream(Channels.newInputStream(channel), length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String completeMultipartBody(List<String> eTags) {
+        StringBuilder xml = new StringBuilder("<CompleteMultipartUpload>");
+        for (int i = 0; i < eTags.size(); i++) {
+            xml.append("<Part><PartNumber>").append(i + 1).append("</PartNumber><ETag>")
+                    .append(eTags.get(i)).append("</ETag></Part>");
+        }
+        return xml.append("</CompleteMultipartUpload>").toString();
+    }
+
+    // ========== REQUESTS ==========
+
+    private HttpRequest request(String method, String key, Map<String, String> query, Map<String, String> headers,
+                                BodyPublisher body) {
+        String canonicalUri = "/" + encode(bucket) + "/" + encodeKey(key);
+        String canonicalQuery = canonicalQuery(query);
+        URI uri = URI.create(endpoint + canonicalUri + (canonicalQuery.isEmpty() ? "" : "?" + canonicalQuery));
+
+        Instant now = clock.instant();
+        SortedMap<String, String> signedHeaders = new TreeMap<>(headers);
+        signedHeaders.put("host", hostHeader(uri));
+        signedHeaders.put("x-amz-content-sha256", UNSIGNED_PAYLOAD);
+        signedHeaders.put("x-amz-date", AMZ_DATE.format(now));
+
+        String authorization = authorization(accessKey, secretKey, region, method, canonicalUri, canonicalQuery,
+                signedHeaders, UNSIGNED_PAYLOAD, now);
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri).method(method, body);
+        // The client sets Host itself, from the URI
+        signedHeaders.forEach((name, value) -> {
+            if (!name.equals("host")) builder.header(name, value);
+        });
+        return builder.header("Authorization", authorization).build();
+    }
+
+    private <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler) throws IOException {
+        try {
+            return httpClient.send(request, handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted during " + request.method() + " " + request.uri());
+        }
+    }
+
+    private static InputStream bodyOrThrow(HttpResponse<InputStream> response, String key) throws IOException {
+        if (response.statusCode() / 100 == 2) return response.body();
+
+        response.body().close();
+        if (response.statusCode() == 404) throw new NoSuchFileException(key);
+        throw new IOException("Failed to GET " + key + ": HTTP " + response.statusCode());
+    }
+
+    private static void expectSuccess(HttpResponse<?> response, String action, String key) throws IOException {
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("Failed to " + action + " " + key + ": HTTP " + response.statusCode());
+        }
+    }
+
+    // ========== SIGNATURE VERSION 4 ==========
+
+    // Authorization header for a request whose canonical URI, query and headers are given. headers must include host
+    // and the x-amz-* headers, with lower-case names; all of them are signed.
+    static String authorization(String accessKey, String secretKey, String region, String method,
+                                String canonicalUri, String canonicalQuery, SortedMap<String, String> headers,
+                                String payloadHash, Instant time) {
+        String amzDate = AMZ_DATE.format(time);
+        String date = amzDate.substring(0, 8);
+        String scope = date + "/" + region + "/s3/aws4_request";
+
+        String canonicalHeaders = headers.entrySet().stream()
+                .map(header -> header.getKey() + ":" + header.getValue().trim() + "\n")
+                .collect(Collectors.joining());
+        String signedHeaders = String.join(";", headers.keySet());
+
+        String canonicalRequest = method + "\n" + canonicalUri + "\n" + canonicalQuery + "\n" + canonicalHeaders + "\n"
+                + signedHeaders + "\n" + payloadHash;
+        String stringToSign = "AWS4-HMAC-SHA256\n" + amzDate + "\n" + scope + "\n" + sha256Hex(canonicalRequest);
+
+        byte[] signingKey = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), date);
+        signingKey = hmac(signingKey, region);
+        signingKey = hmac(signingKey, "s3");
+        signingKey = hmac(signingKey, "aws4_request");
+        String signature = HexFormat.of().formatHex(hmac(signingKey, stringToSign));
+
+        return "AWS4-HMAC-SHA256 Credential=" + accessKey + "/" + scope + ",SignedHeaders=" + signedHeaders
+                + ",Signature=" + signature;
+    }
+
+    // Query parameters sorted by name, names and values percent-encoded
+    static String canonicalQuery(Map<String, String> query) {
+        return new TreeMap<>(query).entrySet().stream()
+                .map(param -> encode(param.getKey()) + "=" + encode(param.getValue()))
+                .collect(Collectors.joining("&"));
+    }
+
+    // Host as the HTTP client will send it, with the port only when it is not the scheme's default
+    private static String hostHeader(URI uri) {
+        int port = uri.getPort();
+        boolean defaultPort = port == -1
+                || (port == 80 && "http".equals(uri.getScheme()))
+                || (port == 443 && "https".equals(uri.getScheme()));
+        return defaultPort ? uri.getHost() : uri.getHost() + ":" + port;
+    }
+
+    // RFC 3986 encoding as SigV4 expects it: only unreserved characters are left as they are
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8)
+                .replace("+", "%20")
+                .replace("*", "%2A")
+                .replace("%7E", "~");
+    }
+
+    private static String encodeKey(String key) {
+        return encode(key).replace("%2F", "/");
+    }
+
+    private static String sha256Hex(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] hmac(byte[] key, String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
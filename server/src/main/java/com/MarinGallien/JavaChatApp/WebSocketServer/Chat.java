@@ -6,10 +6,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.UUID;
 
+// Chat members are kept as a sorted array of interned user IDs. The array is never modified once published: changes
+// build a new array under the chat's lock, so readers take a snapshot with a single volatile read and can iterate it
+// without locking, copying or allocating.
 public class Chat {
     private static final Logger logger = LoggerFactory.getLogger(Chat.class);
     // Parameters
@@ -19,16 +22,26 @@ public class Chat {
     @NotBlank(message = "Creation timestamp cannot be blank")
     private Long createdAt;
 
-    private final Set<String> participants = ConcurrentHashMap.newKeySet();
+    private static final int[] NO_MEMBERS = new int[0];
+
+    // Maps user IDs to the ints stored in members, usually shared by every chat of a ChatManager
+    private final IdInterner userIds;
+
+    // Sorted, copy-on-write
+    private volatile int[] members = NO_MEMBERS;
 
     // Default constructor generates chatId internally
     public Chat() {
-        this.chatId = generateChatId();
-        this.createdAt = Instant.now().toEpochMilli();
+        this(generateChatId(), new IdInterner());
     }
 
     public Chat(String chatId) {
+        this(chatId, new IdInterner());
+    }
+
+    public Chat(String chatId, IdInterner userIds) {
         this.chatId = chatId;
+        this.userIds = userIds;
         this.createdAt = Instant.now().toEpochMilli();
     }
 
@@ -51,7 +64,7 @@ public class Chat {
         }
 
         // Add user to chat
-        boolean wasAdded = participants.add(userID.trim());
+        boolean wasAdded = addMemberId(userIds.intern(userID.trim()));
 
         if (wasAdded) {
             logger.info("Added user {} to chat {}.", userID, chatId);
@@ -70,7 +83,8 @@ public class Chat {
             return false;
         }
 
-        boolean wasRemoved = participants.remove(userID.trim());
+        int id = userIds.lookup(userID.trim());
+        boolean wasRemoved = id != IdInterner.UNKNOWN && removeMemberId(id);
 
         if (wasRemoved) {
             logger.info("Removed user {} to chat {}.", userID, chatId);
@@ -88,23 +102,73 @@ public class Chat {
             return false;
         }
 
-        return participants.contains(userID);
+        int id = userIds.lookup(userID);
+        return id != IdInterner.UNKNOWN && Arrays.binarySearch(members, id) >= 0;
     }
 
-    // Method returns the participants of the chat
+    // Inserts an interned user ID, keeping the array sorted
+    private synchronized boolean addMemberId(int id) {
+        int[] current = members;
+        int pos = Arrays.binarySearch(current, id);
+        if (pos >= 0) return false;
+
+        int insertAt = -pos - 1;
+        int[] updated = new int[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, insertAt);
+        updated[insertAt] = id;
+        System.arraycopy(current, insertAt, updated, insertAt + 1, current.length - insertAt);
+        members = updated;
+        return true;
+    }
+
+    private synchronized boolean removeMemberId(int id) {
+        int[] current = members;
+        int pos = Arrays.binarySearch(current, id);
+        if (pos < 0) return false;
+
+        int[] updated = new int[current.length - 1];
+        System.arraycopy(current, 0, updated, 0, pos);
+        System.arraycopy(current, pos + 1, updated, pos, current.length - pos - 1);
+        members = updated.length == 0 ? NO_MEMBERS : updated;
+        return true;
+    }
+
+    // Replaces the members with a sorted, duplicate-free array of interned user IDs in one step. Used for bulk loads,
+    // where adding members one at a time would copy the array once per member. Returns false if they were already
+    // exactly those.
+    synchronized boolean replaceMembers(int[] sortedIds) {
+        if (Arrays.equals(members, sortedIds)) return false;
+        members = sortedIds.length == 0 ? NO_MEMBERS : sortedIds;
+        return true;
+    }
+
+    // Method returns the participants of the chat as a new set of user IDs
     public Set<String> getMembers() {
-        return Set.copyOf(participants);
+        int[] snapshot = members;
+        String[] names = new String[snapshot.length];
+        for (int i = 0; i < snapshot.length; i++) {
+            names[i] = userIds.nameOf(snapshot[i]);
+        }
+        return Set.of(names);
+    }
+
+    // Returns the current members as interned IDs, resolved with getUserIds().nameOf. The array is shared and must
+    // not be modified - later membership changes do not affect it.
+    public int[] getMemberIds() {
+        return members;
     }
 
+    public IdInterner getUserIds() {return userIds;}
+
     // Returns the number of participants in a chat
     public int getMembersCount() {
-        return participants.size();
+        return members.length;
     }
 
     // Removes members from chat
-    public boolean clearChat() {
-        int count = participants.size();
-        participants.clear();
+    public synchronized boolean clearChat() {
+        int count = members.length;
+        members = NO_MEMBERS;
 
         logger.info("Cleared all {} participants from chat {}", count, chatId);
         return true;
@@ -112,7 +176,7 @@ public class Chat {
 
     // Checks if the chat is empty
     public boolean isEmpty() {
-        return participants.isEmpty();
+        return members.length == 0;
     }
 
     // Overrides equals method for chat comparison
@@ -128,7 +192,7 @@ public class Chat {
     }
 
     // Returns a chat ID
-    private String generateChatId() {
+    private static String generateChatId() {
         return "chat_" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
     }
 
@@ -144,7 +208,7 @@ public class Chat {
         return "chat{" +
                 "chatId='" + chatId + '\'' +
                 ", createdAt=" + createdAt +
-                ", participantCount=" + participants.size() +
+                ", participantCount=" + members.length +
                 '}';
     }
 }
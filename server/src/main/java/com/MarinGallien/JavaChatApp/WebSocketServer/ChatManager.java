@@ -1,19 +1,31 @@
 package com.MarinGallien.JavaChatApp.WebSocketServer;
 
 import com.MarinGallien.JavaChatApp.Database.DatabaseServices.ChatDbService;
+import com.MarinGallien.JavaChatApp.Database.DatabaseServices.ChatDbService.MembershipDigest;
+import com.MarinGallien.JavaChatApp.Database.DatabaseServices.ChatOutboxDbService;
+import com.MarinGallien.JavaChatApp.Database.JPAEntities.ChatParticipant;
+import com.MarinGallien.JavaChatApp.EventSystem.SequenceWatermark;
 import com.MarinGallien.JavaChatApp.EventSystem.Events.ChatEvents.ChatCreated;
 import com.MarinGallien.JavaChatApp.EventSystem.Events.ChatEvents.ChatDeleted;
+import com.MarinGallien.JavaChatApp.EventSystem.Events.ChatEvents.ChatEvents;
 import com.MarinGallien.JavaChatApp.EventSystem.Events.ChatEvents.MemberAddedToChat;
 import com.MarinGallien.JavaChatApp.EventSystem.Events.ChatEvents.MemberRemovedFromChat;
+import com.MarinGallien.JavaChatApp.EventSystem.Events.ChatEvents.SequencedChatEvent;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.event.EventListener;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.Map;
 import java.util.Set;
 
@@ -21,61 +33,233 @@ import java.util.Set;
 public class ChatManager {
     private static final Logger logger = LoggerFactory.getLogger(ChatManager.class);
 
-    // Thread safe map to store chatID:Set<userID>
+    private static final int[] NO_MEMBERS = new int[0];
+
+    // Thread safe map to store chatID:Chat
     private final Map<String, Chat> chats = new ConcurrentHashMap<>();
+
+    // User IDs interned once for all chats - chats store members as ints from this table
+    private final IdInterner userIds = new IdInterner();
     private final ChatDbService chatDbService;
 
+    // Outbox the chat events come from, null when events are published directly
+    private final ChatOutboxDbService outboxDbService;
+
+    // Outbox sequences applied to the index - the relay resumes after the watermark
+    private final SequenceWatermark appliedSequences = new SequenceWatermark();
+
+    // When true the chat index is loaded on a background thread and startup does not wait for it
+    private final boolean backgroundWarmup;
+
+    // How long after an event is recorded its transaction may still commit. Events recorded this recently before the
+    // load are replayed after it, since the snapshot may not include their changes.
+    private final long lateCommitWindowMs;
+
+    // False until the chat index has been fully loaded. Until then, chats missing from the index are read from the
+    // database on first use.
+    private volatile boolean ready = false;
+
+    // Chats that membership events changed while the index was loading, null once it is loaded. The events apply to
+    // the chat as stored when they arrive, so the load's older snapshot of these chats is never installed over them.
+    private volatile Set<String> touchedWhileLoading = ConcurrentHashMap.newKeySet();
+
     public ChatManager(ChatDbService chatDbService) {
+        this(chatDbService, null, false);
+    }
+
+    public ChatManager(ChatDbService chatDbService, boolean backgroundWarmup) {
+        this(chatDbService, null, backgroundWarmup);
+    }
+
+    public ChatManager(ChatDbService chatDbService, ChatOutboxDbService outboxDbService, boolean backgroundWarmup) {
+        this(chatDbService, outboxDbService, backgroundWarmup, 0);
+    }
+
+    @Autowired
+    public ChatManager(ChatDbService chatDbService,
+                       ChatOutboxDbService outboxDbService,
+                       @Value("${chat.manager.background-warmup:false}") boolean backgroundWarmup,
+                       @Value("${chat.events.outbox.late-commit-window-ms:600000}") long lateCommitWindowMs) {
         this.chatDbService = chatDbService;
+        this.outboxDbService = outboxDbService;
+        this.backgroundWarmup = backgroundWarmup;
+        this.lateCommitWindowMs = Math.max(0, lateCommitWindowMs);
     }
 
     // ========== INITIALIZATION ==========
     @PostConstruct
     public void initializeChatManager() {
-        try {
-            // Retrieve all chat to participant mappings from database
-            List<Object[]> chatPartMap = chatDbService.getAllChatParticipantMappings();
+        if (!backgroundWarmup) {
+            loadChats();
+            return;
+        }
 
-            // Make sure it is not empty
-            if (chatPartMap.isEmpty()) {
-                logger.info("No existing chats found in database. ChatManager loading complete");
-                return;
+        Thread warmup = new Thread(this::loadChats, "ChatManagerWarmup");
+        warmup.setDaemon(true);
+        warmup.start();
+        logger.info("Loading chatManager in the background");
+    }
+
+    // Builds the chat index in a single pass over the chat-user mappings, which arrive grouped by chat
+    private void loadChats() {
+        try {
+            long start = System.nanoTime();
+            ChatLoader loader = new ChatLoader();
+
+            // The relay resumes after this sequence once the snapshot below is loaded. Events recorded before the late
+            // commit window are part of the snapshot. More recent ones may belong to transactions that had not
+            // committed when the previous run stopped or when the snapshot is read, so they are replayed. An event whose
+            // change the snapshot already saw is applied twice, which leaves the chat unchanged.
+            if (outboxDbService != null) {
+                appliedSequences.reset(outboxDbService.getReplayStartSequence(
+                        LocalDateTime.now().minus(Duration.ofMillis(lateCommitWindowMs))));
             }
 
-            Map<String, Set<String>> chatParticipants = new ConcurrentHashMap<>();
+            // Retrieve all chat to participant mappings from database, one row at a time
+            long rows = chatDbService.forEachChatParticipantMapping(loader::accept);
+            loader.finishChat();
+            ready = true;
+            touchedWhileLoading = null;
 
-            // Group chat participants by chat ID
-            for (Object[] mapping : chatPartMap) {
-                String chatId = (String) mapping[0];
-                String userId = (String) mapping[1];
+            logger.info("Successfully loaded {} participants of {} chats from database into chatManager in {} ms",
+                    rows, chats.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
 
-                chatParticipants.computeIfAbsent(chatId, k -> ConcurrentHashMap.newKeySet()).add(userId);
+        } catch (Exception e) {
+            // Stay not ready so lookups keep falling back to the database
+            logger.error("Failed to initialize chatManager from database: {}", e.getMessage());
+        }
+    }
+
+    // Collects the members of the chat currently being streamed into a reusable int buffer, and installs them in one
+    // step when the next chat starts
+    private class ChatLoader {
+        private String chatId;
+        private int[] buffer = new int[64];
+        private int count;
+
+        void accept(String rowChatId, String userId) {
+            if (!rowChatId.equals(chatId)) {
+                finishChat();
+                chatId = rowChatId;
             }
+            if (count == buffer.length) buffer = Arrays.copyOf(buffer, count * 2);
+            buffer[count++] = userIds.intern(userId);
+        }
 
-            // Create chat objects and populate the chats map
-            for (Map.Entry<String, Set<String>> entry : chatParticipants.entrySet()) {
-                String chatId = entry.getKey();
-                Set<String> participants = entry.getValue();
+        void finishChat() {
+            if (chatId == null) return;
+            installLoaded(chatId, sortedUnique(buffer, count));
+            count = 0;
+        }
+    }
 
-                Chat chat = new Chat(chatId);
-                for (String userId : participants) {
-                    chat.addMember(userId);
-                }
+    // Installs the members the load read for a chat, unless an event changed the chat since the load started: the
+    // event's own view of the chat is newer, and installing the snapshot would bring back removed members or a
+    // deleted chat. Checked and installed in one step, so an event cannot slip in between.
+    private void installLoaded(String chatId, int[] sortedIds) {
+        chats.compute(chatId, (id, chat) -> {
+            if (wasTouchedWhileLoading(id)) return chat;
+            if (chat == null) chat = new Chat(id, userIds);
+            chat.replaceMembers(sortedIds);
+            return chat;
+        });
+    }
 
-                chats.put(chatId, chat);
-            }
+    private boolean wasTouchedWhileLoading(String chatId) {
+        Set<String> touched = touchedWhileLoading;
+        return touched != null && touched.contains(chatId);
+    }
 
-            logger.info("Successfully loaded {} participants from database into chatManager", chats.size());
+    // Called by the event handlers before they change a chat. While the index is loading, records the chat as
+    // touched, and reads it from the database if the load has not reached it yet, so the event changes the whole chat
+    // rather than an empty one.
+    private void touchWhileLoading(String chatId, boolean loadMissing) {
+        Set<String> touched = touchedWhileLoading;
+        if (touched == null) return;
+
+        touched.add(chatId);
+        if (!loadMissing || chats.containsKey(chatId)) return;
+
+        List<String> participantIds = chatDbService.getChatParticipantIds(chatId);
+        if (participantIds.isEmpty()) return;
+
+        int[] memberIds = internAll(participantIds);
+        chats.computeIfAbsent(chatId, id -> {
+            Chat chat = new Chat(id, userIds);
+            chat.replaceMembers(sortedUnique(memberIds, memberIds.length));
+            return chat;
+        });
+    }
 
-        } catch (Exception e) {
-            logger.error("Failed to initialize chatManager from database: {}", e.getMessage());
+    private static int[] sortedUnique(int[] memberIds, int count) {
+        int[] sorted = Arrays.copyOf(memberIds, count);
+        Arrays.sort(sorted);
+
+        int unique = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (unique == 0 || sorted[unique - 1] != sorted[i]) sorted[unique++] = sorted[i];
+        }
+        return unique == sorted.length ? sorted : Arrays.copyOf(sorted, unique);
+    }
+
+    // Interns the participant IDs read from the database
+    private int[] internAll(List<String> participantIds) {
+        int[] memberIds = new int[participantIds.size()];
+        for (int i = 0; i < memberIds.length; i++) {
+            memberIds[i] = userIds.intern(participantIds.get(i));
         }
+        return memberIds;
     }
 
+    // Returns the chat, reading it from the database if the index is still loading and has not reached it yet
+    private Chat findChat(String chatId) {
+        Chat chat = chats.get(chatId);
+        if (chat != null || ready) return chat;
+
+        List<String> participantIds = chatDbService.getChatParticipantIds(chatId);
+        if (participantIds.isEmpty()) return null;
+
+        int[] memberIds = internAll(participantIds);
+        Chat loaded = new Chat(chatId, userIds);
+        loaded.replaceMembers(sortedUnique(memberIds, memberIds.length));
+        logger.info("Loaded chat {} from database while chatManager is loading", chatId);
+
+        // An event that touched the chat meanwhile installs its own, newer copy. The one read here is then only used
+        // to answer this lookup.
+        Chat installed = chats.compute(chatId, (id, existing) ->
+                existing != null || wasTouchedWhileLoading(id) ? existing : loaded);
+        return installed != null ? installed : loaded;
+    }
+
+    public boolean isReady() {return ready;}
+
+    public SequenceWatermark getAppliedSequences() {return appliedSequences;}
+
+    // Highest outbox sequence that, with every one before it, has been applied to the index
+    public long getLastAppliedSequence() {return appliedSequences.get();}
+
 
     // ========== EVENT LISTENERS ==========
+    // Chat events are delivered on the chat EventLane, which keys them by chat ID: the events of one chat apply one at a
+    // time in publication order, so an add followed by a remove can never leave a stale member, while events of
+    // different chats apply in parallel on the lane's stripes.
+
+    // Events relayed from the outbox carry their sequence, which is recorded once the event has been applied
+    @EventListener
+    public void handleSequencedChatEvent(SequencedChatEvent event) {
+        try {
+            ChatEvents chatEvent = event.event();
+            if (chatEvent instanceof ChatCreated created) handleChatCreated(created);
+            else if (chatEvent instanceof ChatDeleted deleted) handleChatDeleted(deleted);
+            else if (chatEvent instanceof MemberAddedToChat added) handleMemberAddedToChat(added);
+            else if (chatEvent instanceof MemberRemovedFromChat removed) handleMemberRemovedFromChat(removed);
+            else logger.warn("Ignoring unsupported sequenced chat event {}", chatEvent);
+        } finally {
+            appliedSequences.applied(event.sequence());
+        }
+    }
+
     @EventListener
-    @Async("eventTaskExecutor")
     public void handleChatCreated(ChatCreated event) {
         try {
             // Extract input parameters
@@ -88,17 +272,17 @@ public class ChatManager {
                 return;
             }
 
-            Chat chat;
+            touchWhileLoading(chatId, true);
 
-            if (chatExists(chatId)) {
+            // computeIfAbsent, not a check followed by a put: the background warm-up and first-use loads install chats
+            // from other threads, and a put would replace the chat one of them just filled
+            boolean[] created = new boolean[1];
+            Chat chat = chats.computeIfAbsent(chatId, id -> {
+                created[0] = true;
+                return new Chat(id, userIds);
+            });
+            if (!created[0]) {
                 logger.warn("Chat already exists, updating members to ensure consistency with database");
-                // If chat already exists, just find it
-                chat = chats.get(chatId);
-            } else {
-                logger.warn("Chat does not exists, creating new chat");
-                // If chat does not exist, create a new one
-                chat = new Chat(chatId);
-                chats.put(chatId, chat);
             }
 
             // Whether a new chat is created or one is retrieved from chats map, add members to the chat
@@ -123,7 +307,6 @@ public class ChatManager {
     }
 
     @EventListener
-    @Async("eventTaskExecutor")
     public void handleChatDeleted(ChatDeleted event) {
         try {
             // Extract input parameters
@@ -135,6 +318,8 @@ public class ChatManager {
                 return;
             }
 
+            touchWhileLoading(chatId, false);
+
             // Make sure the chat exists
             if (!chatExists(chatId)) {
                 logger.warn("Chat {} does not exist in chatManager, nothing to delete", chatId);
@@ -157,7 +342,6 @@ public class ChatManager {
     }
 
     @EventListener
-    @Async("eventTaskExecutor")
     public void handleMemberAddedToChat(MemberAddedToChat event) {
         try {
             // Extract input parameters
@@ -170,15 +354,13 @@ public class ChatManager {
                 return;
             }
 
-            // Check if chat exists
-            if (!chatExists(chatId)) {
-                logger.warn("Cannot add member to non-existent chat - creating new chat with ID {}", chatId);
-                Chat newChat = new Chat(chatId);
-                chats.put(chatId, newChat);
-            }
+            touchWhileLoading(chatId, true);
 
-            // Get the chat and add member
-            Chat chat = chats.get(chatId);
+            // Get the chat, creating it if it does not exist yet
+            Chat chat = chats.computeIfAbsent(chatId, id -> {
+                logger.warn("Cannot add member to non-existent chat - creating new chat with ID {}", id);
+                return new Chat(id, userIds);
+            });
             boolean added = chat.addMember(userId);
 
             if (!added) {
@@ -194,7 +376,6 @@ public class ChatManager {
     }
 
     @EventListener
-    @Async("eventTaskExecutor")
     public void handleMemberRemovedFromChat(MemberRemovedFromChat event) {
         try {
             // Extract input parameters
@@ -207,14 +388,14 @@ public class ChatManager {
                 return;
             }
 
-            // Check if chat exists
-            if (!chatExists(chatId)) {
-                logger.warn("Cannot remove member from chat - chat {} does not exist", chatId);
-                return;
-            }
+            touchWhileLoading(chatId, true);
 
             // Get the chat and remove member
             Chat chat = chats.get(chatId);
+            if (chat == null) {
+                logger.warn("Cannot remove member from chat - chat {} does not exist", chatId);
+                return;
+            }
             boolean removed = chat.removeMember(userId);
 
             if (!removed) {
@@ -229,8 +410,44 @@ public class ChatManager {
         }
     }
 
-    public Set<String> getChatParticipants(String chatId) {
+    // ========== RECONCILIATION ==========
+
+    // IDs of the chats currently in the index
+    public Set<String> getIndexedChatIds() {
+        return new HashSet<>(chats.keySet());
+    }
+
+    // Membership digest of an indexed chat, computed from one snapshot of its members the same way the database
+    // computes it from chat_participants. A chat that is not indexed has no members.
+    public MembershipDigest getMembershipDigest(String chatId) {
         Chat chat = chats.get(chatId);
+        int[] members = chat != null ? chat.getMemberIds() : NO_MEMBERS;
+
+        long hashSum = 0;
+        for (int id : members) {
+            hashSum += ChatParticipant.memberHash(userIds.nameOf(id));
+        }
+        return new MembershipDigest(chatId, members.length, hashSum);
+    }
+
+    // Replaces the indexed members of a chat with the ones stored in the database, and drops the chat if it has none
+    // there. Returns true if the index changed. Must run in order with the chat's events, on its chat lane stripe.
+    public boolean reloadChat(String chatId) {
+        List<String> participantIds = chatDbService.getChatParticipantIds(chatId);
+
+        if (participantIds.isEmpty()) {
+            Chat removed = chats.remove(chatId);
+            return removed != null && !removed.isEmpty();
+        }
+
+        int[] memberIds = internAll(participantIds);
+        Chat chat = chats.computeIfAbsent(chatId, id -> new Chat(id, userIds));
+        return chat.replaceMembers(sortedUnique(memberIds, memberIds.length));
+    }
+
+
+    public Set<String> getChatParticipants(String chatId) {
+        Chat chat = chatId != null ? findChat(chatId) : null;
         if (chat == null) {
             logger.warn("Cannot get participants: chat {} does not exist in ChatManager", chatId);
             return Set.of(); // Return empty set instead of throwing NPE
@@ -238,6 +455,28 @@ public class ChatManager {
         return chat.getMembers();
     }
 
+    // Returns the interned IDs of a chat's members, resolved with getUserIds().nameOf. The array is a shared snapshot
+    // and must not be modified. Iterating it allocates nothing.
+    public int[] getChatMemberIds(String chatId) {
+        Chat chat = chatId != null ? findChat(chatId) : null;
+        if (chat == null) {
+            logger.warn("Cannot get members: chat {} does not exist in ChatManager", chatId);
+            return NO_MEMBERS;
+        }
+        return chat.getMemberIds();
+    }
+
+    public IdInterner getUserIds() {return userIds;}
+
+    // Checks if a user is a member of the chat
+    public boolean isMember(String chatId, String userId) {
+        if (!validateId(chatId) || !validateId(userId)) {
+            return false;
+        }
+        Chat chat = findChat(chatId);
+        return chat != null && chat.hasMember(userId);
+    }
+
     // Checks if the chat exists
     public boolean chatExists(String chatID) {
         if (!validateId(chatID)) {
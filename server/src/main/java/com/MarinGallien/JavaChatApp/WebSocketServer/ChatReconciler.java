@@ -0,0 +1,193 @@
+package com.MarinGallien.JavaChatApp.WebSocketServer;
+
+import com.MarinGallien.JavaChatApp.Database.DatabaseServices.ChatDbService;
+import com.MarinGallien.JavaChatApp.Database.DatabaseServices.ChatDbService.MembershipDigest;
+import com.MarinGallien.JavaChatApp.EventSystem.EventLane;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Background check that ChatManager's chat index still matches chat_participants. Each run takes the next slice of
+// chats in chat ID order, compares the membership digest the database computes for each of them in one grouped query
+// with the one ChatManager computes from its member array, and reloads only the chats that differ. Runs are spaced by
+// the interval and check at most chats-per-run chats, so a pass over a large index is spread over many runs.
+//
+// Reloads go through the chat event lane, keyed by chat ID: a reload runs in turn with the chat's membership events
+// instead of racing them, and events committed after it read the database are applied after it. Nothing here runs on
+// a thread that delivers messages.
+@Component
+public class ChatReconciler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatReconciler.class);
+
+    private final ChatManager chatManager;
+    private final ChatDbService chatDbService;
+    private final EventLane chatLane;
+    private final boolean enabled;
+    private final long intervalMs;
+    private final int chatsPerRun;
+    private final int maxRepairsPerRun;
+
+    private ScheduledExecutorService scheduler;
+
+    // Pass state, only used on the reconciler thread: the last chat ID checked, and the IDs that were indexed when
+    // the pass started
+    private String cursor = "";
+    private NavigableSet<String> passIndexedIds;
+
+    // Counters
+    private final AtomicLong runCount = new AtomicLong();
+    private final AtomicLong passCount = new AtomicLong();
+    private final AtomicLong checkedCount = new AtomicLong();
+    private final AtomicLong driftCount = new AtomicLong();
+    private final AtomicLong repairedCount = new AtomicLong();
+    private final AtomicLong deferredCount = new AtomicLong();
+
+    public ChatReconciler(ChatManager chatManager,
+                          ChatDbService chatDbService,
+                          @Qualifier("chatEventLane") EventLane chatLane,
+                          @Value("${chat.manager.reconcile.enabled:true}") boolean enabled,
+                          @Value("${chat.manager.reconcile.interval-ms:60000}") long intervalMs,
+                          @Value("${chat.manager.reconcile.chats-per-run:1000}") int chatsPerRun,
+                          @Value("${chat.manager.reconcile.max-repairs-per-run:100}") int maxRepairsPerRun) {
+        this.chatManager = chatManager;
+        this.chatDbService = chatDbService;
+        this.chatLane = chatLane;
+        this.enabled = enabled;
+        this.intervalMs = Math.max(1000, intervalMs);
+        this.chatsPerRun = Math.max(1, chatsPerRun);
+        this.maxRepairsPerRun = Math.max(0, maxRepairsPerRun);
+    }
+
+    // ========== LIFECYCLE ==========
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            logger.info("Chat reconciler disabled");
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ChatReconciler");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::runSafely, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        logger.info("Chat reconciler started (every {} ms, {} chats per run)", intervalMs, chatsPerRun);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler == null) return;
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ========== RECONCILIATION ==========
+
+    private void runSafely() {
+        try {
+            runOnce();
+        } catch (Exception e) {
+            logger.error("Unexpected error in chat reconciler: {}", e.getMessage());
+        }
+    }
+
+    // Checks the next slice of chats and returns how many of them had drifted
+    int runOnce() {
+        if (!chatManager.isReady()) return 0;
+        if (passIndexedIds == null) {
+            passIndexedIds = new TreeSet<>(chatManager.getIndexedChatIds());
+        }
+
+        // Chats with participants, as stored
+        List<MembershipDigest> stored = chatDbService.getMembershipDigestsAfter(cursor, chatsPerRun);
+        boolean lastSlice = stored.size() < chatsPerRun;
+        String sliceEnd = lastSlice ? null : stored.get(stored.size() - 1).chatId();
+
+        Map<String, MembershipDigest> storedById = new HashMap<>();
+        for (MembershipDigest digest : stored) storedById.put(digest.chatId(), digest);
+
+        // Plus indexed chats in the same ID range, which the database may no longer have participants for
+        NavigableSet<String> slice = new TreeSet<>(storedById.keySet());
+        slice.addAll(lastSlice
+                ? passIndexedIds.tailSet(cursor, false)
+                : passIndexedIds.subSet(cursor, false, sliceEnd, true));
+
+        int drifted = 0;
+        for (String chatId : slice) {
+            checkedCount.incrementAndGet();
+            MembershipDigest expected = storedById.getOrDefault(chatId, new MembershipDigest(chatId, 0, 0));
+            if (expected.equals(chatManager.getMembershipDigest(chatId))) continue;
+
+            drifted++;
+            driftCount.incrementAndGet();
+            if (drifted > maxRepairsPerRun) {
+                // Checked again on the next pass
+                deferredCount.incrementAndGet();
+                continue;
+            }
+            scheduleReload(chatId);
+        }
+
+        if (lastSlice) {
+            cursor = "";
+            passIndexedIds = null;
+            passCount.incrementAndGet();
+        } else {
+            cursor = sliceEnd;
+        }
+        runCount.incrementAndGet();
+
+        if (drifted > 0) {
+            logger.warn("Chat reconciler found {} chats out of sync with the database in {} checked", drifted,
+                    slice.size());
+        }
+        return drifted;
+    }
+
+    // Reloads the chat on its lane stripe, or right away when there is no lane
+    private void scheduleReload(String chatId) {
+        Runnable reload = () -> {
+            if (chatManager.reloadChat(chatId)) {
+                repairedCount.incrementAndGet();
+                logger.info("Reloaded chat {} from database to repair drift", chatId);
+            }
+        };
+
+        if (chatLane == null) {
+            reload.run();
+        } else if (!chatLane.submit(chatId, reload)) {
+            deferredCount.incrementAndGet();
+        }
+    }
+
+    // ========== METRICS ==========
+
+    public long getRunCount() {return runCount.get();}
+    public long getPassCount() {return passCount.get();}
+    public long getCheckedCount() {return checkedCount.get();}
+    public long getDriftCount() {return driftCount.get();}
+    public long getRepairedCount() {return repairedCount.get();}
+    public long getDeferredCount() {return deferredCount.get();}
+}
@@ -0,0 +1,256 @@
+package com.MarinGallien.JavaChatApp.WebSocketServer;
+
+import com.MarinGallien.JavaChatApp.Database.DatabaseServices.ContactDbService;
+import com.MarinGallien.JavaChatApp.Database.JPAEntities.ContactChange;
+import com.MarinGallien.JavaChatApp.EventSystem.Events.ContactEvents.ContactCreated;
+import com.MarinGallien.JavaChatApp.EventSystem.Events.ContactEvents.ContactRemoved;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// In-memory contact graph used for presence fan-out. Loaded once at startup and kept current by contact events, so
+// finding who to notify of a status change needs no database access.
+//
+// Contact events only reach the node the change was made on. Every change is also recorded in contact_changes, in
+// the transaction that makes it, and each node polls that table to pick up changes made on the other nodes. A polled
+// change is applied by reading the pair's current state from the database rather than replaying the change, so
+// changes committed out of order, or polled again, leave the graph as the database has it.
+@Component
+public class ContactManager {
+    private static final Logger logger = LoggerFactory.getLogger(ContactManager.class);
+
+    // Changes are read again for this long before the previous poll, so one recorded by a node whose clock runs behind,
+    // or committed after the poll read past it, is not missed
+    private static final long POLL_OVERLAP_MILLIS = 60_000;
+
+    // Changes older than this have been polled by every running node, and are deleted
+    private static final long CHANGE_RETENTION_MILLIS = 10 * 60_000;
+
+    // Thread safe map to store userID:Set<contact userID>. Contacts are mutual, so both directions are stored.
+    private final Map<String, Set<String>> contacts = new ConcurrentHashMap<>();
+    private final ContactDbService contactDbService;
+    private final long pollIntervalMillis;
+
+    private ScheduledExecutorService scheduler;
+    private volatile long lastPollMillis;
+
+    // Change ID:time recorded, for the changes already applied that a poll can still read again. Only used on the
+    // polling thread.
+    private final Map<Long, Long> appliedChanges = new HashMap<>();
+
+    // Counters
+    private final AtomicLong polledChangesApplied = new AtomicLong();
+
+    // Does not poll, for a single node
+    public ContactManager(ContactDbService contactDbService) {
+        this(contactDbService, 0);
+    }
+
+    @Autowired
+    public ContactManager(ContactDbService contactDbService,
+                          @Value("${chat.contacts.poll-ms:1000}") long pollIntervalMillis) {
+        this.contactDbService = contactDbService;
+        this.pollIntervalMillis = pollIntervalMillis;
+    }
+
+    // ========== INITIALIZATION ==========
+    @PostConstruct
+    public void initializeContactManager() {
+        // Changes committed while the graph loads are polled again afterwards
+        lastPollMillis = System.currentTimeMillis();
+        loadContacts();
+        startPolling();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler == null) return;
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void loadContacts() {
+        try {
+            // Retrieve all user to contact mappings from database
+            List<Object[]> contactMap = contactDbService.getAllContactMappings();
+
+            // Make sure it is not empty
+            if (contactMap.isEmpty()) {
+                logger.info("No existing contacts found in database. ContactManager loading complete");
+                return;
+            }
+
+            // Each contact is stored as one row per direction
+            for (Object[] mapping : contactMap) {
+                String userId = (String) mapping[0];
+                String contactUserId = (String) mapping[1];
+
+                addContact(userId, contactUserId);
+            }
+
+            logger.info("Successfully loaded contacts of {} users from database into contactManager", contacts.size());
+
+        } catch (Exception e) {
+            logger.error("Failed to initialize contactManager from database: {}", e.getMessage());
+        }
+    }
+
+    private void startPolling() {
+        if (pollIntervalMillis <= 0) return;
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ContactChangePoller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::pollContactChangesSafely, pollIntervalMillis, pollIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        logger.info("Polling contact changes every {} ms", pollIntervalMillis);
+    }
+
+    // ========== POLLING ==========
+
+    // Applies the contact changes recorded since the previous poll, on this node or any other, and returns how many
+    // were applied. Changes made here were already applied by their event, reading them again only confirms them.
+    int pollContactChanges() {
+        long now = System.currentTimeMillis();
+        long since = lastPollMillis - POLL_OVERLAP_MILLIS;
+
+        int applied = 0;
+        for (ContactChange change : contactDbService.getContactChangesSince(since)) {
+            if (appliedChanges.putIfAbsent(change.getChangeId(), change.getChangedAtMillis()) != null) continue;
+
+            String userId = change.getUserId();
+            String contactUserId = change.getContactUserId();
+            if (contactDbService.areContacts(userId, contactUserId)) {
+                addContact(userId, contactUserId);
+                addContact(contactUserId, userId);
+            } else {
+                removeContact(userId, contactUserId);
+                removeContact(contactUserId, userId);
+            }
+            applied++;
+        }
+        lastPollMillis = now;
+        polledChangesApplied.addAndGet(applied);
+
+        // Forget changes the next poll no longer reads, and delete the ones every node has polled
+        appliedChanges.values().removeIf(changedAt -> changedAt < now - POLL_OVERLAP_MILLIS);
+        contactDbService.deleteContactChangesBefore(now - CHANGE_RETENTION_MILLIS);
+        return applied;
+    }
+
+    private void pollContactChangesSafely() {
+        try {
+            pollContactChanges();
+        } catch (Exception e) {
+            logger.error("Failed to poll contact changes: {}", e.getMessage());
+        }
+    }
+
+
+    // ========== EVENT LISTENERS ==========
+    @EventListener
+    public void handleContactCreated(ContactCreated event) {
+        try {
+            // Extract input parameters
+            String userId = event.userId();
+            String contactUserId = event.contactUserId();
+
+            // Validate input parameters
+            if (!validateId(userId) || !validateId(contactUserId)) {
+                logger.warn("Failed to handle ContactCreated event: user or contact user ID is null or empty");
+                return;
+            }
+
+            addContact(userId, contactUserId);
+            addContact(contactUserId, userId);
+
+            logger.info("Successfully added contact between user {} and {} in contactManager", userId, contactUserId);
+
+        } catch (Exception e) {
+            logger.error("Error handling ContactCreated event: {}", e.getMessage());
+        }
+    }
+
+    @EventListener
+    public void handleContactRemoved(ContactRemoved event) {
+        try {
+            // Extract input parameters
+            String userId = event.userId();
+            String contactUserId = event.contactUserId();
+
+            // Validate input parameters
+            if (!validateId(userId) || !validateId(contactUserId)) {
+                logger.warn("Failed to handle ContactRemoved event: user or contact user ID is null or empty");
+                return;
+            }
+
+            removeContact(userId, contactUserId);
+            removeContact(contactUserId, userId);
+
+            logger.info("Successfully removed contact between user {} and {} in contactManager", userId, contactUserId);
+
+        } catch (Exception e) {
+            logger.error("Error handling ContactRemoved event: {}", e.getMessage());
+        }
+    }
+
+    // Both helpers modify the set inside compute so an add cannot race with the removal of an emptied entry
+    private void addContact(String userId, String contactUserId) {
+        contacts.compute(userId, (k, userContacts) -> {
+            if (userContacts == null) userContacts = ConcurrentHashMap.newKeySet();
+            userContacts.add(contactUserId);
+            return userContacts;
+        });
+    }
+
+    private void removeContact(String userId, String contactUserId) {
+        // Drop the user's entry once their last contact is gone
+        contacts.computeIfPresent(userId, (k, userContacts) -> {
+            userContacts.remove(contactUserId);
+            return userContacts.isEmpty() ? null : userContacts;
+        });
+    }
+
+    // Returns the IDs of a user's contacts, or an empty set if the user has none
+    public Set<String> getContactIds(String userId) {
+        if (!validateId(userId)) return Set.of();
+        Set<String> userContacts = contacts.get(userId);
+        return userContacts != null ? userContacts : Set.of();
+    }
+
+    // Checks if two users are contacts
+    public boolean areContacts(String userId, String contactUserId) {
+        return getContactIds(userId).contains(contactUserId);
+    }
+
+    // ========== METRICS ==========
+
+    public long getPolledChangesApplied() {return polledChangesApplied.get();}
+
+    // Check user ID is valid
+    private boolean validateId(String userId) {
+        return userId != null && !userId.trim().isEmpty();
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.MarinGallien.JavaChatApp.WebSocketServer;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Maps string IDs to dense ints (0, 1, 2, ...) and back. Every distinct ID is stored once, so structures that hold
+// many references to the same IDs (e.g. chat memberships) can store 4-byte ints instead of strings. IDs are never
+// released - the table grows with the number of distinct users, not with the number of memberships.
+public final class IdInterner {
+
+    public static final int UNKNOWN = -1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // ID:int
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+
+    // int:ID - replaced by a larger copy when full. Written under the lock, read without it.
+    private volatile String[] names = new String[INITIAL_CAPACITY];
+    private int size;
+
+    // Returns the int for id, assigning the next free one if id has not been seen before
+    public int intern(String id) {
+        Integer existing = ids.get(id);
+        if (existing != null) return existing;
+
+        synchronized (this) {
+            existing = ids.get(id);
+            if (existing != null) return existing;
+
+            int next = size;
+            String[] current = names;
+            if (next == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            current[next] = id;
+
+            // Publish the name before the int becomes reachable through the map
+            names = current;
+            size = next + 1;
+            ids.put(id, next);
+            return next;
+        }
+    }
+
+    // Returns the int for id, or UNKNOWN if id was never interned. Never assigns a new int.
+    public int lookup(String id) {
+        if (id == null) return UNKNOWN;
+        Integer existing = ids.get(id);
+        return existing != null ? existing : UNKNOWN;
+    }
+
+    // Returns the ID for an int handed out by intern, or null if there is none
+    public String nameOf(int id) {
+        String[] current = names;
+        return id >= 0 && id < current.length ? current[id] : null;
+    }
+
+    public int size() {
+        return ids.size();
+    }
+}
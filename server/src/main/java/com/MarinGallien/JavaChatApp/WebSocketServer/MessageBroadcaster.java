@@ -0,0 +1,176 @@
+package com.MarinGallien.JavaChatApp.WebSocketServer;
+
+import com.MarinGallien.JavaChatApp.Cluster.ClusterRelay;
+import com.MarinGallien.JavaChatApp.WebSocketServer.SessionRegistry.ClientSession;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Fans a payload out to many users. The payload is serialized to JSON once and the resulting byte array is shared,
+// read-only, by every outgoing frame - only the headers are built per recipient session.
+// Frames are addressed to sessions found in the SessionRegistry and handed straight to the client outbound channel,
+// skipping user destination resolution and the broker's subscription lookup.
+// When the server runs as one node of a cluster, each broadcast is also handed to the ClusterRelay, which sends the
+// serialized payload to the other nodes for the users connected there.
+@Component
+public class MessageBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageBroadcaster.class);
+
+    private static final String USER_DESTINATION_PREFIX = "/user";
+
+    private final MessageChannel clientOutboundChannel;
+    private final ObjectMapper objectMapper;
+    private final SessionRegistry sessionRegistry;
+
+    // Null unless the server runs as one node of a cluster
+    private volatile ClusterRelay clusterRelay;
+
+    public MessageBroadcaster(@Qualifier("clientOutboundChannel") MessageChannel clientOutboundChannel,
+                              ObjectMapper objectMapper,
+                              SessionRegistry sessionRegistry) {
+        this.clientOutboundChannel = clientOutboundChannel;
+        this.objectMapper = objectMapper;
+        this.sessionRegistry = sessionRegistry;
+    }
+
+    public void setClusterRelay(ClusterRelay clusterRelay) {
+        this.clusterRelay = clusterRelay;
+    }
+
+    // Sends payload to every connected session of the users in userIds, on this node and on the other nodes of the
+    // cluster. Returns the number of users reached on this node.
+    public int broadcastToUsers(Iterable<String> userIds, String destination, Object payload) {
+        byte[] body = serialize(payload);
+        if (body == null) return 0;
+
+        // Clients subscribe to the user-prefixed form, built once for the whole broadcast
+        String userDestination = USER_DESTINATION_PREFIX + destination;
+
+        ClusterRelay relay = clusterRelay;
+        List<String> recipients = relay != null ? new ArrayList<>() : null;
+
+        int sent = 0;
+        for (String userId : userIds) {
+            if (deliver(userId, userDestination, body)) sent++;
+            if (recipients != null) recipients.add(userId);
+        }
+        if (relay != null) relay.forward(recipients, userDestination, body);
+
+        logger.debug("Broadcast {} bytes to {} users on {}", body.length, sent, destination);
+        return sent;
+    }
+
+    // Same as above for interned user IDs, e.g. a chat's member snapshot. Walking the recipients allocates nothing
+    // unless there are other nodes to forward them to.
+    public int broadcastToUsers(int[] userIds, IdInterner ids, String destination, Object payload) {
+        byte[] body = serialize(payload);
+        if (body == null) return 0;
+
+        String userDestination = USER_DESTINATION_PREFIX + destination;
+
+        ClusterRelay relay = clusterRelay;
+        List<String> recipients = relay != null ? new ArrayList<>(userIds.length) : null;
+
+        int sent = 0;
+        for (int i = 0; i < userIds.length; i++) {
+            String userId = ids.nameOf(userIds[i]);
+            if (deliver(userId, userDestination, body)) sent++;
+            if (recipients != null) recipients.add(userId);
+        }
+        if (relay != null) relay.forward(recipients, userDestination, body);
+
+        logger.debug("Broadcast {} bytes to {} users on {}", body.length, sent, destination);
+        return sent;
+    }
+
+    // Sends every user in payloads their own payload, on this node and on the other nodes of the cluster, where each
+    // node gets all the payloads for its users in one frame. Returns the number of users reached on this node.
+    public int broadcastEach(Map<String, ?> payloads, String destination) {
+        String userDestination = USER_DESTINATION_PREFIX + destination;
+
+        ClusterRelay relay = clusterRelay;
+        Map<String, byte[]> bodies = relay != null ? new HashMap<>() : null;
+
+        int sent = 0;
+        for (Map.Entry<String, ?> entry : payloads.entrySet()) {
+            byte[] body = serialize(entry.getValue());
+            if (body == null) continue;
+            if (deliver(entry.getKey(), userDestination, body)) sent++;
+            if (bodies != null) bodies.put(entry.getKey(), body);
+        }
+        if (relay != null) relay.forwardEach(bodies, userDestination);
+
+        logger.debug("Broadcast {} payloads to {} users on {}", payloads.size(), sent, destination);
+        return sent;
+    }
+
+    // Delivers a payload another node already serialized to the sessions of userIds on this node only. Used by the
+    // ClusterRelay for received frames, which are never forwarded again. Returns the number of users reached.
+    public int deliverLocally(List<String> userIds, String userDestination, byte[] body) {
+        int sent = 0;
+        for (int i = 0; i < userIds.size(); i++) {
+            if (deliver(userIds.get(i), userDestination, body)) sent++;
+        }
+        return sent;
+    }
+
+    // Sends body to every session of userId subscribed to userDestination. Returns true if any session got it.
+    private boolean deliver(String userId, String userDestination, byte[] body) {
+        List<ClientSession> sessions = sessionRegistry.getSessions(userId);
+        boolean delivered = false;
+
+        // Indexed loop - the registry's lists are random access and this avoids an iterator per recipient
+        for (int i = 0; i < sessions.size(); i++) {
+            ClientSession session = sessions.get(i);
+            String subscriptionId = session.getSubscriptionId(userDestination);
+            if (subscriptionId == null) continue;
+
+            try {
+                sendToSession(session.getSessionId(), subscriptionId, userDestination, body);
+                delivered = true;
+            } catch (Exception e) {
+                logger.warn("Failed to deliver message to session {} of user {}: {}",
+                        session.getSessionId(), userId, e.getMessage());
+            }
+        }
+        return delivered;
+    }
+
+    // Serializes payload once for a broadcast. Returns null if it cannot be serialized.
+    byte[] serialize(Object payload) {
+        try {
+            return objectMapper.writeValueAsBytes(payload);
+        } catch (JsonProcessingException e) {
+            logger.error("Failed to serialize broadcast payload: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    // Sends already serialized bytes to one session. The session and subscription headers are all the STOMP handler
+    // needs to write the MESSAGE frame to the right connection.
+    void sendToSession(String sessionId, String subscriptionId, String destination, byte[] body) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination(destination);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+
+        Message<byte[]> message = MessageBuilder.createMessage(body, accessor.getMessageHeaders());
+        clientOutboundChannel.send(message);
+    }
+}
@@ -0,0 +1,289 @@
+package com.MarinGallien.JavaChatApp.WebSocketServer;
+
+import com.MarinGallien.JavaChatApp.DTOs.WebsocketMessages.OnlineStatusMessage;
+import com.MarinGallien.JavaChatApp.DTOs.WebsocketMessages.PresenceBatchMessage;
+import com.MarinGallien.JavaChatApp.Enums.OnlineStatus;
+import com.MarinGallien.JavaChatApp.Services.SessionService;
+import com.MarinGallien.JavaChatApp.Services.UserService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+// Debounces presence changes and fans them out in batches. A status change is held for the debounce window,
+// starting at the user's first pending change; later changes in the window only replace the pending status. When the
+// window closes, the net status is compared with the last published one, so a user who drops and reconnects within
+// the window produces no notification at all. Changes that are published together are merged into one
+// PresenceBatchMessage per recipient.
+//
+// Changes come from the StatusManager, and cover the whole cluster. Every node tracks what was published, but only
+// the node StatusManager.publishesPresence picks stores the change and notifies contacts, so another node can take
+// over if that one goes down.
+//
+// Publishing does no database work in line: usernames come from the user's session, cached at connect and kept while
+// the user is published online, and the new statuses of a batch are stored by a separate writer thread in one update
+// per status. Only users connected to another node need their username looked up.
+@Component
+public class PresenceDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(PresenceDispatcher.class);
+
+    private static final String PRESENCE_DESTINATION = "/queue/presence";
+
+    private final ContactManager contactManager;
+    private final StatusManager statusManager;
+    private final SessionRegistry sessionRegistry;
+    private final SessionService sessionService;
+    private final UserService userService;
+    private final MessageBroadcaster messageBroadcaster;
+    private final long debounceNanos;
+    private final long tickMs;
+
+    private ScheduledExecutorService scheduler;
+
+    // Stores statuses in the order they were published. Null until started, statuses are then stored in line.
+    private ExecutorService statusWriter;
+
+    // Status change waiting for its window to close
+    private record PendingChange(OnlineStatus status, long dueAtNanos) {}
+
+    // userID:pending change
+    private final Map<String, PendingChange> pending = new ConcurrentHashMap<>();
+
+    // Users whose last published status is ONLINE - anyone else was last published (or defaults to) OFFLINE
+    private final Set<String> publishedOnline = ConcurrentHashMap.newKeySet();
+
+    // userID:username of users published online, sent again with their OFFLINE change once their sessions are gone
+    private final Map<String, String> usernames = new ConcurrentHashMap<>();
+
+    // Counters
+    private final AtomicLong publishedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong framesSent = new AtomicLong();
+    private final AtomicLong skippedCount = new AtomicLong();
+    private final AtomicLong statusesStored = new AtomicLong();
+    private final AtomicLong usernameLookups = new AtomicLong();
+
+    public PresenceDispatcher(ContactManager contactManager,
+                              StatusManager statusManager,
+                              SessionRegistry sessionRegistry,
+                              SessionService sessionService,
+                              UserService userService,
+                              MessageBroadcaster messageBroadcaster,
+                              @Value("${chat.presence.debounce-ms:2000}") long debounceMs) {
+        this.contactManager = contactManager;
+        this.statusManager = statusManager;
+        this.sessionRegistry = sessionRegistry;
+        this.sessionService = sessionService;
+        this.userService = userService;
+        this.messageBroadcaster = messageBroadcaster;
+        this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, debounceMs));
+        // Check for closed windows a few times per window so a change waits at most ~1.25 windows
+        this.tickMs = Math.max(10, debounceMs / 4);
+    }
+
+    // ========== LIFECYCLE ==========
+
+    @PostConstruct
+    public void start() {
+        statusManager.setPresenceListener(this::submit);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "PresenceDispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushDue, tickMs, tickMs, TimeUnit.MILLISECONDS);
+        statusWriter = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "PresenceStatusWriter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("Presence dispatcher started (debounce window {} ms)", TimeUnit.NANOSECONDS.toMillis(debounceNanos));
+    }
+
+    // Publish whatever is still pending so the database ends up with everyone's final status
+    @PreDestroy
+    public void shutdown() {
+        statusManager.setPresenceListener(null);
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flushAll();
+        if (statusWriter != null) {
+            statusWriter.shutdown();
+            try {
+                statusWriter.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // ========== PRODUCER SIDE ==========
+
+    // Records a status transition of a user. Publishing happens once the user's debounce window closes.
+    public void submit(String userId, OnlineStatus status) {
+        if (userId == null || status == null) {
+            logger.warn("Failed to submit presence change: user ID or status is null");
+            return;
+        }
+
+        long now = System.nanoTime();
+        pending.compute(userId, (id, current) -> current == null
+                ? new PendingChange(status, now + debounceNanos)
+                : new PendingChange(status, current.dueAtNanos));
+    }
+
+    // ========== DISPATCH ==========
+
+    // Publishes changes whose debounce window has closed
+    void flushDue() {
+        try {
+            long now = System.nanoTime();
+            publish(change -> now - change.dueAtNanos >= 0);
+        } catch (Exception e) {
+            logger.error("Unexpected error in presence dispatcher: {}", e.getMessage());
+        }
+    }
+
+    // Publishes every pending change regardless of its window
+    public void flushAll() {
+        publish(change -> true);
+    }
+
+    private void publish(Predicate<PendingChange> isDue) {
+        // Recipient user ID:status updates to send them
+        Map<String, List<OnlineStatusMessage>> updatesByRecipient = new HashMap<>();
+        // userID:status to store
+        Map<String, OnlineStatus> statuses = new HashMap<>();
+        boolean publisher = statusManager.publishesPresence();
+
+        for (Map.Entry<String, PendingChange> entry : pending.entrySet()) {
+            String userId = entry.getKey();
+            PendingChange change = entry.getValue();
+
+            // Only take the change if it was not replaced in the meantime, otherwise it is picked up next time
+            if (!isDue.test(change) || !pending.remove(userId, change)) continue;
+
+            OnlineStatus lastPublished = publishedOnline.contains(userId) ? OnlineStatus.ONLINE : OnlineStatus.OFFLINE;
+            if (change.status == lastPublished) {
+                // User flapped back to the status their contacts already know
+                coalescedCount.incrementAndGet();
+                continue;
+            }
+
+            // Another node announces it, this one only keeps track
+            if (!publisher) {
+                recordPublished(userId, change.status);
+                usernameFor(userId, change.status, false);
+                skippedCount.incrementAndGet();
+                continue;
+            }
+
+            OnlineStatusMessage update = publishChange(userId, change.status);
+            statuses.put(userId, change.status);
+
+            // Recipients come from the in-memory contact graph
+            for (String contactId : contactManager.getContactIds(userId)) {
+                updatesByRecipient.computeIfAbsent(contactId, id -> new ArrayList<>()).add(update);
+            }
+        }
+
+        // One message per recipient, holding every update they need. Recipients on other nodes get theirs in one
+        // frame per node.
+        if (!updatesByRecipient.isEmpty()) {
+            Map<String, PresenceBatchMessage> batches = new HashMap<>();
+            for (Map.Entry<String, List<OnlineStatusMessage>> entry : updatesByRecipient.entrySet()) {
+                batches.put(entry.getKey(), new PresenceBatchMessage(entry.getValue()));
+            }
+            framesSent.addAndGet(messageBroadcaster.broadcastEach(batches, PRESENCE_DESTINATION));
+        }
+
+        if (statuses.isEmpty()) return;
+        ExecutorService writer = statusWriter;
+        if (writer == null || writer.isShutdown()) {
+            storeStatuses(statuses);
+        } else {
+            writer.execute(() -> storeStatuses(statuses));
+        }
+    }
+
+    // Builds the update sent to contacts. The status itself is stored afterwards, with the rest of the batch.
+    private OnlineStatusMessage publishChange(String userId, OnlineStatus status) {
+        recordPublished(userId, status);
+        publishedCount.incrementAndGet();
+
+        String username = usernameFor(userId, status, true);
+        return new OnlineStatusMessage(status, userId, username);
+    }
+
+    // Username to send with a change: from the user's session when they come online, then from the cache until they
+    // go offline. The database is only asked if lookUp is set and neither knows the user.
+    private String usernameFor(String userId, OnlineStatus status, boolean lookUp) {
+        String username = status == OnlineStatus.ONLINE ? sessionRegistry.getUsername(userId) : null;
+        if (username == null) username = usernames.get(userId);
+        if (username == null && lookUp) {
+            usernameLookups.incrementAndGet();
+            username = userService.getUsernameByUserId(userId);
+        }
+
+        if (status == OnlineStatus.ONLINE && username != null) {
+            usernames.put(userId, username);
+        } else {
+            usernames.remove(userId);
+        }
+        return username;
+    }
+
+    // Continue even if the update fails, contacts were already told - but log it
+    private void storeStatuses(Map<String, OnlineStatus> statuses) {
+        try {
+            int updated = sessionService.updateUserStatuses(statuses);
+            statusesStored.addAndGet(updated);
+            if (updated != statuses.size()) {
+                logger.warn("Failed to update the status of {} of {} users", statuses.size() - updated,
+                        statuses.size());
+            }
+        } catch (Exception e) {
+            logger.error("Failed to update the status of {} users: {}", statuses.size(), e.getMessage());
+        }
+    }
+
+    private void recordPublished(String userId, OnlineStatus status) {
+        if (status == OnlineStatus.ONLINE) {
+            publishedOnline.add(userId);
+        } else {
+            publishedOnline.remove(userId);
+        }
+    }
+
+    // ========== METRICS ==========
+
+    public int getPendingCount() {return pending.size();}
+    public long getPublishedCount() {return publishedCount.get();}
+    public long getCoalescedCount() {return coalescedCount.get();}
+    public long getFramesSent() {return framesSent.get();}
+    public long getSkippedCount() {return skippedCount.get();}
+    public long getStatusesStored() {return statusesStored.get();}
+    public long getUsernameLookups() {return usernameLookups.get();}
+}
@@ -0,0 +1,140 @@
+package com.MarinGallien.JavaChatApp.WebSocketServer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Tracks every live STOMP session per user, together with the subscription id each session uses for a destination.
+// Populated by UserSessionInterceptor from CONNECT/SUBSCRIBE/UNSUBSCRIBE/DISCONNECT frames, and read by
+// MessageBroadcaster to address frames straight to sessions without going through user destination resolution.
+@Component
+public class SessionRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionRegistry.class);
+
+    // userID:live sessions - lists are immutable and replaced on change, so readers iterate without locking
+    private final Map<String, List<ClientSession>> sessionsByUser = new ConcurrentHashMap<>();
+
+    // sessionID:session
+    private final Map<String, ClientSession> sessionsById = new ConcurrentHashMap<>();
+
+    // One STOMP session of a user
+    public static final class ClientSession {
+        private final String sessionId;
+        private final String userId;
+
+        // From the token the session authenticated with, null if it had none
+        private final String username;
+
+        // destination:subscriptionID
+        private final Map<String, String> subscriptions = new ConcurrentHashMap<>();
+
+        ClientSession(String sessionId, String userId, String username) {
+            this.sessionId = sessionId;
+            this.userId = userId;
+            this.username = username;
+        }
+
+        public String getSessionId() {return sessionId;}
+        public String getUserId() {return userId;}
+        public String getUsername() {return username;}
+
+        // Returns the subscription id this session uses for destination, or null if it is not subscribed to it
+        public String getSubscriptionId(String destination) {
+            return subscriptions.get(destination);
+        }
+    }
+
+    // ========== LIFECYCLE ==========
+
+    // Registers a newly connected session
+    public void register(String sessionId, String userId) {
+        register(sessionId, userId, null);
+    }
+
+    // Same as above, keeping the username the session authenticated as
+    public void register(String sessionId, String userId, String username) {
+        if (sessionId == null || userId == null) {
+            logger.warn("Failed to register session: session ID or user ID is null");
+            return;
+        }
+
+        ClientSession session = new ClientSession(sessionId, userId, username);
+        ClientSession previous = sessionsById.put(sessionId, session);
+        if (previous != null) removeFromUser(previous);
+
+        sessionsByUser.compute(userId, (id, sessions) -> {
+            List<ClientSession> updated = sessions == null ? new ArrayList<>(1) : new ArrayList<>(sessions);
+            updated.add(session);
+            return List.copyOf(updated);
+        });
+
+        logger.info("Registered session {} for user {}", sessionId, userId);
+    }
+
+    // Removes a session. Returns the user it belonged to, or null if the session was unknown
+    public String unregister(String sessionId) {
+        if (sessionId == null) return null;
+
+        ClientSession session = sessionsById.remove(sessionId);
+        if (session == null) return null;
+
+        removeFromUser(session);
+        logger.info("Unregistered session {} for user {}", sessionId, session.userId);
+        return session.userId;
+    }
+
+    private void removeFromUser(ClientSession session) {
+        sessionsByUser.computeIfPresent(session.userId, (id, sessions) -> {
+            List<ClientSession> updated = new ArrayList<>(sessions);
+            updated.remove(session);
+            return updated.isEmpty() ? null : List.copyOf(updated);
+        });
+    }
+
+    // ========== SUBSCRIPTIONS ==========
+
+    public void subscribe(String sessionId, String subscriptionId, String destination) {
+        ClientSession session = sessionId != null ? sessionsById.get(sessionId) : null;
+        if (session == null || subscriptionId == null || destination == null) {
+            logger.warn("Failed to record subscription {} to {}: unknown session {}", subscriptionId, destination, sessionId);
+            return;
+        }
+        session.subscriptions.put(destination, subscriptionId);
+    }
+
+    public void unsubscribe(String sessionId, String subscriptionId) {
+        ClientSession session = sessionId != null ? sessionsById.get(sessionId) : null;
+        if (session == null || subscriptionId == null) return;
+        session.subscriptions.values().remove(subscriptionId);
+    }
+
+    // ========== LOOKUPS ==========
+
+    // Returns the live sessions of a user, or an empty list if the user has none
+    public List<ClientSession> getSessions(String userId) {
+        List<ClientSession> sessions = userId != null ? sessionsByUser.get(userId) : null;
+        return sessions != null ? sessions : List.of();
+    }
+
+    // Username of a user connected here, as cached by their sessions, or null
+    public String getUsername(String userId) {
+        for (ClientSession session : getSessions(userId)) {
+            if (session.username != null) return session.username;
+        }
+        return null;
+    }
+
+    public boolean hasSessions(String userId) {
+        return userId != null && sessionsByUser.containsKey(userId);
+    }
+
+    public int getSessionCount() {
+        return sessionsById.size();
+    }
+}
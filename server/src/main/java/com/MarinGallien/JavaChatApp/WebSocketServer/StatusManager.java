@@ -1,34 +1,145 @@
 package com.MarinGallien.JavaChatApp.WebSocketServer;
 
+import com.MarinGallien.JavaChatApp.Cluster.PresenceDirectory;
+import com.MarinGallien.JavaChatApp.Enums.OnlineStatus;
 import org.springframework.stereotype.Component;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
+// Tracks presence per websocket session. A user is online while at least one of their sessions is connected, so
+// closing one of several clients does not take the user offline. Session sets are only modified inside the map's
+// atomic compute operations, which makes the first-session and last-session checks race free.
+// When the server runs as one node of a cluster, users coming online and going offline here are reported to the
+// PresenceDirectory from inside those same operations, so it sees each user's transitions in order, and isOnline
+// also counts sessions on other nodes.
+//
+// The PresenceListener is told when a user comes online or goes offline across the whole cluster: when their first
+// session anywhere connects, and when their last one closes - whether that session was here or on another node, and
+// including nodes that crashed and were dropped from the directory. Remote changes are checked under the same map
+// lock as local ones, so a user leaving one node while connecting to another is never reported offline for good.
 @Component
 public class StatusManager {
 
+    // Notified of cluster-wide presence transitions. May be told the same status twice in a row, when a local and a
+    // remote change race, so it has to ignore repeats.
+    @FunctionalInterface
+    public interface PresenceListener {
+        void presenceChanged(String userId, OnlineStatus status);
+    }
+
     private static final Logger logger = LoggerFactory.getLogger(StatusManager.class);
 
-    // User Online Status map - userID:OnlineStatus
-    private final Set<String> onlineUsers = ConcurrentHashMap.newKeySet();
+    // Online users - userID:connected session IDs. A user with no session has no entry.
+    private final Map<String, Set<String>> userSessions = new ConcurrentHashMap<>();
+
+    // Null unless the server runs as one node of a cluster
+    private volatile PresenceDirectory presenceDirectory;
+
+    private volatile PresenceListener presenceListener;
+
+    public void setPresenceDirectory(PresenceDirectory presenceDirectory) {
+        this.presenceDirectory = presenceDirectory;
+    }
+
+    public void setPresenceListener(PresenceListener presenceListener) {
+        this.presenceListener = presenceListener;
+    }
+
+    // True if this node stores presence changes and notifies contacts of them - only one node of a cluster does, so
+    // contacts are told once however many nodes see the change
+    public boolean publishesPresence() {
+        PresenceDirectory directory = presenceDirectory;
+        return directory == null || directory.isPresencePublisher();
+    }
+
+    // Adds a session for a user. Returns true only if it is the user's first session, i.e. the user just came online
+    public boolean addSession(String userId, String sessionId) {
+        if (userId == null || sessionId == null) {
+            logger.warn("Failed to add session: user ID or session ID is null");
+            return false;
+        }
 
-    // Adds new user to map
-    public void setUserOnline(String userId) {
-        onlineUsers.add(userId);
-        logger.info("User {} was added to online list", userId);
+        boolean[] cameOnline = new boolean[1];
+        userSessions.compute(userId, (id, sessions) -> {
+            if (sessions == null) {
+                sessions = new HashSet<>(2);
+                cameOnline[0] = true;
+                PresenceDirectory directory = presenceDirectory;
+                if (directory != null) directory.userOnline(userId);
+                if (directory == null || !directory.isOnlineElsewhere(userId)) {
+                    notifyListener(userId, OnlineStatus.ONLINE);
+                }
+            }
+            sessions.add(sessionId);
+            return sessions;
+        });
+
+        if (cameOnline[0]) logger.info("User {} was added to online list", userId);
+        return cameOnline[0];
+    }
+
+    // Removes a session of a user. Returns true only if it was the user's last session, i.e. the user just went
+    // offline. Removing a session that is not tracked (e.g. a repeated disconnect event) returns false.
+    public boolean removeSession(String userId, String sessionId) {
+        if (userId == null || sessionId == null) {
+            logger.warn("Failed to remove session: user ID or session ID is null");
+            return false;
+        }
+
+        boolean[] wentOffline = new boolean[1];
+        userSessions.computeIfPresent(userId, (id, sessions) -> {
+            if (!sessions.remove(sessionId)) return sessions;
+            if (!sessions.isEmpty()) return sessions;
+            wentOffline[0] = true;
+            PresenceDirectory directory = presenceDirectory;
+            if (directory != null) directory.userOffline(userId);
+            if (directory == null || !directory.isOnlineElsewhere(userId)) notifyListener(userId, OnlineStatus.OFFLINE);
+            return null;
+        });
+
+        if (wentOffline[0]) logger.info("User {} was removed from online list", userId);
+        return wentOffline[0];
     }
 
-    // Removes user from map
-    public void setUserOffline(String userId) {
-        onlineUsers.remove(userId);
-        logger.info("User {} was removed from online list", userId);
+    // Called by the PresenceDirectory when a user appears on the first other node, or leaves the last one. Only a
+    // transition for the cluster as a whole if the user has no session here either.
+    public void remotePresenceChanged(String userId, boolean online) {
+        userSessions.compute(userId, (id, sessions) -> {
+            if (sessions == null) notifyListener(userId, online ? OnlineStatus.ONLINE : OnlineStatus.OFFLINE);
+            return sessions;
+        });
     }
 
-    // Check if user is online
+    // Called under the user's map lock, so the listener sees each user's transitions in order
+    private void notifyListener(String userId, OnlineStatus status) {
+        PresenceListener listener = presenceListener;
+        if (listener != null) listener.presenceChanged(userId, status);
+    }
+
+    // Check if user is online, on this node or any other node of the cluster - two hash lookups either way
     public boolean isOnline(String userId) {
-        return onlineUsers.contains(userId);
+        if (userId == null) return false;
+        if (userSessions.containsKey(userId)) return true;
+
+        PresenceDirectory directory = presenceDirectory;
+        return directory != null && directory.isOnlineElsewhere(userId);
+    }
+
+    // Number of connected sessions of a user
+    public int getSessionCount(String userId) {
+        if (userId == null) return 0;
+
+        // Read under the map's lock for this key so the set is not being modified while we read it
+        int[] count = new int[1];
+        userSessions.computeIfPresent(userId, (id, current) -> {
+            count[0] = current.size();
+            return current;
+        });
+        return count[0];
     }
 }
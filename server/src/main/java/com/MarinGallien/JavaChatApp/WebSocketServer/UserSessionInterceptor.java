@@ -1,9 +1,12 @@
 package com.MarinGallien.JavaChatApp.WebSocketServer;
 
+import com.MarinGallien.JavaChatApp.Services.AuthService.JWTService;
+import io.jsonwebtoken.Claims;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
 import org.springframework.messaging.simp.stomp.StompCommand;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.messaging.support.ChannelInterceptor;
@@ -11,33 +14,90 @@ import org.springframework.messaging.support.MessageHeaderAccessor;
 import org.springframework.stereotype.Component;
 
 import java.security.Principal;
+import java.util.Map;
 
+// Authenticates STOMP sessions and tracks their subscriptions. The bearer token of the CONNECT frame is verified once;
+// the resulting user ID is cached in the session attributes and set as the session's Principal, so SEND and SUBSCRIBE
+// frames only need a map lookup to know who sent them. The username from the token is kept with the session for
+// presence updates. Frames of a session that did not authenticate are rejected.
 @Component
 public class UserSessionInterceptor implements ChannelInterceptor {
 
     private static final Logger logger = LoggerFactory.getLogger(UserSessionInterceptor.class);
 
+    // Session attributes holding the authenticated user ID and the username from the same token
+    public static final String USER_ID_ATTRIBUTE = "userId";
+    public static final String USERNAME_ATTRIBUTE = "username";
+
+    private final SessionRegistry sessionRegistry;
+    private final JWTService jwtService;
+
+    public UserSessionInterceptor(SessionRegistry sessionRegistry, JWTService jwtService) {
+        this.sessionRegistry = sessionRegistry;
+        this.jwtService = jwtService;
+    }
+
     @Override
     public Message<?> preSend(Message<?> message, MessageChannel channel) {
         StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) return message;
 
-        if (accessor != null && StompCommand.CONNECT.equals(accessor.getCommand())) {
-            String userId = accessor.getFirstNativeHeader("userId");
+        switch (accessor.getCommand()) {
+            case CONNECT -> authenticate(accessor);
+            // Plain map lookup: the token was verified on CONNECT
+            case SEND -> requireAuthenticated(accessor);
+            // Remember which subscription id each session uses per destination, outgoing frames must carry it
+            case SUBSCRIBE -> {
+                requireAuthenticated(accessor);
+                sessionRegistry.subscribe(accessor.getSessionId(), accessor.getSubscriptionId(),
+                        accessor.getDestination());
+            }
+            case UNSUBSCRIBE -> sessionRegistry.unsubscribe(accessor.getSessionId(), accessor.getSubscriptionId());
+            // Also sent by Spring on behalf of the client when the connection drops
+            case DISCONNECT -> sessionRegistry.unregister(accessor.getSessionId());
+            default -> {}
+        }
+        return message;
+    }
 
-            if (userId != null && !userId.trim().isEmpty()) {
-                accessor.getSessionAttributes().put("userId", userId.trim());
+    // ========== AUTHENTICATION ==========
 
-                // THIS IS THE KEY FIX - Set the Principal for Spring's routing
-                accessor.setUser(new SimplePrincipal(userId.trim()));
+    // Verifies the CONNECT frame's "Authorization: Bearer <token>" header. Throwing makes Spring answer with an ERROR
+    // frame and close the connection. The session stays authenticated until it closes, even past the token's expiry.
+    private void authenticate(StompHeaderAccessor accessor) {
+        String token = jwtService.extractTokenFromHeader(accessor.getFirstNativeHeader("Authorization"));
+        Claims claims = token != null ? jwtService.verifyToken(token) : null;
 
-                logger.info("Set userId {} as Principal", userId);
-            }
+        if (claims == null || claims.getSubject() == null) {
+            logger.warn("Rejecting STOMP CONNECT for session {}: missing or invalid token", accessor.getSessionId());
+            throw new MessageDeliveryException("Invalid or missing authentication token");
+        }
+
+        String userId = claims.getSubject();
+        String username = claims.get("username", String.class);
+        accessor.getSessionAttributes().put(USER_ID_ATTRIBUTE, userId);
+        if (username != null) accessor.getSessionAttributes().put(USERNAME_ATTRIBUTE, username);
+
+        // Set the Principal for Spring's user destination routing
+        accessor.setUser(new SimplePrincipal(userId));
+
+        // Make the session reachable for direct delivery
+        sessionRegistry.register(accessor.getSessionId(), userId, username);
+
+        logger.info("Authenticated STOMP session {} for user {}", accessor.getSessionId(), userId);
+    }
+
+    private void requireAuthenticated(StompHeaderAccessor accessor) {
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        if (attributes == null || attributes.get(USER_ID_ATTRIBUTE) == null) {
+            logger.warn("Rejecting {} frame from unauthenticated session {}", accessor.getCommand(),
+                    accessor.getSessionId());
+            throw new MessageDeliveryException("Session is not authenticated");
         }
-        return message;
     }
 
     // Simple Principal implementation
-    public class SimplePrincipal implements Principal {
+    public static class SimplePrincipal implements Principal {
         private final String name;
 
         public SimplePrincipal(String name) {
@@ -1,57 +1,38 @@
 package com.MarinGallien.JavaChatApp.WebSocketServer;
 
-import com.MarinGallien.JavaChatApp.DTOs.WebsocketMessages.OnlineStatusMessage;
 import com.MarinGallien.JavaChatApp.DTOs.WebsocketMessages.WebSocketMessage;
 
 
-import com.MarinGallien.JavaChatApp.Database.JPAEntities.User;
-import com.MarinGallien.JavaChatApp.Enums.OnlineStatus;
-import com.MarinGallien.JavaChatApp.Services.ContactService;
 import com.MarinGallien.JavaChatApp.Services.MessageService;
-import com.MarinGallien.JavaChatApp.Services.SessionService;
-import com.MarinGallien.JavaChatApp.Services.UserService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.event.EventListener;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.socket.messaging.SessionConnectEvent;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 
-import java.util.List;
-import java.util.Set;
-
 @Controller
 public class WebSocketHandler {
     // Parameters
     private static final Logger logger = LoggerFactory.getLogger(WebSocketHandler.class);
     private final MessageService messageService;
-    private final ContactService contactService;
-    private final SessionService sessionService;
-    private final UserService userService;
     private final StatusManager statusManager;
     private final ChatManager chatManager;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final MessageBroadcaster messageBroadcaster;
 
     // Constructor
     public WebSocketHandler(MessageService messageService,
-                            ContactService contactService,
-                            SessionService sessionService,
-                            UserService userService,
                             StatusManager statusManager,
                             ChatManager chatManager,
-                            SimpMessagingTemplate messagingTemplate) {
-        this.contactService = contactService;
+                            MessageBroadcaster messageBroadcaster) {
         this.messageService = messageService;
-        this.sessionService = sessionService;
-        this.userService = userService;
         this.statusManager = statusManager;
         this.chatManager = chatManager;
-        this.messagingTemplate = messagingTemplate;
+        this.messageBroadcaster = messageBroadcaster;
     }
 
 
@@ -60,32 +41,47 @@ public class WebSocketHandler {
     public void handleTextMessage(@DestinationVariable String chatId, @Payload WebSocketMessage message,
                                   SimpMessageHeaderAccessor headerAccessor) {
         try {
+            // Cached by UserSessionInterceptor when the session's token was verified on CONNECT - no crypto or
+            // database work per frame
             String senderId = getUserIdFromSession(headerAccessor);
+            if (senderId == null) {
+                logger.warn("Dropping message to chat {}: session is not authenticated", chatId);
+                return;
+            }
 
             logger.info("Processing text message from {} to chat {}", senderId, chatId);
 
-            // Save message to database and return
-            messageService.saveMessage(senderId, chatId, message.getContent());
+            // Only chat members may post - checked against the in-memory chat index instead of the database
+            if (!chatManager.isMember(chatId, senderId)) {
+                logger.warn("Dropping message: user {} is not a member of chat {}", senderId, chatId);
+                return;
+            }
 
-            logger.info("forwarding text message from {} to all chat participants", senderId);
-            // Forward message to all chat participants
-            Set<String> chatParticipants = chatManager.getChatParticipants(chatId);
-
-            for (String userId : chatParticipants) {
-                // If user is online - forward
-                if (statusManager.isOnline(userId)) {
-                    logger.info("Forwarding text message to user {}", userId);
-                    messagingTemplate.convertAndSendToUser(userId, "/queue/messages", message);
-                    logger.info("Forwarded text message to user {}", userId);
-                }
+            // Queue message for write-behind persistence, refuse it if the writer is saturated
+            if (!messageService.queueMessage(senderId, chatId, message.getContent())) {
+                logger.warn("Dropping message from {} to chat {}: could not queue it for persistence", senderId, chatId);
+                return;
             }
 
+            // Built from the authenticated session and the destination, never forwarded as received: the client shows
+            // the sender, username and chat of the frame it gets, so those must not come from the sender's payload
+            WebSocketMessage outgoing = new WebSocketMessage(senderId, chatId, message.getContent(),
+                    getUsernameFromSession(headerAccessor));
+
+            logger.info("forwarding text message from {} to all chat participants", senderId);
+            // Forward message to all online chat participants, serialized once for the whole chat
+            int[] chatMembers = chatManager.getChatMemberIds(chatId);
+            int delivered = messageBroadcaster.broadcastToUsers(chatMembers, chatManager.getUserIds(),
+                    "/queue/messages", outgoing);
+            logger.info("Forwarded text message to {} online participants of chat {}", delivered, chatId);
+
         } catch (Exception e) {
             logger.error("Error processing text message", e);
         }
     }
 
-    // Handle connection - Save user ID in session attributes and update online status in database
+    // Handle connection - StatusManager hands the PresenceDispatcher an ONLINE change if this is the user's first
+    // session anywhere in the cluster
     @EventListener
     public void handleWebSocketConnectEvent(SessionConnectEvent event) {
         try {
@@ -100,32 +96,18 @@ public class WebSocketHandler {
                 return;
             }
 
-            logger.info("Updating user status to ONLINE");
-
-            // Update user status in database
-            OnlineStatus status = sessionService.updateUserStatus(userId, OnlineStatus.ONLINE);
-
-            // Continue even if status update fails, but log error
-            if (status != OnlineStatus.ONLINE) {
-                logger.warn("Failed to update status to ONLINE for user {}", userId);
+            // Track the session in status manager - only the user's first session changes their status
+            if (!statusManager.addSession(userId, headerAccessor.getSessionId())) {
+                logger.info("User {} is already online on another session", userId);
             }
 
-            // Update status in status manager
-            logger.info("Setting user status to online in status manager");
-            statusManager.setUserOnline(userId);
-
-            // Notify contacts of status change
-            logger.info("Notifying contacts of user's status change");
-            String username = userService.getUsernameByUserId(userId);
-            notifyContactsOfStatusChange(userId, username, OnlineStatus.ONLINE);
-
         } catch (Exception e) {
             logger.error("Error handling websocket connection", e);
         }
     }
 
-    // Handle disconnection - retrieve user ID from session attributes and update online status in database
-    // OFFLINE USERS ARE STILL BEING FORWARDED MESSAGES
+    // Handle disconnection - StatusManager hands the PresenceDispatcher an OFFLINE change once the user has no session
+    // left anywhere in the cluster. If the last one was on another node, this node hears of it from the directory.
     @EventListener
     public void handleWebSocketDisconnectEvent(SessionDisconnectEvent event) {
         try {
@@ -137,53 +119,27 @@ public class WebSocketHandler {
                 return;
             }
 
-            // Update user status in database
-            OnlineStatus status = sessionService.updateUserStatus(userId, OnlineStatus.OFFLINE);
-
-            // Continue even if status update fails, but log error
-            if (status != OnlineStatus.ONLINE) {
-                logger.warn("Failed to update user status to OFFLINE for user {}", userId);
+            // Release the session in status manager - the user stays online while another session is connected
+            if (!statusManager.removeSession(userId, event.getSessionId())) {
+                logger.info("User {} is still online on another session", userId);
             }
 
-            // Update status in status manager
-            statusManager.setUserOffline(userId);
-
-            // Notify contacts of status change
-            String username = userService.getUsernameByUserId(userId);
-            notifyContactsOfStatusChange(userId, username, OnlineStatus.OFFLINE);
-
         } catch (Exception e) {
             logger.warn("Error handling websocket disconnection", e);
         }
     }
 
-    // Method notifies a user's contacts of a status change
-    private void notifyContactsOfStatusChange(String userId, String username, OnlineStatus status) {
-        try {
-            // Retrieve list of contacts from the database
-            List<User> contactUsers = contactService.getUserContacts(userId);
-
-            // Create a status message
-            OnlineStatusMessage statusMessage = new OnlineStatusMessage(status, userId, username);
-
-            // Broadcast status message to each contact
-            for (User user: contactUsers) {
-                messagingTemplate.convertAndSendToUser(
-                        user.getUserId(),
-                        "/queue/presence",
-                        statusMessage
-                );
-            }
-        } catch (Exception e) {
-            logger.error("Error notifying contacts of status change for user: {}", userId);
-        }
-    }
-
     // Retrieve user ID from session attributes
     private String getUserIdFromSession(SimpMessageHeaderAccessor headerAccessor) {
         // Retrieve user ID from session attributes
-        Object userId = headerAccessor.getSessionAttributes().get("userId");
+        Object userId = headerAccessor.getSessionAttributes().get(UserSessionInterceptor.USER_ID_ATTRIBUTE);
         return userId != null ? userId.toString() : null;
     }
 
+    // Retrieve the username cached with the session's user ID when its token was verified
+    private String getUsernameFromSession(SimpMessageHeaderAccessor headerAccessor) {
+        Object username = headerAccessor.getSessionAttributes().get(UserSessionInterceptor.USERNAME_ATTRIBUTE);
+        return username != null ? username.toString() : null;
+    }
+
 }
@@ -0,0 +1,532 @@
+package com.MarinGallien.JavaChatApp.Cluster;
+
+import com.MarinGallien.JavaChatApp.DTOs.WebsocketMessages.WebSocketMessage;
+import com.MarinGallien.JavaChatApp.WebSocketServer.IdInterner;
+import com.MarinGallien.JavaChatApp.WebSocketServer.MessageBroadcaster;
+import com.MarinGallien.JavaChatApp.WebSocketServer.SessionRegistry;
+import com.MarinGallien.JavaChatApp.WebSocketServer.StatusManager;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ClusterRelayTests {
+
+    // One server: its own sessions, broadcaster and relay, joined to the shared test network
+    private static final class Node {
+        final MessageChannel clientOutboundChannel = mock(MessageChannel.class);
+        final SessionRegistry sessionRegistry = new SessionRegistry();
+        final StatusManager statusManager = new StatusManager();
+        final MessageBroadcaster broadcaster;
+        final LoopbackTransport transport;
+        final PresenceDirectory directory;
+        final ClusterRelay relay;
+
+        Node(LoopbackTransport.Network network, String nodeId) {
+            this(network, nodeId, false);
+        }
+
+        // With a presence directory, ticked by hand
+        Node(LoopbackTransport.Network network, String nodeId, boolean withDirectory) {
+            broadcaster = new MessageBroadcaster(clientOutboundChannel, new ObjectMapper(), sessionRegistry);
+            transport = new LoopbackTransport(network, nodeId);
+            directory = withDirectory ? new PresenceDirectory(transport, statusManager, 60_000, 0, 60_000) : null;
+            if (directory != null) statusManager.setPresenceDirectory(directory);
+            relay = new ClusterRelay(transport, broadcaster, directory);
+            relay.start();
+        }
+
+        void connect(String sessionId, String userId) {
+            sessionRegistry.register(sessionId, userId);
+            sessionRegistry.subscribe(sessionId, "sub-" + sessionId, "/user/queue/messages");
+            statusManager.addSession(userId, sessionId);
+        }
+
+        // Session IDs that received a frame, in order
+        List<String> deliveredSessions() {
+            @SuppressWarnings("unchecked")
+            ArgumentCaptor<Message<?>> captor = ArgumentCaptor.forClass(Message.class);
+            verify(clientOutboundChannel, atLeast(0)).send(captor.capture());
+            List<String> sessionIds = new ArrayList<>();
+            for (Message<?> message : captor.getAllValues()) {
+                sessionIds.add(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()));
+            }
+            return sessionIds;
+        }
+
+        // Session ID:body of every frame it received
+        Map<String, String> deliveredBodies() {
+            @SuppressWarnings("unchecked")
+            ArgumentCaptor<Message<?>> captor = ArgumentCaptor.forClass(Message.class);
+            verify(clientOutboundChannel, atLeast(0)).send(captor.capture());
+            Map<String, String> bodies = new HashMap<>();
+            for (Message<?> message : captor.getAllValues()) {
+                bodies.put(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()),
+                        new String((byte[]) message.getPayload(), StandardCharsets.UTF_8));
+            }
+            return bodies;
+        }
+    }
+
+    private LoopbackTransport.Network network;
+    private Node nodeA;
+    private Node nodeB;
+    private Node nodeC;
+
+    @BeforeEach
+    void setUp() {
+        network = new LoopbackTransport.Network();
+        nodeA = new Node(network, "node-a");
+        nodeB = new Node(network, "node-b");
+        nodeC = new Node(network, "node-c");
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodeA.transport.close();
+        nodeB.transport.close();
+        nodeC.transport.close();
+    }
+
+    private static WebSocketMessage message(String content) {
+        return new WebSocketMessage("sender", "chat1", content, "alice");
+    }
+
+    // ==========================================================================
+    // CROSS-NODE DELIVERY TESTS
+    // ==========================================================================
+
+    @Test
+    void broadcastToUsers_RecipientsOnOtherNodes_DeliveredEverywhere() {
+        // Given
+        nodeA.connect("a1", "user1");
+        nodeB.connect("b2", "user2");
+        nodeB.connect("b3", "user3");
+        nodeC.connect("c4", "user4");
+
+        // When
+        int sentLocally = nodeA.broadcaster.broadcastToUsers(List.of("user1", "user2", "user3", "user4"),
+                "/queue/messages", message("Hello"));
+
+        // Then
+        assertEquals(1, sentLocally);
+        assertEquals(List.of("a1"), nodeA.deliveredSessions());
+        assertEquals(List.of("b2", "b3"), nodeB.deliveredSessions());
+        assertEquals(List.of("c4"), nodeC.deliveredSessions());
+        assertEquals(2, nodeB.relay.getRemoteUsersReached());
+    }
+
+    @Test
+    void broadcastToUsers_ManyRecipients_OneFramePerRemoteNode() {
+        // Given - a chat whose members are spread over every node
+        List<String> members = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            String userId = "user" + i;
+            members.add(userId);
+            List.of(nodeA, nodeB, nodeC).get(i % 3).connect("s" + i, userId);
+        }
+
+        // When
+        nodeA.broadcaster.broadcastToUsers(members, "/queue/messages", message("Hello"));
+
+        // Then
+        assertEquals(2, nodeA.relay.getFramesSent());
+        assertEquals(2, nodeA.transport.getSentCount());
+        assertEquals(1, nodeB.relay.getFramesReceived());
+        assertEquals(1, nodeC.relay.getFramesReceived());
+        assertEquals(10, nodeB.deliveredSessions().size());
+        assertEquals(10, nodeC.deliveredSessions().size());
+    }
+
+    @Test
+    void broadcastToUsers_InternedRecipients_DeliveredOnOtherNodes() {
+        // Given
+        IdInterner ids = new IdInterner();
+        int[] members = {ids.intern("user1"), ids.intern("user2")};
+        nodeC.connect("c2", "user2");
+
+        // When
+        nodeA.broadcaster.broadcastToUsers(members, ids, "/queue/messages", message("Hello"));
+
+        // Then
+        assertEquals(List.of("c2"), nodeC.deliveredSessions());
+        assertTrue(nodeB.deliveredSessions().isEmpty());
+    }
+
+    @Test
+    void broadcastToUsers_UserOnSeveralNodes_EverySessionReached() {
+        // Given
+        nodeA.connect("a1", "user1");
+        nodeB.connect("b1", "user1");
+
+        // When
+        nodeA.broadcaster.broadcastToUsers(List.of("user1"), "/queue/messages", message("Hello"));
+
+        // Then
+        assertEquals(List.of("a1"), nodeA.deliveredSessions());
+        assertEquals(List.of("b1"), nodeB.deliveredSessions());
+    }
+
+    @Test
+    void broadcastToUsers_RemoteDelivery_SamePayloadBytes() {
+        // Given
+        nodeA.connect("a1", "user1");
+        nodeB.connect("b2", "user2");
+
+        // When
+        nodeA.broadcaster.broadcastToUsers(List.of("user1", "user2"), "/queue/messages", message("Hello"));
+
+        // Then
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Message<?>> local = ArgumentCaptor.forClass(Message.class);
+        verify(nodeA.clientOutboundChannel).send(local.capture());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Message<?>> remote = ArgumentCaptor.forClass(Message.class);
+        verify(nodeB.clientOutboundChannel).send(remote.capture());
+
+        assertArrayEquals((byte[]) local.getValue().getPayload(), (byte[]) remote.getValue().getPayload());
+        assertEquals("/user/queue/messages",
+                SimpMessageHeaderAccessor.getDestination(remote.getValue().getHeaders()));
+        assertEquals("sub-b2", SimpMessageHeaderAccessor.getSubscriptionId(remote.getValue().getHeaders()));
+    }
+
+    // ==========================================================================
+    // ONE HOP TESTS
+    // ==========================================================================
+
+    @Test
+    void receive_FrameFromOtherNode_NotForwardedAgain() {
+        // Given
+        nodeC.connect("c1", "user1");
+
+        // When
+        nodeA.broadcaster.broadcastToUsers(List.of("user1"), "/queue/messages", message("Hello"));
+
+        // Then - B and C each got the frame from A and sent nothing on
+        assertEquals(0, nodeB.relay.getFramesSent());
+        assertEquals(0, nodeC.relay.getFramesSent());
+        assertEquals(List.of("c1"), nodeC.deliveredSessions());
+    }
+
+    @Test
+    void receive_FrameFromOwnNode_Ignored() {
+        // Given
+        nodeA.connect("a1", "user1");
+        byte[] frame = new ClusterFrame("node-a", "/user/queue/messages", List.of("user1"),
+                "{}".getBytes(StandardCharsets.UTF_8)).encode();
+
+        // When
+        nodeA.relay.receive("node-a", frame);
+
+        // Then
+        verifyNoInteractions(nodeA.clientOutboundChannel);
+        assertEquals(0, nodeA.relay.getFramesReceived());
+    }
+
+    @Test
+    void receive_MalformedFrame_Rejected() {
+        // When
+        nodeA.relay.receive("node-b", new byte[]{1, 1, 0});
+        nodeA.relay.receive("node-b", new byte[]{9, 9, 9, 9});
+
+        // Then
+        assertEquals(2, nodeA.relay.getFramesRejected());
+        verifyNoInteractions(nodeA.clientOutboundChannel);
+    }
+
+    @Test
+    void receive_OriginNotSender_Rejected() {
+        // Given - node B relays a frame claiming to come from node C
+        nodeA.connect("a1", "user1");
+        byte[] frame = new ClusterFrame("node-c", "/user/queue/messages", List.of("user1"),
+                "{}".getBytes(StandardCharsets.UTF_8)).encode();
+
+        // When
+        nodeA.relay.receive("node-b", frame);
+
+        // Then
+        assertEquals(1, nodeA.relay.getFramesRejected());
+        verifyNoInteractions(nodeA.clientOutboundChannel);
+    }
+
+    // ==========================================================================
+    // NO PEER TESTS
+    // ==========================================================================
+
+    @Test
+    void broadcastToUsers_PeerLeft_OnlyRemainingNodesReached() {
+        // Given
+        nodeB.connect("b1", "user1");
+        nodeC.connect("c1", "user1");
+        nodeB.transport.close();
+
+        // When
+        nodeA.broadcaster.broadcastToUsers(List.of("user1"), "/queue/messages", message("Hello"));
+
+        // Then
+        assertEquals(1, nodeA.relay.getFramesSent());
+        assertTrue(nodeB.deliveredSessions().isEmpty());
+        assertEquals(List.of("c1"), nodeC.deliveredSessions());
+    }
+
+    @Test
+    void broadcastToUsers_RelayStopped_DeliversLocallyOnly() {
+        // Given
+        nodeA.connect("a1", "user1");
+        nodeB.connect("b1", "user1");
+        nodeA.relay.stop();
+
+        // When
+        int sent = nodeA.broadcaster.broadcastToUsers(List.of("user1"), "/queue/messages", message("Hello"));
+
+        // Then
+        assertEquals(1, sent);
+        assertEquals(0, nodeA.relay.getFramesSent());
+        assertTrue(nodeB.deliveredSessions().isEmpty());
+    }
+
+    // ==========================================================================
+    // ROUTING TESTS
+    // ==========================================================================
+
+    @Test
+    void broadcastToUsers_DirectorySynced_OnlyNodesWithRecipientsGetFrames() {
+        // Given
+        LoopbackTransport.Network routed = new LoopbackTransport.Network();
+        List<Node> cluster = List.of(new Node(routed, "node-a", true), new Node(routed, "node-b", true),
+                new Node(routed, "node-c", true), new Node(routed, "node-d", true));
+        try {
+            cluster.get(1).connect("b1", "user1");
+            cluster.get(2).connect("c2", "user2");
+            cluster.forEach(node -> node.directory.tick());
+
+            // When
+            cluster.get(0).broadcaster.broadcastToUsers(List.of("user1", "user2"), "/queue/messages",
+                    message("Hello"));
+
+            // Then - node D has none of the recipients, and each node only got its own
+            assertEquals(2, cluster.get(0).relay.getFramesSent());
+            assertEquals(List.of("b1"), cluster.get(1).deliveredSessions());
+            assertEquals(List.of("c2"), cluster.get(2).deliveredSessions());
+            assertEquals(0, cluster.get(3).relay.getFramesReceived());
+        } finally {
+            cluster.forEach(node -> node.transport.close());
+        }
+    }
+
+    @Test
+    void broadcastToUsers_RecipientNotLocated_SentToEveryNode() {
+        // Given - user3 is offline as far as node A can tell
+        LoopbackTransport.Network routed = new LoopbackTransport.Network();
+        List<Node> cluster = List.of(new Node(routed, "node-a", true), new Node(routed, "node-b", true),
+                new Node(routed, "node-c", true), new Node(routed, "node-d", true));
+        try {
+            cluster.get(1).connect("b1", "user1");
+            cluster.get(2).connect("c2", "user2");
+            cluster.forEach(node -> node.directory.tick());
+
+            // When
+            cluster.get(0).broadcaster.broadcastToUsers(List.of("user1", "user2", "user3"), "/queue/messages",
+                    message("Hello"));
+
+            // Then - still one frame per node, node D only gets user3
+            assertEquals(3, cluster.get(0).relay.getFramesSent());
+            assertEquals(List.of("b1"), cluster.get(1).deliveredSessions());
+            assertEquals(List.of("c2"), cluster.get(2).deliveredSessions());
+            assertEquals(1, cluster.get(3).relay.getFramesReceived());
+            assertTrue(cluster.get(3).deliveredSessions().isEmpty());
+        } finally {
+            cluster.forEach(node -> node.transport.close());
+        }
+    }
+
+    @Test
+    void broadcastToUsers_RecipientConnectedSinceLastGossip_StillReached() {
+        // Given - user1 connects to node C after the directories synced, before its delta is sent
+        LoopbackTransport.Network routed = new LoopbackTransport.Network();
+        List<Node> cluster = List.of(new Node(routed, "node-a", true), new Node(routed, "node-b", true),
+                new Node(routed, "node-c", true));
+        try {
+            cluster.forEach(node -> node.directory.tick());
+            cluster.get(2).connect("c1", "user1");
+
+            // When
+            cluster.get(0).broadcaster.broadcastToUsers(List.of("user1"), "/queue/messages", message("Hello"));
+
+            // Then
+            assertEquals(List.of("c1"), cluster.get(2).deliveredSessions());
+        } finally {
+            cluster.forEach(node -> node.transport.close());
+        }
+    }
+
+    @Test
+    void broadcastToUsers_DirectoryNotSynced_WholeListSent() {
+        // Given - no gossip yet, so node A cannot tell where user1 is
+        LoopbackTransport.Network routed = new LoopbackTransport.Network();
+        Node a = new Node(routed, "node-a", true);
+        Node b = new Node(routed, "node-b", true);
+        try {
+            b.connect("b1", "user1");
+
+            // When
+            a.broadcaster.broadcastToUsers(List.of("user1", "user2"), "/queue/messages", message("Hello"));
+
+            // Then
+            assertEquals(1, a.relay.getFramesSent());
+            assertEquals(List.of("b1"), b.deliveredSessions());
+        } finally {
+            a.transport.close();
+            b.transport.close();
+        }
+    }
+
+    // ==========================================================================
+    // PER-RECIPIENT PAYLOAD TESTS
+    // ==========================================================================
+
+    @Test
+    void broadcastEach_RecipientsOnOtherNodes_OneFramePerRemoteNode() {
+        // Given - every user gets a payload of their own, users spread over every node
+        Map<String, WebSocketMessage> payloads = new HashMap<>();
+        for (int i = 0; i < 30; i++) {
+            String userId = "user" + i;
+            payloads.put(userId, message("for " + userId));
+            List.of(nodeA, nodeB, nodeC).get(i % 3).connect("s" + i, userId);
+        }
+
+        // When
+        int sentLocally = nodeA.broadcaster.broadcastEach(payloads, "/queue/messages");
+
+        // Then
+        assertEquals(10, sentLocally);
+        assertEquals(2, nodeA.relay.getFramesSent());
+        assertEquals(1, nodeB.relay.getFramesReceived());
+        assertEquals(1, nodeC.relay.getFramesReceived());
+        assertEquals(10, nodeB.relay.getRemoteUsersReached());
+        assertEquals(10, nodeC.deliveredSessions().size());
+        assertTrue(nodeB.deliveredBodies().get("s1").contains("for user1"));
+        assertTrue(nodeC.deliveredBodies().get("s2").contains("for user2"));
+    }
+
+    @Test
+    void broadcastEach_DirectorySynced_OnlyNodesWithRecipientsGetFrames() {
+        // Given
+        LoopbackTransport.Network routed = new LoopbackTransport.Network();
+        List<Node> cluster = List.of(new Node(routed, "node-a", true), new Node(routed, "node-b", true),
+                new Node(routed, "node-c", true));
+        try {
+            cluster.get(1).connect("b1", "user1");
+            cluster.get(1).connect("b2", "user2");
+            cluster.forEach(node -> node.directory.tick());
+
+            // When
+            cluster.get(0).broadcaster.broadcastEach(
+                    Map.of("user1", message("one"), "user2", message("two")), "/queue/messages");
+
+            // Then - node C has none of the recipients
+            assertEquals(1, cluster.get(0).relay.getFramesSent());
+            Map<String, String> bodies = cluster.get(1).deliveredBodies();
+            assertTrue(bodies.get("b1").contains("one"));
+            assertTrue(bodies.get("b2").contains("two"));
+            assertEquals(0, cluster.get(2).relay.getFramesReceived());
+        } finally {
+            cluster.forEach(node -> node.transport.close());
+        }
+    }
+
+    @Test
+    void receive_BatchOriginNotSender_Rejected() {
+        // Given
+        nodeB.connect("b1", "user1");
+        byte[] forged = new ClusterBatchFrame("node-c", "/user/queue/messages",
+                Map.of("user1", new byte[]{'{', '}'})).encode();
+
+        // When
+        nodeB.relay.receive("node-a", forged);
+
+        // Then
+        assertEquals(1, nodeB.relay.getFramesRejected());
+        assertTrue(nodeB.deliveredSessions().isEmpty());
+    }
+
+    // ==========================================================================
+    // FRAME TESTS
+    // ==========================================================================
+
+    @Test
+    void decode_EncodedFrame_RoundTrips() {
+        // Given
+        byte[] payload = "{\"content\":\"hello\"}".getBytes(StandardCharsets.UTF_8);
+        ClusterFrame frame = new ClusterFrame("node-a", "/user/queue/messages", List.of("user1", "user2"), payload);
+
+        // When
+        ClusterFrame decoded = ClusterFrame.decode(frame.encode());
+
+        // Then
+        assertNotNull(decoded);
+        assertEquals("node-a", decoded.originNodeId());
+        assertEquals("/user/queue/messages", decoded.destination());
+        assertEquals(List.of("user1", "user2"), decoded.recipients());
+        assertArrayEquals(payload, decoded.payload());
+    }
+
+    @Test
+    void decode_TruncatedFrame_ReturnsNull() {
+        // Given
+        byte[] encoded = new ClusterFrame("node-a", "/user/queue/messages", List.of("user1"),
+                new byte[100]).encode();
+        byte[] truncated = Arrays.copyOf(encoded, encoded.length - 10);
+
+        // When / Then
+        assertNull(ClusterFrame.decode(truncated));
+    }
+
+    @Test
+    void decodeBatch_EncodedFrame_RoundTrips() {
+        // Given
+        Map<String, byte[]> payloads = new LinkedHashMap<>();
+        payloads.put("user1", "{\"n\":1}".getBytes(StandardCharsets.UTF_8));
+        payloads.put("user2", new byte[0]);
+        ClusterBatchFrame frame = new ClusterBatchFrame("node-a", "/user/queue/presence", payloads);
+
+        // When
+        ClusterBatchFrame decoded = ClusterBatchFrame.decode(frame.encode());
+
+        // Then
+        assertNotNull(decoded);
+        assertEquals("node-a", decoded.originNodeId());
+        assertEquals("/user/queue/presence", decoded.destination());
+        assertEquals(List.of("user1", "user2"), new ArrayList<>(decoded.payloads().keySet()));
+        assertArrayEquals(payloads.get("user1"), decoded.payloads().get("user1"));
+        assertEquals(0, decoded.payloads().get("user2").length);
+    }
+
+    @Test
+    void decodeBatch_TruncatedFrame_ReturnsNull() {
+        // Given
+        byte[] encoded = new ClusterBatchFrame("node-a", "/user/queue/presence",
+                Map.of("user1", new byte[100])).encode();
+        byte[] truncated = Arrays.copyOf(encoded, encoded.length - 10);
+
+        // When / Then
+        assertNull(ClusterBatchFrame.decode(truncated));
+        assertNull(ClusterBatchFrame.decode(new ClusterFrame("node-a", "/user/queue/presence", List.of("user1"),
+                new byte[10]).encode()));
+    }
+}
@@ -0,0 +1,465 @@
+package com.MarinGallien.JavaChatApp.Cluster;
+
+import com.MarinGallien.JavaChatApp.WebSocketServer.StatusManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PresenceDirectoryTests {
+
+    private static final long GOSSIP_MS = 100;
+    private static final long HEARTBEAT_MS = 1000;
+    private static final long LEASE_MS = 5000;
+
+    // Simulated time shared by every node, advanced one gossip interval per round
+    private final AtomicLong clock = new AtomicLong(TimeUnit.SECONDS.toNanos(1000));
+
+    private LoopbackTransport.Network network;
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+
+    // One server of the cluster, ticked by hand instead of by its scheduler
+    private final class Node {
+        final String nodeId;
+        final LoopbackTransport transport;
+        final StatusManager statusManager = new StatusManager();
+        final PresenceDirectory directory;
+        final Set<String> connectedUsers = new HashSet<>();
+
+        // Cluster-wide presence changes reported by the status manager, as "userID:STATUS"
+        final List<String> presenceChanges = new ArrayList<>();
+
+        // Frames sent to this node are lost while set
+        volatile boolean dropping;
+
+        Node(String nodeId) {
+            this.nodeId = nodeId;
+            transport = new LoopbackTransport(network, nodeId);
+            directory = new PresenceDirectory(transport, statusManager, GOSSIP_MS, HEARTBEAT_MS, LEASE_MS, clock::get);
+            transport.start((from, frame) -> {
+                if (!dropping) directory.receive(from, frame);
+            });
+            statusManager.setPresenceDirectory(directory);
+            statusManager.setPresenceListener((userId, status) -> {
+                synchronized (presenceChanges) {
+                    presenceChanges.add(userId + ":" + status.name());
+                }
+            });
+        }
+
+        String lastChangeOf(String userId) {
+            synchronized (presenceChanges) {
+                for (int i = presenceChanges.size() - 1; i >= 0; i--) {
+                    if (presenceChanges.get(i).startsWith(userId + ":")) return presenceChanges.get(i);
+                }
+                return null;
+            }
+        }
+
+        void connect(String userId) {
+            statusManager.addSession(userId, nodeId + "-" + userId);
+            connectedUsers.add(userId);
+        }
+
+        void disconnect(String userId) {
+            statusManager.removeSession(userId, nodeId + "-" + userId);
+            connectedUsers.remove(userId);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        network = new LoopbackTransport.Network();
+        for (String nodeId : List.of("node-a", "node-b", "node-c")) {
+            nodes.put(nodeId, new Node(nodeId));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodes.values().forEach(node -> node.transport.close());
+    }
+
+    private Node node(String nodeId) {
+        return nodes.get(nodeId);
+    }
+
+    private void round() {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(GOSSIP_MS));
+        nodes.values().forEach(node -> node.directory.tick());
+    }
+
+    // True when every node lists exactly the other nodes each user is connected to
+    private boolean converged() {
+        Set<String> users = new HashSet<>();
+        nodes.values().forEach(node -> users.addAll(node.connectedUsers));
+
+        for (Node observer : nodes.values()) {
+            for (String userId : users) {
+                Set<String> expected = new HashSet<>();
+                for (Node node : nodes.values()) {
+                    if (node != observer && node.connectedUsers.contains(userId)) expected.add(node.nodeId);
+                }
+                if (!expected.equals(observer.directory.getNodesOf(userId))) return false;
+            }
+        }
+        return true;
+    }
+
+    // Number of gossip rounds until the nodes agree, or -1 if they still disagree after maxRounds
+    private int roundsToConverge(int maxRounds) {
+        for (int round = 1; round <= maxRounds; round++) {
+            round();
+            if (converged()) return round;
+        }
+        return -1;
+    }
+
+    // ==========================================================================
+    // CONVERGENCE TESTS
+    // ==========================================================================
+
+    @Test
+    void tick_UsersOnEveryNode_ConvergeInOneRound() {
+        // Given
+        for (int i = 0; i < 30; i++) {
+            new ArrayList<>(nodes.values()).get(i % 3).connect("user" + i);
+        }
+
+        // When
+        int rounds = roundsToConverge(10);
+
+        // Then
+        assertEquals(1, rounds);
+        assertTrue(node("node-a").statusManager.isOnline("user1"));
+        assertEquals(Set.of("node-b"), node("node-a").directory.getNodesOf("user1"));
+        assertEquals(20, node("node-a").directory.getRemoteUserCount());
+        assertTrue(node("node-a").directory.isSynced("node-b"));
+    }
+
+    @Test
+    void tick_UserDisconnects_RemovedEverywhereByDelta() {
+        // Given
+        node("node-a").connect("user1");
+        roundsToConverge(10);
+        long snapshotsBefore = node("node-b").directory.getSnapshotsApplied();
+
+        // When
+        node("node-a").disconnect("user1");
+        int rounds = roundsToConverge(10);
+
+        // Then
+        assertEquals(1, rounds);
+        assertFalse(node("node-b").statusManager.isOnline("user1"));
+        assertFalse(node("node-c").statusManager.isOnline("user1"));
+        assertEquals(snapshotsBefore, node("node-b").directory.getSnapshotsApplied());
+        assertEquals(1, node("node-b").directory.getDeltasApplied());
+    }
+
+    @Test
+    void tick_UserOnTwoNodes_StillOnlineWhenOneSessionCloses() {
+        // Given
+        node("node-a").connect("user1");
+        node("node-b").connect("user1");
+        roundsToConverge(10);
+        assertEquals(Set.of("node-a", "node-b"), node("node-c").directory.getNodesOf("user1"));
+
+        // When
+        node("node-a").disconnect("user1");
+        roundsToConverge(10);
+
+        // Then - node A has no session left, but knows the user is on node B
+        assertTrue(node("node-a").statusManager.isOnline("user1"));
+        assertEquals(Set.of("node-b"), node("node-c").directory.getNodesOf("user1"));
+    }
+
+    @Test
+    void tick_ChangesBetweenRounds_BatchedIntoOneDelta() {
+        // Given
+        roundsToConverge(10);
+        long sentBefore = node("node-a").directory.getDeltasSent();
+
+        // When - a user flaps and others connect within one gossip interval
+        node("node-a").connect("user1");
+        node("node-a").disconnect("user1");
+        node("node-a").connect("user2");
+        node("node-a").connect("user3");
+        round();
+
+        // Then
+        assertEquals(sentBefore + 1, node("node-a").directory.getDeltasSent());
+        assertTrue(converged());
+        assertFalse(node("node-b").statusManager.isOnline("user1"));
+    }
+
+    // ==========================================================================
+    // ANTI-ENTROPY TESTS
+    // ==========================================================================
+
+    @Test
+    void tick_DeltaLost_RepairedBySnapshotAfterDigest() {
+        // Given - node B misses node A's delta
+        roundsToConverge(10);
+        node("node-b").dropping = true;
+        node("node-a").connect("user1");
+        round();
+        node("node-b").dropping = false;
+        assertFalse(node("node-b").statusManager.isOnline("user1"));
+
+        // When - node A's next digest shows node B it is behind
+        int rounds = roundsToConverge(20);
+
+        // Then
+        assertTrue(rounds > 0 && rounds <= HEARTBEAT_MS / GOSSIP_MS);
+        assertTrue(node("node-b").statusManager.isOnline("user1"));
+        assertTrue(node("node-b").directory.getSnapshotsRequested() > 0);
+    }
+
+    @Test
+    void tick_DeltaAfterLostDelta_GapDetectedImmediately() {
+        // Given
+        roundsToConverge(10);
+        node("node-b").dropping = true;
+        node("node-a").connect("user1");
+        round();
+        node("node-b").dropping = false;
+
+        // When - the next delta does not start where node B's copy ends
+        node("node-a").connect("user2");
+        round();
+
+        // Then
+        assertTrue(node("node-b").statusManager.isOnline("user1"));
+        assertTrue(node("node-b").statusManager.isOnline("user2"));
+    }
+
+    @Test
+    void receive_MalformedFrame_Rejected() {
+        // When
+        node("node-a").directory.receive("node-b", new byte[]{1, 2, 0});
+
+        // Then
+        assertEquals(1, node("node-a").directory.getFramesRejected());
+    }
+
+    @Test
+    void receive_FrameForAnotherNode_Rejected() {
+        // Given - node B speaks for node C
+        byte[] forged = PresenceFrame.snapshotRequest("node-c").encode();
+
+        // When
+        node("node-a").directory.receive("node-b", forged);
+
+        // Then
+        assertEquals(1, node("node-a").directory.getFramesRejected());
+    }
+
+    // ==========================================================================
+    // LEASE TESTS
+    // ==========================================================================
+
+    @Test
+    void tick_NodeSilentForLease_UsersExpire() {
+        // Given
+        node("node-c").connect("user1");
+        roundsToConverge(10);
+        assertTrue(node("node-a").statusManager.isOnline("user1"));
+
+        // When - node C crashes without saying goodbye
+        Node crashed = nodes.remove("node-c");
+        crashed.transport.close();
+        int rounds = 0;
+        while (node("node-a").statusManager.isOnline("user1") && rounds < 100) {
+            round();
+            rounds++;
+        }
+
+        // Then
+        assertFalse(node("node-a").statusManager.isOnline("user1"));
+        assertFalse(node("node-b").statusManager.isOnline("user1"));
+        assertTrue(rounds * GOSSIP_MS > LEASE_MS - HEARTBEAT_MS && rounds * GOSSIP_MS <= LEASE_MS + GOSSIP_MS);
+        assertEquals(1, node("node-a").directory.getNodesExpired());
+        assertEquals(1, node("node-b").directory.getNodesExpired());
+    }
+
+    @Test
+    void tick_LiveNodesWithoutChanges_KeepLeases() {
+        // Given
+        node("node-c").connect("user1");
+
+        // When - far longer than a lease, with only heartbeats renewing it
+        for (int i = 0; i < 3 * LEASE_MS / GOSSIP_MS; i++) round();
+
+        // Then
+        assertTrue(node("node-a").statusManager.isOnline("user1"));
+        assertEquals(0, node("node-a").directory.getNodesExpired());
+    }
+
+    @Test
+    void tick_NodeRestarted_PreviousUsersDropped() {
+        // Given
+        node("node-c").connect("user1");
+        roundsToConverge(10);
+
+        // When - node C comes back with a new incarnation and a different user
+        node("node-c").transport.close();
+        Node restarted = new Node("node-c");
+        nodes.put("node-c", restarted);
+        restarted.connect("user2");
+        int rounds = roundsToConverge(10);
+
+        // Then
+        assertTrue(rounds > 0);
+        assertTrue(restarted.directory.getIncarnation() > 0);
+        assertFalse(node("node-a").statusManager.isOnline("user1"));
+        assertTrue(node("node-a").statusManager.isOnline("user2"));
+    }
+
+    // ==========================================================================
+    // PRESENCE CHANGE TESTS
+    // ==========================================================================
+
+    @Test
+    void tick_UserConnectsToFirstNode_OnlineReportedEverywhere() {
+        // When
+        node("node-b").connect("user1");
+        roundsToConverge(10);
+
+        // Then
+        for (Node node : nodes.values()) {
+            assertEquals("user1:ONLINE", node.lastChangeOf("user1"));
+        }
+    }
+
+    @Test
+    void tick_UserLeavesTwoNodesAtOnce_OfflineReportedEverywhere() {
+        // Given
+        node("node-a").connect("user1");
+        node("node-b").connect("user1");
+        roundsToConverge(10);
+
+        // When - each node still lists the user on the other when its own session closes
+        node("node-a").disconnect("user1");
+        node("node-b").disconnect("user1");
+        roundsToConverge(10);
+
+        // Then
+        for (Node node : nodes.values()) {
+            assertEquals("user1:OFFLINE", node.lastChangeOf("user1"));
+        }
+    }
+
+    @Test
+    void tick_NodeSilentForLease_OfflineReportedForItsUsers() {
+        // Given
+        node("node-c").connect("user1");
+        roundsToConverge(10);
+
+        // When
+        nodes.remove("node-c").transport.close();
+        for (int i = 0; i < 2 * LEASE_MS / GOSSIP_MS; i++) round();
+
+        // Then
+        assertEquals("user1:OFFLINE", node("node-a").lastChangeOf("user1"));
+        assertEquals("user1:OFFLINE", node("node-b").lastChangeOf("user1"));
+    }
+
+    @Test
+    void tick_UserMovesToAnotherNode_NeverReportedOffline() {
+        // Given
+        node("node-a").connect("user1");
+        roundsToConverge(10);
+
+        // When
+        node("node-b").connect("user1");
+        round();
+        node("node-a").disconnect("user1");
+        roundsToConverge(10);
+
+        // Then
+        for (Node node : nodes.values()) {
+            assertFalse(node.presenceChanges.contains("user1:OFFLINE"));
+        }
+    }
+
+    @Test
+    void isPresencePublisher_Converged_OnlyLowestNode() {
+        // When
+        roundsToConverge(10);
+
+        // Then
+        assertTrue(node("node-a").directory.isPresencePublisher());
+        assertFalse(node("node-b").directory.isPresencePublisher());
+        assertFalse(node("node-c").directory.isPresencePublisher());
+    }
+
+    @Test
+    void isPresencePublisher_LowestNodeExpired_NextNodeTakesOver() {
+        // Given
+        roundsToConverge(10);
+
+        // When
+        nodes.remove("node-a").transport.close();
+        for (int i = 0; i < 2 * LEASE_MS / GOSSIP_MS; i++) round();
+
+        // Then
+        assertTrue(node("node-b").directory.isPresencePublisher());
+        assertFalse(node("node-c").directory.isPresencePublisher());
+    }
+
+    // ==========================================================================
+    // SCHEDULED CONVERGENCE
+    // ==========================================================================
+
+    @Test
+    void start_NodesOnSchedulers_ConvergeWithinFiveSeconds() throws InterruptedException {
+        // Given - three nodes gossiping on their own threads, in real time
+        LoopbackTransport.Network live = new LoopbackTransport.Network();
+        List<PresenceDirectory> directories = new ArrayList<>();
+        List<StatusManager> statusManagers = new ArrayList<>();
+        List<LoopbackTransport> transports = new ArrayList<>();
+        for (String nodeId : List.of("live-a", "live-b", "live-c")) {
+            LoopbackTransport transport = new LoopbackTransport(live, nodeId);
+            StatusManager statusManager = new StatusManager();
+            PresenceDirectory directory = new PresenceDirectory(transport, statusManager, 50, 200, 2000);
+            transport.start(directory::receive);
+            directory.start();
+            transports.add(transport);
+            statusManagers.add(statusManager);
+            directories.add(directory);
+        }
+
+        try {
+            // When
+            long start = System.nanoTime();
+            for (int i = 0; i < 300; i++) {
+                statusManagers.get(i % 3).addSession("user" + i, "session" + i);
+            }
+            boolean converged = false;
+            while (!converged && System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5)) {
+                Thread.sleep(5);
+                converged = directories.stream().allMatch(directory -> directory.getRemoteUserCount() == 200);
+            }
+
+            // Then
+            assertTrue(converged);
+            for (StatusManager statusManager : statusManagers) {
+                assertTrue(statusManager.isOnline("user0"));
+                assertTrue(statusManager.isOnline("user299"));
+            }
+        } finally {
+            directories.forEach(PresenceDirectory::shutdown);
+            transports.forEach(LoopbackTransport::close);
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package com.MarinGallien.JavaChatApp.Cluster;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.BindException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TcpTransportTests {
+
+    private static final byte[] SECRET = "test-cluster-secret-0123456789".getBytes(StandardCharsets.UTF_8);
+
+    private TcpTransport nodeA;
+    private TcpTransport nodeB;
+    private final BlockingQueue<byte[]> receivedByA = new LinkedBlockingQueue<>();
+    private final BlockingQueue<byte[]> receivedByB = new LinkedBlockingQueue<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        nodeA = new TcpTransport("node-a", "127.0.0.1", 0, 1000, SECRET);
+        nodeB = new TcpTransport("node-b", "127.0.0.1", 0, 1000, SECRET);
+        nodeA.start((from, frame) -> receivedByA.add(frame));
+        nodeB.start((from, frame) -> receivedByB.add(frame));
+        nodeA.addPeer("node-b", "localhost", nodeB.getLocalPort());
+        nodeB.addPeer("node-a", "localhost", nodeA.getLocalPort());
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodeA.close();
+        nodeB.close();
+    }
+
+    private static byte[] frame(int number) {
+        return ByteBuffer.allocate(4).putInt(number).array();
+    }
+
+    private static int number(byte[] frame) {
+        return ByteBuffer.wrap(frame).getInt();
+    }
+
+    // A port nothing listens on
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    // The closed listener's socket is released once its accept thread wakes up, which may take a moment
+    private static TcpTransport rebind(String nodeId, int port) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (true) {
+            try {
+                return new TcpTransport(nodeId, "127.0.0.1", port, 1000, SECRET);
+            } catch (BindException e) {
+                if (System.currentTimeMillis() > deadline) throw e;
+                Thread.sleep(20);
+            }
+        }
+    }
+
+    private static long waitForRejected(TcpTransport transport, long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (transport.getRejectedCount() < expected && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        return transport.getRejectedCount();
+    }
+
+    // True if the other end closed socket, false if it is still open after a short wait
+    private static boolean closedByPeer(Socket socket) throws IOException {
+        socket.setSoTimeout(500);
+        try {
+            return socket.getInputStream().read() == -1;
+        } catch (SocketTimeoutException e) {
+            return false;
+        }
+    }
+
+    // Writes a hello from fromNodeId to node-b, signed with SECRET, the way a peer opens its connection
+    private static void writeHello(DataOutputStream out, String fromNodeId, byte[] connectionId) throws Exception {
+        long sentAt = System.currentTimeMillis();
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET, "HmacSHA256"));
+        for (String nodeId : List.of(fromNodeId, "node-b")) {
+            byte[] bytes = nodeId.getBytes(StandardCharsets.UTF_8);
+            mac.update(ByteBuffer.allocate(4 + bytes.length).putInt(bytes.length).put(bytes).array());
+        }
+        mac.update(connectionId);
+        mac.update(ByteBuffer.allocate(8).putLong(sentAt).array());
+
+        out.writeUTF(fromNodeId);
+        out.writeUTF("node-b");
+        out.write(connectionId);
+        out.writeLong(sentAt);
+        out.write(mac.doFinal());
+        out.flush();
+    }
+
+    // ==========================================================================
+    // DELIVERY TESTS
+    // ==========================================================================
+
+    @Test
+    void send_ConnectedPeer_FramesArriveInOrder() throws InterruptedException {
+        // When
+        for (int i = 0; i < 500; i++) {
+            assertTrue(nodeA.send("node-b", frame(i)));
+        }
+
+        // Then
+        List<Integer> received = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            byte[] frame = receivedByB.poll(5, TimeUnit.SECONDS);
+            assertNotNull(frame, "frame " + i + " never arrived");
+            received.add(number(frame));
+        }
+        for (int i = 0; i < 500; i++) {
+            assertEquals(i, received.get(i));
+        }
+        assertTrue(receivedByA.isEmpty());
+    }
+
+    @Test
+    void send_BothDirections_EachNodeReceives() throws InterruptedException {
+        // When
+        nodeA.send("node-b", frame(1));
+        nodeB.send("node-a", frame(2));
+
+        // Then
+        assertEquals(1, number(receivedByB.poll(5, TimeUnit.SECONDS)));
+        assertEquals(2, number(receivedByA.poll(5, TimeUnit.SECONDS)));
+    }
+
+    @Test
+    void send_EmptyFrame_Delivered() throws InterruptedException {
+        // When
+        nodeA.send("node-b", new byte[0]);
+
+        // Then
+        byte[] received = receivedByB.poll(5, TimeUnit.SECONDS);
+        assertNotNull(received);
+        assertEquals(0, received.length);
+    }
+
+    // ==========================================================================
+    // FAILURE TESTS
+    // ==========================================================================
+
+    @Test
+    void send_UnknownPeer_ReturnsFalse() {
+        // When / Then
+        assertFalse(nodeA.send("node-z", frame(1)));
+        assertEquals(1, nodeA.getDroppedCount());
+    }
+
+    @Test
+    void send_UnreachablePeer_DropsWithoutBlocking() throws IOException, InterruptedException {
+        // Given
+        nodeA.addPeer("node-down", "localhost", freePort());
+
+        // When
+        long start = System.nanoTime();
+        for (int i = 0; i < 100; i++) nodeA.send("node-down", frame(i));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Then - the other peer is unaffected
+        assertTrue(elapsedMs < 1000, "send blocked for " + elapsedMs + " ms");
+        nodeA.send("node-b", frame(7));
+        assertEquals(7, number(receivedByB.poll(5, TimeUnit.SECONDS)));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (nodeA.getDroppedCount() < 100 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertEquals(100, nodeA.getDroppedCount());
+    }
+
+    @Test
+    void send_QueueFull_ReturnsFalse() throws IOException {
+        // Given - a peer that accepts the connection but never reads, and a queue of one frame
+        try (ServerSocket stalledPeer = new ServerSocket(0);
+             TcpTransport transport = new TcpTransport("node-c", "127.0.0.1", 0, 1, SECRET)) {
+            transport.addPeer("node-stalled", "localhost", stalledPeer.getLocalPort());
+
+            // When - once the socket buffers are full the writer blocks and the queue fills
+            byte[] large = new byte[1024 * 1024];
+            int rejected = 0;
+            for (int i = 0; i < 256 && rejected == 0; i++) {
+                if (!transport.send("node-stalled", large)) rejected++;
+            }
+
+            // Then
+            assertEquals(1, rejected);
+            assertTrue(transport.getDroppedCount() >= 1);
+        }
+    }
+
+    @Test
+    void send_PeerRestarted_Reconnects() throws IOException, InterruptedException {
+        // Given - B goes down and comes back on the same port
+        int port = nodeB.getLocalPort();
+        nodeA.send("node-b", frame(1));
+        assertEquals(1, number(receivedByB.poll(5, TimeUnit.SECONDS)));
+        nodeB.close();
+
+        nodeB = rebind("node-b", port);
+        nodeB.start((from, frame) -> receivedByB.add(frame));
+        nodeB.addPeer("node-a", "localhost", nodeA.getLocalPort());
+
+        // When - frames sent while the old connection is being torn down may be lost
+        byte[] received = null;
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (received == null && System.currentTimeMillis() < deadline) {
+            nodeA.send("node-b", frame(2));
+            received = receivedByB.poll(200, TimeUnit.MILLISECONDS);
+        }
+
+        // Then
+        assertNotNull(received);
+        assertEquals(2, number(received));
+    }
+
+    // ==========================================================================
+    // AUTHENTICATION TESTS
+    // ==========================================================================
+
+    @Test
+    void send_WrongSecret_Rejected() throws Exception {
+        // Given - node C is in B's peer list but does not know the cluster secret
+        byte[] otherSecret = "some-other-secret-0123456789".getBytes(StandardCharsets.UTF_8);
+        try (TcpTransport nodeC = new TcpTransport("node-c", "127.0.0.1", 0, 1000, otherSecret)) {
+            nodeB.addPeer("node-c", "localhost", nodeC.getLocalPort());
+            nodeC.addPeer("node-b", "localhost", nodeB.getLocalPort());
+
+            // When
+            nodeC.send("node-b", frame(1));
+
+            // Then
+            assertEquals(1, waitForRejected(nodeB, 1));
+            assertNull(receivedByB.poll(200, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test
+    void send_PeerNotInList_Rejected() throws Exception {
+        // Given - node C knows the secret, but B was never told about it
+        try (TcpTransport nodeC = new TcpTransport("node-c", "127.0.0.1", 0, 1000, SECRET)) {
+            nodeC.addPeer("node-b", "localhost", nodeB.getLocalPort());
+
+            // When
+            nodeC.send("node-b", frame(1));
+
+            // Then
+            assertEquals(1, waitForRejected(nodeB, 1));
+            assertNull(receivedByB.poll(200, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test
+    void receive_SenderIdFromHandshake_PassedToReceiver() throws Exception {
+        // Given
+        BlockingQueue<String> senders = new LinkedBlockingQueue<>();
+        try (TcpTransport nodeC = new TcpTransport("node-c", "127.0.0.1", 0, 1000, SECRET)) {
+            nodeC.start((from, frame) -> senders.add(from));
+            nodeC.addPeer("node-a", "localhost", nodeA.getLocalPort());
+            nodeA.addPeer("node-c", "localhost", nodeC.getLocalPort());
+
+            // When
+            nodeA.send("node-c", frame(1));
+
+            // Then
+            assertEquals("node-a", senders.poll(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void receive_TamperedFrame_ClosesConnection() throws Exception {
+        // Given - a valid hello, then a frame whose MAC does not match
+        try (Socket socket = new Socket("localhost", nodeB.getLocalPort())) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            writeHello(out, "node-a", new byte[16]);
+
+            // When
+            out.writeInt(4);
+            out.write(frame(1));
+            out.write(new byte[32]);
+            out.flush();
+
+            // Then
+            assertEquals(1, waitForRejected(nodeB, 1));
+            assertEquals(-1, socket.getInputStream().read());
+            assertTrue(receivedByB.isEmpty());
+        }
+    }
+
+    @Test
+    void receive_ReplayedHello_Rejected() throws Exception {
+        // Given - a connection ID that was already used
+        byte[] connectionId = new byte[16];
+        connectionId[0] = 42;
+        try (Socket first = new Socket("localhost", nodeB.getLocalPort())) {
+            writeHello(new DataOutputStream(first.getOutputStream()), "node-a", connectionId);
+
+            // When
+            try (Socket second = new Socket("localhost", nodeB.getLocalPort())) {
+                writeHello(new DataOutputStream(second.getOutputStream()), "node-a", connectionId);
+
+                // Then - each connection has its own reader, so either hello may be the one read first
+                assertEquals(1, waitForRejected(nodeB, 1));
+                assertNotEquals(closedByPeer(first), closedByPeer(second));
+            }
+        }
+    }
+
+    @Test
+    void constructor_ShortSecret_Throws() {
+        // When / Then
+        assertThrows(IllegalArgumentException.class,
+                () -> new TcpTransport("node-c", "127.0.0.1", 0, 1000, new byte[8]));
+    }
+}
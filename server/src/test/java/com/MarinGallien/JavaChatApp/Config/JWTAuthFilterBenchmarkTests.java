@@ -0,0 +1,112 @@
+package com.MarinGallien.JavaChatApp.Config;
+
+import com.MarinGallien.JavaChatApp.Database.JPAEntities.User;
+import com.MarinGallien.JavaChatApp.Database.JPARepositories.UserRepo;
+import com.MarinGallien.JavaChatApp.Services.AuthService.JWTService;
+import com.MarinGallien.JavaChatApp.Services.AuthService.TokenRevocationList;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Compares authenticating a REST request in jwt.auth-mode=lookup, which loads the user on every request, against
+// the default stateless mode that builds the principal from the verified token alone.
+// Excluded from the default build, run with: mvn -pl server test -Pbenchmark
+@Tag("benchmark")
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+public class JWTAuthFilterBenchmarkTests {
+
+    private static final String SECRET = "benchmarkSecretKeyForJWTTokensThatIsLongEnoughForHS256Algorithm";
+    private static final int USER_COUNT = 200;
+    private static final int OPERATIONS = 20_000;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private UserRepo userRepo;
+
+    private JWTService jwtService;
+    private final List<String> tokens = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        jwtService = new JWTService(SECRET, 24L, 1024, new TokenRevocationList(24));
+
+        for (int i = 0; i < USER_COUNT; i++) {
+            User user = new User("member" + i, "member" + i + "@test.com", "password");
+            entityManager.persist(user);
+            tokens.add(jwtService.generateToken(user.getUserId(), user.getUsername()));
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void authenticate_UserLookupVersusStatelessClaims() throws Exception {
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+
+        Result lookup = measure(statistics, new JWTAuthFilter(jwtService, userRepo, "lookup"));
+        Result stateless = measure(statistics, new JWTAuthFilter(jwtService, userRepo, "stateless"));
+
+        System.out.printf("User lookup     : %6.1f us/request, %5.2f statements/request%n", lookup.avgMicros, lookup.statementsPerOp);
+        System.out.printf("Stateless claims: %6.1f us/request, %5.2f statements/request%n", stateless.avgMicros, stateless.statementsPerOp);
+
+        assertEquals(0.0, stateless.statementsPerOp);
+        assertTrue(stateless.avgMicros < lookup.avgMicros);
+    }
+
+    private record Result(double avgMicros, double statementsPerOp) {}
+
+    // Runs one warm-up pass that also fills the verified-token cache for both modes alike, then OPERATIONS requests
+    // spread over every user. The persistence context is cleared each time so lookups always reach the database.
+    private Result measure(Statistics statistics, JWTAuthFilter filter) throws Exception {
+        for (String token : tokens) assertNotNull(authenticate(filter, token));
+
+        statistics.clear();
+        long start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            authenticate(filter, tokens.get(i % USER_COUNT));
+            entityManager.clear();
+        }
+        double avgMicros = (System.nanoTime() - start) / 1_000.0 / OPERATIONS;
+        double statementsPerOp = (double) statistics.getPrepareStatementCount() / OPERATIONS;
+
+        return new Result(avgMicros, statementsPerOp);
+    }
+
+    // Passes one request through the filter and returns the authenticated user ID, or null
+    private String authenticate(JWTAuthFilter filter, String token) throws Exception {
+        SecurityContextHolder.clearContext();
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/users/me");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? (String) authentication.getPrincipal() : null;
+    }
+}
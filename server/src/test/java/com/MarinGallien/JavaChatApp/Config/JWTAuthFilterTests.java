@@ -0,0 +1,145 @@
+package com.MarinGallien.JavaChatApp.Config;
+
+import com.MarinGallien.JavaChatApp.Database.JPARepositories.UserRepo;
+import com.MarinGallien.JavaChatApp.Services.AuthService.JWTService;
+import com.MarinGallien.JavaChatApp.Services.AuthService.TokenRevocationList;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class JWTAuthFilterTests {
+
+    private static final String SECRET = "testSecretKeyForJWTTokensThatIsLongEnoughForHS256Algorithm";
+
+    private TokenRevocationList revocationList;
+    private JWTService jwtService;
+    private JWTAuthFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        revocationList = new TokenRevocationList(24);
+        jwtService = new JWTService(SECRET, 24L, 1024, revocationList);
+        filter = new JWTAuthFilter(jwtService, mock(UserRepo.class), "stateless");
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private static MockHttpServletRequest request(String path, String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+        if (token != null) request.addHeader("Authorization", "Bearer " + token);
+        return request;
+    }
+
+    // ==========================================================================
+    // REST API TESTS
+    // ==========================================================================
+
+    @Test
+    void doFilter_ValidTokenOnApi_Authenticated() throws Exception {
+        // Given
+        String token = jwtService.generateToken("user1", "alice");
+        MockFilterChain chain = new MockFilterChain();
+
+        // When
+        filter.doFilter(request("/api/chat/chats", token), new MockHttpServletResponse(), chain);
+
+        // Then
+        assertNotNull(chain.getRequest());
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertEquals("user1", authentication.getPrincipal());
+    }
+
+    // Token signed like JWTService's, issued at the given time
+    private static String tokenIssuedAt(String userId, Instant issuedAt) {
+        return Jwts.builder()
+                .id(UUID.randomUUID().toString())
+                .subject(userId)
+                .claim("username", "alice")
+                .claim(TokenRevocationList.ISSUED_AT_MILLIS_CLAIM, issuedAt.toEpochMilli())
+                .issuedAt(Date.from(issuedAt))
+                .expiration(Date.from(issuedAt.plus(24, ChronoUnit.HOURS)))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes()), Jwts.SIG.HS256)
+                .compact();
+    }
+
+    @Test
+    void doFilter_RevokedTokenOnApi_Unauthorized() throws Exception {
+        // Given - the user signed in a minute ago, then changed their password
+        String token = tokenIssuedAt("user1", Instant.now().minus(1, ChronoUnit.MINUTES));
+        revocationList.revokeUser("user1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        // When
+        filter.doFilter(request("/api/chat/chats", token), response, chain);
+
+        // Then
+        assertEquals(401, response.getStatus());
+        assertNull(chain.getRequest());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    void doFilter_TokenIssuedRightAfterRevocation_Authenticated() throws Exception {
+        // Given - the login that follows a password change, within the same second
+        revocationList.revokeUser("user1");
+        String token = jwtService.generateToken("user1", "alice");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        // When
+        filter.doFilter(request("/api/chat/chats", token), response, chain);
+
+        // Then
+        assertEquals(200, response.getStatus());
+        assertNotNull(chain.getRequest());
+        assertEquals("user1", SecurityContextHolder.getContext().getAuthentication().getPrincipal());
+    }
+
+    @Test
+    void doFilter_NoTokenOnApi_PassesThroughUnauthenticated() throws Exception {
+        // Given
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        // When
+        filter.doFilter(request("/api/chat/chats", null), response, chain);
+
+        // Then - unauthenticated, for SecurityConfig to turn away
+        assertEquals(200, response.getStatus());
+        assertNotNull(chain.getRequest());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    void doFilter_LoginWithStaleToken_NotFiltered() throws Exception {
+        // Given
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        // When
+        filter.doFilter(request("/auth/login", "invalid-token"), response, chain);
+
+        // Then
+        assertEquals(200, response.getStatus());
+        assertNotNull(chain.getRequest());
+    }
+}
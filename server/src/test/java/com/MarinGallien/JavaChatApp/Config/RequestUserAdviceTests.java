@@ -0,0 +1,155 @@
+package com.MarinGallien.JavaChatApp.Config;
+
+import com.MarinGallien.JavaChatApp.DTOs.GetterMessages.GetterRequests.UserIdRequest;
+import com.MarinGallien.JavaChatApp.DTOs.HTTPMessages.HTTPRequests.CreatePcRequest;
+import com.MarinGallien.JavaChatApp.DTOs.HTTPMessages.HTTPRequests.DeleteChatRequest;
+import com.MarinGallien.JavaChatApp.DTOs.HTTPMessages.HTTPRequests.GetUserChatsRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RequestUserAdviceTests {
+
+    private RequestUserAdvice advice;
+    private RequestUserInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        advice = new RequestUserAdvice();
+        interceptor = new RequestUserInterceptor();
+
+        // Request authenticated by JWTAuthFilter as user1
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("user1", null, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private Object read(Object body) {
+        assertTrue(advice.supports(null, body.getClass(), MappingJackson2HttpMessageConverter.class));
+        return advice.afterBodyRead(body, null, null, body.getClass(), MappingJackson2HttpMessageConverter.class);
+    }
+
+    private static HttpStatus statusOf(ResponseStatusException e) {
+        return HttpStatus.valueOf(e.getStatusCode().value());
+    }
+
+    // ==========================================================================
+    // REQUEST BODY TESTS
+    // ==========================================================================
+
+    @Test
+    void afterBodyRead_OwnUserId_ReturnsBody() {
+        // Given
+        GetUserChatsRequest request = new GetUserChatsRequest("user1");
+
+        // When / Then
+        assertSame(request, read(request));
+    }
+
+    @Test
+    void afterBodyRead_OtherUserId_Forbidden() {
+        // Given - user1 asking for user2's chats
+        GetUserChatsRequest request = new GetUserChatsRequest("user2");
+
+        // When
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> read(request));
+
+        // Then
+        assertEquals(HttpStatus.FORBIDDEN, statusOf(e));
+    }
+
+    @Test
+    void afterBodyRead_OtherCreatorId_Forbidden() {
+        // Given
+        DeleteChatRequest request = new DeleteChatRequest("user2", "chat1");
+
+        // When
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> read(request));
+
+        // Then
+        assertEquals(HttpStatus.FORBIDDEN, statusOf(e));
+    }
+
+    @Test
+    void afterBodyRead_PrivateChatRequestedByOwnUser_ReturnsBody() {
+        // Given - the other user of a private chat is userId2 and may be anyone
+        CreatePcRequest request = new CreatePcRequest("user1", "user2");
+
+        // When / Then
+        assertSame(request, read(request));
+    }
+
+    @Test
+    void afterBodyRead_PrivateChatRequestedForOtherUser_Forbidden() {
+        // Given
+        CreatePcRequest request = new CreatePcRequest("user2", "user1");
+
+        // When
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> read(request));
+
+        // Then
+        assertEquals(HttpStatus.FORBIDDEN, statusOf(e));
+    }
+
+    @Test
+    void supports_BodyWithoutActingUser_ReturnsFalse() {
+        // When / Then - a lookup by name acts for nobody
+        assertFalse(advice.supports(null, UserIdRequest.class, MappingJackson2HttpMessageConverter.class));
+    }
+
+    @Test
+    void afterBodyRead_Unauthenticated_Unauthorized() {
+        // Given
+        SecurityContextHolder.clearContext();
+
+        // When
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> read(new GetUserChatsRequest("user1")));
+
+        // Then
+        assertEquals(HttpStatus.UNAUTHORIZED, statusOf(e));
+    }
+
+    // ==========================================================================
+    // REQUEST PARAMETER TESTS
+    // ==========================================================================
+
+    @Test
+    void preHandle_OwnUserIdParameter_Continues() {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/api/file/upload/u1/chunks/0");
+        request.setParameter("userId", "user1");
+
+        // When / Then
+        assertTrue(interceptor.preHandle(request, new MockHttpServletResponse(), null));
+    }
+
+    @Test
+    void preHandle_OtherUserIdParameter_Forbidden() {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/api/file/upload/u1/chunks/0");
+        request.setParameter("userId", "user2");
+
+        // When
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> interceptor.preHandle(request, new MockHttpServletResponse(), null));
+
+        // Then
+        assertEquals(HttpStatus.FORBIDDEN, statusOf(e));
+    }
+}
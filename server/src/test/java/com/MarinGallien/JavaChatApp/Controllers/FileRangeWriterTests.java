@@ -0,0 +1,198 @@
+package com.MarinGallien.JavaChatApp.Controllers;
+
+import com.MarinGallien.JavaChatApp.Database.DatabaseServices.StoredFileResource;
+import com.MarinGallien.JavaChatApp.Storage.BlobStore;
+import com.MarinGallien.JavaChatApp.Storage.LocalBlobStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileRangeWriterTests {
+
+    private static final String CONTENT = "0123456789abcdefghij";
+    private static final String ETAG = "\"file-1\"";
+
+    @TempDir
+    Path tempDir;
+
+    private FileRangeWriter writer;
+    private Path file;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        writer = new FileRangeWriter();
+        file = Files.writeString(tempDir.resolve("file.txt"), CONTENT);
+        request = new MockHttpServletRequest("POST", "/api/file/download");
+        response = new MockHttpServletResponse();
+    }
+
+    private void write() throws IOException {
+        writer.write(request, response, file, ETAG, "application/octet-stream");
+    }
+
+    // ==========================================================================
+    // FULL FILE TESTS
+    // ==========================================================================
+
+    @Test
+    void write_NoRange_SendsWholeFileWithValidators() throws IOException {
+        // When
+        write();
+
+        // Then
+        assertEquals(200, response.getStatus());
+        assertEquals(CONTENT, response.getContentAsString(StandardCharsets.UTF_8));
+        assertEquals(CONTENT.length(), response.getContentLengthLong());
+        assertEquals(ETAG, response.getHeader(HttpHeaders.ETAG));
+        assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+        assertNotNull(response.getHeader(HttpHeaders.LAST_MODIFIED));
+    }
+
+    @Test
+    void write_MultipleRanges_SendsWholeFile() throws IOException {
+        // Given
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-1,5-6");
+
+        // When
+        write();
+
+        // Then
+        assertEquals(200, response.getStatus());
+        assertEquals(CONTENT, response.getContentAsString(StandardCharsets.UTF_8));
+    }
+
+    // ==========================================================================
+    // RANGE TESTS
+    // ==========================================================================
+
+    @Test
+    void write_SingleRange_SendsPartialContent() throws IOException {
+        // Given
+        request.addHeader(HttpHeaders.RANGE, "bytes=5-9");
+
+        // When
+        write();
+
+        // Then
+        assertEquals(206, response.getStatus());
+        assertEquals("56789", response.getContentAsString(StandardCharsets.UTF_8));
+        assertEquals(5, response.getContentLengthLong());
+        assertEquals("bytes 5-9/20", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void write_OpenEndedRange_SendsRestOfFile() throws IOException {
+        // Given - resuming after the first 15 bytes
+        request.addHeader(HttpHeaders.RANGE, "bytes=15-");
+
+        // When
+        write();
+
+        // Then
+        assertEquals(206, response.getStatus());
+        assertEquals("fghij", response.getContentAsString(StandardCharsets.UTF_8));
+        assertEquals("bytes 15-19/20", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void write_RangePastEnd_ReturnsNotSatisfiable() throws IOException {
+        // Given
+        request.addHeader(HttpHeaders.RANGE, "bytes=50-");
+
+        // When
+        write();
+
+        // Then
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */20", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void write_IfRangeMatchesETag_SendsPartialContent() throws IOException {
+        // Given
+        request.addHeader(HttpHeaders.RANGE, "bytes=10-");
+        request.addHeader(HttpHeaders.IF_RANGE, ETAG);
+
+        // When
+        write();
+
+        // Then
+        assertEquals(206, response.getStatus());
+        assertEquals("abcdefghij", response.getContentAsString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void write_IfRangeStale_SendsWholeFile() throws IOException {
+        // Given
+        request.addHeader(HttpHeaders.RANGE, "bytes=10-");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"other-file\"");
+
+        // When
+        write();
+
+        // Then
+        assertEquals(200, response.getStatus());
+        assertEquals(CONTENT, response.getContentAsString(StandardCharsets.UTF_8));
+    }
+
+    // ==========================================================================
+    // SENDFILE TESTS
+    // ==========================================================================
+
+    @Test
+    void write_SendfileSupported_DelegatesRangeToConnector() throws IOException {
+        // Given
+        request.setAttribute(FileRangeWriter.SENDFILE_SUPPORTED, Boolean.TRUE);
+        request.addHeader(HttpHeaders.RANGE, "bytes=5-9");
+
+        // When
+        write();
+
+        // Then - nothing written by the application, the connector sends [start, end)
+        assertEquals(206, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertEquals(file.toAbsolutePath().toString(), request.getAttribute(FileRangeWriter.SENDFILE_FILENAME));
+        assertEquals(5L, request.getAttribute(FileRangeWriter.SENDFILE_START));
+        assertEquals(10L, request.getAttribute(FileRangeWriter.SENDFILE_END));
+    }
+
+    // ==========================================================================
+    // BLOB STORE TESTS
+    // ==========================================================================
+
+    @Test
+    void write_RemoteStoredFile_StreamsRequestedRange() throws IOException {
+        // Given - a store that keeps no local copy, like S3
+        BlobStore remote = new LocalBlobStore(tempDir) {
+            @Override
+            public Path localPath(String key) {
+                return null;
+            }
+        };
+        StoredFileResource resource = new StoredFileResource(remote, remote.stat("file.txt"), "file-1", null);
+        request.setAttribute(FileRangeWriter.SENDFILE_SUPPORTED, Boolean.TRUE);
+        request.addHeader(HttpHeaders.RANGE, "bytes=15-");
+
+        // When
+        writer.write(request, response, resource, ETAG, "application/octet-stream");
+
+        // Then - bytes come from the store, not from sendfile
+        assertEquals(206, response.getStatus());
+        assertEquals("fghij", response.getContentAsString(StandardCharsets.UTF_8));
+        assertEquals("bytes 15-19/20", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertNull(request.getAttribute(FileRangeWriter.SENDFILE_FILENAME));
+    }
+}
@@ -0,0 +1,130 @@
+package com.MarinGallien.JavaChatApp.Database;
+
+import com.MarinGallien.JavaChatApp.Database.DatabaseServices.MessageDbService;
+import com.MarinGallien.JavaChatApp.Database.JPAEntities.Chat;
+import com.MarinGallien.JavaChatApp.Database.JPAEntities.ChatParticipant;
+import com.MarinGallien.JavaChatApp.Database.JPAEntities.Message;
+import com.MarinGallien.JavaChatApp.Database.JPAEntities.User;
+import com.MarinGallien.JavaChatApp.Database.JPARepositories.ChatParticipantRepo;
+import com.MarinGallien.JavaChatApp.Database.JPARepositories.ChatRepo;
+import com.MarinGallien.JavaChatApp.Database.JPARepositories.MessageRepo;
+import com.MarinGallien.JavaChatApp.Database.JPARepositories.UserRepo;
+import com.MarinGallien.JavaChatApp.Enums.ChatType;
+import com.MarinGallien.JavaChatApp.Enums.MessageType;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Compares saving a message behind the previous exists/exists/exists/find/find validation against the single
+// membership lookup plus getReference used by MessageDbService.
+// Excluded from the default build, run with: mvn -pl server test -Pbenchmark
+@Tag("benchmark")
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@Import(MessageDbService.class)
+public class AuthorizationCheckBenchmarkTests {
+
+    private static final int USER_COUNT = 200;
+    private static final int OPERATIONS = 2_000;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private MessageDbService messageDbService;
+
+    @Autowired
+    private UserRepo userRepo;
+
+    @Autowired
+    private ChatRepo chatRepo;
+
+    @Autowired
+    private ChatParticipantRepo chatParticipantRepo;
+
+    @Autowired
+    private MessageRepo messageRepo;
+
+    private final List<String> userIds = new ArrayList<>();
+    private String chatId;
+
+    @BeforeEach
+    void setUp() {
+        Chat chat = new Chat("benchmark-chat", ChatType.GROUP);
+        entityManager.persist(chat);
+        chatId = chat.getChatId();
+
+        for (int i = 0; i < USER_COUNT; i++) {
+            User user = new User("member" + i, "member" + i + "@test.com", "password");
+            entityManager.persist(user);
+            entityManager.persist(new ChatParticipant(chat, user));
+            userIds.add(user.getUserId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void saveMessage_SeparateChecksVersusSingleMembershipQuery() {
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+
+        Result separate = measure(statistics, this::saveWithSeparateChecks);
+        Result single = measure(statistics, senderId -> messageDbService.saveMessage(senderId, chatId, "Hello"));
+
+        System.out.printf("Separate checks  : %6.1f us/op, %5.2f statements/op%n", separate.avgMicros, separate.statementsPerOp);
+        System.out.printf("Membership query : %6.1f us/op, %5.2f statements/op%n", single.avgMicros, single.statementsPerOp);
+
+        assertTrue(single.statementsPerOp < separate.statementsPerOp);
+    }
+
+    // The validation MessageDbService.saveMessage used to run before every insert
+    private Message saveWithSeparateChecks(String senderId) {
+        if (!userRepo.existsById(senderId)) return null;
+        if (!chatRepo.existsById(chatId)) return null;
+        if (!chatParticipantRepo.existsByChatChatIdAndUserUserId(chatId, senderId)) return null;
+
+        User sender = userRepo.findUserById(senderId);
+        Chat chat = chatRepo.findChatById(chatId);
+        return messageRepo.save(new Message(sender, chat, "Hello", MessageType.TEXT_MESSAGE));
+    }
+
+    private record Result(double avgMicros, double statementsPerOp) {}
+
+    // Runs one warm-up pass, then OPERATIONS saves spread over every member. Each batch of USER_COUNT saves is flushed
+    // and cleared so neither path benefits from entities left in the persistence context.
+    private Result measure(Statistics statistics, Function<String, Message> save) {
+        for (String userId : userIds) assertNotNull(save.apply(userId));
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics.clear();
+        long start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            save.apply(userIds.get(i % USER_COUNT));
+            if ((i + 1) % USER_COUNT == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        double avgMicros = (System.nanoTime() - start) / 1_000.0 / OPERATIONS;
+        double statementsPerOp = (double) statistics.getPrepareStatementCount() / OPERATIONS;
+        entityManager.clear();
+
+        return new Result(avgMicros, statementsPerOp);
+    }
+}
@@ -1,7 +1,9 @@
 package com.MarinGallien.JavaChatApp.Database;
 
 import com.MarinGallien.JavaChatApp.Database.DatabaseServices.ChatDbService;
+import com.MarinGallien.JavaChatApp.Database.DatabaseServices.ChatDbService.MembershipDigest;
 import com.MarinGallien.JavaChatApp.Database.JPAEntities.Chat;
+import com.MarinGallien.JavaChatApp.Database.JPAEntities.ChatParticipant;
 import com.MarinGallien.JavaChatApp.Database.JPAEntities.User;
 import com.MarinGallien.JavaChatApp.Database.JPARepositories.ChatParticipantRepo;
 import com.MarinGallien.JavaChatApp.Database.JPARepositories.ChatRepo;
@@ -14,6 +16,7 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
@@ -141,6 +144,20 @@ public class ChatDbServiceTests {
         assertNull(chat);
     }
 
+    @Test
+    void createGroupChat_NonExistentMember_SavesNothing() {
+        // Given
+        Set<String> withUnknown = Set.of(user2.getUserId(), "nonexistent_userId");
+        long chatsBefore = chatRepo.count();
+
+        // When
+        Chat chat = chatDbService.createGroupChat(user1.getUserId(), withUnknown, "Test Group");
+
+        // Then
+        assertNull(chat);
+        assertEquals(chatsBefore, chatRepo.count());
+    }
+
     // ==========================================================================
     // DELETE CHAT TESTS
     // ==========================================================================
@@ -409,4 +426,82 @@ public class ChatDbServiceTests {
         assertNotNull(userChats);
         assertTrue(userChats.isEmpty());
     }
+
+    // ==========================================================================
+    // CHAT MANAGER LOADING TESTS
+    // ==========================================================================
+
+    @Test
+    void forEachChatParticipantMapping_SeveralChats_StreamsRowsGroupedByChat() {
+        // Given
+        Chat group = chatDbService.createGroupChat(user1.getUserId(), members, "Test Group");
+        Chat privateChat = chatDbService.createPrivateChat(user1.getUserId(), user4.getUserId());
+        entityManager.flush();
+
+        // When
+        List<String> chatIds = new ArrayList<>();
+        long rows = chatDbService.forEachChatParticipantMapping((chatId, userId) -> chatIds.add(chatId));
+
+        // Then
+        assertEquals(5, rows);
+        assertEquals(5, chatIds.size());
+
+        // Every chat's rows are contiguous
+        List<String> distinctInOrder = chatIds.stream().distinct().toList();
+        assertEquals(2, distinctInOrder.size());
+        assertTrue(distinctInOrder.containsAll(List.of(group.getChatId(), privateChat.getChatId())));
+        int firstChatRows = (int) chatIds.stream().filter(distinctInOrder.get(0)::equals).count();
+        assertTrue(chatIds.subList(0, firstChatRows).stream().allMatch(distinctInOrder.get(0)::equals));
+    }
+
+    @Test
+    void getChatParticipantIds_ExistingChat_ReturnsMemberIds() {
+        // Given
+        Chat group = chatDbService.createGroupChat(user1.getUserId(), members, "Test Group");
+        entityManager.flush();
+
+        // When
+        List<String> participantIds = chatDbService.getChatParticipantIds(group.getChatId());
+
+        // Then
+        assertEquals(Set.of(user1.getUserId(), user2.getUserId(), user3.getUserId()), Set.copyOf(participantIds));
+    }
+
+    @Test
+    void getMembershipDigestsAfter_SeveralChats_CountAndHashSumPerChat() {
+        // Given
+        Chat group = chatDbService.createGroupChat(user1.getUserId(), members, "Test Group");
+        Chat privateChat = chatDbService.createPrivateChat(user1.getUserId(), user4.getUserId());
+        entityManager.flush();
+
+        // When
+        List<MembershipDigest> digests = chatDbService.getMembershipDigestsAfter("", 10);
+
+        // Then
+        // Summed as longs, like SUM in the database, so the int hashes do not overflow
+        long groupHash = (long) ChatParticipant.memberHash(user1.getUserId())
+                + ChatParticipant.memberHash(user2.getUserId()) + ChatParticipant.memberHash(user3.getUserId());
+        long privateHash = (long) ChatParticipant.memberHash(user1.getUserId())
+                + ChatParticipant.memberHash(user4.getUserId());
+        assertTrue(digests.contains(new MembershipDigest(group.getChatId(), 3, groupHash)));
+        assertTrue(digests.contains(new MembershipDigest(privateChat.getChatId(), 2, privateHash)));
+        assertTrue(digests.get(0).chatId().compareTo(digests.get(1).chatId()) < 0);
+    }
+
+    @Test
+    void getMembershipDigestsAfter_Cursor_ReturnsFollowingChatsOnly() {
+        // Given
+        chatDbService.createGroupChat(user1.getUserId(), members, "Test Group");
+        chatDbService.createPrivateChat(user1.getUserId(), user4.getUserId());
+        entityManager.flush();
+        List<MembershipDigest> all = chatDbService.getMembershipDigestsAfter("", 10);
+
+        // When
+        List<MembershipDigest> firstPage = chatDbService.getMembershipDigestsAfter("", 1);
+        List<MembershipDigest> secondPage = chatDbService.getMembershipDigestsAfter(firstPage.get(0).chatId(), 10);
+
+        // Then
+        assertEquals(List.of(all.get(0)), firstPage);
+        assertEquals(List.of(all.get(1)), secondPage);
+    }
 }
@@ -0,0 +1,93 @@
+package com.MarinGallien.JavaChatApp.Database;
+
+import com.MarinGallien.JavaChatApp.Database.DatabaseServices.ChatOutboxDbService;
+import com.MarinGallien.JavaChatApp.Database.JPAEntities.ChatOutboxEvent;
+import com.MarinGallien.JavaChatApp.Database.JPAEntities.ChatOutboxEvent.Type;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(ChatOutboxDbService.class)
+public class ChatOutboxDbServiceTests {
+
+    @Autowired
+    private ChatOutboxDbService outboxDbService;
+
+    @Test
+    void append_ValidEvents_SequencesIncrease() {
+        // When
+        Long first = outboxDbService.append(new ChatOutboxEvent(Type.CHAT_CREATED, "chat1", null, "user1,user2"));
+        Long second = outboxDbService.append(new ChatOutboxEvent(Type.MEMBER_ADDED, "chat1", "user3", null));
+
+        // Then
+        assertNotNull(first);
+        assertTrue(second > first);
+        assertEquals(second, outboxDbService.getLatestSequence());
+    }
+
+    @Test
+    void append_MissingChatId_ReturnsNull() {
+        // When
+        Long sequence = outboxDbService.append(new ChatOutboxEvent(Type.CHAT_DELETED, null, null, null));
+
+        // Then
+        assertNull(sequence);
+    }
+
+    @Test
+    void getEventsAfter_Limit_ReturnsOldestFirst() {
+        // Given
+        Long first = outboxDbService.append(new ChatOutboxEvent(Type.MEMBER_ADDED, "chat1", "user1", null));
+        Long second = outboxDbService.append(new ChatOutboxEvent(Type.MEMBER_ADDED, "chat1", "user2", null));
+        outboxDbService.append(new ChatOutboxEvent(Type.MEMBER_ADDED, "chat1", "user3", null));
+
+        // When
+        List<ChatOutboxEvent> events = outboxDbService.getEventsAfter(first - 1, 2);
+
+        // Then
+        assertEquals(2, events.size());
+        assertEquals(first, events.get(0).getSequence());
+        assertEquals(second, events.get(1).getSequence());
+        assertEquals("user1", events.get(0).getUserId());
+    }
+
+    @Test
+    void deleteAppliedEvents_KeepsEventsFromSequenceOn() {
+        // Given
+        Long first = outboxDbService.append(new ChatOutboxEvent(Type.MEMBER_ADDED, "chat1", "user1", null));
+        Long second = outboxDbService.append(new ChatOutboxEvent(Type.MEMBER_ADDED, "chat1", "user2", null));
+        Long third = outboxDbService.append(new ChatOutboxEvent(Type.MEMBER_ADDED, "chat1", "user3", null));
+
+        // When
+        int deleted = outboxDbService.deleteAppliedEvents(second, LocalDateTime.now().plusMinutes(1));
+
+        // Then
+        assertEquals(1, deleted);
+        List<ChatOutboxEvent> remaining = outboxDbService.getEventsAfter(first - 1, 10);
+        assertEquals(List.of(second, third), remaining.stream().map(ChatOutboxEvent::getSequence).toList());
+        assertEquals(third, outboxDbService.getLatestSequence());
+    }
+
+    @Test
+    void deleteAppliedEvents_WithinRetention_KeepsEvents() {
+        // Given
+        Long first = outboxDbService.append(new ChatOutboxEvent(Type.MEMBER_ADDED, "chat1", "user1", null));
+        Long second = outboxDbService.append(new ChatOutboxEvent(Type.MEMBER_ADDED, "chat1", "user2", null));
+
+        // When
+        int deleted = outboxDbService.deleteAppliedEvents(second, LocalDateTime.now().minusMinutes(60));
+
+        // Then
+        assertEquals(0, deleted);
+        assertEquals(2, outboxDbService.getEventsAfter(first - 1, 10).size());
+    }
+}
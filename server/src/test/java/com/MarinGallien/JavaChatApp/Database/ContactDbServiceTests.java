@@ -3,6 +3,7 @@ package com.MarinGallien.JavaChatApp.Database;
 import com.MarinGallien.JavaChatApp.Database.DatabaseServices.ContactDbService;
 import com.MarinGallien.JavaChatApp.Database.JPAEntities.User;
 import com.MarinGallien.JavaChatApp.Database.JPAEntities.Contact;
+import com.MarinGallien.JavaChatApp.Database.JPAEntities.ContactChange;
 import com.MarinGallien.JavaChatApp.Database.JPARepositories.ContactRepo;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -158,4 +159,82 @@ public class ContactDbServiceTests {
         assertNotNull(contacts);
         assertTrue(contacts.isEmpty());
     }
+
+    @Test
+    void getAllContactMappings_ContactsExist_ReturnsBothDirections() {
+        // Given
+        contactDbService.createContact(user1.getUserId(), user2.getUserId());
+
+        // When
+        List<Object[]> mappings = contactDbService.getAllContactMappings();
+
+        // Then
+        assertEquals(2, mappings.size());
+        assertTrue(mappings.stream().anyMatch(m -> m[0].equals(user1.getUserId()) && m[1].equals(user2.getUserId())));
+        assertTrue(mappings.stream().anyMatch(m -> m[0].equals(user2.getUserId()) && m[1].equals(user1.getUserId())));
+    }
+
+    // ==========================================================================
+    // CONTACT CHANGE TESTS
+    // ==========================================================================
+
+    @Test
+    void createContact_ValidUsers_RecordsChange() {
+        // Given
+        long before = System.currentTimeMillis();
+
+        // When
+        contactDbService.createContact(user1.getUserId(), user2.getUserId());
+
+        // Then
+        List<ContactChange> changes = contactDbService.getContactChangesSince(before);
+        assertEquals(1, changes.size());
+        assertEquals(user1.getUserId(), changes.get(0).getUserId());
+        assertEquals(user2.getUserId(), changes.get(0).getContactUserId());
+    }
+
+    @Test
+    void removeContact_ValidUsers_RecordsChangeAfterCreation() {
+        // Given
+        long before = System.currentTimeMillis();
+        contactDbService.createContact(user1.getUserId(), user2.getUserId());
+
+        // When
+        contactDbService.removeContact(user2.getUserId(), user1.getUserId());
+
+        // Then - in the order they were made
+        List<ContactChange> changes = contactDbService.getContactChangesSince(before);
+        assertEquals(2, changes.size());
+        assertEquals(user1.getUserId(), changes.get(0).getUserId());
+        assertEquals(user2.getUserId(), changes.get(1).getUserId());
+    }
+
+    @Test
+    void createContact_AlreadyContacts_RecordsNoChange() {
+        // Given
+        long before = System.currentTimeMillis();
+        contactDbService.createContact(user1.getUserId(), user2.getUserId());
+
+        // When
+        contactDbService.createContact(user2.getUserId(), user1.getUserId());
+
+        // Then
+        assertEquals(1, contactDbService.getContactChangesSince(before).size());
+    }
+
+    @Test
+    void deleteContactChangesBefore_OldAndNewChanges_DeletesOnlyOld() {
+        // Given
+        entityManager.persistAndFlush(new ContactChange(user1.getUserId(), user2.getUserId(), 1_000));
+        entityManager.persistAndFlush(new ContactChange(user1.getUserId(), user3.getUserId(), 5_000));
+
+        // When
+        int deleted = contactDbService.deleteContactChangesBefore(2_000);
+
+        // Then
+        assertEquals(1, deleted);
+        List<ContactChange> remaining = contactDbService.getContactChangesSince(0);
+        assertEquals(1, remaining.size());
+        assertEquals(user3.getUserId(), remaining.get(0).getContactUserId());
+    }
 }
@@ -0,0 +1,178 @@
+package com.MarinGallien.JavaChatApp.Database;
+
+import com.MarinGallien.JavaChatApp.Database.DatabaseServices.ContentAddressedStore;
+import com.MarinGallien.JavaChatApp.Database.DatabaseServices.ContentAddressedStore.StoredContent;
+import com.MarinGallien.JavaChatApp.Database.JPARepositories.FileRepo;
+import com.MarinGallien.JavaChatApp.Database.JPARepositories.ReleasedBlobRepo;
+import com.MarinGallien.JavaChatApp.Storage.LocalBlobStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+public class ContentAddressedStoreTests {
+
+    private static final String CONTENT = "Forwarded to forty chats";
+
+    @TempDir
+    Path storageDir;
+
+    @Autowired
+    private ReleasedBlobRepo releasedBlobRepo;
+
+    @Autowired
+    private FileRepo fileRepo;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private ContentAddressedStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = newStore(60);
+    }
+
+    private ContentAddressedStore newStore(long graceMinutes) {
+        return new ContentAddressedStore(new LocalBlobStore(storageDir), storageDir.toString(), releasedBlobRepo,
+                fileRepo, transactionManager, graceMinutes, 60_000);
+    }
+
+    // Sweeps with no grace period, once the release is in the past
+    private int sweepNow() throws InterruptedException {
+        Thread.sleep(5);
+        return newStore(0).sweep();
+    }
+
+    private StoredContent storeString(String content) throws IOException {
+        return store.store(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private long countBlobs() throws IOException {
+        try (Stream<Path> files = Files.walk(storageDir.resolve("blobs"))) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    // ==========================================================================
+    // STORE TESTS
+    // ==========================================================================
+
+    @Test
+    void store_NewContent_WritesShardedBlobNamedByHash() throws Exception {
+        // When
+        StoredContent content = storeString(CONTENT);
+
+        // Then
+        String hash = HexFormat.of().formatHex(
+                MessageDigest.getInstance("SHA-256").digest(CONTENT.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(hash, content.sha256());
+        assertEquals(CONTENT.length(), content.size());
+        assertEquals("blobs/" + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash, content.key());
+        assertEquals(CONTENT, Files.readString(storageDir.resolve(content.key())));
+    }
+
+    @Test
+    void store_SameContentTwice_KeepsOneCopy() throws IOException {
+        // When
+        StoredContent first = storeString(CONTENT);
+        StoredContent second = storeString(CONTENT);
+
+        // Then
+        assertEquals(first.key(), second.key());
+        assertEquals(1, countBlobs());
+        try (Stream<Path> temp = Files.list(storageDir.resolve("tmp"))) {
+            assertEquals(0, temp.count());
+        }
+    }
+
+    @Test
+    void store_StagedFileWithKnownHash_MovesItIntoStore() throws IOException {
+        // Given
+        StoredContent existing = storeString(CONTENT);
+        Path staged = Files.writeString(storageDir.resolve("upload.part"), CONTENT);
+
+        // When - uppercase hex from a client is accepted
+        StoredContent content = store.store(staged, existing.sha256().toUpperCase());
+
+        // Then
+        assertEquals(existing.key(), content.key());
+        assertFalse(Files.exists(staged));
+        assertEquals(1, countBlobs());
+    }
+
+    // ==========================================================================
+    // RELEASE TESTS
+    // ==========================================================================
+
+    @Test
+    void sweep_ReleasedPastGracePeriod_DeletesBlob() throws Exception {
+        // Given
+        StoredContent content = storeString(CONTENT);
+        store.release(content.key());
+
+        // When
+        int deleted = sweepNow();
+
+        // Then
+        assertEquals(1, deleted);
+        assertFalse(Files.exists(storageDir.resolve(content.key())));
+        assertFalse(releasedBlobRepo.existsById(content.key()));
+    }
+
+    @Test
+    void sweep_WithinGracePeriod_KeepsBlob() throws IOException {
+        // Given
+        StoredContent content = storeString(CONTENT);
+        store.release(content.key());
+
+        // When
+        int deleted = store.sweep();
+
+        // Then
+        assertEquals(0, deleted);
+        assertTrue(Files.exists(storageDir.resolve(content.key())));
+        assertTrue(releasedBlobRepo.existsById(content.key()));
+    }
+
+    @Test
+    void sweep_ContentStoredAgainAfterRelease_KeepsBlob() throws Exception {
+        // Given - a new upload of the same content reuses the released blob
+        StoredContent content = storeString(CONTENT);
+        store.release(content.key());
+        storeString(CONTENT);
+
+        // When
+        int deleted = sweepNow();
+
+        // Then
+        assertEquals(0, deleted);
+        assertTrue(Files.exists(storageDir.resolve(content.key())));
+    }
+
+    @Test
+    void sweep_BlobAlreadyGone_DoesNotThrow() {
+        // Given
+        store.release("blobs/missing");
+
+        // When / Then
+        assertDoesNotThrow(this::sweepNow);
+        assertFalse(releasedBlobRepo.existsById("blobs/missing"));
+    }
+}
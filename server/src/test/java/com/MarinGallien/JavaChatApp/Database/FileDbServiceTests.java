@@ -1,5 +1,7 @@
 package com.MarinGallien.JavaChatApp.Database;
 
+import com.MarinGallien.JavaChatApp.Config.StorageConfig;
+import com.MarinGallien.JavaChatApp.Database.DatabaseServices.ContentAddressedStore;
 import com.MarinGallien.JavaChatApp.Database.DatabaseServices.FileDbService;
 import com.MarinGallien.JavaChatApp.Database.JPAEntities.Chat;
 import com.MarinGallien.JavaChatApp.Database.JPAEntities.File;
@@ -7,23 +9,29 @@ import com.MarinGallien.JavaChatApp.Database.JPAEntities.User;
 import com.MarinGallien.JavaChatApp.Database.JPAEntities.ChatParticipant;
 import com.MarinGallien.JavaChatApp.Database.JPARepositories.FileRepo;
 import com.MarinGallien.JavaChatApp.Enums.ChatType;
+import com.MarinGallien.JavaChatApp.Storage.BlobStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.context.annotation.Import;
+import org.springframework.core.io.Resource;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.HexFormat;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
-@DataJpaTest
+// No grace period, so released content can be swept right away
+@DataJpaTest(properties = "chat.files.sweep.grace-minutes=0")
 @ActiveProfiles("test")
-@Import(FileDbService.class)
+@Import({FileDbService.class, ContentAddressedStore.class, StorageConfig.class})
 public class FileDbServiceTests {
 
     @Autowired
@@ -35,6 +43,12 @@ public class FileDbServiceTests {
     @Autowired
     private FileRepo fileRepo;
 
+    @Autowired
+    private ContentAddressedStore contentStore;
+
+    @Autowired
+    private BlobStore blobStore;
+
     private User user1;
     private User user2;
     private Chat chat;
@@ -83,6 +97,33 @@ public class FileDbServiceTests {
         assertTrue(fileRepo.existsById(uploadedFile.getFileId()));
     }
 
+    @Test
+    void uploadFile_ValidInputs_RecordsSha256OfContent() throws Exception {
+        // When
+        File uploadedFile = fileDbService.uploadFile(user1.getUserId(), chat.getChatId(), testFile);
+
+        // Then
+        byte[] expected = MessageDigest.getInstance("SHA-256").digest("Test file content".getBytes());
+        assertNotNull(uploadedFile);
+        assertEquals(HexFormat.of().formatHex(expected), uploadedFile.getChecksum());
+    }
+
+    @Test
+    void uploadFile_SameContentTwice_SharesStoredCopy() throws IOException {
+        // When - the same document is posted again under another name
+        File first = fileDbService.uploadFile(user1.getUserId(), chat.getChatId(), testFile);
+        File second = fileDbService.uploadFile(user2.getUserId(), chat.getChatId(),
+                new MockMultipartFile("file", "copy.txt", "text/plain", "Test file content".getBytes()));
+
+        // Then
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNotEquals(first.getFileId(), second.getFileId());
+        assertEquals(first.getFilePath(), second.getFilePath());
+        assertEquals(2, fileRepo.countByFilePath(first.getFilePath()));
+        assertTrue(first.getFilePath().endsWith(first.getChecksum()));
+    }
+
     @Test
     void uploadFile_NonExistentUser_ReturnsNull() throws IOException {
         // When
@@ -154,6 +195,28 @@ public class FileDbServiceTests {
         assertFalse(fileRepo.existsById(fileId));
     }
 
+    @Test
+    void deleteFile_SharedContent_StoredCopyKeptUntilLastFileDeleted() throws Exception {
+        // Given
+        File first = fileDbService.uploadFile(user1.getUserId(), chat.getChatId(), testFile);
+        File second = fileDbService.uploadFile(user2.getUserId(), chat.getChatId(),
+                new MockMultipartFile("file", "copy.txt", "text/plain", "Test file content".getBytes()));
+
+        // When
+        fileDbService.deleteFile(user1.getUserId(), chat.getChatId(), first.getFileId());
+        Thread.sleep(5);
+        int sweptWhileShared = contentStore.sweep();
+
+        fileDbService.deleteFile(user2.getUserId(), chat.getChatId(), second.getFileId());
+        Thread.sleep(5);
+        int sweptWhenUnused = contentStore.sweep();
+
+        // Then
+        assertEquals(0, sweptWhileShared);
+        assertEquals(1, sweptWhenUnused);
+        assertNull(blobStore.stat(first.getFilePath()));
+    }
+
     @Test
     void deleteFile_NonExistentUser_ReturnsFalse() throws IOException {
         // Given
@@ -191,6 +254,58 @@ public class FileDbServiceTests {
         assertTrue(fileRepo.existsById(uploadedFile.getFileId()));
     }
 
+    @Test
+    void deleteFile_FileFromAnotherChat_ReturnsFalse() throws IOException {
+        // Given - user1 is a member of both chats, the file was uploaded to the first one
+        Chat otherChat = new Chat("test-chat-456", ChatType.SINGLE);
+        entityManager.persistAndFlush(otherChat);
+        entityManager.persistAndFlush(new ChatParticipant(otherChat, user1));
+        File uploadedFile = fileDbService.uploadFile(user1.getUserId(), chat.getChatId(), testFile);
+        assertNotNull(uploadedFile);
+
+        // When
+        Boolean deleted = fileDbService.deleteFile(user1.getUserId(), otherChat.getChatId(), uploadedFile.getFileId());
+
+        // Then
+        assertFalse(deleted);
+        assertTrue(fileRepo.existsById(uploadedFile.getFileId()));
+    }
+
+    // ==========================================================================
+    // DOWNLOAD FILE TESTS
+    // ==========================================================================
+
+    @Test
+    void downloadFile_ValidInputs_ReturnsResource() throws IOException {
+        // Given
+        File uploadedFile = fileDbService.uploadFile(user1.getUserId(), chat.getChatId(), testFile);
+        assertNotNull(uploadedFile);
+
+        // When
+        Resource resource = fileDbService.downloadFile(user2.getUserId(), chat.getChatId(), uploadedFile.getFileId());
+
+        // Then
+        assertNotNull(resource);
+        try (InputStream in = resource.getInputStream()) {
+            assertEquals("Test file content", new String(in.readAllBytes()));
+        }
+    }
+
+    @Test
+    void downloadFile_UserNotInChat_ReturnsNull() throws IOException {
+        // Given
+        User user3 = new User("charlie", "charlie@test.com", "password3");
+        entityManager.persistAndFlush(user3);
+        File uploadedFile = fileDbService.uploadFile(user1.getUserId(), chat.getChatId(), testFile);
+        assertNotNull(uploadedFile);
+
+        // When
+        Resource resource = fileDbService.downloadFile(user3.getUserId(), chat.getChatId(), uploadedFile.getFileId());
+
+        // Then
+        assertNull(resource);
+    }
+
     // ==========================================================================
     // GET CHAT FILES TESTS
     // ==========================================================================
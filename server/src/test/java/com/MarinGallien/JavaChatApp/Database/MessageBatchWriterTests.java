@@ -0,0 +1,294 @@
+package com.MarinGallien.JavaChatApp.Database;
+
+import com.MarinGallien.JavaChatApp.Database.DatabaseServices.MessageBatchWriter;
+import com.MarinGallien.JavaChatApp.Database.DatabaseServices.MessageBatchWriter.PendingMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class MessageBatchWriterTests {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private MessageBatchWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        // Writer thread is not started - tests drain the queue with flush()
+        writer = new MessageBatchWriter(jdbcTemplate, 2, 10, 3, 10);
+    }
+
+    // ==========================================================================
+    // ENQUEUE TESTS
+    // ==========================================================================
+
+    @Test
+    void enqueue_ValidMessage_ReturnsPendingMessage() {
+        // When
+        PendingMessage pending = writer.enqueue("user1", "chat1", "Hello");
+
+        // Then
+        assertNotNull(pending);
+        assertNotNull(pending.messageId());
+        assertNotNull(pending.sentAt());
+        assertEquals(1, writer.getQueueDepth());
+    }
+
+    @Test
+    void enqueue_QueueFull_ReturnsNullAfterTimeout() {
+        // Given
+        writer.enqueue("user1", "chat1", "1");
+        writer.enqueue("user1", "chat1", "2");
+        writer.enqueue("user1", "chat1", "3");
+
+        // When
+        PendingMessage pending = writer.enqueue("user1", "chat1", "4");
+
+        // Then
+        assertNull(pending);
+        assertEquals(3, writer.getQueueDepth());
+        assertEquals(1, writer.getRejectedCount());
+        assertEquals(3, writer.getUnwrittenCount());
+    }
+
+    @Test
+    void enqueue_AfterShutdown_ReturnsNull() {
+        // Given
+        writer.shutdown();
+
+        // When & Then
+        assertNull(writer.enqueue("user1", "chat1", "Hello"));
+    }
+
+    // ==========================================================================
+    // FLUSH TESTS
+    // ==========================================================================
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_QueuedMessages_WritesInBatchesOfMaxSize() {
+        // Given
+        List<Integer> batchSizes = new ArrayList<>();
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(invocation -> {
+                    batchSizes.add(((Collection<?>) invocation.getArgument(1)).size());
+                    return new int[0][];
+                });
+
+        writer.enqueue("user1", "chat1", "1");
+        writer.enqueue("user1", "chat1", "2");
+        writer.enqueue("user1", "chat1", "3");
+
+        // When
+        writer.flush();
+
+        // Then
+        assertEquals(List.of(2, 1), batchSizes);
+        assertEquals(0, writer.getQueueDepth());
+        assertEquals(3, writer.getWrittenCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_BatchFails_RetriesRowsIndividually() {
+        // Given
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new DataIntegrityViolationException("FK violation"));
+        when(jdbcTemplate.update(anyString(), any(Object[].class)))
+                .thenReturn(1)
+                .thenThrow(new DataIntegrityViolationException("FK violation"));
+
+        writer.enqueue("user1", "chat1", "good");
+        writer.enqueue("ghost", "chat1", "bad");
+
+        // When
+        writer.flush();
+
+        // Then
+        verify(jdbcTemplate, times(2)).update(anyString(), any(Object[].class));
+        assertEquals(1, writer.getWrittenCount());
+        assertEquals(1, writer.getDroppedCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_BatchFailsUnexpectedly_RetriesRowsIndividually() {
+        // Given
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new IllegalStateException("Connection pool closed"));
+        when(jdbcTemplate.update(anyString(), any(Object[].class)))
+                .thenReturn(1)
+                .thenThrow(new IllegalStateException("Connection pool closed"));
+
+        writer.enqueue("user1", "chat1", "first");
+        writer.enqueue("user2", "chat1", "second");
+
+        // When
+        writer.flush();
+
+        // Then - nothing escapes, and only the row that failed on its own is dropped
+        verify(jdbcTemplate, times(2)).update(anyString(), any(Object[].class));
+        assertEquals(1, writer.getWrittenCount());
+        assertEquals(1, writer.getDroppedCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shutdown_PendingMessages_FlushesBeforeReturning() {
+        // Given
+        List<String> written = new ArrayList<>();
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(invocation -> {
+                    for (Object pending : (Collection<?>) invocation.getArgument(1)) {
+                        written.add(((PendingMessage) pending).content());
+                    }
+                    return new int[0][];
+                });
+
+        writer.enqueue("user1", "chat1", "Hello");
+
+        // When
+        writer.shutdown();
+
+        // Then
+        assertEquals(List.of("Hello"), written);
+        assertEquals(0, writer.getQueueDepth());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shutdown_RacingProducers_EveryAcceptedMessageWritten() throws InterruptedException {
+        for (int round = 0; round < 20; round++) {
+            // Given - a running writer and producers that keep sending until they are refused
+            Set<String> written = ConcurrentHashMap.newKeySet();
+            JdbcTemplate template = mock(JdbcTemplate.class);
+            when(template.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                    .thenAnswer(invocation -> {
+                        for (Object pending : (Collection<?>) invocation.getArgument(1)) {
+                            written.add(((PendingMessage) pending).messageId());
+                        }
+                        return new int[0][];
+                    });
+            MessageBatchWriter racedWriter = new MessageBatchWriter(template, 8, 1, 64, 5);
+            racedWriter.start();
+
+            Set<String> accepted = ConcurrentHashMap.newKeySet();
+            CountDownLatch started = new CountDownLatch(4);
+            List<Thread> producers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                Thread producer = new Thread(() -> {
+                    started.countDown();
+                    PendingMessage message;
+                    while ((message = racedWriter.enqueue("user1", "chat1", "Hello")) != null) {
+                        accepted.add(message.messageId());
+                    }
+                });
+                producer.start();
+                producers.add(producer);
+            }
+            started.await();
+
+            // When
+            racedWriter.shutdown();
+            for (Thread producer : producers) producer.join();
+
+            // Then - nothing acknowledged after the final flush
+            assertFalse(accepted.isEmpty());
+            assertEquals(accepted, written);
+        }
+    }
+
+    // ==========================================================================
+    // SETTLED HISTORY TESTS
+    // ==========================================================================
+
+    // Spins until time is a few milliseconds in the past, so a message sent at time is older than a 1 ms window
+    private static void waitUntilPast(LocalDateTime time) {
+        LocalDateTime target = time.plusNanos(5_000_000);
+        while (!LocalDateTime.now().isAfter(target)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    @Test
+    void getSettledBefore_NothingQueued_SettleWindowBeforeNow() {
+        // Given
+        MessageBatchWriter settling = new MessageBatchWriter(jdbcTemplate, 2, 10, 3, 10, 1000);
+        LocalDateTime before = LocalDateTime.now();
+
+        // When
+        LocalDateTime settled = settling.getSettledBefore();
+
+        // Then
+        assertFalse(settled.isBefore(before.minusSeconds(1)));
+        assertFalse(settled.isAfter(LocalDateTime.now().minusSeconds(1)));
+    }
+
+    @Test
+    void getSettledBefore_MessageQueuedPastWindow_HeldAtItsSentAt() {
+        // Given - a message stuck in the queue for longer than the window
+        MessageBatchWriter settling = new MessageBatchWriter(jdbcTemplate, 2, 1, 3, 10, 1);
+        PendingMessage pending = settling.enqueue("user1", "chat1", "Hello");
+        waitUntilPast(pending.sentAt());
+
+        // When
+        LocalDateTime settled = settling.getSettledBefore();
+
+        // Then - messages sent from then on may still be followed by it
+        assertEquals(pending.sentAt(), settled);
+    }
+
+    @Test
+    void getSettledBefore_MessageWritten_MovesPastIt() {
+        // Given
+        MessageBatchWriter settling = new MessageBatchWriter(jdbcTemplate, 2, 1, 3, 10, 1);
+        PendingMessage pending = settling.enqueue("user1", "chat1", "Hello");
+        waitUntilPast(pending.sentAt());
+
+        // When
+        settling.flush();
+
+        // Then
+        assertTrue(settling.getSettledBefore().isAfter(pending.sentAt()));
+        assertEquals(0, settling.getUnwrittenCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getSettledBefore_MessageDropped_MovesPastIt() {
+        // Given
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new DataIntegrityViolationException("FK violation"));
+        when(jdbcTemplate.update(anyString(), any(Object[].class)))
+                .thenThrow(new DataIntegrityViolationException("FK violation"));
+        MessageBatchWriter settling = new MessageBatchWriter(jdbcTemplate, 2, 1, 3, 10, 1);
+        PendingMessage pending = settling.enqueue("ghost", "chat1", "Hello");
+        waitUntilPast(pending.sentAt());
+
+        // When
+        settling.flush();
+
+        // Then
+        assertEquals(1, settling.getDroppedCount());
+        assertTrue(settling.getSettledBefore().isAfter(pending.sentAt()));
+    }
+}
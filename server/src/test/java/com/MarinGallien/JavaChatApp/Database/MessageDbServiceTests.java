@@ -1,5 +1,8 @@
 package com.MarinGallien.JavaChatApp.Database;
 
+import com.MarinGallien.JavaChatApp.DTOs.DataEntities.MessageDTO;
+import com.MarinGallien.JavaChatApp.Database.DatabaseServices.MessageBatchWriter;
+import com.MarinGallien.JavaChatApp.Database.DatabaseServices.MessageBatchWriter.PendingMessage;
 import com.MarinGallien.JavaChatApp.Database.DatabaseServices.MessageDbService;
 import com.MarinGallien.JavaChatApp.Database.JPAEntities.Chat;
 import com.MarinGallien.JavaChatApp.Database.JPAEntities.Message;
@@ -14,9 +17,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -34,6 +42,9 @@ public class MessageDbServiceTests {
     @Autowired
     private MessageRepo messageRepo;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     private User user1;
     private User user2;
     private User user3;
@@ -210,4 +221,174 @@ public class MessageDbServiceTests {
         assertEquals(1, secondChatMessages.size());
         assertEquals("Message in second chat", secondChatMessages.get(0).getContent());
     }
-}
\ No newline at end of file
+
+    // ==========================================================================
+    // DTO PROJECTION TESTS
+    // ==========================================================================
+
+    @Test
+    void getChatMessageDTOs_ValidInputs_ReturnsDTOsWithSenderUsername() {
+        // Given
+        messageDbService.saveMessage(user1.getUserId(), chat.getChatId(), "First message");
+        messageDbService.saveMessage(user2.getUserId(), chat.getChatId(), "Second message");
+        entityManager.flush();
+        entityManager.clear();
+
+        // When
+        List<MessageDTO> messages = messageDbService.getChatMessageDTOs(user1.getUserId(), chat.getChatId());
+
+        // Then
+        assertEquals(2, messages.size());
+        assertEquals(chat.getChatId(), messages.get(0).getChatId());
+        assertTrue(messages.stream().anyMatch(m -> "alice".equals(m.getSenderUname()) && "First message".equals(m.getContent())));
+        assertTrue(messages.stream().anyMatch(m -> "bob".equals(m.getSenderUname()) && "Second message".equals(m.getContent())));
+    }
+
+    @Test
+    void getChatMessageDTOs_UserNotInChat_ReturnsEmptyList() {
+        // Given
+        messageDbService.saveMessage(user1.getUserId(), chat.getChatId(), "Test message");
+
+        // When
+        List<MessageDTO> messages = messageDbService.getChatMessageDTOs(user3.getUserId(), chat.getChatId());
+
+        // Then
+        assertTrue(messages.isEmpty());
+    }
+
+    // ==========================================================================
+    // KEYSET PAGINATION TESTS
+    // ==========================================================================
+
+    @Test
+    void getLatestMessages_MoreThanLimit_ReturnsNewestFirst() {
+        // Given
+        for (int i = 0; i < 5; i++) {
+            messageDbService.saveMessage(user1.getUserId(), chat.getChatId(), "Message " + i);
+        }
+
+        // When
+        List<MessageDTO> page = messageDbService.getLatestMessages(user1.getUserId(), chat.getChatId(), 3);
+
+        // Then
+        assertEquals(3, page.size());
+        assertFalse(isBefore(page.get(0), page.get(1)));
+        assertFalse(isBefore(page.get(1), page.get(2)));
+    }
+
+    @Test
+    void getMessagesBefore_PagingThroughHistory_VisitsEveryMessageOnce() {
+        // Given
+        for (int i = 0; i < 5; i++) {
+            messageDbService.saveMessage(user1.getUserId(), chat.getChatId(), "Message " + i);
+        }
+
+        // When - walk backwards two messages at a time
+        List<MessageDTO> visited = new ArrayList<>();
+        List<MessageDTO> page = messageDbService.getLatestMessages(user1.getUserId(), chat.getChatId(), 2);
+        while (!page.isEmpty()) {
+            visited.addAll(page);
+            MessageDTO oldest = page.get(page.size() - 1);
+            page = messageDbService.getMessagesBefore(user1.getUserId(), chat.getChatId(),
+                    oldest.getSentAt(), oldest.getMessageId(), 2);
+        }
+
+        // Then
+        Set<String> ids = new HashSet<>();
+        visited.forEach(m -> ids.add(m.getMessageId()));
+        assertEquals(5, visited.size());
+        assertEquals(5, ids.size());
+    }
+
+    @Test
+    void getMessagesAfter_CursorAtOldest_ReturnsNewerMessagesOldestFirst() {
+        // Given
+        for (int i = 0; i < 3; i++) {
+            messageDbService.saveMessage(user1.getUserId(), chat.getChatId(), "Message " + i);
+        }
+        List<MessageDTO> all = messageDbService.getLatestMessages(user1.getUserId(), chat.getChatId(), 10);
+        MessageDTO oldest = all.get(all.size() - 1);
+
+        // When
+        List<MessageDTO> newer = messageDbService.getMessagesAfter(user1.getUserId(), chat.getChatId(),
+                oldest.getSentAt(), oldest.getMessageId(), LocalDateTime.now().plusMinutes(1), 10);
+
+        // Then
+        assertEquals(2, newer.size());
+        assertTrue(isBefore(newer.get(0), newer.get(1)));
+    }
+
+    @Test
+    void getLatestMessages_UserNotInChat_ReturnsEmptyList() {
+        // Given
+        messageDbService.saveMessage(user1.getUserId(), chat.getChatId(), "Test message");
+
+        // When
+        List<MessageDTO> page = messageDbService.getLatestMessages(user3.getUserId(), chat.getChatId(), 10);
+
+        // Then
+        assertTrue(page.isEmpty());
+    }
+
+    @Test
+    void getMessagesAfter_NewerThanSettled_LeftForLaterPage() {
+        // Given
+        Message first = saveAndFlush(user1, "First");
+        Message second = saveAndFlush(user1, "Second");
+
+        // When - the second message is not settled yet
+        List<MessageDTO> newer = messageDbService.getMessagesAfter(user1.getUserId(), chat.getChatId(),
+                first.getSentAt().minusSeconds(1), "", second.getSentAt(), 10);
+
+        // Then
+        assertEquals(List.of(first.getMessageId()), newer.stream().map(MessageDTO::getMessageId).toList());
+    }
+
+    @Test
+    void getMessagesAfter_MessageWrittenBehindLaterOne_NotSkipped() {
+        // Given - a message still queued in the write-behind writer, then a later one stored straight away
+        MessageBatchWriter writer = new MessageBatchWriter(jdbcTemplate, 10, 1, 10, 10, 1);
+        Message cursor = saveAndFlush(user1, "Cursor");
+        PendingMessage queued = writer.enqueue(user1.getUserId(), chat.getChatId(), "Written late");
+        waitUntilPast(queued.sentAt());
+        Message later = saveAndFlush(user2, "Stored first");
+        waitUntilPast(later.getSentAt());
+
+        // When - a client pages forward before the queued message is written
+        List<MessageDTO> early = messageDbService.getMessagesAfter(user1.getUserId(), chat.getChatId(),
+                cursor.getSentAt(), cursor.getMessageId(), writer.getSettledBefore(), 10);
+
+        // Then - the later message is held back, so the cursor cannot move past the queued one
+        assertTrue(early.isEmpty());
+
+        // When - the queued message is written
+        writer.flush();
+        List<MessageDTO> settled = messageDbService.getMessagesAfter(user1.getUserId(), chat.getChatId(),
+                cursor.getSentAt(), cursor.getMessageId(), writer.getSettledBefore(), 10);
+
+        // Then
+        assertEquals(List.of(queued.messageId(), later.getMessageId()),
+                settled.stream().map(MessageDTO::getMessageId).toList());
+    }
+
+    // Saves a message and flushes it, so its sent time is set
+    private Message saveAndFlush(User sender, String content) {
+        Message message = messageDbService.saveMessage(sender.getUserId(), chat.getChatId(), content);
+        entityManager.flush();
+        return message;
+    }
+
+    // Spins until time is a few milliseconds in the past, so a message sent at time is older than a 1 ms window
+    private static void waitUntilPast(LocalDateTime time) {
+        LocalDateTime target = time.plusNanos(5_000_000);
+        while (!LocalDateTime.now().isAfter(target)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    // Orders messages the same way the keyset queries do
+    private boolean isBefore(MessageDTO a, MessageDTO b) {
+        int bySentAt = a.getSentAt().compareTo(b.getSentAt());
+        return bySentAt != 0 ? bySentAt < 0 : a.getMessageId().compareTo(b.getMessageId()) < 0;
+    }
+}
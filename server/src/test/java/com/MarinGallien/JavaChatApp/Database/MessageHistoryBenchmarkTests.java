@@ -0,0 +1,131 @@
+package com.MarinGallien.JavaChatApp.Database;
+
+import com.MarinGallien.JavaChatApp.DTOs.DataEntities.MessageDTO;
+import com.MarinGallien.JavaChatApp.Database.DatabaseServices.MessageDbService;
+import com.MarinGallien.JavaChatApp.Database.JPAEntities.Chat;
+import com.MarinGallien.JavaChatApp.Database.JPAEntities.ChatParticipant;
+import com.MarinGallien.JavaChatApp.Database.JPAEntities.Message;
+import com.MarinGallien.JavaChatApp.Database.JPAEntities.User;
+import com.MarinGallien.JavaChatApp.Database.Mappers.MessageMapper;
+import com.MarinGallien.JavaChatApp.Enums.ChatType;
+import com.MarinGallien.JavaChatApp.Enums.MessageType;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Compares reading a 10k-message chat through entities + MessageMapper against the DTO projection query.
+// Excluded from the default build, run with: mvn -pl server test -Pbenchmark
+@Tag("benchmark")
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@Import({MessageDbService.class, MessageMapper.class})
+public class MessageHistoryBenchmarkTests {
+
+    private static final int MESSAGE_COUNT = 10_000;
+    private static final int SENDER_COUNT = 50;
+    private static final int ROUNDS = 5;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private MessageDbService messageDbService;
+
+    @Autowired
+    private MessageMapper messageMapper;
+
+    private Chat chat;
+    private User reader;
+
+    @BeforeEach
+    void setUp() {
+        chat = new Chat("benchmark-chat", ChatType.GROUP);
+        entityManager.persist(chat);
+
+        List<User> senders = new ArrayList<>();
+        for (int i = 0; i < SENDER_COUNT; i++) {
+            User user = new User("sender" + i, "sender" + i + "@test.com", "password");
+            entityManager.persist(user);
+            entityManager.persist(new ChatParticipant(chat, user));
+            senders.add(user);
+        }
+        reader = senders.get(0);
+
+        for (int i = 0; i < MESSAGE_COUNT; i++) {
+            User sender = senders.get(i % SENDER_COUNT);
+            entityManager.persist(new Message(sender, chat, "Message " + i, MessageType.TEXT_MESSAGE));
+
+            if (i % 500 == 0) {
+                entityManager.flush();
+                entityManager.clear();
+                chat = entityManager.find(Chat.class, chat.getChatId());
+                for (int j = 0; j < senders.size(); j++) {
+                    senders.set(j, entityManager.find(User.class, senders.get(j).getUserId()));
+                }
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void readTenThousandMessages_EntityPathVersusProjection() {
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+
+        // Current path: load entities then map, touching the lazy sender association
+        Result entityPath = measure(statistics, () ->
+                messageMapper.toDTOList(messageDbService.getChatMessages(reader.getUserId(), chat.getChatId())));
+
+        // Projection path: DTOs straight from a single messages-users join
+        Result projectionPath = measure(statistics, () ->
+                messageDbService.getChatMessageDTOs(reader.getUserId(), chat.getChatId()));
+
+        System.out.printf("Entity + mapper : %6.1f ms, %5d statements, %6d entities loaded%n",
+                entityPath.avgMillis, entityPath.statements, entityPath.entitiesLoaded);
+        System.out.printf("DTO projection  : %6.1f ms, %5d statements, %6d entities loaded%n",
+                projectionPath.avgMillis, projectionPath.statements, projectionPath.entitiesLoaded);
+
+        assertEquals(MESSAGE_COUNT, projectionPath.rows);
+        assertEquals(entityPath.rows, projectionPath.rows);
+        assertEquals(0, projectionPath.entitiesLoaded);
+        assertTrue(projectionPath.statements < entityPath.statements);
+    }
+
+    private record Result(double avgMillis, long statements, long entitiesLoaded, int rows) {}
+
+    // Runs one warm-up and ROUNDS timed reads, each with an empty persistence context.
+    // Statement and entity counts are for a single read.
+    private Result measure(Statistics statistics, Supplier<List<MessageDTO>> read) {
+        read.get();
+        entityManager.clear();
+
+        statistics.clear();
+        int rows = read.get().size();
+        entityManager.clear();
+        long statements = statistics.getPrepareStatementCount();
+        long entitiesLoaded = statistics.getEntityLoadCount();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            read.get();
+            entityManager.clear();
+        }
+        double avgMillis = (System.nanoTime() - start) / 1_000_000.0 / ROUNDS;
+
+        return new Result(avgMillis, statements, entitiesLoaded, rows);
+    }
+}
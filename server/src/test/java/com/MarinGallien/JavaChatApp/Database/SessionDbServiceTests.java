@@ -12,6 +12,8 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 @DataJpaTest
@@ -127,4 +129,27 @@ public class SessionDbServiceTests {
         assertEquals(OnlineStatus.ONLINE, userRepo.findUserById(user1.getUserId()).getStatus());
         assertEquals(OnlineStatus.OFFLINE, userRepo.findUserById(user2.getUserId()).getStatus());
     }
-}
\ No newline at end of file
+
+    // ==========================================================================
+    // BATCH UPDATE TESTS
+    // ==========================================================================
+
+    @Test
+    void updateStatuses_SeveralUsers_UpdatesAllAndSkipsUnknown() {
+        // Given
+        userRepo.findUserById(user2.getUserId()).setStatus(OnlineStatus.ONLINE);
+        entityManager.flush();
+
+        // When
+        int updated = sessionDbService.updateStatuses(Map.of(
+                user1.getUserId(), OnlineStatus.ONLINE,
+                user2.getUserId(), OnlineStatus.OFFLINE,
+                "fake_user_id", OnlineStatus.ONLINE));
+
+        // Then
+        assertEquals(2, updated);
+        entityManager.clear();
+        assertEquals(OnlineStatus.ONLINE, userRepo.findUserById(user1.getUserId()).getStatus());
+        assertEquals(OnlineStatus.OFFLINE, userRepo.findUserById(user2.getUserId()).getStatus());
+    }
+}
@@ -0,0 +1,77 @@
+package com.MarinGallien.JavaChatApp.Database;
+
+import com.MarinGallien.JavaChatApp.Database.DatabaseServices.TokenRevocationDbService;
+import com.MarinGallien.JavaChatApp.Database.JPAEntities.TokenRevocation;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(TokenRevocationDbService.class)
+public class TokenRevocationDbServiceTests {
+
+    @Autowired
+    private TokenRevocationDbService revocationDbService;
+
+    @Test
+    void saveRevocation_LaterRevocation_ReplacesEarlierOne() {
+        // Given
+        revocationDbService.saveRevocation("user1", 1_000);
+
+        // When
+        revocationDbService.saveRevocation("user1", 2_000);
+
+        // Then
+        List<TokenRevocation> revocations = revocationDbService.getRevocationsSince(0);
+        assertEquals(1, revocations.size());
+        assertEquals(2_000, revocations.get(0).getRevokedAtMillis());
+    }
+
+    @Test
+    void saveRevocation_EarlierRevocation_KeepsLaterOne() {
+        // Given
+        revocationDbService.saveRevocation("user1", 2_000);
+
+        // When
+        revocationDbService.saveRevocation("user1", 1_000);
+
+        // Then
+        assertEquals(2_000, revocationDbService.getRevocationsSince(0).get(0).getRevokedAtMillis());
+    }
+
+    @Test
+    void getRevocationsSince_MixedTimes_ReturnsOnlyRecentOnes() {
+        // Given
+        revocationDbService.saveRevocation("user1", 1_000);
+        revocationDbService.saveRevocation("user2", 5_000);
+
+        // When
+        List<TokenRevocation> revocations = revocationDbService.getRevocationsSince(5_000);
+
+        // Then
+        assertEquals(1, revocations.size());
+        assertEquals("user2", revocations.get(0).getUserId());
+    }
+
+    @Test
+    void deleteRevocationsBefore_OldRevocations_Deleted() {
+        // Given
+        revocationDbService.saveRevocation("user1", 1_000);
+        revocationDbService.saveRevocation("user2", 5_000);
+
+        // When
+        int deleted = revocationDbService.deleteRevocationsBefore(5_000);
+
+        // Then
+        assertEquals(1, deleted);
+        assertEquals(List.of("user2"), revocationDbService.getRevocationsSince(0).stream()
+                .map(TokenRevocation::getUserId).toList());
+    }
+}
@@ -0,0 +1,317 @@
+package com.MarinGallien.JavaChatApp.EventSystem;
+
+import com.MarinGallien.JavaChatApp.Database.DatabaseServices.ChatDbService;
+import com.MarinGallien.JavaChatApp.Database.DatabaseServices.ChatOutboxDbService;
+import com.MarinGallien.JavaChatApp.Database.JPAEntities.ChatOutboxEvent;
+import com.MarinGallien.JavaChatApp.Database.JPAEntities.User;
+import com.MarinGallien.JavaChatApp.Database.JPARepositories.ChatOutboxEventRepo;
+import com.MarinGallien.JavaChatApp.EventSystem.Events.ChatEvents.ChatCreated;
+import com.MarinGallien.JavaChatApp.EventSystem.Events.ChatEvents.MemberAddedToChat;
+import com.MarinGallien.JavaChatApp.EventSystem.Events.ChatEvents.MemberRemovedFromChat;
+import com.MarinGallien.JavaChatApp.EventSystem.Events.ChatEvents.SequencedChatEvent;
+import com.MarinGallien.JavaChatApp.WebSocketServer.ChatManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.transaction.TestTransaction;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({ChatDbService.class, ChatOutboxDbService.class})
+public class ChatEventOutboxTests {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ChatDbService chatDbService;
+
+    @Autowired
+    private ChatOutboxDbService outboxDbService;
+
+    @Autowired
+    private ChatOutboxEventRepo outboxRepo;
+
+    private ChatManager chatManager;
+    private EventBusService eventBus;
+    private ChatEventOutbox outbox;
+
+    private String user1Id;
+    private String user2Id;
+    private String user3Id;
+
+    @BeforeEach
+    void setUp() {
+        User user1 = new User("alice", "alice@test.com", "password1");
+        User user2 = new User("bob", "bob@test.com", "password2");
+        User user3 = new User("charlie", "charlie@test.com", "password3");
+        entityManager.persist(user1);
+        entityManager.persist(user2);
+        entityManager.persist(user3);
+        entityManager.flush();
+        user1Id = user1.getUserId();
+        user2Id = user2.getUserId();
+        user3Id = user3.getUserId();
+
+        chatManager = new ChatManager(chatDbService, outboxDbService, false);
+        chatManager.initializeChatManager();
+
+        // Deliver relayed events straight to ChatManager on the relay thread
+        eventBus = new EventBusService(event -> chatManager.handleSequencedChatEvent((SequencedChatEvent) event));
+
+        // No gap timeout: sequences used by rolled back tests are skipped at once
+        outbox = newOutbox(eventBus, 0);
+    }
+
+    private ChatEventOutbox newOutbox(EventBusService bus, long gapTimeoutMs) {
+        return newOutbox(bus, gapTimeoutMs, 600_000);
+    }
+
+    // Polls every 10 ms, so skipped sequences are looked up again after a short sleep
+    private ChatEventOutbox newOutbox(EventBusService bus, long gapTimeoutMs, long lateCommitWindowMs) {
+        return new ChatEventOutbox(outboxDbService, bus, chatManager, 10, 500, gapTimeoutMs, lateCommitWindowMs, 60);
+    }
+
+    // Removes an event as if its transaction had not committed yet, and returns a way to commit it late
+    private Runnable hideEvent(long sequence) {
+        ChatOutboxEvent row = outboxRepo.findById(sequence).orElseThrow();
+        outboxRepo.delete(row);
+        outboxRepo.flush();
+        entityManager.clear();
+
+        return () -> entityManager.getEntityManager().createNativeQuery(
+                        "INSERT INTO chat_event_outbox (sequence_number, event_type, chat_id, user_id, created_at) "
+                                + "VALUES (?, ?, ?, ?, ?)")
+                .setParameter(1, row.getSequence())
+                .setParameter(2, row.getEventType().name())
+                .setParameter(3, row.getChatId())
+                .setParameter(4, row.getUserId())
+                .setParameter(5, row.getCreatedAt())
+                .executeUpdate();
+    }
+
+    private String createGroupChat(String name) {
+        String chatId = chatDbService.createGroupChat(user1Id, Set.of(user1Id), name).getChatId();
+        outbox.record(new ChatCreated(chatId, Set.of(user1Id)));
+        return chatId;
+    }
+
+    // ==========================================================================
+    // RELAY TESTS
+    // ==========================================================================
+
+    @Test
+    void relay_RecordedEvents_AppliedInOrderAndWatermarkAdvances() {
+        // Given
+        String chatId = createGroupChat("group");
+        chatDbService.addMemberToGroupChat(chatId, user2Id);
+        outbox.record(new MemberAddedToChat(user2Id, chatId));
+        chatDbService.removeMemberFromGroupChat(chatId, user2Id);
+        outbox.record(new MemberRemovedFromChat(user2Id, chatId));
+
+        // When
+        int published = outbox.relay();
+
+        // Then
+        assertEquals(3, published);
+        assertEquals(Set.of(user1Id), chatManager.getChatParticipants(chatId));
+        assertEquals(outboxDbService.getLatestSequence(), chatManager.getLastAppliedSequence());
+        assertEquals(0, outbox.relay());
+    }
+
+    @Test
+    void relay_BeforeChatManagerReady_PublishesNothing() {
+        // Given
+        ChatManager loading = new ChatManager(chatDbService, outboxDbService, false);
+        ChatEventOutbox relay = new ChatEventOutbox(outboxDbService, eventBus, loading, 1000, 500, 0, 600_000, 60);
+        createGroupChat("group");
+
+        // When / Then
+        assertEquals(0, relay.relay());
+        assertEquals(-1, relay.getCursor());
+    }
+
+    @Test
+    void relay_LaneRejectsEvent_RewindsAndReplays() {
+        // Given - the second publication is rejected
+        EventBusService rejectingBus = spy(eventBus);
+        doCallRealMethod().doReturn(false).doCallRealMethod().when(rejectingBus).publishEvent(any());
+        outbox = newOutbox(rejectingBus, 0);
+
+        String chatId = createGroupChat("group");
+        chatDbService.addMemberToGroupChat(chatId, user2Id);
+        outbox.record(new MemberAddedToChat(user2Id, chatId));
+        chatDbService.addMemberToGroupChat(chatId, user3Id);
+        outbox.record(new MemberAddedToChat(user3Id, chatId));
+
+        // When
+        int firstPass = outbox.relay();
+        int secondPass = outbox.relay();
+
+        // Then
+        assertEquals(1, firstPass);
+        assertEquals(2, secondPass);
+        assertEquals(1, outbox.getRewindCount());
+        assertEquals(Set.of(user1Id, user2Id, user3Id), chatManager.getChatParticipants(chatId));
+        assertEquals(outboxDbService.getLatestSequence(), chatManager.getLastAppliedSequence());
+    }
+
+    @Test
+    void relay_SequenceGap_WaitsThenSkips() {
+        // Given - relay up to a known sequence, then leave a hole after the next event
+        String chatId = createGroupChat("group");
+        outbox.relay();
+
+        outbox.record(new MemberAddedToChat(user2Id, chatId));
+        long missing = outboxDbService.getLatestSequence() + 1;
+        outbox.record(new MemberAddedToChat(user3Id, chatId));
+        outbox.record(new MemberRemovedFromChat(user1Id, chatId));
+        outboxRepo.deleteById(missing);
+        outboxRepo.flush();
+
+        // When - a relay with a long gap timeout waits for the missing sequence
+        ChatEventOutbox patient = newOutbox(eventBus, 60_000);
+        int beforeTimeout = patient.relay();
+
+        // Then
+        assertEquals(1, beforeTimeout);
+        assertEquals(missing - 1, chatManager.getLastAppliedSequence());
+
+        // When - once the gap timed out, the sequence is skipped
+        ChatEventOutbox impatient = newOutbox(eventBus, 0);
+        int afterTimeout = impatient.relay();
+
+        // Then
+        assertEquals(1, afterTimeout);
+        assertEquals(1, impatient.getSkippedCount());
+        assertEquals(Set.of(user2Id), chatManager.getChatParticipants(chatId));
+    }
+
+    @Test
+    void relay_SkippedSequenceCommitsLate_RelayedWhenItAppears() throws InterruptedException {
+        // Given - the event adding user2 is skipped while its transaction is still open
+        String chatId = createGroupChat("group");
+        outbox.relay();
+        outbox.record(new MemberAddedToChat(user2Id, chatId));
+        long late = outboxDbService.getLatestSequence();
+        outbox.record(new MemberAddedToChat(user3Id, chatId));
+        Runnable commitLate = hideEvent(late);
+
+        ChatEventOutbox relay = newOutbox(eventBus, 0);
+        relay.relay();
+        assertEquals(Set.of(user1Id, user3Id), chatManager.getChatParticipants(chatId));
+
+        // When
+        commitLate.run();
+        Thread.sleep(20);
+        int published = relay.relay();
+
+        // Then
+        assertEquals(1, published);
+        assertEquals(1, relay.getLateRelayedCount());
+        assertEquals(0, relay.getSkippedPendingCount());
+        assertEquals(Set.of(user1Id, user2Id, user3Id), chatManager.getChatParticipants(chatId));
+    }
+
+    @Test
+    void relay_SkippedSequenceNeverCommits_AbandonedAfterWindow() throws InterruptedException {
+        // Given
+        String chatId = createGroupChat("group");
+        outbox.relay();
+        outbox.record(new MemberAddedToChat(user2Id, chatId));
+        long missing = outboxDbService.getLatestSequence();
+        outbox.record(new MemberAddedToChat(user3Id, chatId));
+        hideEvent(missing);
+
+        ChatEventOutbox relay = newOutbox(eventBus, 0, 0);
+        relay.relay();
+        assertEquals(1, relay.getSkippedPendingCount());
+
+        // When
+        Thread.sleep(20);
+        relay.relay();
+
+        // Then
+        assertEquals(0, relay.getSkippedPendingCount());
+        assertEquals(1, relay.getAbandonedCount());
+        assertEquals(0, relay.getLateRelayedCount());
+    }
+
+    // ==========================================================================
+    // TRANSACTION TESTS
+    // ==========================================================================
+
+    @Test
+    void record_TransactionRolledBack_EventNeverRelayed() {
+        // Given
+        long before = outboxDbService.getLatestSequence();
+        String chatId = createGroupChat("group");
+
+        // When
+        TestTransaction.flagForRollback();
+        TestTransaction.end();
+        TestTransaction.start();
+
+        // Then
+        assertTrue(outboxDbService.getEventsAfter(before, 10).isEmpty());
+        assertEquals(0, outbox.relay());
+        assertFalse(chatManager.chatExists(chatId));
+    }
+
+    // ==========================================================================
+    // CATCH-UP TESTS
+    // ==========================================================================
+
+    @Test
+    void initializeChatManager_ExistingEvents_CoveredBySnapshot() {
+        // Given - changes and their events written before a ChatManager loads
+        String chatId = createGroupChat("group");
+        chatDbService.addMemberToGroupChat(chatId, user2Id);
+        outbox.record(new MemberAddedToChat(user2Id, chatId));
+        entityManager.flush();
+
+        // When
+        chatManager = new ChatManager(chatDbService, outboxDbService, false);
+        chatManager.initializeChatManager();
+        ChatEventOutbox relay = newOutbox(eventBus, 0);
+
+        // Then - the relay resumes after the snapshot instead of replaying everything
+        assertEquals(outboxDbService.getLatestSequence(), chatManager.getLastAppliedSequence());
+        assertEquals(0, relay.relay());
+        assertEquals(Set.of(user1Id, user2Id), chatManager.getChatParticipants(chatId));
+    }
+
+    @Test
+    void initializeChatManager_EventsWithinLateCommitWindow_ReplayedAfterSnapshot() {
+        // Given - user2 is being added by a transaction that is still open while a later one adding user3 commits
+        String chatId = createGroupChat("group");
+        outbox.record(new MemberAddedToChat(user2Id, chatId));
+        long inFlight = outboxDbService.getLatestSequence();
+        chatDbService.addMemberToGroupChat(chatId, user3Id);
+        outbox.record(new MemberAddedToChat(user3Id, chatId));
+        Runnable commitLate = hideEvent(inFlight);
+
+        // When - the index loads, then the open transaction commits
+        chatManager = new ChatManager(chatDbService, outboxDbService, false, 60_000);
+        chatManager.initializeChatManager();
+        chatDbService.addMemberToGroupChat(chatId, user2Id);
+        commitLate.run();
+        ChatEventOutbox relay = newOutbox(eventBus, 0);
+        int replayed = relay.relay();
+
+        // Then - the relay started before the in-flight event instead of after the latest one
+        assertEquals(3, replayed);
+        assertEquals(outboxDbService.getLatestSequence(), chatManager.getLastAppliedSequence());
+        assertEquals(Set.of(user1Id, user2Id, user3Id), chatManager.getChatParticipants(chatId));
+    }
+}
@@ -1,5 +1,8 @@
 package com.MarinGallien.JavaChatApp.EventSystem;
 
+import com.MarinGallien.JavaChatApp.EventSystem.Events.ChatEvents.MemberAddedToChat;
+import com.MarinGallien.JavaChatApp.EventSystem.Events.ChatEvents.MemberRemovedFromChat;
+import com.MarinGallien.JavaChatApp.EventSystem.Events.ContactEvents.ContactCreated;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -7,6 +10,10 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.context.ApplicationEventPublisher;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
@@ -93,4 +100,54 @@ public class EventBusTests {
         verify(eventPublisher).publishEvent(event2);
         verify(eventPublisher).publishEvent(event3);
     }
-}
\ No newline at end of file
+
+    // ==========================================================================
+    // EVENT LANE TESTS
+    // ==========================================================================
+
+    @Test
+    void publishEvent_ChatEvent_DeliveredOnChatLane() {
+        // Given
+        EventLane chatLane = new EventLane("chat", 2, 10, EventLane.Policy.CALLER_RUNS, 0);
+        EventLane contactLane = new EventLane("contact", 1, 10, EventLane.Policy.CALLER_RUNS, 0);
+        List<String> threads = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> threads.add(Thread.currentThread().getName()))
+                .when(eventPublisher).publishEvent(any(Object.class));
+        eventBusService = new EventBusService(eventPublisher, chatLane, contactLane);
+
+        // When
+        eventBusService.publishEvent(new MemberAddedToChat("user1", "chat1"));
+        eventBusService.publishEvent(new ContactCreated("user1", "user2"));
+        chatLane.shutdown();
+        contactLane.shutdown();
+
+        // Then
+        assertEquals(2, threads.size());
+        assertTrue(threads.stream().anyMatch(name -> name.startsWith("EventLane-chat-")));
+        assertTrue(threads.stream().anyMatch(name -> name.startsWith("EventLane-contact-")));
+    }
+
+    @Test
+    void publishEvent_AddThenRemoveSameChat_DeliveredInOrder() {
+        // Given
+        EventLane chatLane = new EventLane("chat", 4, 2, EventLane.Policy.CALLER_RUNS, 0);
+        List<Object> delivered = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> delivered.add(invocation.getArgument(0)))
+                .when(eventPublisher).publishEvent(any(Object.class));
+        eventBusService = new EventBusService(eventPublisher, chatLane, null);
+
+        // When
+        List<Object> published = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Object event = i % 2 == 0
+                    ? new MemberAddedToChat("user" + i, "chat1")
+                    : new MemberRemovedFromChat("user" + (i - 1), "chat1");
+            published.add(event);
+            eventBusService.publishEvent(event);
+        }
+        chatLane.shutdown();
+
+        // Then
+        assertEquals(published, delivered);
+    }
+}
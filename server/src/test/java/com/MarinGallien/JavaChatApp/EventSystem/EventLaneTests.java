@@ -0,0 +1,204 @@
+package com.MarinGallien.JavaChatApp.EventSystem;
+
+import com.MarinGallien.JavaChatApp.EventSystem.EventLane.Policy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventLaneTests {
+
+    private EventLane lane;
+
+    @AfterEach
+    void tearDown() {
+        if (lane != null) lane.shutdown();
+    }
+
+    private static void awaitCompleted(EventLane lane, long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (lane.getCompletedCount() < count && System.currentTimeMillis() < deadline) Thread.sleep(5);
+        assertEquals(count, lane.getCompletedCount());
+    }
+
+    // ==========================================================================
+    // ORDERING TESTS
+    // ==========================================================================
+
+    @Test
+    void submit_SameKey_RunsInSubmissionOrder() throws InterruptedException {
+        // Given
+        lane = new EventLane("test", 4, 1000, Policy.CALLER_RUNS, 1000);
+        List<Integer> applied = Collections.synchronizedList(new ArrayList<>());
+
+        // When
+        for (int i = 0; i < 500; i++) {
+            int sequence = i;
+            lane.submit("chat1", () -> applied.add(sequence));
+        }
+        awaitCompleted(lane, 500);
+
+        // Then
+        for (int i = 0; i < 500; i++) assertEquals(i, applied.get(i));
+    }
+
+    @Test
+    void submit_CallerRunsWithTinyQueues_KeepsPerKeyOrder() throws InterruptedException {
+        // Given - queues of 2 overflow constantly, so callers run most tasks themselves
+        lane = new EventLane("test", 2, 2, Policy.CALLER_RUNS, 1000);
+        Map<String, List<Integer>> applied = new ConcurrentHashMap<>();
+        int keys = 8;
+        int perKey = 500;
+
+        // When - several publishers, each owning some keys, submit slow-ish tasks
+        List<Thread> publishers = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            int publisher = p;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < perKey; i++) {
+                    for (int k = publisher; k < keys; k += 4) {
+                        String key = "chat" + k;
+                        int sequence = i;
+                        lane.submit(key, () -> {
+                            applied.computeIfAbsent(key, x -> Collections.synchronizedList(new ArrayList<>()))
+                                    .add(sequence);
+                            Thread.onSpinWait();
+                        });
+                    }
+                }
+            });
+            publishers.add(thread);
+            thread.start();
+        }
+        for (Thread thread : publishers) thread.join();
+        awaitCompleted(lane, (long) keys * perKey);
+
+        // Then
+        assertTrue(lane.getCallerRunsCount() > 0);
+        assertEquals(0, lane.getRejectedCount());
+        for (int k = 0; k < keys; k++) {
+            List<Integer> sequence = applied.get("chat" + k);
+            assertEquals(perKey, sequence.size());
+            for (int i = 0; i < perKey; i++) assertEquals(i, sequence.get(i), "chat" + k + " out of order");
+        }
+    }
+
+    @Test
+    void submit_DifferentKeys_RunInParallel() throws InterruptedException {
+        // Given
+        lane = new EventLane("test", 2, 10, Policy.BLOCK, 1000);
+        CountDownLatch bothRunning = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // Keys landing on different stripes
+        String first = "a";
+        String second = "b";
+        assertNotEquals(Math.floorMod(first.hashCode(), 2), Math.floorMod(second.hashCode(), 2));
+
+        // When
+        for (String key : List.of(first, second)) {
+            lane.submit(key, () -> {
+                bothRunning.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        // Then
+        assertTrue(bothRunning.await(5, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    // ==========================================================================
+    // BACKPRESSURE TESTS
+    // ==========================================================================
+
+    @Test
+    void submit_BlockPolicyQueueStaysFull_RejectsAfterTimeout() throws InterruptedException {
+        // Given - one stripe whose worker is stuck and whose queue of 1 is full
+        lane = new EventLane("test", 1, 1, Policy.BLOCK, 50);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        lane.submit("chat1", () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertTrue(lane.submit("chat1", () -> {}));
+
+        // When
+        boolean accepted = lane.submit("chat1", () -> {});
+
+        // Then
+        assertFalse(accepted);
+        assertEquals(1, lane.getRejectedCount());
+        assertEquals(1, lane.getQueueDepth());
+        release.countDown();
+    }
+
+    @Test
+    void submit_AfterShutdown_Rejected() {
+        // Given
+        lane = new EventLane("test", 1, 10, Policy.CALLER_RUNS, 0);
+        lane.shutdown();
+
+        // When / Then
+        assertFalse(lane.submit("chat1", () -> {}));
+        assertEquals(1, lane.getRejectedCount());
+    }
+
+    @Test
+    void shutdown_QueuedTasks_AreDrainedFirst() {
+        // Given
+        lane = new EventLane("test", 2, 100, Policy.CALLER_RUNS, 0);
+        for (int i = 0; i < 50; i++) lane.submit("chat" + i, () -> {});
+
+        // When
+        lane.shutdown();
+
+        // Then
+        assertEquals(50, lane.getCompletedCount());
+    }
+
+    // ==========================================================================
+    // METRICS TESTS
+    // ==========================================================================
+
+    @Test
+    void submit_FailingTask_CountedAndLaneKeepsRunning() throws InterruptedException {
+        // Given
+        lane = new EventLane("test", 1, 10, Policy.CALLER_RUNS, 0);
+
+        // When
+        lane.submit("chat1", () -> {throw new IllegalStateException("boom");});
+        lane.submit("chat1", () -> {});
+        awaitCompleted(lane, 2);
+
+        // Then
+        assertEquals(1, lane.getFailedCount());
+        assertEquals(2, lane.getSubmittedCount());
+        assertTrue(lane.getMaxLatencyMicros() >= lane.getAverageLatencyMicros());
+    }
+
+    @Test
+    void parsePolicy_PropertyStyles_Accepted() {
+        assertEquals(Policy.CALLER_RUNS, Policy.parse("caller-runs"));
+        assertEquals(Policy.CALLER_RUNS, Policy.parse("CALLER_RUNS"));
+        assertEquals(Policy.BLOCK, Policy.parse(" block "));
+    }
+}
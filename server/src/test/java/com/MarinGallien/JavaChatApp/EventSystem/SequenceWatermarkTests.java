@@ -0,0 +1,80 @@
+package com.MarinGallien.JavaChatApp.EventSystem;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SequenceWatermarkTests {
+
+    @Test
+    void get_AppliedOutOfOrder_StopsBeforeFirstPending() {
+        // Given
+        SequenceWatermark watermark = new SequenceWatermark(10);
+        for (long sequence = 11; sequence <= 14; sequence++) watermark.dispatched(sequence);
+
+        // When - 13 and 14 complete before 11 and 12
+        watermark.applied(13);
+        watermark.applied(14);
+
+        // Then
+        assertEquals(10, watermark.get());
+
+        // When
+        watermark.applied(11);
+
+        // Then
+        assertEquals(11, watermark.get());
+
+        // When
+        watermark.applied(12);
+
+        // Then
+        assertEquals(14, watermark.get());
+        assertEquals(0, watermark.getPendingCount());
+    }
+
+    @Test
+    void get_SkippedSequence_DoesNotHoldWatermarkBack() {
+        // Given - 2 was never dispatched
+        SequenceWatermark watermark = new SequenceWatermark();
+        watermark.dispatched(1);
+        watermark.dispatched(3);
+
+        // When
+        watermark.applied(1);
+        watermark.applied(3);
+
+        // Then
+        assertEquals(3, watermark.get());
+    }
+
+    @Test
+    void reset_PendingSequences_Forgotten() {
+        // Given
+        SequenceWatermark watermark = new SequenceWatermark();
+        watermark.dispatched(1);
+        watermark.dispatched(2);
+
+        // When
+        watermark.reset(1);
+        watermark.applied(2);
+
+        // Then
+        assertEquals(1, watermark.get());
+        assertEquals(0, watermark.getPendingCount());
+    }
+
+    @Test
+    void dispatched_SequenceAtOrBelowHighest_Ignored() {
+        // Given
+        SequenceWatermark watermark = new SequenceWatermark(5);
+
+        // When
+        watermark.dispatched(5);
+        watermark.dispatched(3);
+
+        // Then
+        assertEquals(5, watermark.get());
+        assertEquals(0, watermark.getPendingCount());
+    }
+}
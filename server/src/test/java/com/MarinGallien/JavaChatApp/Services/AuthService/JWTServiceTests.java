@@ -1,8 +1,8 @@
 package com.MarinGallien.JavaChatApp.Services.AuthService;
 
+import io.jsonwebtoken.Claims;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.Date;
 
@@ -11,14 +11,15 @@ import static org.junit.jupiter.api.Assertions.*;
 public class JWTServiceTests {
 
     private JWTService jwtService;
+    private TokenRevocationList revocationList;
     private final String testUserId = "user123";
     private final String testUsername = "testuser";
+    private static final String SECRET = "testSecretKeyForJWTTokensThatIsLongEnoughForHS256Algorithm";
 
     @BeforeEach
     void setUp() {
-        jwtService = new JWTService();
-        ReflectionTestUtils.setField(jwtService, "secretKey", "testSecretKeyForJWTTokensThatIsLongEnoughForHS256Algorithm");
-        ReflectionTestUtils.setField(jwtService, "tokenExpirationHours", 24L);
+        revocationList = new TokenRevocationList(24);
+        jwtService = new JWTService(SECRET, 24L, 1024, revocationList);
     }
 
     @Test
@@ -97,4 +98,97 @@ public class JWTServiceTests {
         assertNull(jwtService.extractTokenFromHeader("InvalidHeader"));
         assertNull(jwtService.extractTokenFromHeader(null));
     }
-}
\ No newline at end of file
+
+    @Test
+    void verifyToken_ValidToken_ReturnsClaims() {
+        String token = jwtService.generateToken(testUserId, testUsername);
+
+        Claims claims = jwtService.verifyToken(token);
+
+        assertNotNull(claims);
+        assertEquals(testUserId, claims.getSubject());
+        assertEquals(testUsername, claims.get("username", String.class));
+    }
+
+    @Test
+    void verifyToken_SameTokenTwice_ReusesVerifiedClaims() {
+        String token = jwtService.generateToken(testUserId, testUsername);
+
+        Claims first = jwtService.verifyToken(token);
+        Claims second = jwtService.verifyToken(token);
+
+        assertSame(first, second);
+        assertEquals(1, jwtService.getVerifiedCacheCount());
+    }
+
+    @Test
+    void verifyToken_TamperedSignature_ReturnsNull() {
+        String token = jwtService.generateToken(testUserId, testUsername);
+        jwtService.verifyToken(token);
+
+        // Change a character inside the signature: the cached entry must not match the altered token
+        int i = token.length() - 10;
+        String tampered = token.substring(0, i) + (token.charAt(i) == 'A' ? 'B' : 'A') + token.substring(i + 1);
+
+        assertNull(jwtService.verifyToken(tampered));
+    }
+
+    @Test
+    void verifyToken_OtherSecret_ReturnsNull() {
+        String otherSecret = "anotherSecretKeyForJWTTokensThatIsLongEnoughForHS256";
+        JWTService other = new JWTService(otherSecret, 24L, 1024, revocationList);
+        String token = other.generateToken(testUserId, testUsername);
+
+        assertNull(jwtService.verifyToken(token));
+    }
+
+    @Test
+    void verifyToken_ExpiredToken_ReturnsNull() {
+        JWTService expiring = new JWTService(SECRET, -1L, 1024, revocationList);
+        String token = expiring.generateToken(testUserId, testUsername);
+
+        assertNull(jwtService.verifyToken(token));
+        assertTrue(jwtService.isTokenExpired(token));
+        assertEquals(0, jwtService.getVerifiedCacheCount());
+    }
+
+    @Test
+    void verifyToken_MoreTokensThanCacheSize_EvictsLeastRecentlyUsed() {
+        JWTService small = new JWTService(SECRET, 24L, 2, revocationList);
+        String first = small.generateToken("user1", "one");
+        String second = small.generateToken("user2", "two");
+        String third = small.generateToken("user3", "three");
+
+        Claims firstClaims = small.verifyToken(first);
+        small.verifyToken(second);
+        small.verifyToken(first);   // first is now the most recently used
+        small.verifyToken(third);   // evicts second
+
+        assertEquals(2, small.getVerifiedCacheCount());
+        assertSame(firstClaims, small.verifyToken(first));
+        assertEquals("user2", small.extractUserId(second));
+    }
+
+    @Test
+    void verifyToken_UserRevokedAfterCaching_ReturnsNull() {
+        String token = jwtService.generateToken(testUserId, testUsername);
+        assertNotNull(jwtService.verifyToken(token));
+
+        revocationList.revokeUser(testUserId);
+
+        assertNull(jwtService.verifyToken(token));
+        assertEquals(0, jwtService.getVerifiedCacheCount());
+    }
+
+    @Test
+    void verifyToken_SingleTokenRevoked_OtherTokensStillValid() {
+        String revoked = jwtService.generateToken(testUserId, testUsername);
+        String other = jwtService.generateToken(testUserId, testUsername);
+        Claims claims = jwtService.verifyToken(revoked);
+
+        revocationList.revokeToken(claims.getId(), claims.getExpiration());
+
+        assertNull(jwtService.verifyToken(revoked));
+        assertNotNull(jwtService.verifyToken(other));
+    }
+}
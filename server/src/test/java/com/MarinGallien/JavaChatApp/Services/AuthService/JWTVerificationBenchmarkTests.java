@@ -0,0 +1,79 @@
+package com.MarinGallien.JavaChatApp.Services.AuthService;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Compares tokens verified per second when every call builds its own key and parser and the filter parses the token
+// twice (validateToken then extractUserId), against the single cached verifyToken call JWTAuthFilter now makes.
+// Excluded from the default build, run with: mvn -pl server test -Pbenchmark
+@Tag("benchmark")
+public class JWTVerificationBenchmarkTests {
+
+    private static final String SECRET = "benchmarkSecretKeyForJWTTokensThatIsLongEnoughForHS256Algorithm";
+    private static final int ACTIVE_USERS = 500;
+    private static final int OPERATIONS = 200_000;
+
+    private JWTService jwtService;
+    private final List<String> tokens = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        jwtService = new JWTService(SECRET, 24L, 1024, new TokenRevocationList(24));
+        for (int i = 0; i < ACTIVE_USERS; i++) {
+            tokens.add(jwtService.generateToken("user" + i, "member" + i));
+        }
+    }
+
+    @Test
+    void verify_PerCallParserVersusCachedVerification() {
+        double perCall = measure(this::verifyWithPerCallParser);
+        // A cache size of 0 keeps nothing, isolating the shared key and parser from the cache
+        JWTService uncached = new JWTService(SECRET, 24L, 0, new TokenRevocationList(24));
+        double singleParse = measure(uncached::extractUserId);
+        double cached = measure(token -> {
+            Claims claims = jwtService.verifyToken(token);
+            return claims != null ? claims.getSubject() : null;
+        });
+
+        System.out.printf("Per-call parser, two parses : %,12.0f tokens/s%n", perCall);
+        System.out.printf("Shared parser, one parse    : %,12.0f tokens/s%n", singleParse);
+        System.out.printf("Verified-token cache        : %,12.0f tokens/s%n", cached);
+
+        assertTrue(cached > perCall);
+    }
+
+    // What JWTAuthFilter used to do per request: validateToken then extractUserId, each building a key and parser
+    private String verifyWithPerCallParser(String token) {
+        Jwts.parser().verifyWith(Keys.hmacShaKeyFor(SECRET.getBytes())).build().parseSignedClaims(token);
+        return Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                .build()
+                .parseSignedClaims(token)
+                .getPayload()
+                .getSubject();
+    }
+
+    // Runs one warm-up pass over every token, then OPERATIONS verifications spread over the active users, and returns
+    // tokens verified per second
+    private double measure(Function<String, String> verify) {
+        for (String token : tokens) assertNotNull(verify.apply(token));
+
+        long start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            verify.apply(tokens.get(i % ACTIVE_USERS));
+        }
+        long elapsed = System.nanoTime() - start;
+
+        return OPERATIONS / (elapsed / 1_000_000_000.0);
+    }
+}
@@ -0,0 +1,279 @@
+package com.MarinGallien.JavaChatApp.Services.AuthService;
+
+import com.MarinGallien.JavaChatApp.Database.DatabaseServices.TokenRevocationDbService;
+import com.MarinGallien.JavaChatApp.Database.JPAEntities.TokenRevocation;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.longThat;
+import static org.mockito.Mockito.*;
+
+public class TokenRevocationListTests {
+
+    private static final long START = 1_700_000_000_000L;
+
+    private MutableClock clock;
+    private TokenRevocationList revocationList;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(START);
+        revocationList = new TokenRevocationList(24, clock);
+    }
+
+    private static Claims claims(String tokenId, String userId, long issuedAtMillis) {
+        return Jwts.claims()
+                .id(tokenId)
+                .subject(userId)
+                .add(TokenRevocationList.ISSUED_AT_MILLIS_CLAIM, issuedAtMillis)
+                .issuedAt(new Date(issuedAtMillis))
+                .expiration(new Date(issuedAtMillis + 24 * 3_600_000L))
+                .build();
+    }
+
+    // A token from before the millisecond claim existed: only the standard, whole-second iat
+    private static Claims secondPrecisionClaims(String tokenId, String userId, long issuedAtMillis) {
+        return Jwts.claims()
+                .id(tokenId)
+                .subject(userId)
+                .issuedAt(new Date(issuedAtMillis / 1000 * 1000))
+                .expiration(new Date(issuedAtMillis + 24 * 3_600_000L))
+                .build();
+    }
+
+    // ==========================================================================
+    // USER WATERMARK TESTS
+    // ==========================================================================
+
+    @Test
+    void isRevoked_TokenIssuedBeforeUserRevoked_ReturnsTrue() {
+        // Given
+        Claims claims = claims("token1", "user1", START - 60_000);
+
+        // When
+        revocationList.revokeUser("user1");
+
+        // Then
+        assertTrue(revocationList.isRevoked(claims));
+    }
+
+    @Test
+    void isRevoked_TokenIssuedAfterUserRevoked_ReturnsFalse() {
+        // Given
+        revocationList.revokeUser("user1");
+
+        // When - the user logs in again a second later
+        Claims claims = claims("token2", "user1", START + 1_000);
+
+        // Then
+        assertFalse(revocationList.isRevoked(claims));
+    }
+
+    @Test
+    void isRevoked_TokenIssuedEarlierInSameSecond_ReturnsTrue() {
+        // Given - issued-at times only keep whole seconds
+        clock.millis = START + 700;
+        Claims claims = claims("token1", "user1", START);
+
+        // When
+        revocationList.revokeUser("user1");
+
+        // Then
+        assertTrue(revocationList.isRevoked(claims));
+    }
+
+    @Test
+    void isRevoked_TokenIssuedLaterInSameSecond_ReturnsFalse() {
+        // Given - a password change, then a new login 300 ms later within the same second
+        clock.millis = START + 200;
+        revocationList.revokeUser("user1");
+
+        // When
+        Claims claims = claims("token2", "user1", START + 500);
+
+        // Then
+        assertFalse(revocationList.isRevoked(claims));
+    }
+
+    @Test
+    void isRevoked_SecondPrecisionTokenFromWatermarkSecond_ReturnsTrue() {
+        // Given
+        clock.millis = START + 200;
+        revocationList.revokeUser("user1");
+
+        // When - no millisecond claim, so it cannot be told apart from a token issued just before the revocation
+        Claims claims = secondPrecisionClaims("token2", "user1", START + 500);
+
+        // Then
+        assertTrue(revocationList.isRevoked(claims));
+    }
+
+    @Test
+    void isRevoked_SecondPrecisionTokenFromLaterSecond_ReturnsFalse() {
+        // Given
+        revocationList.revokeUser("user1");
+
+        // When
+        Claims claims = secondPrecisionClaims("token2", "user1", START + 1_000);
+
+        // Then
+        assertFalse(revocationList.isRevoked(claims));
+    }
+
+    @Test
+    void isRevoked_TokenIssuedAtWatermark_ReturnsFalse() {
+        // Given
+        revocationList.revokeUser("user1");
+
+        // When - issued in the very millisecond of the revocation
+        Claims claims = claims("token2", "user1", START);
+
+        // Then
+        assertFalse(revocationList.isRevoked(claims));
+    }
+
+    @Test
+    void isRevoked_OtherUser_ReturnsFalse() {
+        // When
+        revocationList.revokeUser("user1");
+
+        // Then
+        assertFalse(revocationList.isRevoked(claims("token1", "user2", START - 60_000)));
+    }
+
+    // ==========================================================================
+    // TOKEN ID TESTS
+    // ==========================================================================
+
+    @Test
+    void isRevoked_RevokedTokenId_ReturnsTrueForThatTokenOnly() {
+        // Given
+        Claims revoked = claims("token1", "user1", START);
+        Claims other = claims("token2", "user1", START);
+
+        // When
+        revocationList.revokeToken(revoked.getId(), revoked.getExpiration());
+
+        // Then
+        assertTrue(revocationList.isRevoked(revoked));
+        assertFalse(revocationList.isRevoked(other));
+    }
+
+    @Test
+    void revokeToken_AlreadyExpired_AddsNothing() {
+        // When
+        revocationList.revokeToken("token1", new Date(START - 1_000));
+
+        // Then
+        assertEquals(0, revocationList.size());
+    }
+
+    // ==========================================================================
+    // PRUNING TESTS
+    // ==========================================================================
+
+    @Test
+    void revoke_EntriesOlderThanTokenLifetime_ArePruned() {
+        // Given
+        revocationList.revokeUser("user1");
+        revocationList.revokeToken("token1", new Date(START + 3_600_000L));
+        assertEquals(2, revocationList.size());
+
+        // When - every token these entries could reject has expired
+        clock.millis = START + 25 * 3_600_000L;
+        revocationList.revokeUser("user2");
+
+        // Then
+        assertEquals(1, revocationList.size());
+    }
+
+    // ==========================================================================
+    // STORED REVOCATION TESTS
+    // ==========================================================================
+
+    @Test
+    void revokeUser_WithDatabase_StoresRevocation() {
+        // Given
+        TokenRevocationDbService dbService = mock(TokenRevocationDbService.class);
+        revocationList = new TokenRevocationList(24, dbService, 5_000, clock);
+
+        // When
+        revocationList.revokeUser("user1");
+
+        // Then
+        verify(dbService).saveRevocation("user1", START);
+    }
+
+    @Test
+    void start_StoredRevocation_RejectsTokensAfterRestart() {
+        // Given - the password was changed before this node started
+        TokenRevocationDbService dbService = mock(TokenRevocationDbService.class);
+        when(dbService.getRevocationsSince(anyLong())).thenReturn(List.of(new TokenRevocation("user1", START - 1_000)));
+        revocationList = new TokenRevocationList(24, dbService, 5_000, clock);
+
+        // When
+        revocationList.start();
+        try {
+            // Then - the stored revocations of the last token lifetime were asked for
+            verify(dbService).getRevocationsSince(longThat(since -> since <= START - 24 * 3_600_000L));
+            assertTrue(revocationList.isRevoked(claims("token1", "user1", START - 60_000)));
+            assertFalse(revocationList.isRevoked(claims("token2", "user1", START)));
+        } finally {
+            revocationList.stop();
+        }
+    }
+
+    @Test
+    void pollRevocations_RevokedOnOtherNode_RejectsTokensHere() {
+        // Given - no revocation when this node started
+        TokenRevocationDbService dbService = mock(TokenRevocationDbService.class);
+        when(dbService.getRevocationsSince(anyLong())).thenReturn(List.of());
+        revocationList = new TokenRevocationList(24, dbService, 5_000, clock);
+        revocationList.start();
+        try {
+            Claims claims = claims("token1", "user1", START - 60_000);
+            assertFalse(revocationList.isRevoked(claims));
+
+            // When - another node stores a revocation, seen at the next poll
+            clock.millis = START + 5_000;
+            TokenRevocation revocation = new TokenRevocation("user1", START + 4_000);
+            when(dbService.getRevocationsSince(anyLong())).thenReturn(List.of(revocation));
+            revocationList.pollRevocations();
+
+            // Then
+            assertTrue(revocationList.isRevoked(claims));
+            verify(dbService).deleteRevocationsBefore(START + 5_000 - 24 * 3_600_000L);
+        } finally {
+            revocationList.stop();
+        }
+    }
+
+    private static class MutableClock extends Clock {
+        private long millis;
+
+        MutableClock(long millis) {this.millis = millis;}
+
+        @Override
+        public long millis() {return millis;}
+
+        @Override
+        public Instant instant() {return Instant.ofEpochMilli(millis);}
+
+        @Override
+        public ZoneId getZone() {return ZoneOffset.UTC;}
+
+        @Override
+        public Clock withZone(ZoneId zone) {return this;}
+    }
+}
@@ -3,7 +3,7 @@ package com.MarinGallien.JavaChatApp.Services;
 import com.MarinGallien.JavaChatApp.DTOs.DataEntities.ChatDTO;
 import com.MarinGallien.JavaChatApp.Database.DatabaseServices.ChatDbService;
 import com.MarinGallien.JavaChatApp.Database.JPAEntities.Chat;
-import com.MarinGallien.JavaChatApp.EventSystem.EventBusService;
+import com.MarinGallien.JavaChatApp.EventSystem.ChatEventOutbox;
 import com.MarinGallien.JavaChatApp.EventSystem.Events.ChatEvents.ChatCreated;
 import com.MarinGallien.JavaChatApp.EventSystem.Events.ChatEvents.ChatDeleted;
 import com.MarinGallien.JavaChatApp.EventSystem.Events.ChatEvents.MemberAddedToChat;
@@ -33,7 +33,7 @@ public class ChatServiceTests {
     private ChatDbService chatDbService;
 
     @Mock
-    private EventBusService eventBus;
+    private ChatEventOutbox chatEventOutbox;
 
     @Mock
     private ChatMapper chatMapper;
@@ -96,7 +96,7 @@ public class ChatServiceTests {
         assertEquals(privateChatId, result.getChatId());
 
         verify(chatDbService).createPrivateChat(user1Id, user2Id);
-        verify(eventBus).publishEvent(any(ChatCreated.class));
+        verify(chatEventOutbox).record(any(ChatCreated.class));
     }
 
     @Test
@@ -118,7 +118,7 @@ public class ChatServiceTests {
 
         // Verify no database calls or events were made
         verify(chatDbService, never()).createPrivateChat(any(), any());
-        verify(eventBus, never()).publishEvent(any());
+        verify(chatEventOutbox, never()).record(any());
     }
 
     @Test
@@ -132,7 +132,7 @@ public class ChatServiceTests {
         // Then
         assertNull(result);
         verify(chatDbService).createPrivateChat(user1Id, user2Id);
-        verify(eventBus, never()).publishEvent(any());
+        verify(chatEventOutbox, never()).record(any());
     }
 
     // ==========================================================================
@@ -154,7 +154,7 @@ public class ChatServiceTests {
         assertEquals(groupChatId, result.getChatId());
 
         verify(chatDbService).createGroupChat(user1Id, memberIds, chatName);
-        verify(eventBus).publishEvent(any(ChatCreated.class));
+        verify(chatEventOutbox).record(any(ChatCreated.class));
     }
 
     @Test
@@ -177,7 +177,7 @@ public class ChatServiceTests {
 
         // Verify no database calls or events were made
         verify(chatDbService, never()).createGroupChat(any(), any(), any());
-        verify(eventBus, never()).publishEvent(any());
+        verify(chatEventOutbox, never()).record(any());
     }
 
     @Test
@@ -192,7 +192,7 @@ public class ChatServiceTests {
         // Then
         assertNull(result);
         verify(chatDbService).createGroupChat(user1Id, memberIds, "Test Group");
-        verify(eventBus, never()).publishEvent(any());
+        verify(chatEventOutbox, never()).record(any());
     }
 
     // ==========================================================================
@@ -210,7 +210,7 @@ public class ChatServiceTests {
         // Then
         assertTrue(result);
         verify(chatDbService).deleteChat(user1Id, groupChatId);
-        verify(eventBus).publishEvent(any(ChatDeleted.class));
+        verify(chatEventOutbox).record(any(ChatDeleted.class));
     }
 
     @Test
@@ -229,7 +229,7 @@ public class ChatServiceTests {
 
         // Verify no database calls or events were made
         verify(chatDbService, never()).deleteChat(any(), any());
-        verify(eventBus, never()).publishEvent(any());
+        verify(chatEventOutbox, never()).record(any());
     }
 
     @Test
@@ -243,7 +243,7 @@ public class ChatServiceTests {
         // Then
         assertFalse(result);
         verify(chatDbService).deleteChat(user1Id, groupChatId);
-        verify(eventBus, never()).publishEvent(any());
+        verify(chatEventOutbox, never()).record(any());
     }
 
     // ==========================================================================
@@ -261,7 +261,7 @@ public class ChatServiceTests {
         // Then
         assertTrue(result);
         verify(chatDbService).addMemberToGroupChat(groupChatId, user3Id);
-        verify(eventBus).publishEvent(any(MemberAddedToChat.class));
+        verify(chatEventOutbox).record(any(MemberAddedToChat.class));
     }
 
     @Test
@@ -283,7 +283,7 @@ public class ChatServiceTests {
 
         // Verify no database calls or events were made
         verify(chatDbService, never()).addMemberToGroupChat(any(), any());
-        verify(eventBus, never()).publishEvent(any());
+        verify(chatEventOutbox, never()).record(any());
     }
 
     @Test
@@ -297,7 +297,7 @@ public class ChatServiceTests {
         // Then
         assertFalse(result);
         verify(chatDbService).addMemberToGroupChat(groupChatId, user3Id);
-        verify(eventBus, never()).publishEvent(any());
+        verify(chatEventOutbox, never()).record(any());
     }
 
     // ==========================================================================
@@ -315,7 +315,7 @@ public class ChatServiceTests {
         // Then
         assertTrue(result);
         verify(chatDbService).removeMemberFromGroupChat(groupChatId, user3Id);
-        verify(eventBus).publishEvent(any(MemberRemovedFromChat.class));
+        verify(chatEventOutbox).record(any(MemberRemovedFromChat.class));
     }
 
     @Test
@@ -337,7 +337,7 @@ public class ChatServiceTests {
 
         // Verify no database calls or events were made
         verify(chatDbService, never()).removeMemberFromGroupChat(any(), any());
-        verify(eventBus, never()).publishEvent(any());
+        verify(chatEventOutbox, never()).record(any());
     }
 
     @Test
@@ -351,7 +351,7 @@ public class ChatServiceTests {
         // Then
         assertFalse(result);
         verify(chatDbService).removeMemberFromGroupChat(groupChatId, user3Id);
-        verify(eventBus, never()).publishEvent(any());
+        verify(chatEventOutbox, never()).record(any());
     }
 
     // ==========================================================================
@@ -0,0 +1,327 @@
+package com.MarinGallien.JavaChatApp.Services;
+
+import com.MarinGallien.JavaChatApp.Database.DatabaseServices.FileDbService;
+import com.MarinGallien.JavaChatApp.Database.JPAEntities.File;
+import com.MarinGallien.JavaChatApp.Services.ChunkedUploadService.UploadSession;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ChunkedUploadServiceTests {
+
+    private static final long CHUNK_SIZE = 4;
+    private static final String CONTENT = "Hello, chunked world"; // 20 bytes, 5 chunks
+
+    @Mock
+    private FileDbService fileDbService;
+
+    @TempDir
+    Path stagingDir;
+
+    private ChunkedUploadService uploadService;
+    private String userId = "user1";
+    private String chatId = "chat1";
+
+    @BeforeEach
+    void setUp() {
+        uploadService = new ChunkedUploadService(fileDbService, CHUNK_SIZE, 1000, 60, stagingDir.toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        uploadService.shutdown();
+    }
+
+    private UploadSession start(String sha256) {
+        when(fileDbService.isParticipant(userId, chatId)).thenReturn(true);
+        return uploadService.initUpload(userId, chatId, "hello.txt", CONTENT.length(), "text/plain", sha256);
+    }
+
+    private boolean sendChunk(String uploadId, int index) {
+        byte[] bytes = CONTENT.getBytes(StandardCharsets.UTF_8);
+        int from = (int) (index * CHUNK_SIZE);
+        int to = (int) Math.min(from + CHUNK_SIZE, bytes.length);
+        byte[] chunk = Arrays.copyOfRange(bytes, from, to);
+        return uploadService.writeChunk(userId, uploadId, index, new ByteArrayInputStream(chunk), chunk.length);
+    }
+
+    private static String sha256Hex(String content) throws Exception {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest);
+    }
+
+    // ==========================================================================
+    // INIT UPLOAD TESTS
+    // ==========================================================================
+
+    @Test
+    void initUpload_ValidInputs_ReportsEveryChunkMissing() {
+        // When
+        UploadSession session = start(null);
+
+        // Then
+        assertNotNull(session);
+        assertEquals(5, session.getChunkCount());
+        assertEquals(List.of(0, 1, 2, 3, 4), session.getMissingChunks());
+        assertEquals(1, uploadService.getActiveUploadCount());
+    }
+
+    @Test
+    void initUpload_UserNotInChat_ReturnsNull() {
+        // Given
+        when(fileDbService.isParticipant(userId, chatId)).thenReturn(false);
+
+        // When
+        UploadSession session = uploadService.initUpload(userId, chatId, "hello.txt", 20, "text/plain", null);
+
+        // Then
+        assertNull(session);
+        assertEquals(0, uploadService.getActiveUploadCount());
+    }
+
+    @Test
+    void initUpload_FileTooLarge_ReturnsNull() {
+        // When
+        UploadSession session = uploadService.initUpload(userId, chatId, "big.bin", 1001, null, null);
+
+        // Then
+        assertNull(session);
+        verifyNoInteractions(fileDbService);
+    }
+
+    // ==========================================================================
+    // WRITE CHUNK TESTS
+    // ==========================================================================
+
+    @Test
+    void writeChunk_ChunksOutOfOrder_AssemblesFileOnComplete() throws Exception {
+        // Given
+        UploadSession session = start(sha256Hex(CONTENT));
+        String uploadId = session.getUploadId();
+        AtomicReference<String> stored = new AtomicReference<>();
+        File file = new File();
+        when(fileDbService.storeUploadedFile(eq(userId), eq(chatId), eq("hello.txt"), eq(20L), eq("text/plain"),
+                any(Path.class), eq(sha256Hex(CONTENT))))
+                .thenAnswer(invocation -> {
+                    stored.set(Files.readString(invocation.getArgument(5)));
+                    return file;
+                });
+
+        // When
+        for (int index : new int[]{4, 1, 3, 0, 2}) {
+            assertTrue(sendChunk(uploadId, index));
+        }
+        File result = uploadService.completeUpload(userId, uploadId);
+
+        // Then
+        assertSame(file, result);
+        assertEquals(CONTENT, stored.get());
+        assertEquals(0, uploadService.getActiveUploadCount());
+    }
+
+    @Test
+    void writeChunk_ResentChunk_IsAcceptedOnce() {
+        // Given
+        UploadSession session = start(null);
+
+        // When
+        assertTrue(sendChunk(session.getUploadId(), 2));
+        assertTrue(sendChunk(session.getUploadId(), 2));
+
+        // Then
+        assertEquals(List.of(0, 1, 3, 4), session.getMissingChunks());
+    }
+
+    @Test
+    void writeChunk_WrongLength_ReturnsFalse() {
+        // Given
+        UploadSession session = start(null);
+
+        // When
+        boolean written = uploadService.writeChunk(userId, session.getUploadId(), 0,
+                new ByteArrayInputStream(new byte[3]), 3);
+
+        // Then
+        assertFalse(written);
+        assertEquals(5, session.getMissingChunks().size());
+    }
+
+    @Test
+    void writeChunk_BodyEndsEarly_LeavesChunkMissing() {
+        // Given - length unknown up front, but the body is short
+        UploadSession session = start(null);
+
+        // When
+        boolean written = uploadService.writeChunk(userId, session.getUploadId(), 0,
+                new ByteArrayInputStream(new byte[2]), -1);
+
+        // Then
+        assertFalse(written);
+        assertTrue(session.getMissingChunks().contains(0));
+    }
+
+    @Test
+    void writeChunk_IndexOutOfRange_ReturnsFalse() {
+        // Given
+        UploadSession session = start(null);
+
+        // When / Then
+        assertFalse(uploadService.writeChunk(userId, session.getUploadId(), 5, new ByteArrayInputStream(new byte[4]), 4));
+        assertFalse(uploadService.writeChunk(userId, session.getUploadId(), -1, new ByteArrayInputStream(new byte[4]), 4));
+    }
+
+    @Test
+    void writeChunk_OtherUser_ReturnsFalse() {
+        // Given
+        UploadSession session = start(null);
+
+        // When
+        boolean written = uploadService.writeChunk("user2", session.getUploadId(), 0,
+                new ByteArrayInputStream(new byte[4]), 4);
+
+        // Then
+        assertFalse(written);
+    }
+
+    @Test
+    void writeChunk_ParallelChunks_AllReceived() throws Exception {
+        // Given
+        UploadSession session = start(null);
+        ExecutorService pool = Executors.newFixedThreadPool(5);
+        CountDownLatch startLine = new CountDownLatch(1);
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            int index = i;
+            pool.submit(() -> {
+                startLine.await();
+                return sendChunk(session.getUploadId(), index);
+            });
+        }
+        startLine.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+
+        // Then
+        assertTrue(session.getMissingChunks().isEmpty());
+    }
+
+    // ==========================================================================
+    // COMPLETE UPLOAD TESTS
+    // ==========================================================================
+
+    @Test
+    void completeUpload_MissingChunks_ReturnsNullAndKeepsUpload() throws Exception {
+        // Given
+        UploadSession session = start(null);
+        sendChunk(session.getUploadId(), 0);
+
+        // When
+        File result = uploadService.completeUpload(userId, session.getUploadId());
+
+        // Then
+        assertNull(result);
+        assertEquals(1, uploadService.getActiveUploadCount());
+        verify(fileDbService, never()).storeUploadedFile(any(), any(), any(), anyLong(), any(), any(), any());
+    }
+
+    @Test
+    void completeUpload_ChecksumMismatch_ReturnsNullAndDeletesStagingFile() throws Exception {
+        // Given
+        UploadSession session = start(sha256Hex("something else"));
+        for (int i = 0; i < 5; i++) sendChunk(session.getUploadId(), i);
+
+        // When
+        File result = uploadService.completeUpload(userId, session.getUploadId());
+
+        // Then
+        assertNull(result);
+        verify(fileDbService, never()).storeUploadedFile(any(), any(), any(), anyLong(), any(), any(), any());
+        try (var staged = Files.list(stagingDir)) {
+            assertEquals(0, staged.count());
+        }
+    }
+
+    @Test
+    void completeUpload_CalledTwice_StoresFileOnce() throws Exception {
+        // Given
+        UploadSession session = start(null);
+        for (int i = 0; i < 5; i++) sendChunk(session.getUploadId(), i);
+        when(fileDbService.storeUploadedFile(any(), any(), any(), anyLong(), any(), any(), any())).thenReturn(new File());
+
+        // When
+        File first = uploadService.completeUpload(userId, session.getUploadId());
+        File second = uploadService.completeUpload(userId, session.getUploadId());
+
+        // Then
+        assertNotNull(first);
+        assertNull(second);
+        verify(fileDbService, times(1)).storeUploadedFile(any(), any(), any(), anyLong(), any(), any(), any());
+    }
+
+    // ==========================================================================
+    // CLEANUP TESTS
+    // ==========================================================================
+
+    @Test
+    void expireIdleUploads_NoTtlLeft_DropsUploadAndStagingFile() throws Exception {
+        // Given - sessions expire immediately
+        uploadService = new ChunkedUploadService(fileDbService, CHUNK_SIZE, 1000, 0, stagingDir.toString());
+        UploadSession session = start(null);
+        Thread.sleep(5);
+
+        // When
+        uploadService.expireIdleUploads();
+
+        // Then
+        assertEquals(0, uploadService.getActiveUploadCount());
+        assertNull(uploadService.getSession(userId, session.getUploadId()));
+        try (var staged = Files.list(stagingDir)) {
+            assertEquals(0, staged.count());
+        }
+    }
+
+    @Test
+    void start_IdleUpload_DroppedInBackground() throws Exception {
+        // Given - sessions expire immediately, the sweep runs every second
+        uploadService = new ChunkedUploadService(fileDbService, CHUNK_SIZE, 1000, 0, stagingDir.toString());
+        UploadSession session = start(null);
+
+        // When
+        uploadService.start();
+        try {
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (uploadService.getActiveUploadCount() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+
+            // Then - no new upload was needed to trigger the cleanup
+            assertNull(uploadService.getSession(userId, session.getUploadId()));
+        } finally {
+            uploadService.shutdown();
+        }
+    }
+}
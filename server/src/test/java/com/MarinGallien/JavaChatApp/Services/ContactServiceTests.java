@@ -6,12 +6,18 @@ import com.MarinGallien.JavaChatApp.Database.JPAEntities.User;
 import com.MarinGallien.JavaChatApp.Database.JPAEntities.Contact;
 import com.MarinGallien.JavaChatApp.Database.Mappers.UserMapper;
 import com.MarinGallien.JavaChatApp.Enums.OnlineStatus;
+import com.MarinGallien.JavaChatApp.EventSystem.EventBusService;
+import com.MarinGallien.JavaChatApp.EventSystem.Events.ContactEvents.ContactCreated;
+import com.MarinGallien.JavaChatApp.EventSystem.Events.ContactEvents.ContactRemoved;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -31,6 +37,9 @@ public class ContactServiceTests {
     @Mock
     private UserMapper userMapper;
 
+    @Mock
+    private EventBusService eventBus;
+
     private Contact testContact;
     private User testUser1;
     private User testUser2;
@@ -66,6 +75,23 @@ public class ContactServiceTests {
         );
     }
 
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    // Runs the callbacks a transaction manager would run once the transaction has ended
+    private void completeTransaction(boolean committed) {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (committed) synchronization.afterCommit();
+            synchronization.afterCompletion(committed
+                    ? TransactionSynchronization.STATUS_COMMITTED
+                    : TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+    }
+
     // ==========================================================================
     // CREATE CONTACT TESTS
     // ==========================================================================
@@ -82,6 +108,36 @@ public class ContactServiceTests {
         assertNotNull(result);
         assertEquals(testContact, result);
         verify(contactDbService).createContact(user1Id, user2Id);
+        verify(eventBus).publishEvent(any(ContactCreated.class));
+    }
+
+    @Test
+    void createContact_InTransaction_PublishesOnlyAfterCommit() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+        when(contactDbService.createContact(user1Id, user2Id)).thenReturn(testContact);
+
+        // When
+        contactService.createContact(user1Id, user2Id);
+
+        // Then
+        verify(eventBus, never()).publishEvent(any());
+        completeTransaction(true);
+        verify(eventBus).publishEvent(new ContactCreated(user1Id, user2Id));
+    }
+
+    @Test
+    void createContact_TransactionRolledBack_NothingPublished() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+        when(contactDbService.createContact(user1Id, user2Id)).thenReturn(testContact);
+
+        // When
+        contactService.createContact(user1Id, user2Id);
+        completeTransaction(false);
+
+        // Then
+        verify(eventBus, never()).publishEvent(any());
     }
 
     @Test
@@ -103,6 +159,7 @@ public class ContactServiceTests {
 
         // Verify no database calls were made
         verify(contactDbService, never()).createContact(any(), any());
+        verify(eventBus, never()).publishEvent(any());
     }
 
     @Test
@@ -133,6 +190,22 @@ public class ContactServiceTests {
         // Then
         assertTrue(result);
         verify(contactDbService).removeContact(user1Id, user2Id);
+        verify(eventBus).publishEvent(any(ContactRemoved.class));
+    }
+
+    @Test
+    void removeContact_InTransaction_PublishesOnlyAfterCommit() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+        when(contactDbService.removeContact(user1Id, user2Id)).thenReturn(true);
+
+        // When
+        contactService.removeContact(user1Id, user2Id);
+
+        // Then
+        verify(eventBus, never()).publishEvent(any());
+        completeTransaction(true);
+        verify(eventBus).publishEvent(new ContactRemoved(user1Id, user2Id));
     }
 
     @Test
@@ -154,6 +227,7 @@ public class ContactServiceTests {
 
         // Verify no database calls were made
         verify(contactDbService, never()).removeContact(any(), any());
+        verify(eventBus, never()).publishEvent(any());
     }
 
     @Test
@@ -1,9 +1,9 @@
 package com.MarinGallien.JavaChatApp.Services;
 
 import com.MarinGallien.JavaChatApp.DTOs.DataEntities.MessageDTO;
+import com.MarinGallien.JavaChatApp.Database.DatabaseServices.MessageBatchWriter;
 import com.MarinGallien.JavaChatApp.Database.DatabaseServices.MessageDbService;
 import com.MarinGallien.JavaChatApp.Database.JPAEntities.Message;
-import com.MarinGallien.JavaChatApp.Database.Mappers.MessageMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -27,7 +27,7 @@ public class MessageServiceTests {
     private MessageService messageService;
 
     @Mock
-    private MessageMapper messageMapper;
+    private MessageBatchWriter messageBatchWriter;
 
     private Message testMessage;
     private MessageDTO testMessageDTO;
@@ -102,6 +102,47 @@ public class MessageServiceTests {
         verify(messageDbService).saveMessage(senderId, chatId, content);
     }
 
+    // ==========================================================================
+    // QUEUE MESSAGE TESTS
+    // ==========================================================================
+
+    @Test
+    void queueMessage_ValidInputs_ReturnsTrue() {
+        // Given
+        MessageBatchWriter.PendingMessage pending = new MessageBatchWriter.PendingMessage(
+                "msg1", senderId, chatId, content, LocalDateTime.now());
+        when(messageBatchWriter.enqueue(senderId, chatId, content)).thenReturn(pending);
+
+        // When
+        boolean result = messageService.queueMessage(senderId, chatId, content);
+
+        // Then
+        assertTrue(result);
+        verify(messageBatchWriter).enqueue(senderId, chatId, content);
+        verify(messageDbService, never()).saveMessage(any(), any(), any());
+    }
+
+    @Test
+    void queueMessage_QueueFull_ReturnsFalse() {
+        // Given
+        when(messageBatchWriter.enqueue(senderId, chatId, content)).thenReturn(null);
+
+        // When
+        boolean result = messageService.queueMessage(senderId, chatId, content);
+
+        // Then
+        assertFalse(result);
+    }
+
+    @Test
+    void queueMessage_InvalidParameters_ReturnsFalse() {
+        assertFalse(messageService.queueMessage(null, chatId, content));
+        assertFalse(messageService.queueMessage(senderId, "", content));
+        assertFalse(messageService.queueMessage(senderId, chatId, "   "));
+
+        verify(messageBatchWriter, never()).enqueue(any(), any(), any());
+    }
+
     // ==========================================================================
     // GET CHAT MESSAGES TESTS
     // ==========================================================================
@@ -109,11 +150,9 @@ public class MessageServiceTests {
     @Test
     void getChatMessages_ValidInputs_ReturnsMessagesList() {
         // Given
-        List<Message> messagesList = List.of(testMessage);
         List<MessageDTO> messageDTOsList = List.of(testMessageDTO);
 
-        when(messageDbService.getChatMessages(senderId, chatId)).thenReturn(messagesList);
-        when(messageMapper.toDTOList(messagesList)).thenReturn(messageDTOsList);
+        when(messageDbService.getChatMessageDTOs(senderId, chatId)).thenReturn(messageDTOsList);
 
         // When
         List<MessageDTO> result = messageService.getChatMessages(senderId, chatId);
@@ -123,8 +162,7 @@ public class MessageServiceTests {
         assertEquals(1, result.size());
         assertEquals(testMessageDTO, result.get(0));
 
-        verify(messageDbService).getChatMessages(senderId, chatId);
-        verify(messageMapper).toDTOList(messagesList);
+        verify(messageDbService).getChatMessageDTOs(senderId, chatId);
     }
 
     @Test
@@ -142,24 +180,18 @@ public class MessageServiceTests {
         assertTrue(messageService.getChatMessages(senderId, "   ").isEmpty());
 
         // Verify no database calls were made
-        verify(messageDbService, never()).getChatMessages(any(), any());
+        verify(messageDbService, never()).getChatMessageDTOs(any(), any());
     }
 
     @Test
     void getChatMessages_MultipleMessages_ReturnsAllMessages() {
         // Given
-        Message message1 = new Message();
-        Message message2 = new Message();
-        Message message3 = new Message();
-        List<Message> messagesList = List.of(message1, message2, message3);
-
         MessageDTO messageDTO1 = new MessageDTO("msg1", senderId, senderUname, chatId, "Message 1", LocalDateTime.now());
         MessageDTO messageDTO2 = new MessageDTO("msg2", senderId, senderUname, chatId, "Message 2", LocalDateTime.now());
         MessageDTO messageDTO3 = new MessageDTO("msg3", senderId, senderUname, chatId, "Message 3", LocalDateTime.now());
         List<MessageDTO> messageDTOsList = List.of(messageDTO1, messageDTO2, messageDTO3);
 
-        when(messageDbService.getChatMessages(senderId, chatId)).thenReturn(messagesList);
-        when(messageMapper.toDTOList(messagesList)).thenReturn(messageDTOsList);
+        when(messageDbService.getChatMessageDTOs(senderId, chatId)).thenReturn(messageDTOsList);
 
         // When
         List<MessageDTO> result = messageService.getChatMessages(senderId, chatId);
@@ -171,14 +203,13 @@ public class MessageServiceTests {
         assertEquals(messageDTO2, result.get(1));
         assertEquals(messageDTO3, result.get(2));
 
-        verify(messageDbService).getChatMessages(senderId, chatId);
-        verify(messageMapper).toDTOList(messagesList);
+        verify(messageDbService).getChatMessageDTOs(senderId, chatId);
     }
 
     @Test
     void getChatMessages_DatabaseFailureOrNoMessagesFound_ReturnsEmptyList() {
         // Given - simulate database service returning null (error case)
-        when(messageDbService.getChatMessages(senderId, chatId)).thenReturn(null);
+        when(messageDbService.getChatMessageDTOs(senderId, chatId)).thenReturn(null);
 
         // When
         List<MessageDTO> result = messageService.getChatMessages(senderId, chatId);
@@ -186,7 +217,7 @@ public class MessageServiceTests {
         // Then
         assertNotNull(result);
         assertTrue(result.isEmpty());
-        verify(messageDbService).getChatMessages(senderId, chatId);
+        verify(messageDbService).getChatMessageDTOs(senderId, chatId);
     }
 
     // ==========================================================================
@@ -210,7 +241,7 @@ public class MessageServiceTests {
     @Test
     void getChatMessages_ExceptionThrown_ReturnsEmptyList() {
         // Given
-        when(messageDbService.getChatMessages(senderId, chatId))
+        when(messageDbService.getChatMessageDTOs(senderId, chatId))
                 .thenThrow(new RuntimeException("com.MarinGallien.JavaChatApp.Config.Database error"));
 
         // When
@@ -219,7 +250,7 @@ public class MessageServiceTests {
         // Then
         assertNotNull(result);
         assertTrue(result.isEmpty());
-        verify(messageDbService).getChatMessages(senderId, chatId);
+        verify(messageDbService).getChatMessageDTOs(senderId, chatId);
     }
 
     @Test
@@ -253,4 +284,124 @@ public class MessageServiceTests {
         verify(messageDbService).saveMessage(senderId, chatId, specialContent);
     }
 
+    // ==========================================================================
+    // MESSAGE PAGE TESTS
+    // ==========================================================================
+
+    @Test
+    void getMessagePage_NoCursor_ReturnsLatestPageInChronologicalOrder() {
+        // Given - database returns newest first, one extra row signals more history
+        MessageDTO newest = pagedMessage("m3", LocalDateTime.of(2025, 1, 1, 10, 3));
+        MessageDTO middle = pagedMessage("m2", LocalDateTime.of(2025, 1, 1, 10, 2));
+        MessageDTO oldest = pagedMessage("m1", LocalDateTime.of(2025, 1, 1, 10, 1));
+        when(messageDbService.getLatestMessages(senderId, chatId, 3)).thenReturn(List.of(newest, middle, oldest));
+        when(messageBatchWriter.getSettledBefore()).thenReturn(LocalDateTime.of(2025, 1, 1, 11, 0));
+
+        // When
+        MessageService.MessagePage page = messageService.getMessagePage(senderId, chatId, null, null, 2);
+
+        // Then
+        assertNotNull(page);
+        assertTrue(page.hasMore());
+        assertEquals(List.of(middle, newest), page.messages());
+        assertEquals("2025-01-01T10:02|m2", page.olderCursor());
+        assertEquals("2025-01-01T10:03|m3", page.newerCursor());
+    }
+
+    @Test
+    void getMessagePage_BeforeCursor_QueriesOlderMessages() {
+        // Given
+        LocalDateTime sentAt = LocalDateTime.of(2025, 1, 1, 10, 2);
+        when(messageDbService.getMessagesBefore(senderId, chatId, sentAt, "m2", 51)).thenReturn(List.of());
+
+        // When
+        MessageService.MessagePage page = messageService.getMessagePage(senderId, chatId, "2025-01-01T10:02|m2", null, null);
+
+        // Then
+        assertNotNull(page);
+        assertTrue(page.messages().isEmpty());
+        assertFalse(page.hasMore());
+        verify(messageDbService).getMessagesBefore(senderId, chatId, sentAt, "m2", 51);
+    }
+
+    @Test
+    void getMessagePage_AfterCursor_StopsAtSettledMessages() {
+        // Given
+        LocalDateTime sentAt = LocalDateTime.of(2025, 1, 1, 10, 2);
+        LocalDateTime settledBefore = LocalDateTime.of(2025, 1, 1, 10, 4);
+        MessageDTO newer = pagedMessage("m3", LocalDateTime.of(2025, 1, 1, 10, 3));
+        when(messageBatchWriter.getSettledBefore()).thenReturn(settledBefore);
+        when(messageDbService.getMessagesAfter(senderId, chatId, sentAt, "m2", settledBefore, 51))
+                .thenReturn(List.of(newer));
+
+        // When
+        MessageService.MessagePage page =
+                messageService.getMessagePage(senderId, chatId, null, "2025-01-01T10:02|m2", null);
+
+        // Then
+        assertNotNull(page);
+        assertEquals(List.of(newer), page.messages());
+        assertEquals("2025-01-01T10:03|m3", page.newerCursor());
+        assertFalse(page.hasMore());
+    }
+
+    @Test
+    void getMessagePage_LatestPageNotAllSettled_NewerCursorAtNewestSettled() {
+        // Given - the newest message may still have an older one written behind it
+        MessageDTO newest = pagedMessage("m3", LocalDateTime.of(2025, 1, 1, 10, 3));
+        MessageDTO middle = pagedMessage("m2", LocalDateTime.of(2025, 1, 1, 10, 2));
+        when(messageDbService.getLatestMessages(senderId, chatId, 3)).thenReturn(List.of(newest, middle));
+        when(messageBatchWriter.getSettledBefore()).thenReturn(LocalDateTime.of(2025, 1, 1, 10, 3));
+
+        // When
+        MessageService.MessagePage page = messageService.getMessagePage(senderId, chatId, null, null, 2);
+
+        // Then - the newest message is still returned, the cursor stops before it
+        assertNotNull(page);
+        assertEquals(List.of(middle, newest), page.messages());
+        assertEquals("2025-01-01T10:02|m2", page.newerCursor());
+    }
+
+    @Test
+    void getMessagePage_LatestPageNoneSettled_NewerCursorNull() {
+        // Given
+        MessageDTO newest = pagedMessage("m3", LocalDateTime.of(2025, 1, 1, 10, 3));
+        when(messageDbService.getLatestMessages(senderId, chatId, 3)).thenReturn(List.of(newest));
+        when(messageBatchWriter.getSettledBefore()).thenReturn(LocalDateTime.of(2025, 1, 1, 10, 0));
+
+        // When
+        MessageService.MessagePage page = messageService.getMessagePage(senderId, chatId, null, null, 2);
+
+        // Then
+        assertNotNull(page);
+        assertEquals(List.of(newest), page.messages());
+        assertNull(page.newerCursor());
+    }
+
+    @Test
+    void getMessagePage_LimitAboveCap_IsClamped() {
+        // Given
+        when(messageDbService.getLatestMessages(senderId, chatId, 201)).thenReturn(List.of());
+
+        // When
+        messageService.getMessagePage(senderId, chatId, null, null, 10_000);
+
+        // Then
+        verify(messageDbService).getLatestMessages(senderId, chatId, 201);
+    }
+
+    @Test
+    void getMessagePage_InvalidRequest_ReturnsNull() {
+        assertNull(messageService.getMessagePage(senderId, chatId, "2025-01-01T10:02|m2", "2025-01-01T10:02|m2", 10));
+        assertNull(messageService.getMessagePage(senderId, chatId, "not-a-cursor", null, 10));
+        assertNull(messageService.getMessagePage(senderId, chatId, "yesterday|m2", null, 10));
+        assertNull(messageService.getMessagePage(null, chatId, null, null, 10));
+
+        verifyNoInteractions(messageDbService);
+    }
+
+    private MessageDTO pagedMessage(String messageId, LocalDateTime sentAt) {
+        return new MessageDTO(messageId, senderId, senderUname, chatId, content, sentAt);
+    }
+
 }
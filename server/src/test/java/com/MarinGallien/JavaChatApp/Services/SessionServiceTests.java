@@ -9,6 +9,8 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
@@ -157,4 +159,32 @@ public class SessionServiceTests {
         assertEquals(OnlineStatus.ONLINE, result2);
         verify(sessionDbService, times(2)).updateStatus(userId, OnlineStatus.ONLINE);
     }
-}
\ No newline at end of file
+
+    // ==========================================================================
+    // UPDATE USER STATUSES TESTS
+    // ==========================================================================
+
+    @Test
+    void updateUserStatuses_ValidBatch_StoredTogether() {
+        // Given
+        Map<String, OnlineStatus> statuses = Map.of("user1", OnlineStatus.ONLINE, "user2", OnlineStatus.OFFLINE);
+        when(sessionDbService.updateStatuses(statuses)).thenReturn(2);
+
+        // When
+        int updated = sessionService.updateUserStatuses(statuses);
+
+        // Then
+        assertEquals(2, updated);
+        verify(sessionDbService).updateStatuses(statuses);
+    }
+
+    @Test
+    void updateUserStatuses_InvalidUserId_NothingStored() {
+        // When
+        int updated = sessionService.updateUserStatuses(Map.of(" ", OnlineStatus.ONLINE));
+
+        // Then
+        assertEquals(0, updated);
+        verifyNoInteractions(sessionDbService);
+    }
+}
@@ -3,6 +3,7 @@ package com.MarinGallien.JavaChatApp.Services;
 import com.MarinGallien.JavaChatApp.Database.DatabaseServices.UserDbService;
 import com.MarinGallien.JavaChatApp.Database.JPAEntities.User;
 import com.MarinGallien.JavaChatApp.Services.AuthService.JWTService;
+import com.MarinGallien.JavaChatApp.Services.AuthService.TokenRevocationList;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -22,6 +23,9 @@ public class UserServiceTests {
     @Mock
     private JWTService jwtService;
 
+    @Mock
+    private TokenRevocationList revocationList;
+
     @InjectMocks
     private UserService userService;
 
@@ -210,6 +214,7 @@ public class UserServiceTests {
         // Then
         assertTrue(result);
         verify(userDbService).deleteUser(userId, password);
+        verify(revocationList).revokeUser(userId);
     }
 
     @Test
@@ -241,6 +246,7 @@ public class UserServiceTests {
         // Then
         assertFalse(result);
         verify(userDbService).deleteUser(userId, password);
+        verify(revocationList, never()).revokeUser(any());
     }
 
     // ==========================================================================
@@ -367,6 +373,7 @@ public class UserServiceTests {
         // Then
         assertTrue(result);
         verify(userDbService).updatePassword(userId, password, newPassword);
+        verify(revocationList).revokeUser(userId);
     }
 
     @Test
@@ -494,5 +501,6 @@ public class UserServiceTests {
         // Then
         assertFalse(result);
         verify(userDbService).deleteUser(userId, password);
+        verify(revocationList, never()).revokeUser(any());
     }
 }
\ No newline at end of file
@@ -0,0 +1,198 @@
+package com.MarinGallien.JavaChatApp.Storage;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// In-process stand-in for an S3-compatible service, enough of the REST API for S3BlobStore: object PUT, GET with a
+// single range, HEAD and DELETE, and multipart uploads. Requests must carry a SigV4 Authorization header, but the
+// signature itself is not checked.
+class FakeS3Server implements AutoCloseable {
+
+    private final HttpServer server;
+    private final String bucket;
+
+    // key:content
+    final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+    // uploadId:(partNumber:content)
+    final Map<String, Map<Integer, byte[]>> multipartUploads = new ConcurrentHashMap<>();
+    // Body size of every PUT received, to check uploads were split
+    final List<Integer> putSizes = new CopyOnWriteArrayList<>();
+
+    FakeS3Server(String bucket) throws IOException {
+        this.bucket = bucket;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/", this::handle);
+        this.server.start();
+    }
+
+    URI endpoint() {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            if (authorization == null || !authorization.startsWith("AWS4-HMAC-SHA256 Credential=")) {
+                send(exchange, 403, "<Error><Code>AccessDenied</Code></Error>");
+                return;
+            }
+
+            String path = exchange.getRequestURI().getRawPath();
+            String prefix = "/" + bucket + "/";
+            if (!path.startsWith(prefix)) {
+                send(exchange, 404, "<Error><Code>NoSuchBucket</Code></Error>");
+                return;
+            }
+
+            String key = URLDecoder.decode(path.substring(prefix.length()), StandardCharsets.UTF_8);
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+            switch (exchange.getRequestMethod()) {
+                case "PUT" -> handlePut(exchange, key, query);
+                case "POST" -> handlePost(exchange, key, query);
+                case "GET" -> handleGet(exchange, key);
+                case "HEAD" -> handleHead(exchange, key);
+                case "DELETE" -> handleDelete(exchange, key, query);
+                default -> send(exchange, 405, "");
+            }
+        }
+    }
+
+    private void handlePut(HttpExchange exchange, String key, Map<String, String> query) throws IOException {
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        putSizes.add(body.length);
+
+        String uploadId = query.get("uploadId");
+        if (uploadId == null) {
+            objects.put(key, body);
+            send(exchange, 200, "");
+            return;
+        }
+
+        Map<Integer, byte[]> parts = multipartUploads.get(uploadId);
+        if (parts == null) {
+            send(exchange, 404, "<Error><Code>NoSuchUpload</Code></Error>");
+            return;
+        }
+        int partNumber = Integer.parseInt(query.get("partNumber"));
+        parts.put(partNumber, body);
+        exchange.getResponseHeaders().add("ETag", "\"part-" + partNumber + "\"");
+        send(exchange, 200, "");
+    }
+
+    private void handlePost(HttpExchange exchange, String key, Map<String, String> query) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+
+        if (query.containsKey("uploads")) {
+            String uploadId = UUID.randomUUID().toString();
+            multipartUploads.put(uploadId, new TreeMap<>());
+            send(exchange, 200, "<InitiateMultipartUploadResult><Bucket>" + bucket + "</Bucket><Key>" + key
+                    + "</Key><UploadId>" + uploadId + "</UploadId></InitiateMultipartUploadResult>");
+            return;
+        }
+
+        Map<Integer, byte[]> parts = multipartUploads.remove(query.get("uploadId"));
+        if (parts == null) {
+            send(exchange, 404, "<Error><Code>NoSuchUpload</Code></Error>");
+            return;
+        }
+
+        ByteArrayOutputStream object = new ByteArrayOutputStream();
+        for (byte[] part : parts.values()) object.write(part);
+        objects.put(key, object.toByteArray());
+        send(exchange, 200, "<CompleteMultipartUploadResult><Key>" + key + "</Key></CompleteMultipartUploadResult>");
+    }
+
+    private void handleGet(HttpExchange exchange, String key) throws IOException {
+        byte[] object = objects.get(key);
+        if (object == null) {
+            send(exchange, 404, "<Error><Code>NoSuchKey</Code></Error>");
+            return;
+        }
+
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        if (range == null) {
+            send(exchange, 200, object);
+            return;
+        }
+
+        String[] bounds = range.substring("bytes=".length()).split("-");
+        int start = Integer.parseInt(bounds[0]);
+        int end = Math.min(Integer.parseInt(bounds[1]), object.length - 1);
+        byte[] slice = new byte[end - start + 1];
+        System.arraycopy(object, start, slice, 0, slice.length);
+        exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + end + "/" + object.length);
+        send(exchange, 206, slice);
+    }
+
+    private void handleHead(HttpExchange exchange, String key) throws IOException {
+        byte[] object = objects.get(key);
+        if (object == null) {
+            exchange.sendResponseHeaders(404, -1);
+            return;
+        }
+
+        exchange.getResponseHeaders().add("Content-Length", String.valueOf(object.length));
+        exchange.getResponseHeaders().add("Last-Modified",
+                DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC)));
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private void handleDelete(HttpExchange exchange, String key, Map<String, String> query) throws IOException {
+        String uploadId = query.get("uploadId");
+        if (uploadId != null) {
+            multipartUploads.remove(uploadId);
+        } else {
+            objects.remove(key);
+        }
+        exchange.sendResponseHeaders(204, -1);
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) return query;
+        for (String param : rawQuery.split("&")) {
+            int equals = param.indexOf('=');
+            String name = equals < 0 ? param : param.substring(0, equals);
+            String value = equals < 0 ? "" : param.substring(equals + 1);
+            query.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        send(exchange, status, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.MarinGallien.JavaChatApp.Storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LocalBlobStoreTests {
+
+    private static final String KEY = "blobs/ab/cd/abcdef";
+    private static final String CONTENT = "0123456789abcdefghij";
+
+    @TempDir
+    Path root;
+
+    private LocalBlobStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new LocalBlobStore(root);
+    }
+
+    private void putContent() throws IOException {
+        store.put(KEY, Files.writeString(root.resolve("upload.tmp"), CONTENT));
+    }
+
+    private static String read(InputStream in) throws IOException {
+        try (in) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    // ==========================================================================
+    // PUT AND READ TESTS
+    // ==========================================================================
+
+    @Test
+    void put_NewKey_MovesSourceUnderRoot() throws IOException {
+        // When
+        putContent();
+
+        // Then
+        assertFalse(Files.exists(root.resolve("upload.tmp")));
+        assertEquals(CONTENT, Files.readString(root.resolve(KEY)));
+        assertEquals(root.resolve(KEY), store.localPath(KEY));
+    }
+
+    @Test
+    void getRange_ExistingKey_StreamsOnlyRange() throws IOException {
+        // Given
+        putContent();
+
+        // When / Then
+        assertEquals("56789", read(store.getRange(KEY, 5, 5)));
+        assertEquals(CONTENT, read(store.get(KEY)));
+    }
+
+    @Test
+    void get_MissingKey_ThrowsNoSuchFile() {
+        // When / Then
+        assertThrows(NoSuchFileException.class, () -> store.get("blobs/missing"));
+    }
+
+    @Test
+    void stat_ExistingAndMissingKeys_ReportsSizeOrNull() throws IOException {
+        // Given
+        putContent();
+
+        // When
+        BlobInfo info = store.stat(KEY);
+
+        // Then
+        assertEquals(CONTENT.length(), info.size());
+        assertNull(store.stat("blobs/missing"));
+    }
+
+    @Test
+    void resolve_KeyOutsideRoot_Throws() {
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> store.stat("../outside"));
+    }
+
+    @Test
+    void stat_LegacyAbsolutePath_UsesItAsIs() throws IOException {
+        // Given - rows written before the blob store hold absolute paths
+        Path legacy = Files.writeString(root.resolve("1700000000_abcd1234.txt"), CONTENT);
+
+        // When
+        BlobInfo info = store.stat(legacy.toString());
+
+        // Then
+        assertEquals(CONTENT.length(), info.size());
+    }
+
+    // ==========================================================================
+    // DELETE TESTS
+    // ==========================================================================
+
+    @Test
+    void delete_ExistingKey_ReturnsTrueThenFalse() throws IOException {
+        // Given
+        putContent();
+
+        // When / Then
+        assertTrue(store.delete(KEY));
+        assertFalse(store.delete(KEY));
+    }
+}
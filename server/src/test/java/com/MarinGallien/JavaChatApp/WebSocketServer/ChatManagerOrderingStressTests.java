@@ -0,0 +1,120 @@
+package com.MarinGallien.JavaChatApp.WebSocketServer;
+
+import com.MarinGallien.JavaChatApp.Database.DatabaseServices.ChatDbService;
+import com.MarinGallien.JavaChatApp.Database.JPAEntities.Chat;
+import com.MarinGallien.JavaChatApp.Database.JPAEntities.User;
+import com.MarinGallien.JavaChatApp.EventSystem.EventBusService;
+import com.MarinGallien.JavaChatApp.EventSystem.EventLane;
+import com.MarinGallien.JavaChatApp.EventSystem.Events.ChatEvents.ChatCreated;
+import com.MarinGallien.JavaChatApp.EventSystem.Events.ChatEvents.MemberAddedToChat;
+import com.MarinGallien.JavaChatApp.EventSystem.Events.ChatEvents.MemberRemovedFromChat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Fires a long interleaved stream of add/remove membership changes over many chats, each committed to the database
+// and then published through the chat event lane, and checks that ChatManager ends up with exactly the database's
+// members for every chat. Tiny stripe queues make publishers run part of the events themselves, so events of one
+// chat are applied by several threads.
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(ChatDbService.class)
+public class ChatManagerOrderingStressTests {
+
+    private static final int USER_COUNT = 30;
+    private static final int CHAT_COUNT = 20;
+    private static final int OPERATIONS = 4_000;
+    private static final int BURST_SIZE = 100;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ChatDbService chatDbService;
+
+    private ChatManager chatManager;
+    private EventLane chatLane;
+    private EventBusService eventBus;
+
+    private final List<String> userIds = new ArrayList<>();
+    private final List<String> chatIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < USER_COUNT; i++) {
+            User user = new User("member" + i, "member" + i + "@test.com", "password");
+            entityManager.persist(user);
+            userIds.add(user.getUserId());
+        }
+        entityManager.flush();
+
+        chatManager = new ChatManager(chatDbService);
+        chatManager.initializeChatManager();
+
+        // Deliver published events straight to the ChatManager listeners, on the lane's threads
+        chatLane = new EventLane("chat", 4, 2, EventLane.Policy.CALLER_RUNS, 0);
+        eventBus = new EventBusService(event -> {
+            if (event instanceof ChatCreated created) chatManager.handleChatCreated(created);
+            else if (event instanceof MemberAddedToChat added) chatManager.handleMemberAddedToChat(added);
+            else if (event instanceof MemberRemovedFromChat removed) chatManager.handleMemberRemovedFromChat(removed);
+        }, chatLane, null);
+
+        for (int i = 0; i < CHAT_COUNT; i++) {
+            String creatorId = userIds.get(i % USER_COUNT);
+            Chat chat = chatDbService.createGroupChat(creatorId, Set.of(creatorId), "group" + i);
+            chatIds.add(chat.getChatId());
+            eventBus.publishEvent(new ChatCreated(chat.getChatId(), Set.of(creatorId)));
+        }
+    }
+
+    @Test
+    void interleavedMembershipEvents_FinalStateMatchesDatabase() {
+        // Given - a fixed seed keeps failures reproducible
+        Random random = new Random(42);
+
+        // When - every change hits the database first and its event is published afterwards, like ChatService does.
+        // Events are published in bursts, as a bulk import would, so the stripe queues overflow.
+        List<Object> burst = new ArrayList<>();
+        for (int i = 0; i < OPERATIONS; i++) {
+            String chatId = chatIds.get(random.nextInt(CHAT_COUNT));
+            String userId = userIds.get(random.nextInt(USER_COUNT));
+
+            if (random.nextBoolean()) {
+                if (chatDbService.addMemberToGroupChat(chatId, userId)) {
+                    burst.add(new MemberAddedToChat(userId, chatId));
+                }
+            } else {
+                if (chatDbService.removeMemberFromGroupChat(chatId, userId)) {
+                    burst.add(new MemberRemovedFromChat(userId, chatId));
+                }
+            }
+
+            if (burst.size() == BURST_SIZE || i == OPERATIONS - 1) {
+                burst.forEach(eventBus::publishEvent);
+                burst.clear();
+            }
+        }
+        chatLane.shutdown();
+
+        // Then
+        assertEquals(0, chatLane.getRejectedCount());
+        assertEquals(0, chatLane.getFailedCount());
+        assertTrue(chatLane.getCallerRunsCount() > 0, "queues never overflowed, the test did not stress ordering");
+        for (String chatId : chatIds) {
+            Set<String> expected = new HashSet<>(chatDbService.getChatParticipantIds(chatId));
+            assertEquals(expected, chatManager.getChatParticipants(chatId), "chat " + chatId + " diverged");
+        }
+    }
+}
@@ -14,6 +14,7 @@ import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.List;
 import java.util.Set;
+import java.util.function.BiConsumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -31,10 +32,22 @@ public class ChatManagerTests {
         chatManager = new ChatManager(chatDbService);
         ReflectionTestUtils.setField(chatManager, "chatDbService", chatDbService);
 
-        when(chatDbService.getAllChatParticipantMappings()).thenReturn(List.of());
+        when(chatDbService.forEachChatParticipantMapping(any())).thenReturn(0L);
         chatManager.initializeChatManager();
     }
 
+    // Makes the mocked database stream the given (chatId, userId) rows
+    @SuppressWarnings("unchecked")
+    private void stubMappings(List<Object[]> mappings) {
+        when(chatDbService.forEachChatParticipantMapping(any())).thenAnswer(invocation -> {
+            BiConsumer<String, String> consumer = invocation.getArgument(0);
+            for (Object[] mapping : mappings) {
+                consumer.accept((String) mapping[0], (String) mapping[1]);
+            }
+            return (long) mappings.size();
+        });
+    }
+
     // ==========================================================================
     // UTILITY METHOD TESTS
     // ==========================================================================
@@ -64,6 +77,27 @@ public class ChatManagerTests {
         assertTrue(chatManager.chatExists("chat123"));
     }
 
+    @Test
+    void getChatMemberIds_ExistingChat_ResolvesToMemberUserIds() {
+        // Given
+        chatManager.handleChatCreated(new ChatCreated("chat123", Set.of("user1", "user2")));
+
+        // When
+        int[] memberIds = chatManager.getChatMemberIds("chat123");
+
+        // Then
+        assertEquals(2, memberIds.length);
+        Set<String> resolved = Set.of(chatManager.getUserIds().nameOf(memberIds[0]),
+                chatManager.getUserIds().nameOf(memberIds[1]));
+        assertEquals(Set.of("user1", "user2"), resolved);
+    }
+
+    @Test
+    void getChatMemberIds_NonExistentChat_ReturnsEmptyArray() {
+        // When & Then
+        assertEquals(0, chatManager.getChatMemberIds("nonexistent").length);
+    }
+
     @Test
     void handleChatCreated_ExistingChat_UpdatesMembers() {
         // Given
@@ -165,7 +199,7 @@ public class ChatManagerTests {
 
         ChatManager freshManager = new ChatManager(chatDbService);
         ReflectionTestUtils.setField(freshManager, "chatDbService", chatDbService);
-        when(chatDbService.getAllChatParticipantMappings()).thenReturn(mockMappings);
+        stubMappings(mockMappings);
 
         // When
         freshManager.initializeChatManager();
@@ -173,6 +207,132 @@ public class ChatManagerTests {
         // Then
         assertTrue(freshManager.chatExists("chat1"));
         assertTrue(freshManager.chatExists("chat2"));
+        assertEquals(Set.of("user1", "user2"), freshManager.getChatParticipants("chat1"));
+        assertTrue(freshManager.isReady());
+    }
+
+    @Test
+    void initializeChatManager_DuplicateRows_MembersStoredOnce() {
+        // Given
+        ChatManager freshManager = new ChatManager(chatDbService);
+        stubMappings(List.of(
+                new Object[]{"chat1", "user2"},
+                new Object[]{"chat1", "user1"},
+                new Object[]{"chat1", "user2"}
+        ));
+
+        // When
+        freshManager.initializeChatManager();
+
+        // Then
+        assertEquals(2, freshManager.getChatMemberIds("chat1").length);
+    }
+
+    @Test
+    void initializeChatManager_BackgroundWarmup_BecomesReady() throws InterruptedException {
+        // Given
+        ChatManager freshManager = new ChatManager(chatDbService, true);
+        stubMappings(List.<Object[]>of(new Object[]{"chat1", "user1"}));
+
+        // When
+        freshManager.initializeChatManager();
+
+        // Then
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!freshManager.isReady() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(freshManager.isReady());
+        assertTrue(freshManager.isMember("chat1", "user1"));
+    }
+
+    @Test
+    void initializeChatManager_MemberRemovedDuringLoad_StaysRemoved() {
+        // Given - user2 leaves chat1 after the load read chat1's rows but before it installed them
+        ChatManager freshManager = new ChatManager(chatDbService);
+        when(chatDbService.getChatParticipantIds("chat1")).thenReturn(List.of("user1"));
+        when(chatDbService.forEachChatParticipantMapping(any())).thenAnswer(invocation -> {
+            BiConsumer<String, String> consumer = invocation.getArgument(0);
+            consumer.accept("chat1", "user1");
+            consumer.accept("chat1", "user2");
+            freshManager.handleMemberRemovedFromChat(new MemberRemovedFromChat("user2", "chat1"));
+            consumer.accept("chat2", "user3");
+            return 3L;
+        });
+
+        // When
+        freshManager.initializeChatManager();
+
+        // Then
+        assertEquals(Set.of("user1"), freshManager.getChatParticipants("chat1"));
+        assertEquals(Set.of("user3"), freshManager.getChatParticipants("chat2"));
+    }
+
+    @Test
+    void initializeChatManager_ChatDeletedDuringLoad_NotRecreated() {
+        // Given
+        ChatManager freshManager = new ChatManager(chatDbService);
+        when(chatDbService.forEachChatParticipantMapping(any())).thenAnswer(invocation -> {
+            BiConsumer<String, String> consumer = invocation.getArgument(0);
+            consumer.accept("chat1", "user1");
+            freshManager.handleChatDeleted(new ChatDeleted("chat1"));
+            consumer.accept("chat2", "user2");
+            return 2L;
+        });
+
+        // When
+        freshManager.initializeChatManager();
+
+        // Then
+        assertFalse(freshManager.chatExists("chat1"));
+        assertTrue(freshManager.chatExists("chat2"));
+    }
+
+    @Test
+    void initializeChatManager_MemberAddedBeforeLoadReachesChat_KeepsStoredMembers() {
+        // Given - user3 joins chat2 while the load is still on chat1
+        ChatManager freshManager = new ChatManager(chatDbService);
+        when(chatDbService.getChatParticipantIds("chat2")).thenReturn(List.of("user2", "user3"));
+        when(chatDbService.forEachChatParticipantMapping(any())).thenAnswer(invocation -> {
+            BiConsumer<String, String> consumer = invocation.getArgument(0);
+            consumer.accept("chat1", "user1");
+            freshManager.handleMemberAddedToChat(new MemberAddedToChat("user3", "chat2"));
+            consumer.accept("chat2", "user2");
+            return 2L;
+        });
+
+        // When
+        freshManager.initializeChatManager();
+
+        // Then
+        assertEquals(Set.of("user2", "user3"), freshManager.getChatParticipants("chat2"));
+    }
+
+    @Test
+    void isMember_NotReady_FallsBackToDatabase() {
+        // Given - loading failed, so the manager never becomes ready
+        ChatManager freshManager = new ChatManager(chatDbService);
+        when(chatDbService.forEachChatParticipantMapping(any())).thenThrow(new RuntimeException("connection lost"));
+        when(chatDbService.getChatParticipantIds("chat1")).thenReturn(List.of("user1", "user2"));
+        freshManager.initializeChatManager();
+
+        // When
+        boolean member = freshManager.isMember("chat1", "user2");
+
+        // Then
+        assertFalse(freshManager.isReady());
+        assertTrue(member);
+        assertTrue(freshManager.chatExists("chat1"));
+    }
+
+    @Test
+    void isMember_Ready_DoesNotQueryDatabase() {
+        // When
+        boolean member = chatManager.isMember("unknown", "user1");
+
+        // Then
+        assertFalse(member);
+        verify(chatDbService, never()).getChatParticipantIds(any());
     }
 
     @Test
@@ -180,7 +340,7 @@ public class ChatManagerTests {
         // Given
         ChatManager freshManager = new ChatManager(chatDbService);
         ReflectionTestUtils.setField(freshManager, "chatDbService", chatDbService);
-        when(chatDbService.getAllChatParticipantMappings()).thenReturn(List.of());
+        when(chatDbService.forEachChatParticipantMapping(any())).thenReturn(0L);
 
         // When
         freshManager.initializeChatManager();
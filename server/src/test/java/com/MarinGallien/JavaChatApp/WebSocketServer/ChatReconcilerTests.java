@@ -0,0 +1,190 @@
+package com.MarinGallien.JavaChatApp.WebSocketServer;
+
+import com.MarinGallien.JavaChatApp.Database.DatabaseServices.ChatDbService;
+import com.MarinGallien.JavaChatApp.Database.JPAEntities.User;
+import com.MarinGallien.JavaChatApp.EventSystem.Events.ChatEvents.ChatCreated;
+import com.MarinGallien.JavaChatApp.EventSystem.Events.ChatEvents.MemberAddedToChat;
+import com.MarinGallien.JavaChatApp.EventSystem.Events.ChatEvents.MemberRemovedFromChat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(ChatDbService.class)
+public class ChatReconcilerTests {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ChatDbService chatDbService;
+
+    private ChatManager chatManager;
+
+    private final List<String> userIds = new ArrayList<>();
+    private final List<String> chatIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 4; i++) {
+            User user = new User("member" + i, "member" + i + "@test.com", "password");
+            entityManager.persist(user);
+            userIds.add(user.getUserId());
+        }
+        for (int i = 0; i < 5; i++) {
+            String creatorId = userIds.get(i % userIds.size());
+            chatIds.add(chatDbService.createGroupChat(creatorId, Set.of(userIds.get(0), userIds.get(1)),
+                    "group" + i).getChatId());
+        }
+        entityManager.flush();
+
+        chatManager = new ChatManager(chatDbService);
+        chatManager.initializeChatManager();
+    }
+
+    // Reloads run on the calling thread, without a chat lane
+    private ChatReconciler newReconciler(int chatsPerRun, int maxRepairsPerRun) {
+        return new ChatReconciler(chatManager, chatDbService, null, true, 60_000, chatsPerRun, maxRepairsPerRun);
+    }
+
+    private Set<String> storedMembers(String chatId) {
+        return Set.copyOf(chatDbService.getChatParticipantIds(chatId));
+    }
+
+    // ==========================================================================
+    // DRIFT DETECTION TESTS
+    // ==========================================================================
+
+    @Test
+    void runOnce_IndexMatchesDatabase_FindsNoDrift() {
+        // Given
+        ChatReconciler reconciler = newReconciler(100, 100);
+
+        // When
+        int drifted = reconciler.runOnce();
+
+        // Then
+        assertEquals(0, drifted);
+        assertEquals(5, reconciler.getCheckedCount());
+        assertEquals(1, reconciler.getPassCount());
+        assertEquals(0, reconciler.getRepairedCount());
+    }
+
+    @Test
+    void runOnce_LostEvents_ReloadsOnlyDriftedChats() {
+        // Given - one chat missed a member, another kept a removed one
+        String missedAdd = chatIds.get(1);
+        String missedRemove = chatIds.get(3);
+        chatManager.handleMemberRemovedFromChat(new MemberRemovedFromChat(userIds.get(1), missedAdd));
+        chatManager.handleMemberAddedToChat(new MemberAddedToChat(userIds.get(2), missedRemove));
+        ChatReconciler reconciler = newReconciler(100, 100);
+
+        // When
+        int drifted = reconciler.runOnce();
+
+        // Then
+        assertEquals(2, drifted);
+        assertEquals(2, reconciler.getRepairedCount());
+        for (String chatId : chatIds) {
+            assertEquals(storedMembers(chatId), chatManager.getChatParticipants(chatId));
+        }
+    }
+
+    @Test
+    void runOnce_ChatDeletedFromDatabase_RemovedFromIndex() {
+        // Given - a chat only the index knows about
+        chatManager.handleChatCreated(new ChatCreated("ghost-chat", Set.of(userIds.get(0))));
+        ChatReconciler reconciler = newReconciler(100, 100);
+
+        // When
+        int drifted = reconciler.runOnce();
+
+        // Then
+        assertEquals(1, drifted);
+        assertFalse(chatManager.chatExists("ghost-chat"));
+    }
+
+    @Test
+    void runOnce_ChatMissingFromIndex_Loaded() {
+        // Given - a chat created after the index was loaded, whose event never arrived
+        String chatId = chatDbService.createGroupChat(userIds.get(2), Set.of(userIds.get(3)), "late").getChatId();
+        entityManager.flush();
+        ChatReconciler reconciler = newReconciler(100, 100);
+
+        // When
+        reconciler.runOnce();
+
+        // Then
+        assertTrue(chatManager.chatExists(chatId));
+        assertEquals(storedMembers(chatId), chatManager.getChatParticipants(chatId));
+    }
+
+    // ==========================================================================
+    // RATE LIMITING TESTS
+    // ==========================================================================
+
+    @Test
+    void runOnce_SmallSlices_PassSpreadOverRuns() {
+        // Given - a stale chat whose ID sorts last, so only the final slice can find it
+        chatManager.handleChatCreated(new ChatCreated("~stale", Set.of(userIds.get(0))));
+        ChatReconciler reconciler = newReconciler(2, 100);
+
+        // When - 5 chats in slices of 2
+        reconciler.runOnce();
+        reconciler.runOnce();
+        long passesBeforeLastSlice = reconciler.getPassCount();
+        reconciler.runOnce();
+
+        // Then
+        assertEquals(0, passesBeforeLastSlice);
+        assertEquals(1, reconciler.getPassCount());
+        assertEquals(3, reconciler.getRunCount());
+        assertEquals(6, reconciler.getCheckedCount());
+        assertFalse(chatManager.chatExists("~stale"));
+    }
+
+    @Test
+    void runOnce_MoreDriftThanRepairLimit_DefersRestToNextPass() {
+        // Given - every chat lost a member
+        for (String chatId : chatIds) {
+            chatManager.handleMemberRemovedFromChat(new MemberRemovedFromChat(userIds.get(1), chatId));
+        }
+        ChatReconciler reconciler = newReconciler(100, 2);
+
+        // When
+        int firstPass = reconciler.runOnce();
+        int secondPass = reconciler.runOnce();
+        int thirdPass = reconciler.runOnce();
+        int fourthPass = reconciler.runOnce();
+
+        // Then
+        assertEquals(5, firstPass);
+        assertEquals(3, secondPass);
+        assertEquals(1, thirdPass);
+        assertEquals(0, fourthPass);
+        assertEquals(5, reconciler.getRepairedCount());
+        assertEquals(4, reconciler.getDeferredCount());
+    }
+
+    @Test
+    void runOnce_ChatManagerNotReady_DoesNothing() {
+        // Given
+        chatManager = new ChatManager(chatDbService);
+        ChatReconciler reconciler = newReconciler(100, 100);
+
+        // When / Then
+        assertEquals(0, reconciler.runOnce());
+        assertEquals(0, reconciler.getRunCount());
+    }
+}
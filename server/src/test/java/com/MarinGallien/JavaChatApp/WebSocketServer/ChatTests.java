@@ -3,6 +3,8 @@ package com.MarinGallien.JavaChatApp.WebSocketServer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Set;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class ChatTests {
@@ -84,4 +86,47 @@ public class ChatTests {
         assertFalse(result);
     }
 
+    @Test
+    void getMemberIds_AfterChange_EarlierSnapshotUnchanged() {
+        // Given
+        chat.addMember("user1");
+        int[] snapshot = chat.getMemberIds();
+
+        // When
+        chat.addMember("user2");
+        chat.removeMember("user1");
+
+        // Then
+        assertEquals(1, snapshot.length);
+        assertEquals("user1", chat.getUserIds().nameOf(snapshot[0]));
+        assertEquals(1, chat.getMemberIds().length);
+        assertEquals("user2", chat.getUserIds().nameOf(chat.getMemberIds()[0]));
+    }
+
+    @Test
+    void getMemberIds_SharedInterner_SameUserSameId() {
+        // Given
+        IdInterner userIds = new IdInterner();
+        Chat chat1 = new Chat("chat1", userIds);
+        Chat chat2 = new Chat("chat2", userIds);
+
+        // When
+        chat1.addMember("user1");
+        chat2.addMember("user1");
+
+        // Then
+        assertEquals(chat1.getMemberIds()[0], chat2.getMemberIds()[0]);
+        assertEquals(1, userIds.size());
+    }
+
+    @Test
+    void getMembers_SeveralMembers_ReturnsUserIds() {
+        // Given
+        chat.addMember("user2");
+        chat.addMember("user1");
+        chat.addMember("user3");
+
+        // When & Then
+        assertEquals(Set.of("user1", "user2", "user3"), chat.getMembers());
+    }
 }
@@ -0,0 +1,106 @@
+package com.MarinGallien.JavaChatApp.WebSocketServer;
+
+import com.MarinGallien.JavaChatApp.Database.DatabaseServices.ContactDbService;
+import com.MarinGallien.JavaChatApp.EventSystem.Events.ContactEvents.ContactCreated;
+import com.MarinGallien.JavaChatApp.EventSystem.Events.ContactEvents.ContactRemoved;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ContactManagerTests {
+
+    @Mock
+    private ContactDbService contactDbService;
+
+    private ContactManager loadedWith(List<Object[]> mappings) {
+        when(contactDbService.getAllContactMappings()).thenReturn(mappings);
+        ContactManager contactManager = new ContactManager(contactDbService);
+        contactManager.initializeContactManager();
+        return contactManager;
+    }
+
+    // ==========================================================================
+    // INITIALIZATION TESTS
+    // ==========================================================================
+
+    @Test
+    void initializeContactManager_ExistingContacts_BuildsAdjacency() {
+        // When
+        ContactManager contactManager = loadedWith(List.of(
+                new Object[]{"user1", "user2"}, new Object[]{"user2", "user1"},
+                new Object[]{"user1", "user3"}, new Object[]{"user3", "user1"}));
+
+        // Then
+        assertEquals(Set.of("user2", "user3"), contactManager.getContactIds("user1"));
+        assertEquals(Set.of("user1"), contactManager.getContactIds("user2"));
+    }
+
+    @Test
+    void initializeContactManager_NoContacts_EmptyGraph() {
+        // When
+        ContactManager contactManager = loadedWith(List.of());
+
+        // Then
+        assertTrue(contactManager.getContactIds("user1").isEmpty());
+    }
+
+    // ==========================================================================
+    // EVENT HANDLER TESTS
+    // ==========================================================================
+
+    @Test
+    void handleContactCreated_ValidEvent_AddsBothDirections() {
+        // Given
+        ContactManager contactManager = loadedWith(List.of());
+
+        // When
+        contactManager.handleContactCreated(new ContactCreated("user1", "user2"));
+
+        // Then
+        assertTrue(contactManager.areContacts("user1", "user2"));
+        assertTrue(contactManager.areContacts("user2", "user1"));
+    }
+
+    @Test
+    void handleContactRemoved_ExistingContact_RemovesBothDirections() {
+        // Given
+        ContactManager contactManager = loadedWith(List.of());
+        contactManager.handleContactCreated(new ContactCreated("user1", "user2"));
+
+        // When
+        contactManager.handleContactRemoved(new ContactRemoved("user2", "user1"));
+
+        // Then
+        assertFalse(contactManager.areContacts("user1", "user2"));
+        assertTrue(contactManager.getContactIds("user2").isEmpty());
+    }
+
+    @Test
+    void handleContactCreated_NullUserId_Ignored() {
+        // Given
+        ContactManager contactManager = loadedWith(List.of());
+
+        // When
+        contactManager.handleContactCreated(new ContactCreated(null, "user2"));
+
+        // Then
+        assertTrue(contactManager.getContactIds("user2").isEmpty());
+    }
+
+    @Test
+    void getContactIds_NullUserId_ReturnsEmptySet() {
+        // Given
+        ContactManager contactManager = loadedWith(List.of());
+
+        // When & Then
+        assertTrue(contactManager.getContactIds(null).isEmpty());
+    }
+}
@@ -0,0 +1,165 @@
+package com.MarinGallien.JavaChatApp.WebSocketServer;
+
+import com.MarinGallien.JavaChatApp.Database.DatabaseServices.ContactDbService;
+import com.MarinGallien.JavaChatApp.Database.JPAEntities.User;
+import com.MarinGallien.JavaChatApp.Enums.OnlineStatus;
+import com.MarinGallien.JavaChatApp.EventSystem.Events.ContactEvents.ContactCreated;
+import com.MarinGallien.JavaChatApp.EventSystem.Events.ContactEvents.ContactRemoved;
+import com.MarinGallien.JavaChatApp.Services.SessionService;
+import com.MarinGallien.JavaChatApp.Services.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// Two nodes sharing one database, each with its own in-memory contact graph. A contact change is made through node A
+// and applied there by its event, the way ContactService does it; node B only learns of it by polling.
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(ContactDbService.class)
+public class ContactReplicationTests {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ContactDbService contactDbService;
+
+    private ContactManager nodeA;
+    private ContactManager nodeB;
+
+    private String user1Id;
+    private String user2Id;
+
+    @BeforeEach
+    void setUp() {
+        User user1 = new User("alice", "alice@test.com", "password1");
+        User user2 = new User("bob", "bob@test.com", "password2");
+        entityManager.persistAndFlush(user1);
+        entityManager.persistAndFlush(user2);
+        user1Id = user1.getUserId();
+        user2Id = user2.getUserId();
+
+        // Polled by hand
+        nodeA = new ContactManager(contactDbService);
+        nodeB = new ContactManager(contactDbService);
+        nodeA.initializeContactManager();
+        nodeB.initializeContactManager();
+    }
+
+    private void addContactOnNodeA() {
+        assertNotNull(contactDbService.createContact(user1Id, user2Id));
+        nodeA.handleContactCreated(new ContactCreated(user1Id, user2Id));
+    }
+
+    // ==========================================================================
+    // POLLING TESTS
+    // ==========================================================================
+
+    @Test
+    void pollContactChanges_ContactAddedOnOtherNode_AddedToGraph() {
+        // Given
+        addContactOnNodeA();
+        assertFalse(nodeB.areContacts(user1Id, user2Id));
+
+        // When
+        int applied = nodeB.pollContactChanges();
+
+        // Then
+        assertEquals(1, applied);
+        assertTrue(nodeB.areContacts(user1Id, user2Id));
+        assertTrue(nodeB.areContacts(user2Id, user1Id));
+    }
+
+    @Test
+    void pollContactChanges_ContactRemovedOnOtherNode_RemovedFromGraph() {
+        // Given
+        addContactOnNodeA();
+        nodeB.pollContactChanges();
+
+        assertTrue(contactDbService.removeContact(user2Id, user1Id));
+        nodeA.handleContactRemoved(new ContactRemoved(user2Id, user1Id));
+
+        // When
+        nodeB.pollContactChanges();
+
+        // Then
+        assertFalse(nodeB.areContacts(user1Id, user2Id));
+        assertFalse(nodeB.areContacts(user2Id, user1Id));
+    }
+
+    @Test
+    void pollContactChanges_AddedThenRemovedBeforePoll_EndsWithoutContact() {
+        // Given - both changes are read in one poll
+        addContactOnNodeA();
+        contactDbService.removeContact(user1Id, user2Id);
+
+        // When
+        nodeB.pollContactChanges();
+
+        // Then
+        assertFalse(nodeB.areContacts(user1Id, user2Id));
+    }
+
+    @Test
+    void pollContactChanges_PolledAgain_NotAppliedTwice() {
+        // Given
+        addContactOnNodeA();
+        nodeB.pollContactChanges();
+
+        // When - the overlap reads the same change again
+        int applied = nodeB.pollContactChanges();
+
+        // Then
+        assertEquals(0, applied);
+        assertEquals(1, nodeB.getPolledChangesApplied());
+        assertTrue(nodeB.areContacts(user1Id, user2Id));
+    }
+
+    @Test
+    void pollContactChanges_ChangeMadeOnSameNode_GraphUnchanged() {
+        // Given
+        addContactOnNodeA();
+
+        // When
+        nodeA.pollContactChanges();
+
+        // Then
+        assertTrue(nodeA.areContacts(user1Id, user2Id));
+    }
+
+    // ==========================================================================
+    // PRESENCE TESTS
+    // ==========================================================================
+
+    @Test
+    void presence_ContactAddedOnOtherNode_PublisherNotifiesNewContact() {
+        // Given - node B publishes presence, the contact is added on node A
+        MessageBroadcaster messageBroadcaster = mock(MessageBroadcaster.class);
+        SessionService sessionService = mock(SessionService.class);
+        UserService userService = mock(UserService.class);
+        when(userService.getUsernameByUserId(user1Id)).thenReturn("alice");
+        PresenceDispatcher publisher = new PresenceDispatcher(nodeB, new StatusManager(), new SessionRegistry(),
+                sessionService, userService, messageBroadcaster, 60_000);
+
+        addContactOnNodeA();
+        nodeB.pollContactChanges();
+
+        // When
+        publisher.submit(user1Id, OnlineStatus.ONLINE);
+        publisher.flushAll();
+
+        // Then
+        verify(messageBroadcaster).broadcastEach(argThat(payloads -> payloads.keySet().equals(Set.of(user2Id))),
+                eq("/queue/presence"));
+    }
+}
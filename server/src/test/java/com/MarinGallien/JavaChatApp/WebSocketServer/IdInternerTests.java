@@ -0,0 +1,72 @@
+package com.MarinGallien.JavaChatApp.WebSocketServer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdInternerTests {
+
+    private IdInterner interner;
+
+    @BeforeEach
+    void setUp() {
+        interner = new IdInterner();
+    }
+
+    @Test
+    void intern_NewIds_AssignsDenseInts() {
+        // When
+        int first = interner.intern("user1");
+        int second = interner.intern("user2");
+
+        // Then
+        assertEquals(0, first);
+        assertEquals(1, second);
+        assertEquals(2, interner.size());
+    }
+
+    @Test
+    void intern_SameIdTwice_ReturnsSameInt() {
+        // When
+        int first = interner.intern("user1");
+        int second = interner.intern("user1");
+
+        // Then
+        assertEquals(first, second);
+        assertEquals(1, interner.size());
+    }
+
+    @Test
+    void nameOf_InternedId_ReturnsOriginalString() {
+        // Given
+        int id = interner.intern("user1");
+
+        // When & Then
+        assertEquals("user1", interner.nameOf(id));
+    }
+
+    @Test
+    void lookup_UnknownId_ReturnsUnknownWithoutAssigning() {
+        // When
+        int id = interner.lookup("user1");
+
+        // Then
+        assertEquals(IdInterner.UNKNOWN, id);
+        assertEquals(0, interner.size());
+    }
+
+    @Test
+    void intern_BeyondInitialCapacity_KeepsAllNames() {
+        // Given
+        for (int i = 0; i < 5000; i++) {
+            interner.intern("user" + i);
+        }
+
+        // When & Then
+        assertEquals(5000, interner.size());
+        assertEquals("user0", interner.nameOf(0));
+        assertEquals("user4999", interner.nameOf(4999));
+        assertEquals(4321, interner.lookup("user4321"));
+    }
+}
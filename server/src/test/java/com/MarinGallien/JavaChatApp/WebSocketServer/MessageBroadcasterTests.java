@@ -0,0 +1,192 @@
+package com.MarinGallien.JavaChatApp.WebSocketServer;
+
+import com.MarinGallien.JavaChatApp.DTOs.WebsocketMessages.WebSocketMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class MessageBroadcasterTests {
+
+    @Mock
+    private MessageChannel clientOutboundChannel;
+
+    private SessionRegistry sessionRegistry;
+    private MessageBroadcaster broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        sessionRegistry = new SessionRegistry();
+        broadcaster = new MessageBroadcaster(clientOutboundChannel, new ObjectMapper(), sessionRegistry);
+    }
+
+    private void connect(String sessionId, String userId) {
+        sessionRegistry.register(sessionId, userId);
+        sessionRegistry.subscribe(sessionId, "sub-" + sessionId, "/user/queue/messages");
+    }
+
+    @Test
+    void broadcastToUsers_ConnectedRecipients_SharesOneSerializedPayload() {
+        // Given
+        connect("s1", "user1");
+        connect("s2", "user2");
+        WebSocketMessage message = new WebSocketMessage("sender", "chat1", "Hello", "alice");
+
+        // When
+        int sent = broadcaster.broadcastToUsers(List.of("user1", "user2"), "/queue/messages", message);
+
+        // Then
+        assertEquals(2, sent);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Message<?>> captor = ArgumentCaptor.forClass(Message.class);
+        verify(clientOutboundChannel, times(2)).send(captor.capture());
+
+        Message<?> first = captor.getAllValues().get(0);
+        Message<?> second = captor.getAllValues().get(1);
+        assertSame(first.getPayload(), second.getPayload());
+        assertEquals(MimeTypeUtils.APPLICATION_JSON, first.getHeaders().get(MessageHeaders.CONTENT_TYPE));
+        assertTrue(new String((byte[]) first.getPayload()).contains("\"content\":\"Hello\""));
+    }
+
+    @Test
+    void broadcastToUsers_ConnectedRecipient_AddressesSessionAndSubscription() {
+        // Given
+        connect("s1", "user1");
+
+        // When
+        broadcaster.broadcastToUsers(List.of("user1"), "/queue/messages",
+                new WebSocketMessage("sender", "chat1", "Hello", "alice"));
+
+        // Then
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Message<?>> captor = ArgumentCaptor.forClass(Message.class);
+        verify(clientOutboundChannel).send(captor.capture());
+
+        MessageHeaders headers = captor.getValue().getHeaders();
+        assertEquals("s1", SimpMessageHeaderAccessor.getSessionId(headers));
+        assertEquals("sub-s1", SimpMessageHeaderAccessor.getSubscriptionId(headers));
+        assertEquals("/user/queue/messages", SimpMessageHeaderAccessor.getDestination(headers));
+    }
+
+    @Test
+    void broadcastToUsers_UserWithTwoSessions_DeliversToBothAndCountsUserOnce() {
+        // Given
+        connect("s1", "user1");
+        connect("s2", "user1");
+
+        // When
+        int sent = broadcaster.broadcastToUsers(List.of("user1"), "/queue/messages",
+                new WebSocketMessage("sender", "chat1", "Hello", "alice"));
+
+        // Then
+        assertEquals(1, sent);
+        verify(clientOutboundChannel, times(2)).send(any(Message.class));
+    }
+
+    @Test
+    void broadcastToUsers_DisconnectedRecipient_IsSkipped() {
+        // Given
+        connect("s1", "user1");
+        connect("s2", "user2");
+        sessionRegistry.unregister("s2");
+
+        // When
+        int sent = broadcaster.broadcastToUsers(List.of("user1", "user2"), "/queue/messages",
+                new WebSocketMessage("sender", "chat1", "Hello", "alice"));
+
+        // Then
+        assertEquals(1, sent);
+        verify(clientOutboundChannel, times(1)).send(any(Message.class));
+    }
+
+    @Test
+    void broadcastToUsers_SessionNotSubscribed_IsSkipped() {
+        // Given
+        sessionRegistry.register("s1", "user1");
+        sessionRegistry.subscribe("s1", "sub-0", "/user/queue/presence");
+
+        // When
+        int sent = broadcaster.broadcastToUsers(List.of("user1"), "/queue/messages",
+                new WebSocketMessage("sender", "chat1", "Hello", "alice"));
+
+        // Then
+        assertEquals(0, sent);
+        verifyNoInteractions(clientOutboundChannel);
+    }
+
+    @Test
+    void broadcastToUsers_DeliveryFails_ContinuesWithOtherRecipients() {
+        // Given
+        connect("s1", "user1");
+        connect("s2", "user2");
+        when(clientOutboundChannel.send(any(Message.class)))
+                .thenThrow(new RuntimeException("channel closed"))
+                .thenReturn(true);
+
+        // When
+        int sent = broadcaster.broadcastToUsers(List.of("user1", "user2"), "/queue/messages",
+                new WebSocketMessage("sender", "chat1", "Hello", "alice"));
+
+        // Then
+        assertEquals(1, sent);
+        verify(clientOutboundChannel, times(2)).send(any(Message.class));
+    }
+
+    @Test
+    void broadcastToUsers_InternedIds_DeliversToResolvedUsers() {
+        // Given
+        IdInterner userIds = new IdInterner();
+        int[] members = {userIds.intern("user1"), userIds.intern("user2"), userIds.intern("user3")};
+        connect("s1", "user1");
+        connect("s3", "user3");
+
+        // When
+        int sent = broadcaster.broadcastToUsers(members, userIds, "/queue/messages",
+                new WebSocketMessage("sender", "chat1", "Hello", "alice"));
+
+        // Then
+        assertEquals(2, sent);
+        verify(clientOutboundChannel, times(2)).send(any(Message.class));
+    }
+
+    @Test
+    void broadcastEach_ConnectedRecipients_EachGetsOwnPayload() {
+        // Given
+        connect("s1", "user1");
+        connect("s2", "user2");
+
+        // When
+        int sent = broadcaster.broadcastEach(Map.of(
+                "user1", new WebSocketMessage("sender", "chat1", "For one", "alice"),
+                "user2", new WebSocketMessage("sender", "chat1", "For two", "alice"),
+                "user3", new WebSocketMessage("sender", "chat1", "Offline", "alice")), "/queue/messages");
+
+        // Then
+        assertEquals(2, sent);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Message<?>> captor = ArgumentCaptor.forClass(Message.class);
+        verify(clientOutboundChannel, times(2)).send(captor.capture());
+        for (Message<?> message : captor.getAllValues()) {
+            String body = new String((byte[]) message.getPayload());
+            String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+            assertTrue(body.contains(sessionId.equals("s1") ? "For one" : "For two"));
+        }
+    }
+}
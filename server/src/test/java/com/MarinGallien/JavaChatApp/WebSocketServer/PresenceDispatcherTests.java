@@ -0,0 +1,279 @@
+package com.MarinGallien.JavaChatApp.WebSocketServer;
+
+import com.MarinGallien.JavaChatApp.DTOs.WebsocketMessages.OnlineStatusMessage;
+import com.MarinGallien.JavaChatApp.DTOs.WebsocketMessages.PresenceBatchMessage;
+import com.MarinGallien.JavaChatApp.Enums.OnlineStatus;
+import com.MarinGallien.JavaChatApp.Services.SessionService;
+import com.MarinGallien.JavaChatApp.Services.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PresenceDispatcherTests {
+
+    @Mock
+    private ContactManager contactManager;
+
+    @Mock
+    private SessionService sessionService;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private MessageBroadcaster messageBroadcaster;
+
+    // Not part of a cluster, so this node publishes
+    private final StatusManager statusManager = new StatusManager();
+    private final SessionRegistry sessionRegistry = new SessionRegistry();
+
+    private PresenceDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        // Scheduler is not started - tests publish with flushAll() / flushDue()
+        dispatcher = new PresenceDispatcher(contactManager, statusManager, sessionRegistry, sessionService,
+                userService, messageBroadcaster, 60_000);
+
+        // Not every test publishes, so these stubs are lenient
+        lenient().when(sessionService.updateUserStatuses(anyMap()))
+                .thenAnswer(invocation -> ((Map<?, ?>) invocation.getArgument(0)).size());
+        lenient().when(userService.getUsernameByUserId(anyString()))
+                .thenAnswer(invocation -> "name-" + invocation.getArgument(0));
+        lenient().when(messageBroadcaster.broadcastEach(anyMap(), anyString()))
+                .thenAnswer(invocation -> ((Map<?, ?>) invocation.getArgument(0)).size());
+    }
+
+    // Recipient user ID:batch of the one presence broadcast made
+    @SuppressWarnings("unchecked")
+    private Map<String, PresenceBatchMessage> broadcastBatches() {
+        ArgumentCaptor<Map<String, ?>> payloads = ArgumentCaptor.forClass(Map.class);
+        verify(messageBroadcaster).broadcastEach(payloads.capture(), eq("/queue/presence"));
+        return (Map<String, PresenceBatchMessage>) payloads.getValue();
+    }
+
+    // ==========================================================================
+    // DEBOUNCE TESTS
+    // ==========================================================================
+
+    @Test
+    void flushDue_WindowNotElapsed_NothingPublished() {
+        // Given
+        dispatcher.submit("user1", OnlineStatus.ONLINE);
+
+        // When
+        dispatcher.flushDue();
+
+        // Then
+        assertEquals(1, dispatcher.getPendingCount());
+        verifyNoInteractions(sessionService, messageBroadcaster);
+    }
+
+    @Test
+    void flushAll_SingleChange_UpdatesDatabaseAndNotifiesContacts() {
+        // Given
+        when(contactManager.getContactIds("user1")).thenReturn(Set.of("contact1"));
+        dispatcher.submit("user1", OnlineStatus.ONLINE);
+
+        // When
+        dispatcher.flushAll();
+
+        // Then
+        verify(sessionService).updateUserStatuses(Map.of("user1", OnlineStatus.ONLINE));
+
+        Map<String, PresenceBatchMessage> batches = broadcastBatches();
+        assertEquals(Set.of("contact1"), batches.keySet());
+        List<OnlineStatusMessage> updates = batches.get("contact1").getUpdates();
+        assertEquals(1, updates.size());
+        assertEquals("user1", updates.get(0).getSenderID());
+        assertEquals(OnlineStatus.ONLINE, updates.get(0).getStatus());
+        assertEquals(1, dispatcher.getPublishedCount());
+    }
+
+    @Test
+    void flushAll_FlapWithinWindow_PublishesOnlyNetChange() {
+        // Given
+        when(contactManager.getContactIds("user1")).thenReturn(Set.of("contact1"));
+        dispatcher.submit("user1", OnlineStatus.ONLINE);
+        dispatcher.submit("user1", OnlineStatus.OFFLINE);
+        dispatcher.submit("user1", OnlineStatus.ONLINE);
+
+        // When
+        dispatcher.flushAll();
+
+        // Then
+        verify(sessionService, times(1)).updateUserStatuses(Map.of("user1", OnlineStatus.ONLINE));
+        verify(messageBroadcaster, times(1)).broadcastEach(anyMap(), anyString());
+    }
+
+    @Test
+    void flushAll_FlapBackToPublishedStatus_NothingPublished() {
+        // Given - user1 is known to be online
+        dispatcher.submit("user1", OnlineStatus.ONLINE);
+        dispatcher.flushAll();
+        clearInvocations(sessionService, messageBroadcaster, contactManager);
+
+        // Disconnects and reconnects within the window
+        dispatcher.submit("user1", OnlineStatus.OFFLINE);
+        dispatcher.submit("user1", OnlineStatus.ONLINE);
+
+        // When
+        dispatcher.flushAll();
+
+        // Then
+        verifyNoInteractions(sessionService, messageBroadcaster, contactManager);
+        assertEquals(1, dispatcher.getCoalescedCount());
+    }
+
+    // ==========================================================================
+    // BATCHING TESTS
+    // ==========================================================================
+
+    @Test
+    void flushAll_SeveralUsersShareContact_OneBatchPerRecipientInOneBroadcast() {
+        // Given
+        when(contactManager.getContactIds("user1")).thenReturn(Set.of("shared"));
+        when(contactManager.getContactIds("user2")).thenReturn(Set.of("shared", "other"));
+        dispatcher.submit("user1", OnlineStatus.ONLINE);
+        dispatcher.submit("user2", OnlineStatus.ONLINE);
+
+        // When
+        dispatcher.flushAll();
+
+        // Then
+        Map<String, PresenceBatchMessage> batches = broadcastBatches();
+        assertEquals(Set.of("shared", "other"), batches.keySet());
+        assertEquals(2, batches.get("shared").getUpdates().size());
+        assertEquals(1, batches.get("other").getUpdates().size());
+        assertEquals(2, dispatcher.getFramesSent());
+    }
+
+    @Test
+    void flushAll_SeveralChanges_StatusesStoredInOneBatch() {
+        // Given
+        dispatcher.submit("user1", OnlineStatus.ONLINE);
+        dispatcher.submit("user2", OnlineStatus.ONLINE);
+
+        // When
+        dispatcher.flushAll();
+
+        // Then
+        verify(sessionService).updateUserStatuses(Map.of("user1", OnlineStatus.ONLINE, "user2", OnlineStatus.ONLINE));
+        verifyNoMoreInteractions(sessionService);
+        assertEquals(2, dispatcher.getStatusesStored());
+    }
+
+    // ==========================================================================
+    // USERNAME TESTS
+    // ==========================================================================
+
+    @Test
+    void flushAll_UserConnectedHere_UsernameFromSession() {
+        // Given
+        when(contactManager.getContactIds("user1")).thenReturn(Set.of("contact1"));
+        sessionRegistry.register("s1", "user1", "alice");
+        dispatcher.submit("user1", OnlineStatus.ONLINE);
+
+        // When
+        dispatcher.flushAll();
+
+        // Then
+        assertEquals("alice", broadcastBatches().get("contact1").getUpdates().get(0).getUsername());
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void flushAll_OfflineAfterSessionClosed_UsernameCachedAtConnect() {
+        // Given - user1 was published online, then their session closed
+        when(contactManager.getContactIds("user1")).thenReturn(Set.of("contact1"));
+        sessionRegistry.register("s1", "user1", "alice");
+        dispatcher.submit("user1", OnlineStatus.ONLINE);
+        dispatcher.flushAll();
+        sessionRegistry.unregister("s1");
+        clearInvocations(messageBroadcaster);
+
+        // When
+        dispatcher.submit("user1", OnlineStatus.OFFLINE);
+        dispatcher.flushAll();
+
+        // Then
+        assertEquals("alice", broadcastBatches().get("contact1").getUpdates().get(0).getUsername());
+        verifyNoInteractions(userService);
+        assertEquals(0, dispatcher.getUsernameLookups());
+    }
+
+    @Test
+    void flushAll_UserOnAnotherNode_UsernameLookedUpOnce() {
+        // Given - no session here to take the username from
+        dispatcher.submit("user1", OnlineStatus.ONLINE);
+        dispatcher.flushAll();
+
+        // When
+        dispatcher.submit("user1", OnlineStatus.OFFLINE);
+        dispatcher.flushAll();
+
+        // Then
+        verify(userService, times(1)).getUsernameByUserId("user1");
+        assertEquals(1, dispatcher.getUsernameLookups());
+    }
+
+    // ==========================================================================
+    // CLUSTER TESTS
+    // ==========================================================================
+
+    @Test
+    void flushAll_NotPublisher_TracksWithoutPublishing() {
+        // Given - another node of the cluster announces presence
+        StatusManager clusterStatus = mock(StatusManager.class);
+        PresenceDispatcher follower = new PresenceDispatcher(contactManager, clusterStatus, sessionRegistry,
+                sessionService, userService, messageBroadcaster, 60_000);
+        follower.submit("user1", OnlineStatus.ONLINE);
+
+        // When
+        follower.flushAll();
+
+        // Then
+        verifyNoInteractions(sessionService, messageBroadcaster);
+        assertEquals(1, follower.getSkippedCount());
+    }
+
+    @Test
+    void flushAll_PublisherLeft_TakesOverFromTrackedStatus() {
+        // Given - user1 was announced online by the node that went down
+        StatusManager clusterStatus = mock(StatusManager.class);
+        PresenceDispatcher follower = new PresenceDispatcher(contactManager, clusterStatus, sessionRegistry,
+                sessionService, userService, messageBroadcaster, 60_000);
+        follower.submit("user1", OnlineStatus.ONLINE);
+        follower.flushAll();
+        when(clusterStatus.publishesPresence()).thenReturn(true);
+
+        // When
+        follower.submit("user1", OnlineStatus.OFFLINE);
+        follower.flushAll();
+
+        // Then
+        verify(sessionService).updateUserStatuses(Map.of("user1", OnlineStatus.OFFLINE));
+        assertEquals(1, follower.getPublishedCount());
+    }
+
+    @Test
+    void submit_NullUserId_Ignored() {
+        // When
+        dispatcher.submit(null, OnlineStatus.ONLINE);
+
+        // Then
+        assertEquals(0, dispatcher.getPendingCount());
+    }
+}
@@ -0,0 +1,119 @@
+package com.MarinGallien.JavaChatApp.WebSocketServer;
+
+import com.MarinGallien.JavaChatApp.WebSocketServer.SessionRegistry.ClientSession;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SessionRegistryTests {
+
+    private SessionRegistry sessionRegistry;
+
+    @BeforeEach
+    void setUp() {
+        sessionRegistry = new SessionRegistry();
+    }
+
+    @Test
+    void register_NewSession_SessionIsListedForUser() {
+        // When
+        sessionRegistry.register("s1", "user1");
+
+        // Then
+        List<ClientSession> sessions = sessionRegistry.getSessions("user1");
+        assertEquals(1, sessions.size());
+        assertEquals("s1", sessions.get(0).getSessionId());
+        assertTrue(sessionRegistry.hasSessions("user1"));
+    }
+
+    @Test
+    void register_SecondSession_BothSessionsListed() {
+        // When
+        sessionRegistry.register("s1", "user1");
+        sessionRegistry.register("s2", "user1");
+
+        // Then
+        assertEquals(2, sessionRegistry.getSessions("user1").size());
+        assertEquals(2, sessionRegistry.getSessionCount());
+    }
+
+    @Test
+    void unregister_OneOfTwoSessions_OtherSessionRemains() {
+        // Given
+        sessionRegistry.register("s1", "user1");
+        sessionRegistry.register("s2", "user1");
+
+        // When
+        String userId = sessionRegistry.unregister("s1");
+
+        // Then
+        assertEquals("user1", userId);
+        List<ClientSession> sessions = sessionRegistry.getSessions("user1");
+        assertEquals(1, sessions.size());
+        assertEquals("s2", sessions.get(0).getSessionId());
+    }
+
+    @Test
+    void unregister_LastSession_UserHasNoSessions() {
+        // Given
+        sessionRegistry.register("s1", "user1");
+
+        // When
+        sessionRegistry.unregister("s1");
+
+        // Then
+        assertFalse(sessionRegistry.hasSessions("user1"));
+        assertTrue(sessionRegistry.getSessions("user1").isEmpty());
+    }
+
+    @Test
+    void unregister_UnknownSession_ReturnsNull() {
+        // When & Then
+        assertNull(sessionRegistry.unregister("unknown"));
+    }
+
+    @Test
+    void subscribe_RegisteredSession_SubscriptionIdRecorded() {
+        // Given
+        sessionRegistry.register("s1", "user1");
+
+        // When
+        sessionRegistry.subscribe("s1", "sub-0", "/user/queue/messages");
+
+        // Then
+        assertEquals("sub-0", sessionRegistry.getSessions("user1").get(0).getSubscriptionId("/user/queue/messages"));
+    }
+
+    @Test
+    void unsubscribe_SubscribedSession_SubscriptionIdRemoved() {
+        // Given
+        sessionRegistry.register("s1", "user1");
+        sessionRegistry.subscribe("s1", "sub-0", "/user/queue/messages");
+
+        // When
+        sessionRegistry.unsubscribe("s1", "sub-0");
+
+        // Then
+        assertNull(sessionRegistry.getSessions("user1").get(0).getSubscriptionId("/user/queue/messages"));
+    }
+
+    @Test
+    void getSessions_UnknownUser_ReturnsEmptyList() {
+        // When & Then
+        assertTrue(sessionRegistry.getSessions("user1").isEmpty());
+    }
+
+    @Test
+    void getUsername_SessionWithUsername_ReturnsIt() {
+        // Given
+        sessionRegistry.register("s1", "user1");
+        sessionRegistry.register("s2", "user1", "alice");
+
+        // When / Then
+        assertEquals("alice", sessionRegistry.getUsername("user1"));
+        assertNull(sessionRegistry.getUsername("user2"));
+    }
+}
@@ -1,8 +1,17 @@
 package com.MarinGallien.JavaChatApp.WebSocketServer;
 
+import com.MarinGallien.JavaChatApp.Enums.OnlineStatus;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class StatusManagerTests {
@@ -15,24 +24,81 @@ public class StatusManagerTests {
     }
 
     @Test
-    void setUserOnline_ValidUserId_UserIsOnline() {
+    void addSession_FirstSession_UserComesOnline() {
+        // When
+        boolean cameOnline = statusManager.addSession("user1", "s1");
+
+        // Then
+        assertTrue(cameOnline);
+        assertTrue(statusManager.isOnline("user1"));
+    }
+
+    @Test
+    void addSession_SecondSession_NoTransition() {
+        // Given
+        statusManager.addSession("user1", "s1");
+
+        // When
+        boolean cameOnline = statusManager.addSession("user1", "s2");
+
+        // Then
+        assertFalse(cameOnline);
+        assertEquals(2, statusManager.getSessionCount("user1"));
+    }
+
+    @Test
+    void removeSession_OneOfTwoSessions_UserStaysOnline() {
+        // Given
+        statusManager.addSession("user1", "s1");
+        statusManager.addSession("user1", "s2");
+
         // When
-        statusManager.setUserOnline("user1");
+        boolean wentOffline = statusManager.removeSession("user1", "s1");
 
         // Then
+        assertFalse(wentOffline);
         assertTrue(statusManager.isOnline("user1"));
     }
 
     @Test
-    void setUserOffline_OnlineUser_UserIsOffline() {
+    void removeSession_LastSession_UserIsOffline() {
         // Given
-        statusManager.setUserOnline("user1");
+        statusManager.addSession("user1", "s1");
 
         // When
-        statusManager.setUserOffline("user1");
+        boolean wentOffline = statusManager.removeSession("user1", "s1");
 
         // Then
+        assertTrue(wentOffline);
         assertFalse(statusManager.isOnline("user1"));
+        assertEquals(0, statusManager.getSessionCount("user1"));
+    }
+
+    @Test
+    void removeSession_RepeatedDisconnect_OnlyFirstReportsTransition() {
+        // Given
+        statusManager.addSession("user1", "s1");
+
+        // When
+        boolean first = statusManager.removeSession("user1", "s1");
+        boolean second = statusManager.removeSession("user1", "s1");
+
+        // Then
+        assertTrue(first);
+        assertFalse(second);
+    }
+
+    @Test
+    void removeSession_UnknownSession_UserStaysOnline() {
+        // Given
+        statusManager.addSession("user1", "s1");
+
+        // When
+        boolean wentOffline = statusManager.removeSession("user1", "other");
+
+        // Then
+        assertFalse(wentOffline);
+        assertTrue(statusManager.isOnline("user1"));
     }
 
     @Test
@@ -44,4 +110,71 @@ public class StatusManagerTests {
         assertFalse(result);
     }
 
+    @Test
+    void addAndRemoveSession_Concurrent_ExactlyOneTransitionEachWay() throws InterruptedException {
+        // Given
+        int sessions = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        AtomicInteger onlineTransitions = new AtomicInteger();
+        AtomicInteger offlineTransitions = new AtomicInteger();
+
+        // When - all sessions connect concurrently
+        CountDownLatch connected = new CountDownLatch(sessions);
+        for (int i = 0; i < sessions; i++) {
+            String sessionId = "s" + i;
+            executor.submit(() -> {
+                if (statusManager.addSession("user1", sessionId)) onlineTransitions.incrementAndGet();
+                connected.countDown();
+            });
+        }
+        assertTrue(connected.await(5, TimeUnit.SECONDS));
+
+        // Then all disconnect concurrently
+        CountDownLatch disconnected = new CountDownLatch(sessions);
+        for (int i = 0; i < sessions; i++) {
+            String sessionId = "s" + i;
+            executor.submit(() -> {
+                if (statusManager.removeSession("user1", sessionId)) offlineTransitions.incrementAndGet();
+                disconnected.countDown();
+            });
+        }
+        assertTrue(disconnected.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        // Then
+        assertEquals(1, onlineTransitions.get());
+        assertEquals(1, offlineTransitions.get());
+        assertFalse(statusManager.isOnline("user1"));
+    }
+
+    @Test
+    void setPresenceListener_FirstAndLastSession_ListenerToldOnce() {
+        // Given
+        List<String> changes = new ArrayList<>();
+        statusManager.setPresenceListener((userId, status) -> changes.add(userId + ":" + status.name()));
+
+        // When
+        statusManager.addSession("user1", "s1");
+        statusManager.addSession("user1", "s2");
+        statusManager.removeSession("user1", "s1");
+        statusManager.removeSession("user1", "s2");
+
+        // Then
+        assertEquals(List.of("user1:ONLINE", "user1:OFFLINE"), changes);
+    }
+
+    @Test
+    void remotePresenceChanged_UserConnectedHere_ListenerNotTold() {
+        // Given
+        List<OnlineStatus> changes = new ArrayList<>();
+        statusManager.addSession("user1", "s1");
+        statusManager.setPresenceListener((userId, status) -> changes.add(status));
+
+        // When - the user leaves another node but is still connected here
+        statusManager.remotePresenceChanged("user1", false);
+
+        // Then
+        assertTrue(changes.isEmpty());
+        assertTrue(statusManager.isOnline("user1"));
+    }
 }
@@ -0,0 +1,126 @@
+package com.MarinGallien.JavaChatApp.WebSocketServer;
+
+import com.MarinGallien.JavaChatApp.Services.AuthService.JWTService;
+import com.MarinGallien.JavaChatApp.Services.AuthService.TokenRevocationList;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class UserSessionInterceptorTests {
+
+    private static final String SECRET = "testSecretKeyForJWTTokensThatIsLongEnoughForHS256Algorithm";
+
+    private JWTService jwtService;
+    private SessionRegistry sessionRegistry;
+    private UserSessionInterceptor interceptor;
+    private Map<String, Object> sessionAttributes;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = spy(new JWTService(SECRET, 24L, 1024, new TokenRevocationList(24)));
+        sessionRegistry = new SessionRegistry();
+        interceptor = new UserSessionInterceptor(sessionRegistry, jwtService);
+        sessionAttributes = new HashMap<>();
+    }
+
+    private Message<byte[]> frame(StompCommand command, String authorization) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+        accessor.setSessionId("s1");
+        accessor.setSessionAttributes(sessionAttributes);
+        if (authorization != null) accessor.addNativeHeader("Authorization", authorization);
+        if (command == StompCommand.SEND) accessor.setDestination("/app/chat/chat1");
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    // ==========================================================================
+    // CONNECT TESTS
+    // ==========================================================================
+
+    @Test
+    void preSend_ConnectWithValidToken_CachesUserAndPrincipal() {
+        // Given
+        String token = jwtService.generateToken("user1", "alice");
+        Message<byte[]> connect = frame(StompCommand.CONNECT, "Bearer " + token);
+
+        // When
+        interceptor.preSend(connect, null);
+
+        // Then
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(connect, StompHeaderAccessor.class);
+        assertEquals("user1", sessionAttributes.get(UserSessionInterceptor.USER_ID_ATTRIBUTE));
+        assertEquals("alice", sessionAttributes.get(UserSessionInterceptor.USERNAME_ATTRIBUTE));
+        assertEquals("user1", accessor.getUser().getName());
+        assertTrue(sessionRegistry.hasSessions("user1"));
+    }
+
+    @Test
+    void preSend_ConnectWithRawUserIdHeader_Rejected() {
+        // Given - the old way of connecting: claiming an identity without proving it
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.setSessionId("s1");
+        accessor.setSessionAttributes(sessionAttributes);
+        accessor.addNativeHeader("userId", "user1");
+        accessor.setLeaveMutable(true);
+        Message<byte[]> connect = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+
+        // When / Then
+        assertThrows(MessageDeliveryException.class, () -> interceptor.preSend(connect, null));
+        assertTrue(sessionAttributes.isEmpty());
+        assertFalse(sessionRegistry.hasSessions("user1"));
+    }
+
+    @Test
+    void preSend_ConnectWithInvalidToken_Rejected() {
+        // When / Then
+        assertThrows(MessageDeliveryException.class,
+                () -> interceptor.preSend(frame(StompCommand.CONNECT, "Bearer not.a.token"), null));
+        assertTrue(sessionAttributes.isEmpty());
+    }
+
+    // ==========================================================================
+    // SEND TESTS
+    // ==========================================================================
+
+    @Test
+    void preSend_SendAfterConnect_NoFurtherVerification() {
+        // Given
+        String token = jwtService.generateToken("user1", "alice");
+        interceptor.preSend(frame(StompCommand.CONNECT, "Bearer " + token), null);
+        clearInvocations(jwtService);
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            assertNotNull(interceptor.preSend(frame(StompCommand.SEND, null), null));
+        }
+
+        // Then
+        verify(jwtService, never()).verifyToken(any());
+    }
+
+    @Test
+    void preSend_SendWithoutConnect_Rejected() {
+        // When / Then
+        assertThrows(MessageDeliveryException.class,
+                () -> interceptor.preSend(frame(StompCommand.SEND, null), null));
+    }
+
+    @Test
+    void preSend_SubscribeWithoutConnect_Rejected() {
+        // When / Then
+        assertThrows(MessageDeliveryException.class,
+                () -> interceptor.preSend(frame(StompCommand.SUBSCRIBE, null), null));
+    }
+}
@@ -0,0 +1,99 @@
+package com.MarinGallien.JavaChatApp.WebSocketServer;
+
+import com.MarinGallien.JavaChatApp.DTOs.WebsocketMessages.WebSocketMessage;
+import com.MarinGallien.JavaChatApp.Services.MessageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class WebSocketHandlerTests {
+
+    @Mock
+    private MessageService messageService;
+
+    @Mock
+    private StatusManager statusManager;
+
+    @Mock
+    private ChatManager chatManager;
+
+    @Mock
+    private MessageBroadcaster messageBroadcaster;
+
+    private WebSocketHandler handler;
+    private SimpMessageHeaderAccessor headerAccessor;
+
+    @BeforeEach
+    void setUp() {
+        handler = new WebSocketHandler(messageService, statusManager, chatManager, messageBroadcaster);
+
+        // Session of user1 as UserSessionInterceptor leaves it after CONNECT
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(UserSessionInterceptor.USER_ID_ATTRIBUTE, "user1");
+        attributes.put(UserSessionInterceptor.USERNAME_ATTRIBUTE, "alice");
+        headerAccessor = SimpMessageHeaderAccessor.create();
+        headerAccessor.setSessionAttributes(attributes);
+    }
+
+    // ==========================================================================
+    // TEXT MESSAGE TESTS
+    // ==========================================================================
+
+    @Test
+    void handleTextMessage_SpoofedFields_BroadcastsSessionIdentityAndPathChat() {
+        // Given - a member of chat1 claiming to be someone else, in another chat
+        when(chatManager.isMember("chat1", "user1")).thenReturn(true);
+        when(messageService.queueMessage("user1", "chat1", "Hello")).thenReturn(true);
+        when(chatManager.getChatMemberIds("chat1")).thenReturn(new int[]{0, 1});
+        WebSocketMessage spoofed = new WebSocketMessage("user2", "chat2", "Hello", "bob");
+
+        // When
+        handler.handleTextMessage("chat1", spoofed, headerAccessor);
+
+        // Then
+        ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+        verify(messageBroadcaster).broadcastToUsers(any(int[].class), any(), eq("/queue/messages"), payload.capture());
+        WebSocketMessage sent = (WebSocketMessage) payload.getValue();
+        assertNotSame(spoofed, sent);
+        assertEquals("user1", sent.getSenderID());
+        assertEquals("alice", sent.getUsername());
+        assertEquals("chat1", sent.getChatID());
+        assertEquals("Hello", sent.getContent());
+    }
+
+    @Test
+    void handleTextMessage_NotMember_NothingQueuedOrSent() {
+        // Given
+        when(chatManager.isMember("chat1", "user1")).thenReturn(false);
+
+        // When
+        handler.handleTextMessage("chat1", new WebSocketMessage("user1", "chat1", "Hello", "alice"), headerAccessor);
+
+        // Then
+        verifyNoInteractions(messageService, messageBroadcaster);
+    }
+
+    @Test
+    void handleTextMessage_UnauthenticatedSession_NothingQueuedOrSent() {
+        // Given
+        headerAccessor.setSessionAttributes(new HashMap<>());
+
+        // When
+        handler.handleTextMessage("chat1", new WebSocketMessage("user1", "chat1", "Hello", "alice"), headerAccessor);
+
+        // Then
+        verifyNoInteractions(messageService, messageBroadcaster);
+    }
+}
@@ -112,6 +112,35 @@ public class HTTPRequests {
             String fileId
     ) implements ApiReqResInterface {}
 
+    // Starts a chunked upload. sha256 is the optional hex digest of the whole file, checked on completion.
+    public static record InitUploadRequest(
+            @NotBlank(message = "User ID is required")
+            String userId,
+
+            @NotBlank(message = "Chat ID is required")
+            String chatId,
+
+            @NotBlank(message = "File name is required")
+            String filename,
+
+            @NotNull(message = "File size is required")
+            @Positive(message = "File size must be positive")
+            Long fileSize,
+
+            String fileType,
+
+            String sha256
+    ) implements ApiReqResInterface {}
+
+    // Identifies a chunked upload when asking for its status or completing it
+    public static record UploadSessionRequest(
+            @NotBlank(message = "User ID is required")
+            String userId,
+
+            @NotBlank(message = "Upload ID is required")
+            String uploadId
+    ) implements ApiReqResInterface {}
+
     public static record DeleteFileRequest(
             @NotBlank(message = "User ID is required")
             String userId,
@@ -133,6 +162,24 @@ public class HTTPRequests {
             String chatId
     ) implements ApiReqResInterface {}
 
+    // Keyset-paginated history. Set at most one of before/after to a cursor returned by a previous page;
+    // leave both null to fetch the latest page.
+    public static record GetMessagePageRequest(
+            @NotBlank(message = "User ID cannot be blank")
+            String userId,
+
+            @NotBlank(message = "Chat ID cannot be blank")
+            String chatId,
+
+            String before,
+
+            String after,
+
+            @Min(value = 1, message = "Page size must be at least 1")
+            @Max(value = 200, message = "Page size cannot exceed 200")
+            Integer limit
+    ) implements ApiReqResInterface {}
+
 
     // ========== User-related requests ==========
     public static record UpdateUnameRequest(
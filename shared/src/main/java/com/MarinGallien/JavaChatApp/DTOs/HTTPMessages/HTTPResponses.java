@@ -55,6 +55,18 @@ public class HTTPResponses {
     ) implements ApiReqResInterface {}
 
 
+    // State of a chunked upload. Chunk i covers bytes [i * chunkSize, (i + 1) * chunkSize) of the file, the last one
+    // may be shorter. missingChunks lists the chunks still to be sent, in any order and in parallel if desired.
+    public static record UploadStatusResponse(
+            boolean success,
+            String message,
+            String uploadId,
+            long chunkSize,
+            int chunkCount,
+            List<Integer> missingChunks
+    ) implements ApiReqResInterface {}
+
+
     // ========== Message-related responses ==========
     public static record GetChatMessagesResponse(
             boolean success,
@@ -62,4 +74,14 @@ public class HTTPResponses {
             List<MessageDTO> messages
     ) implements ApiReqResInterface {}
 
+    // Messages are in chronological order. olderCursor/newerCursor are passed back as before/after to page further.
+    public static record GetMessagePageResponse(
+            boolean success,
+            String message,
+            List<MessageDTO> messages,
+            String olderCursor,
+            String newerCursor,
+            boolean hasMore
+    ) implements ApiReqResInterface {}
+
 }
\ No newline at end of file
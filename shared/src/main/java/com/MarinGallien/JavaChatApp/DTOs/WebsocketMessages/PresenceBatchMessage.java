@@ -0,0 +1,36 @@
+package com.MarinGallien.JavaChatApp.DTOs.WebsocketMessages;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Presence frame sent to a user: every status change among their contacts since the previous frame.
+ */
+
+public class PresenceBatchMessage {
+    // Parameters
+    private List<OnlineStatusMessage> updates;
+
+    // Default constructor for Jackson
+    public PresenceBatchMessage() {
+        this.updates = new ArrayList<>();
+    }
+
+    // Constructor used when creating batches in code
+    public PresenceBatchMessage(List<OnlineStatusMessage> updates) {
+        this.updates = updates;
+    }
+
+    // Getters
+    public List<OnlineStatusMessage> getUpdates() {return updates;}
+
+    // Setters
+    public void setUpdates(List<OnlineStatusMessage> updates) {this.updates = updates;}
+
+    @Override
+    public String toString() {
+        return "PresenceBatchMessage{" +
+                "updates=" + updates +
+                '}';
+    }
+}